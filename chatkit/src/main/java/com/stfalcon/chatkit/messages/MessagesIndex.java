@@ -0,0 +1,226 @@
+package com.stfalcon.chatkit.messages;
+
+import com.stfalcon.chatkit.commons.models.IMessage;
+import com.stfalcon.chatkit.messages.MessagesListAdapter.Wrapper;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Message id to position index for {@link MessagesListAdapter}.<br/>
+ * Positions are stored from the end of the list, so inserts at the start (new messages) don't shift them.<br/>
+ * Inserts and removals at the end (history, trimming) just move the offset.<br/>
+ * Removals in the middle (deletes, moves to start) update only the items above the removed ones.<br/>
+ * Any other change invalidates the index. It's rebuilt on the next lookup.<br/>
+ * On duplicate ids the lowest position wins (same as the linear scan).
+ */
+class MessagesIndex {
+    private final Map<String, Integer> mPositions = new HashMap<>();
+    private int mEndOffset;
+    private int mMessagesCount;
+    private boolean mIsValid = true;
+
+    public int getPosition(List<Wrapper> items, String id) {
+        if (id == null) {
+            return -1;
+        }
+
+        if (!mIsValid) {
+            rebuild(items);
+        }
+
+        Integer key = mPositions.get(id);
+
+        if (key == null) {
+            return -1;
+        }
+
+        int position = items.size() - 1 - (key + mEndOffset);
+
+        if (!isMessageAt(items, position, id)) {
+            // The list is changed outside the adapter
+            rebuild(items);
+            key = mPositions.get(id);
+            return key != null ? items.size() - 1 - (key + mEndOffset) : -1;
+        }
+
+        return position;
+    }
+
+    public int getMessagesCount(List<Wrapper> items) {
+        if (!mIsValid) {
+            rebuild(items);
+        }
+
+        return mMessagesCount;
+    }
+
+    /**
+     * The items are already inserted at positions [0, count).
+     */
+    public void onInsertedAtStart(List<Wrapper> items, int count) {
+        if (!mIsValid) {
+            return;
+        }
+
+        int size = items.size();
+
+        // From the bottom to the top, so the lowest position wins
+        for (int i = count - 1; i >= 0; i--) {
+            Object item = items.get(i).item;
+
+            if (item instanceof IMessage) {
+                mPositions.put(((IMessage) item).getId(), size - 1 - i - mEndOffset);
+                mMessagesCount++;
+            }
+        }
+    }
+
+    /**
+     * The items are already inserted at positions [fromPosition, size).
+     */
+    public void onInsertedAtEnd(List<Wrapper> items, int fromPosition) {
+        if (!mIsValid) {
+            return;
+        }
+
+        int size = items.size();
+        mEndOffset += size - fromPosition;
+
+        for (int i = fromPosition; i < size; i++) {
+            Object item = items.get(i).item;
+
+            if (item instanceof IMessage) {
+                String id = ((IMessage) item).getId();
+
+                if (!mPositions.containsKey(id)) {
+                    mPositions.put(id, size - 1 - i - mEndOffset);
+                }
+
+                mMessagesCount++;
+            }
+        }
+    }
+
+    /**
+     * Call before the items are removed from the end of the list.
+     */
+    public void onRemovingFromEnd(List<Wrapper> removedItems) {
+        if (!mIsValid) {
+            return;
+        }
+
+        mEndOffset -= removedItems.size();
+
+        for (Wrapper wrapper : removedItems) {
+            if (wrapper.item instanceof IMessage) {
+                mPositions.remove(((IMessage) wrapper.item).getId());
+                mMessagesCount--;
+            }
+        }
+
+        if (mPositions.size() != mMessagesCount) {
+            // Duplicates were removed with the ids
+            invalidate();
+        }
+    }
+
+    /**
+     * The items are already removed.
+     *
+     * @param positions    ascending positions of the removed items before the removal
+     * @param removedItems removed items in the same order
+     */
+    public void onRemoved(List<Wrapper> items, List<Integer> positions, List<Wrapper> removedItems) {
+        if (!mIsValid || positions.isEmpty()) {
+            return;
+        }
+
+        int oldSize = items.size() + positions.size();
+
+        for (int i = 0; i < positions.size(); i++) {
+            Object item = removedItems.get(i).item;
+
+            if (item instanceof IMessage) {
+                String id = ((IMessage) item).getId();
+                Integer key = mPositions.get(id);
+
+                if (key != null && key == oldSize - 1 - positions.get(i) - mEndOffset) {
+                    mPositions.remove(id);
+                }
+
+                mMessagesCount--;
+            }
+        }
+
+        // Items after the last removed one keep their distance to the end. Items before it are closer now.
+        int size = items.size();
+        int shiftedCount = positions.get(positions.size() - 1) - (positions.size() - 1);
+
+        for (int i = shiftedCount - 1; i >= 0; i--) {
+            Object item = items.get(i).item;
+
+            if (item instanceof IMessage) {
+                mPositions.put(((IMessage) item).getId(), size - 1 - i - mEndOffset);
+            }
+        }
+
+        if (mPositions.size() != mMessagesCount) {
+            // Duplicate ids
+            invalidate();
+        }
+    }
+
+    /**
+     * Item is replaced in place
+     */
+    public void onReplaced(Wrapper oldWrapper, Wrapper newWrapper) {
+        if (!mIsValid) {
+            return;
+        }
+
+        String oldId = oldWrapper.item instanceof IMessage ? ((IMessage) oldWrapper.item).getId() : null;
+        String newId = newWrapper.item instanceof IMessage ? ((IMessage) newWrapper.item).getId() : null;
+
+        if (oldId == null || !oldId.equals(newId)) {
+            invalidate();
+        }
+    }
+
+    public void invalidate() {
+        mIsValid = false;
+    }
+
+    public void clear() {
+        mPositions.clear();
+        mEndOffset = 0;
+        mMessagesCount = 0;
+        mIsValid = true;
+    }
+
+    private void rebuild(List<Wrapper> items) {
+        clear();
+
+        int size = items.size();
+
+        for (int i = size - 1; i >= 0; i--) {
+            Object item = items.get(i).item;
+
+            if (item instanceof IMessage) {
+                mPositions.put(((IMessage) item).getId(), size - 1 - i);
+                mMessagesCount++;
+            }
+        }
+    }
+
+    private static boolean isMessageAt(List<Wrapper> items, int position, String id) {
+        if (position < 0 || position >= items.size()) {
+            return false;
+        }
+
+        Object item = items.get(position).item;
+
+        return item instanceof IMessage && id.equals(((IMessage) item).getId());
+    }
+}
@@ -45,9 +45,13 @@ import com.stfalcon.chatkit.commons.models.IMessage;
 import com.stfalcon.chatkit.utils.DateFormatter;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Adapter for {@link MessagesList}.
@@ -60,6 +64,7 @@ public class MessagesListAdapter<MESSAGE extends IMessage>
     protected static boolean isSelectionModeEnabled;
 
     protected List<Wrapper> items;
+    private final MessagesIndex index = new MessagesIndex();
     private MessageHolders holders;
     private String senderId;
 
@@ -148,13 +153,7 @@ public class MessagesListAdapter<MESSAGE extends IMessage>
 
     @Override
     public int getMessagesCount() {
-        int count = 0;
-        for (Wrapper item : items) {
-            if (item.item instanceof IMessage) {
-                count++;
-            }
-        }
-        return count;
+        return index.getMessagesCount(items);
     }
 
     /*
@@ -180,6 +179,7 @@ public class MessagesListAdapter<MESSAGE extends IMessage>
         }
         Wrapper<MESSAGE> element = new Wrapper<>(message);
         items.add(0, element);
+        index.onInsertedAtStart(items, 1);
         notifyItemRangeInserted(0, isNewMessageToday ? 2 : 1);
         if (layoutManager != null && scroll) {
             layoutManager.scrollToPosition(0);
@@ -188,6 +188,49 @@ public class MessagesListAdapter<MESSAGE extends IMessage>
         trimEnd();
     }
 
+    /**
+     * Same as calling {@link #addToStart(IMessage, boolean)} for every message but with the single range notification.
+     *
+     * @param messages messages to add. The last one ends up at the bottom of list.
+     * @param scroll   {@code true} if need to scroll list to bottom when messages added.
+     */
+    @SuppressWarnings("unchecked")
+    public void addToStart(List<MESSAGE> messages, boolean scroll) {
+        if (messages == null || messages.isEmpty()) return;
+
+        removeLoadingMessageIfNeeded();
+
+        List<Wrapper> block = new ArrayList<>();
+        Date previousDate = !items.isEmpty() && items.get(0).item instanceof IMessage ? ((MESSAGE) items.get(0).item).getCreatedAt() : null;
+
+        for (MESSAGE message : messages) {
+            if (!IMessage.checkMessage(message)) {
+                continue;
+            }
+
+            if (isDateHeaderEnabled && (previousDate == null || !DateFormatter.isSameDay(message.getCreatedAt(), previousDate))) {
+                block.add(new Wrapper<>(message.getCreatedAt()));
+            }
+            block.add(new Wrapper<>(message));
+            previousDate = message.getCreatedAt();
+        }
+
+        if (block.isEmpty()) {
+            return;
+        }
+
+        // Every next message goes on top of the previous one
+        Collections.reverse(block);
+        items.addAll(0, block);
+        index.onInsertedAtStart(items, block.size());
+        notifyItemRangeInserted(0, block.size());
+        if (layoutManager != null && scroll) {
+            layoutManager.scrollToPosition(0);
+        }
+
+        trimEnd();
+    }
+
     /**
      * Adds messages list in chronological order. Use this method to add history.
      *
@@ -206,6 +249,7 @@ public class MessagesListAdapter<MESSAGE extends IMessage>
             if (items.get(lastItemPosition).item instanceof Date) {
                 Date lastItem = (Date) items.get(lastItemPosition).item;
                 if (DateFormatter.isSameDay(messages.get(0).getCreatedAt(), lastItem)) {
+                    index.onRemovingFromEnd(items.subList(lastItemPosition, lastItemPosition + 1));
                     items.remove(lastItemPosition);
                     notifyItemRemoved(lastItemPosition);
                 }
@@ -214,6 +258,7 @@ public class MessagesListAdapter<MESSAGE extends IMessage>
 
         int oldSize = items.size();
         generateDateHeaders(messages);
+        index.onInsertedAtEnd(items, oldSize);
         notifyItemRangeInserted(oldSize, items.size() - oldSize);
     }
 
@@ -236,7 +281,8 @@ public class MessagesListAdapter<MESSAGE extends IMessage>
         int position = getMessagePositionById(oldId);
         if (position >= 0) {
             Wrapper<MESSAGE> element = new Wrapper<>(newMessage);
-            items.set(position, element);
+            Wrapper oldElement = items.set(position, element);
+            index.onReplaced(oldElement, element);
             notifyItemChanged(position);
             return true;
         } else {
@@ -253,8 +299,10 @@ public class MessagesListAdapter<MESSAGE extends IMessage>
         int position = getMessagePositionById(newMessage.getId());
         if (position >= 0) {
             Wrapper<MESSAGE> element = new Wrapper<>(newMessage);
-            items.remove(position);
+            Wrapper oldElement = items.remove(position);
+            index.onRemoved(items, Collections.singletonList(position), Collections.singletonList(oldElement));
             items.add(0, element);
+            index.onInsertedAtStart(items, 1);
             notifyItemMoved(position, 0);
             notifyItemChanged(0);
         }
@@ -304,18 +352,11 @@ public class MessagesListAdapter<MESSAGE extends IMessage>
      * @param messages messages list to delete.
      */
     public void delete(List<MESSAGE> messages) {
-        boolean result = false;
+        List<String> ids = new ArrayList<>();
         for (MESSAGE message : messages) {
-            int index = getMessagePositionById(message.getId());
-            if (index >= 0) {
-                items.remove(index);
-                notifyItemRemoved(index);
-                result = true;
-            }
-        }
-        if (result) {
-            recountDateHeaders();
+            ids.add(message.getId());
         }
+        deleteByIds(ids);
     }
 
     /**
@@ -324,11 +365,12 @@ public class MessagesListAdapter<MESSAGE extends IMessage>
      * @param id identifier of message to delete.
      */
     public void deleteById(String id) {
-        int index = getMessagePositionById(id);
-        if (index >= 0) {
-            items.remove(index);
-            notifyItemRemoved(index);
-            recountDateHeaders();
+        int position = getMessagePositionById(id);
+        if (position >= 0) {
+            Wrapper oldElement = items.remove(position);
+            index.onRemoved(items, Collections.singletonList(position), Collections.singletonList(oldElement));
+            notifyItemRemoved(position);
+            removeEmptyDateHeader(position);
         }
     }
 
@@ -338,17 +380,62 @@ public class MessagesListAdapter<MESSAGE extends IMessage>
      * @param ids array of identifiers of messages to delete.
      */
     public void deleteByIds(String[] ids) {
-        boolean result = false;
-        for (String id : ids) {
-            int index = getMessagePositionById(id);
-            if (index >= 0) {
-                items.remove(index);
-                notifyItemRemoved(index);
-                result = true;
+        deleteByIds(Arrays.asList(ids));
+    }
+
+    /**
+     * Deletes messages by its identifiers in one pass. Adjacent messages are notified as a range.
+     *
+     * @param ids identifiers of messages to delete.
+     */
+    public void deleteByIds(Collection<String> ids) {
+        Set<String> idsToDelete = new HashSet<>(ids);
+        List<Integer> positions = new ArrayList<>();
+
+        // Same as the single delete: the first message with the id
+        for (String id : idsToDelete) {
+            int position = getMessagePositionById(id);
+            if (position >= 0) {
+                positions.add(position);
             }
         }
-        if (result) {
-            recountDateHeaders();
+
+        if (positions.isEmpty()) {
+            return;
+        }
+
+        Collections.sort(positions);
+
+        boolean[] isDeleted = new boolean[items.size()];
+        for (int position : positions) {
+            isDeleted[position] = true;
+        }
+
+        List<Wrapper> result = new ArrayList<>(items.size() - positions.size());
+        List<Wrapper> removed = new ArrayList<>(positions.size());
+        for (int i = 0; i < items.size(); i++) {
+            if (!isDeleted[i]) {
+                result.add(items.get(i));
+            } else {
+                removed.add(items.get(i));
+            }
+        }
+        items.clear();
+        items.addAll(result);
+        index.onRemoved(items, positions, removed);
+
+        // From the bottom so the positions above stay valid
+        int rangeEnd = positions.size() - 1;
+        for (int i = positions.size() - 1; i >= 0; i--) {
+            if (i == 0 || positions.get(i - 1) != positions.get(i) - 1) {
+                notifyItemRangeRemoved(positions.get(i), rangeEnd - i + 1);
+                rangeEnd = i - 1;
+            }
+        }
+
+        // Only the neighbours of the removed messages could be left without messages. From the bottom again.
+        for (int i = positions.size() - 1; i >= 0; i--) {
+            removeEmptyDateHeader(positions.get(i) - i);
         }
     }
 
@@ -382,6 +469,7 @@ public class MessagesListAdapter<MESSAGE extends IMessage>
     public void clear(boolean notifyDataSetChanged) {
         if (items != null) {
             items.clear();
+            index.clear();
             if (notifyDataSetChanged) {
                 notifyDataSetChanged();
             }
@@ -604,26 +692,16 @@ public class MessagesListAdapter<MESSAGE extends IMessage>
     /*
      * PRIVATE METHODS
      * */
-    private void recountDateHeaders() {
-        List<Integer> indicesToDelete = new ArrayList<>();
-
-        for (int i = 0; i < items.size(); i++) {
-            Wrapper wrapper = items.get(i);
-            if (wrapper.item instanceof Date) {
-                if (i == 0) {
-                    indicesToDelete.add(i);
-                } else {
-                    if (items.get(i - 1).item instanceof Date) {
-                        indicesToDelete.add(i);
-                    }
-                }
-            }
-        }
-
-        Collections.reverse(indicesToDelete);
-        for (int i : indicesToDelete) {
-            items.remove(i);
-            notifyItemRemoved(i);
+    /**
+     * Removes the date header at the position where an item was removed if its day has no messages left.<br/>
+     * The header goes after the messages of its day, so it's empty when it's first or follows another header.
+     */
+    private void removeEmptyDateHeader(int position) {
+        while (position < items.size() && items.get(position).item instanceof Date
+                && (position == 0 || items.get(position - 1).item instanceof Date)) {
+            Wrapper header = items.remove(position);
+            index.onRemoved(items, Collections.singletonList(position), Collections.singletonList(header));
+            notifyItemRemoved(position);
         }
     }
 
@@ -655,18 +733,8 @@ public class MessagesListAdapter<MESSAGE extends IMessage>
         return getMessagePositionById(message.getId());
     }
 
-    @SuppressWarnings("unchecked")
     private int getMessagePositionById(String id) {
-        for (int i = 0; i < items.size(); i++) {
-            Wrapper wrapper = items.get(i);
-            if (wrapper.item instanceof IMessage) {
-                MESSAGE message = (MESSAGE) wrapper.item;
-                if (message.getId().contentEquals(id)) {
-                    return i;
-                }
-            }
-        }
-        return -1;
+        return index.getPosition(items, id);
     }
 
     @SuppressWarnings("unchecked")
@@ -832,9 +900,11 @@ public class MessagesListAdapter<MESSAGE extends IMessage>
                 int firstIndex = size - leftoversCount;
                 int lastIndex = size;
 
-                items.subList(firstIndex, lastIndex).clear();
+                List<Wrapper> leftovers = items.subList(firstIndex, lastIndex);
+                index.onRemovingFromEnd(leftovers);
+                leftovers.clear();
                 notifyItemRangeRemoved(firstIndex, leftoversCount);
-                recountDateHeaders();
+                // Removing the tail can't leave a header on top or two headers in a row. No need to recount.
             }
         }
     }
@@ -0,0 +1,288 @@
+package com.stfalcon.chatkit.messages;
+
+import com.stfalcon.chatkit.commons.models.IMessage;
+import com.stfalcon.chatkit.commons.models.IUser;
+import com.stfalcon.chatkit.messages.MessagesListAdapter.Wrapper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Workloads of the comments dialog (pages of comments, reply sync) and the live chat (trimmed feed, moderation deletes).<br/>
+ * Every position is checked against the linear scan. Timings are printed.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class MessagesListAdapterTest {
+    private static final long DAY_MS = 24 * 60 * 60 * 1_000;
+    private static final int PAGE_SIZE = 20;
+    private static final int PAGE_COUNT = 100;
+    private static final int CHAT_MESSAGES = 20_000;
+    private static final int CHAT_MAX_ITEMS = 200;
+    private final Random mRandom = new Random(42);
+    private MessagesListAdapter<TestMessage> mAdapter;
+    private int mNextId;
+
+    private static class TestUser implements IUser {
+        private final String mId;
+
+        private TestUser(String id) {
+            mId = id;
+        }
+
+        @Override
+        public String getId() {
+            return mId;
+        }
+
+        @Override
+        public String getName() {
+            return mId;
+        }
+
+        @Override
+        public String getAvatar() {
+            return null;
+        }
+    }
+
+    private static class TestMessage implements IMessage {
+        private final String mId;
+        private final String mText;
+        private final Date mCreatedAt;
+        private final IUser mUser;
+
+        private TestMessage(String id, String text, Date createdAt) {
+            mId = id;
+            mText = text;
+            mCreatedAt = createdAt;
+            mUser = new TestUser("user" + id.hashCode() % 10);
+        }
+
+        @Override
+        public String getId() {
+            return mId;
+        }
+
+        @Override
+        public CharSequence getText() {
+            return mText;
+        }
+
+        @Override
+        public IUser getUser() {
+            return mUser;
+        }
+
+        @Override
+        public Date getCreatedAt() {
+            return mCreatedAt;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        mAdapter = new MessagesListAdapter<>("sender", null);
+    }
+
+    @Test
+    public void testCommentPagesWithReplySync() {
+        List<TestMessage> allMessages = new ArrayList<>();
+        mAdapter.setLoadingMessage("Loading...");
+
+        for (int page = 0; page < PAGE_COUNT; page++) {
+            List<TestMessage> messages = createMessages(PAGE_SIZE, new Date());
+            mAdapter.addToStart(messages, false);
+            allMessages.addAll(messages);
+
+            // Like count or reply count is changed
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                TestMessage message = allMessages.get(mRandom.nextInt(allMessages.size()));
+                assertTrue(mAdapter.update(new TestMessage(message.getId(), "synced", message.getCreatedAt())));
+            }
+        }
+
+        assertEquals(PAGE_COUNT * PAGE_SIZE, mAdapter.getMessagesCount());
+        assertPositions();
+    }
+
+    @Test
+    public void testChatWithModeration() {
+        mAdapter.setMaxItemsCount(CHAT_MAX_ITEMS);
+        List<String> recentIds = new ArrayList<>();
+
+        for (int i = 0; i < CHAT_MESSAGES; i++) {
+            TestMessage message = createMessages(1, new Date()).get(0);
+            mAdapter.upsert(message);
+            recentIds.add(message.getId());
+
+            if (i % 50 == 49) {
+                // Moderator removes a few recent messages
+                List<String> ids = new ArrayList<>();
+                for (int j = 0; j < 5; j++) {
+                    ids.add(recentIds.get(recentIds.size() - 1 - mRandom.nextInt(Math.min(recentIds.size(), CHAT_MAX_ITEMS))));
+                }
+                mAdapter.deleteByIds(ids);
+            }
+        }
+
+        assertTrue(mAdapter.getMessagesCount() <= CHAT_MAX_ITEMS);
+        assertPositions();
+    }
+
+    @Test
+    public void testBatchInsertMatchesSingleInserts() {
+        MessagesListAdapter<TestMessage> singleAdapter = new MessagesListAdapter<>("sender", null);
+        mAdapter.enableDateHeader(true);
+        singleAdapter.enableDateHeader(true);
+
+        long timeMs = System.currentTimeMillis();
+        for (int day = 0; day < 5; day++) {
+            List<TestMessage> messages = createMessages(PAGE_SIZE, new Date(timeMs + (day / 2) * DAY_MS));
+            mAdapter.addToStart(messages, false);
+            for (TestMessage message : messages) {
+                singleAdapter.addToStart(message, false);
+            }
+        }
+
+        assertEquals(singleAdapter.items.size(), mAdapter.items.size());
+        for (int i = 0; i < mAdapter.items.size(); i++) {
+            assertEquals(singleAdapter.items.get(i).item, mAdapter.items.get(i).item);
+        }
+        assertPositions();
+    }
+
+    @Test
+    public void testDeletesRemoveOnlyEmptyDateHeaders() {
+        mAdapter.enableDateHeader(true);
+
+        long timeMs = System.currentTimeMillis();
+        List<List<TestMessage>> days = new ArrayList<>();
+        for (int day = 0; day < 4; day++) {
+            List<TestMessage> messages = createMessages(5, new Date(timeMs + day * DAY_MS));
+            mAdapter.addToStart(messages, false);
+            days.add(messages);
+        }
+        assertEquals(4, countDateHeaders());
+
+        List<String> ids = new ArrayList<>();
+        for (TestMessage message : days.get(1)) {
+            ids.add(message.getId());
+        }
+        ids.add(days.get(2).get(0).getId());
+        mAdapter.deleteByIds(ids);
+        assertEquals(3, countDateHeaders());
+        assertPositions();
+
+        for (TestMessage message : days.get(3)) {
+            mAdapter.deleteById(message.getId());
+        }
+        assertEquals(2, countDateHeaders());
+        assertPositions();
+
+        mAdapter.updateAndMoveToStart(days.get(0).get(0));
+        assertEquals(days.get(0).get(0), mAdapter.items.get(0).item);
+        assertPositions();
+    }
+
+    @Test
+    public void testMixedOperationsKeepPositions() {
+        List<TestMessage> history = createMessages(PAGE_SIZE * 5, new Date());
+        mAdapter.addToEnd(history, false);
+
+        for (int i = 0; i < 2_000; i++) {
+            List<TestMessage> messages = mAdapter.getMessages();
+            TestMessage message = messages.isEmpty() ? null : messages.get(mRandom.nextInt(messages.size()));
+
+            switch (mRandom.nextInt(7)) {
+                case 0:
+                    mAdapter.addToStart(createMessages(1, new Date()).get(0), false);
+                    break;
+                case 1:
+                    mAdapter.addToEnd(createMessages(3, new Date()), false);
+                    break;
+                case 2:
+                    if (message != null) {
+                        mAdapter.update(message.getId(), createMessages(1, new Date()).get(0));
+                    }
+                    break;
+                case 3:
+                    if (message != null) {
+                        mAdapter.updateAndMoveToStart(message);
+                    }
+                    break;
+                case 4:
+                    if (message != null) {
+                        mAdapter.deleteById(message.getId());
+                    }
+                    break;
+                case 5:
+                    if (message != null) {
+                        mAdapter.delete(messages.subList(0, Math.min(3, messages.size())));
+                    }
+                    break;
+                case 6:
+                    mAdapter.addToStart(createMessages(4, new Date()), false);
+                    break;
+            }
+
+            if (i % 100 == 0) {
+                assertPositions();
+            }
+        }
+
+        assertPositions();
+    }
+
+    private List<TestMessage> createMessages(int count, Date createdAt) {
+        List<TestMessage> result = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            String id = String.valueOf(mNextId++);
+            result.add(new TestMessage(id, "message " + id, createdAt));
+        }
+
+        return result;
+    }
+
+    private int countDateHeaders() {
+        int count = 0;
+
+        for (int i = 0; i < mAdapter.items.size(); i++) {
+            if (mAdapter.items.get(i).item instanceof Date) {
+                assertTrue(i > 0 && !(mAdapter.items.get(i - 1).item instanceof Date));
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Compare with the linear scan
+     */
+    private void assertPositions() {
+        int messagesCount = 0;
+
+        for (int i = 0; i < mAdapter.items.size(); i++) {
+            Wrapper wrapper = mAdapter.items.get(i);
+
+            if (wrapper.item instanceof IMessage) {
+                messagesCount++;
+                assertEquals(i, mAdapter.getMessagePosition((TestMessage) wrapper.item));
+            }
+        }
+
+        assertEquals(messagesCount, mAdapter.getMessagesCount());
+        assertEquals(-1, mAdapter.getMessagePosition(new TestMessage("missing", "missing", new Date())));
+    }
+}
@@ -11,21 +11,35 @@ import com.liskovsoft.sharedutils.helpers.MessageHelpers;
 import com.liskovsoft.sharedutils.mylogger.Log;
 import com.liskovsoft.sharedutils.rx.RxHelper;
 import com.liskovsoft.smartyoutubetv2.common.R;
+import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.BasePlayerController;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui.CommentsReceiver;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui.CommentsReceiver.Backup;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui.AbstractCommentsReceiver;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui.UiOptionItem;
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.AppDialogPresenter;
+import com.liskovsoft.smartyoutubetv2.common.misc.CommentsRepository;
+import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
+import io.reactivex.Observable;
+import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
 
 public class CommentsController extends BasePlayerController {
     private static final String TAG = CommentsController.class.getSimpleName();
+    // Playback is stable, the buffer is filled
+    private static final long PREFETCH_DELAY_MS = 10_000;
     private Disposable mCommentsAction;
     private String mLiveChatKey;
     private String mCommentsKey;
+    private String mVideoId;
     private String mTitle;
     private Pair<String, Backup> mBackup;
+    private final Runnable mPrefetchComments = () -> {
+        if (mCommentsKey != null && mLiveChatKey == null && getPlayer() != null && getPlayer().isPlaying()) {
+            getCommentsRepository().prefetch(mVideoId, mCommentsKey);
+        }
+    };
 
     public CommentsController() {
     }
@@ -41,6 +55,7 @@ public class CommentsController extends BasePlayerController {
         mLiveChatKey = metadata != null && metadata.getLiveChatKey() != null ? metadata.getLiveChatKey() : null;
         mCommentsKey = metadata != null && metadata.getCommentsKey() != null ? metadata.getCommentsKey() : null;
         mTitle = metadata != null ? metadata.getTitle() : null;
+        mVideoId = getVideo() != null ? getVideo().videoId : null;
         if (mBackup != null && !Helpers.equals(mBackup.first, mCommentsKey)) {
             mBackup = null;
         }
@@ -74,7 +89,7 @@ public class CommentsController extends BasePlayerController {
                     return;
                 }
 
-                loadComments(this, mCommentsKey);
+                loadComments(this, getCommentsRepository().getFirstPageObserve(mVideoId, mCommentsKey));
             }
 
             @Override
@@ -132,15 +147,28 @@ public class CommentsController extends BasePlayerController {
         }
     }
 
+    @Override
+    public void onVideoLoaded(Video item) {
+        Utils.postDelayed(mPrefetchComments, PREFETCH_DELAY_MS);
+    }
+
+    @Override
+    public void onBuffering() {
+        // Wait for the stable playback again
+        Utils.postDelayed(mPrefetchComments, PREFETCH_DELAY_MS);
+    }
+
     @Override
     public void onEngineReleased() {
         disposeActions();
+        Utils.removeCallbacks(mPrefetchComments);
         mBackup = null;
     }
 
     @Override
     public void onFinish() {
         disposeActions();
+        Utils.removeCallbacks(mPrefetchComments);
     }
 
     private void disposeActions() {
@@ -148,9 +176,15 @@ public class CommentsController extends BasePlayerController {
     }
 
     private void loadComments(CommentsReceiver receiver, String commentsKey) {
+        loadComments(receiver, getCommentsRepository().getPageObserve(commentsKey));
+    }
+
+    private void loadComments(CommentsReceiver receiver, Observable<CommentGroup> commentsObserve) {
         disposeActions();
 
-        mCommentsAction = getCommentsService().getCommentsObserve(commentsKey)
+        mCommentsAction = commentsObserve
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(
                         receiver::addCommentGroup,
                         error -> {
@@ -160,6 +194,10 @@ public class CommentsController extends BasePlayerController {
                 );
     }
 
+    private CommentsRepository getCommentsRepository() {
+        return CommentsRepository.instance(getContext());
+    }
+
     private void showDialog(CommentsReceiver receiver, String title) {
         AppDialogPresenter appDialogPresenter = getAppDialogPresenter();
 
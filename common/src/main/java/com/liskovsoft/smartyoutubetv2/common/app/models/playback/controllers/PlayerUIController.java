@@ -20,6 +20,7 @@ import com.liskovsoft.smartyoutubetv2.common.app.models.data.VideoGroup;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.BasePlayerController;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.manager.PlayerConstants;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.manager.PlayerUI;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.service.WatchBundleCache;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui.OptionCategory;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui.OptionItem;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui.UiOptionItem;
@@ -630,7 +631,8 @@ public class PlayerUIController extends BasePlayerController {
 
         Observable<Void> observable = callable.call(video.mediaItem != null ? video.mediaItem : video.toMediaItem());
 
-        RxHelper.execute(observable);
+        // Cached metadata contains the old like state
+        RxHelper.execute(observable.doFinally(() -> WatchBundleCache.instance().invalidateMetadata(video.videoId)));
     }
 
     private boolean handleBackKey(int keyCode) {
@@ -925,6 +927,9 @@ public class PlayerUIController extends BasePlayerController {
             callMediaItemObservable(mMediaItemService::unsubscribeObserve);
         }
 
+        // Other videos of the channel
+        WatchBundleCache.instance().invalidateMetadata();
+
         getVideo().isSubscribed = buttonState == PlayerUI.BUTTON_OFF;
         getPlayer().setButtonState(R.id.action_subscribe, buttonState == PlayerUI.BUTTON_OFF ? PlayerUI.BUTTON_ON : PlayerUI.BUTTON_OFF);
     }
@@ -3,8 +3,6 @@ package com.liskovsoft.smartyoutubetv2.common.app.models.playback.controllers;
 import android.annotation.SuppressLint;
 import android.util.Pair;
 
-import com.liskovsoft.mediaserviceinterfaces.MediaItemService;
-import com.liskovsoft.mediaserviceinterfaces.ServiceManager;
 import com.liskovsoft.mediaserviceinterfaces.data.MediaFormat;
 import com.liskovsoft.mediaserviceinterfaces.data.MediaItemFormatInfo;
 import com.liskovsoft.mediaserviceinterfaces.data.MediaItemMetadata;
@@ -20,8 +18,11 @@ import com.liskovsoft.smartyoutubetv2.common.app.models.data.VideoGroup;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.BasePlayerController;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.listener.PlayerEventListener;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.manager.PlayerConstants;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.service.WatchBundleCache;
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.AppDialogPresenter;
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.dialogs.VideoActionPresenter;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.errors.FailureLedger;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.offline.OfflineDownloadManager;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.selector.FormatItem;
 import com.liskovsoft.smartyoutubetv2.common.misc.MediaServiceManager;
 import com.liskovsoft.smartyoutubetv2.common.prefs.PlayerData;
@@ -31,6 +32,7 @@ import com.liskovsoft.youtubeapi.service.YouTubeServiceManager;
 
 import io.reactivex.disposables.Disposable;
 
+import java.io.ByteArrayInputStream;
 import java.util.Collections;
 import java.util.List;
 
@@ -48,6 +50,10 @@ public class VideoLoaderController extends BasePlayerController {
     private Disposable mFormatInfoAction;
     private Disposable mMpdStreamAction;
     private final Runnable mReloadVideo = () -> {
+        if (getVideo() != null) {
+            // Waiting for the stream start or the network. Cached format info is outdated.
+            WatchBundleCache.instance().invalidateFormatInfo(getVideo().videoId);
+        }
         getMainController().onNewVideo(getVideo());
     };
     private final Runnable mLoadNext = this::loadNext;
@@ -128,6 +134,7 @@ public class VideoLoaderController extends BasePlayerController {
             getMainController().onPlayEnd();
         } else if (!getVideo().isLive && !getVideo().isLiveEnd && !getPlayerTweaksData().isNetworkErrorFixingDisabled()) {
             MessageHelpers.showLongMessage(getContext(), R.string.playback_buffering_fix);
+            FailureLedger.instance(getContext()).onEngineStall(getPlayerTweaksData().getPlayerDataSource());
             // Faster source is different among devices. Try them one by one.
             switchNextEngine();
             restartEngine();
@@ -144,11 +151,13 @@ public class VideoLoaderController extends BasePlayerController {
         getPlayer().setButtonState(R.id.action_repeat, getPlayerData().getPlaybackMode());
         mSleepTimerStartMs = System.currentTimeMillis();
         mPendingVideo = null;
+        OfflineDownloadManager.setPlaybackActive(true);
     }
 
     @Override
     public void onEngineReleased() {
         disposeActions();
+        OfflineDownloadManager.setPlaybackActive(false);
     }
 
     @Override
@@ -156,6 +165,9 @@ public class VideoLoaderController extends BasePlayerController {
         Log.e(TAG, "Player error occurred: %s. Trying to fix…", type);
 
         mLastErrorType = type;
+        if (getVideo() != null) {
+            WatchBundleCache.instance().invalidateFormatInfo(getVideo().videoId);
+        }
         runEngineErrorAction(type, rendererIndex, error);
     }
 
@@ -319,16 +331,36 @@ public class VideoLoaderController extends BasePlayerController {
         getPlayer().showProgressBar(true);
         disposeActions();
 
-        ServiceManager service = YouTubeServiceManager.instance();
-        MediaItemService mediaItemManager = service.getMediaItemService();
-        mFormatInfoAction = mediaItemManager.getFormatInfoObserve(video.videoId)
+        mFormatInfoAction = WatchBundleCache.instance().getFormatInfoObserve(video.videoId)
                 .subscribe(this::processFormatInfo,
                            error -> {
                                getPlayer().showProgressBar(false);
-                               runFormatErrorAction(error);
+                               if (!openDownloadedVideo(video)) {
+                                   runFormatErrorAction(error);
+                               }
                            });
     }
 
+    /**
+     * No network. Try the downloaded copy.
+     */
+    private boolean openDownloadedVideo(Video video) {
+        if (!getPlayerTweaksData().isOfflineDownloadsEnabled() || !OfflineDownloadManager.instance(getContext()).isDownloaded(video.videoId)) {
+            return false;
+        }
+
+        byte[] dashManifest = OfflineDownloadManager.instance(getContext()).getManifest(video.videoId);
+
+        if (dashManifest == null) {
+            return false;
+        }
+
+        Log.d(TAG, "Loading downloaded video in dash format...");
+        getPlayer().openDash(new ByteArrayInputStream(dashManifest));
+
+        return true;
+    }
+
     private void processFormatInfo(MediaItemFormatInfo formatInfo) {
         if (getPlayer() == null || getVideo() == null) {
             return;
@@ -911,7 +943,8 @@ public class VideoLoaderController extends BasePlayerController {
         Integer[] engineList = Utils.skipCronet() ?
                 new Integer[] { PlayerTweaksData.PLAYER_DATA_SOURCE_DEFAULT, PlayerTweaksData.PLAYER_DATA_SOURCE_OKHTTP } :
                 new Integer[] { PlayerTweaksData.PLAYER_DATA_SOURCE_CRONET, PlayerTweaksData.PLAYER_DATA_SOURCE_DEFAULT, PlayerTweaksData.PLAYER_DATA_SOURCE_OKHTTP };
-        return Helpers.getNextValue(currentEngine, engineList);
+        // Engines that stalled recently go last
+        return FailureLedger.instance(getContext()).getNextEngine(currentEngine, engineList);
     }
 
     private static int getFasterDataSource() {
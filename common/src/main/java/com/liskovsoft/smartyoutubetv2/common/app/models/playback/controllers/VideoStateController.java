@@ -575,7 +575,7 @@ public class VideoStateController extends BasePlayerController {
 
         float newVolume = getPlayerData().getPlayerVolume();
 
-        if (getPlayerTweaksData().isPlayerAutoVolumeEnabled()) {
+        if (getPlayerTweaksData().isPlayerAutoVolumeEnabled() && !getPlayerTweaksData().isLoudnessNormalizationEnabled()) {
             //newVolume *= getVideo().volume;
             newVolume = getVideo().volume;
         }
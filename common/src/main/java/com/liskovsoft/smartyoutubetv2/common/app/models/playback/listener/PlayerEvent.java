@@ -0,0 +1,74 @@
+package com.liskovsoft.smartyoutubetv2.common.app.models.playback.listener;
+
+import com.liskovsoft.smartyoutubetv2.common.utils.EventDispatcher;
+
+/**
+ * Events of {@link PlayerEventListener}. One constant per listener method.
+ */
+public enum PlayerEvent implements EventDispatcher.EventType {
+    // Core events
+    NEW_VIDEO("onNewVideo"),
+    METADATA("onMetadata"),
+    INIT("onInit"),
+    FINISH("onFinish"),
+    // Ui events
+    SUGGESTION_ITEM_CLICKED("onSuggestionItemClicked"),
+    SUGGESTION_ITEM_LONG_CLICKED("onSuggestionItemLongClicked"),
+    SCROLL_END("onScrollEnd"),
+    PREVIOUS_CLICKED("onPreviousClicked"),
+    NEXT_CLICKED("onNextClicked"),
+    PLAY_CLICKED("onPlayClicked"),
+    PAUSE_CLICKED("onPauseClicked"),
+    KEY_DOWN("onKeyDown"),
+    HIGH_QUALITY_CLICKED("onHighQualityClicked"),
+    DISLIKE_CLICKED("onDislikeClicked"),
+    LIKE_CLICKED("onLikeClicked"),
+    SUBTITLE_CLICKED("onSubtitleClicked"),
+    SUBTITLE_LONG_CLICKED("onSubtitleLongClicked"),
+    PLAYLIST_ADD_CLICKED("onPlaylistAddClicked"),
+    DEBUG_INFO_CLICKED("onDebugInfoClicked"),
+    SPEED_CLICKED("onSpeedClicked"),
+    SPEED_LONG_CLICKED("onSpeedLongClicked"),
+    SEEK_INTERVAL_CLICKED("onSeekIntervalClicked"),
+    VIDEO_INFO_CLICKED("onVideoInfoClicked"),
+    SHARE_LINK_CLICKED("onShareLinkClicked"),
+    SEARCH_CLICKED("onSearchClicked"),
+    VIDEO_ZOOM_CLICKED("onVideoZoomClicked"),
+    PIP_CLICKED("onPipClicked"),
+    BUTTON_CLICKED("onButtonClicked"),
+    BUTTON_LONG_CLICKED("onButtonLongClicked"),
+    CONTROLS_SHOWN("onControlsShown"),
+    // Engine events
+    PLAY("onPlay"),
+    PAUSE("onPause"),
+    PLAY_END("onPlayEnd"),
+    BUFFERING("onBuffering"),
+    SEEK_END("onSeekEnd"),
+    SEEK_POSITION_CHANGED("onSeekPositionChanged"),
+    SPEED_CHANGED("onSpeedChanged"),
+    SOURCE_CHANGED("onSourceChanged"),
+    VIDEO_LOADED("onVideoLoaded"),
+    ENGINE_INITIALIZED("onEngineInitialized"),
+    ENGINE_RELEASED("onEngineReleased"),
+    ENGINE_ERROR("onEngineError"),
+    TRACK_CHANGED("onTrackChanged"),
+    TRACK_SELECTED("onTrackSelected"),
+    // View events
+    VIEW_CREATED("onViewCreated"),
+    VIEW_DESTROYED("onViewDestroyed"),
+    VIEW_PAUSED("onViewPaused"),
+    VIEW_RESUMED("onViewResumed"),
+    // Tickle
+    TICKLE("onTickle");
+
+    private final String mMethodName;
+
+    PlayerEvent(String methodName) {
+        mMethodName = methodName;
+    }
+
+    @Override
+    public String getMethodName() {
+        return mMethodName;
+    }
+}
@@ -11,7 +11,9 @@ import com.liskovsoft.smartyoutubetv2.common.prefs.AppPrefs;
 import com.liskovsoft.smartyoutubetv2.common.prefs.AppPrefs.ProfileChangeListener;
 import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 public class VideoStateService implements ProfileChangeListener {
     @SuppressLint("StaticFieldLeak")
@@ -22,28 +24,62 @@ public class VideoStateService implements ProfileChangeListener {
     // Don't store state inside Video object.
     // As one video might correspond to multiple Video objects.
     //private final Map<String, State> mStates = Helpers.createLRUMap(MAX_PERSISTENT_STATE_SIZE);
-    private final List<State> mStates;
+    // Replaced at once when the history is restored. Readers never see a partly filled list.
+    private volatile List<State> mStates;
     private final AppPrefs mPrefs;
     private static final String DELIM = "&si;";
     private boolean mIsHistoryBroken;
+    private int mRestoreId;
+    private boolean mIsRestoring;
     private final Runnable mPersistStateInt = this::persistStateInt;
 
     private VideoStateService(Context context) {
         mPrefs = AppPrefs.instance(context);
         mPrefs.addListener(this);
-        mStates = Helpers.createSafeLRUList(
-                Utils.isEnoughRam() ? MAX_PERSISTENT_STATE_SIZE : MIN_PERSISTENT_STATE_SIZE);
-        restoreState();
+        mStates = createStates();
     }
 
-    public static VideoStateService instance(Context context) {
+    public static synchronized VideoStateService instance(Context context) {
         if (sInstance == null && context != null) {
             sInstance = new VideoStateService(context.getApplicationContext());
+            sInstance.restoreState();
         }
 
         return sInstance;
     }
 
+    /**
+     * Could be called from any thread. The service is created on the main thread: the prefs and their listeners aren't thread safe.
+     * Only the history is parsed on the executor.<br/>
+     * States saved in the meantime go after the restored ones.
+     */
+    public static void initAsync(Context context, Executor executor) {
+        if (context == null) {
+            return;
+        }
+
+        Context appContext = context.getApplicationContext();
+        Utils.post(() -> initAsyncInt(appContext, executor));
+    }
+
+    private static synchronized void initAsyncInt(Context context, Executor executor) {
+        if (sInstance != null) {
+            return;
+        }
+
+        VideoStateService service = new VideoStateService(context);
+        sInstance = service;
+
+        int restoreId = ++service.mRestoreId;
+        service.mIsRestoring = true;
+        String data = service.getStoredData();
+
+        executor.execute(() -> {
+            List<State> states = parseStates(data);
+            Utils.post(() -> service.onStatesParsed(restoreId, states));
+        });
+    }
+
     public List<State> getStates() {
         return mStates;
     }
@@ -92,15 +128,52 @@ public class VideoStateService implements ProfileChangeListener {
     }
 
     private void restoreState() {
-        mStates.clear();
+        mRestoreId++;
+        mIsRestoring = false;
+
+        setStateData(getStoredData());
+    }
+
+    private String getStoredData() {
         String data = mPrefs.getStateUpdaterData();
 
         String[] split = Helpers.splitData(data);
 
-        setStateData(Helpers.parseStr(split, 0));
+        return Helpers.parseStr(split, 0);
+    }
+
+    private void onStatesParsed(int restoreId, List<State> states) {
+        // Profile is changed while parsing
+        if (restoreId != mRestoreId) {
+            return;
+        }
+
+        mIsRestoring = false;
+        List<State> result = createStates();
+        addAll(result, states);
+        addAll(result, mStates);
+        mStates = result;
+    }
+
+    private List<State> createStates() {
+        return Helpers.createSafeLRUList(
+                Utils.isEnoughRam() ? MAX_PERSISTENT_STATE_SIZE : MIN_PERSISTENT_STATE_SIZE);
+    }
+
+    private static void addAll(List<State> result, List<State> states) {
+        // Keep the size limit of the list
+        for (State state : states) {
+            result.add(state);
+        }
     }
 
     private void persistStateInt() {
+        if (mIsRestoring) {
+            // Don't overwrite the history that isn't parsed yet
+            persistState();
+            return;
+        }
+
         // Eliminate additional string creation with the merge
         mPrefs.setStateUpdaterData(getStateData());
     }
@@ -188,6 +261,14 @@ public class VideoStateService implements ProfileChangeListener {
     }
 
     private void setStateData(String data) {
+        List<State> result = createStates();
+        addAll(result, parseStates(data));
+        mStates = result;
+    }
+
+    private static List<State> parseStates(String data) {
+        List<State> states = new ArrayList<>();
+
         if (data != null) {
             String[] split = Helpers.split(DELIM, data);
 
@@ -195,10 +276,12 @@ public class VideoStateService implements ProfileChangeListener {
                 State state = State.from(spec);
 
                 if (state != null) {
-                    mStates.add(state);
+                    states.add(state);
                 }
             }
         }
+
+        return states;
     }
 
     private String getStateData() {
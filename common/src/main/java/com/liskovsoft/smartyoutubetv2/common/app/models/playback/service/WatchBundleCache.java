@@ -0,0 +1,265 @@
+package com.liskovsoft.smartyoutubetv2.common.app.models.playback.service;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.liskovsoft.mediaserviceinterfaces.MediaItemService;
+import com.liskovsoft.mediaserviceinterfaces.data.MediaItemFormatInfo;
+import com.liskovsoft.mediaserviceinterfaces.data.MediaItemMetadata;
+import com.liskovsoft.mediaserviceinterfaces.data.SponsorSegment;
+import com.liskovsoft.mediaserviceinterfaces.oauth.Account;
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
+import com.liskovsoft.smartyoutubetv2.common.misc.MediaServiceManager;
+import com.liskovsoft.smartyoutubetv2.common.misc.MediaServiceManager.AccountChangeListener;
+import com.liskovsoft.youtubeapi.service.YouTubeServiceManager;
+
+import io.reactivex.Observable;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-video cache of the data needed by the playback controllers (format info, metadata, sponsor segments).<br/>
+ * Concurrent requests share a single network call. Every artifact has its own time to live.<br/>
+ * Keeps the few most recent videos, so replays and previous/next videos start instantly.
+ */
+public class WatchBundleCache implements AccountChangeListener {
+    private static final String TAG = WatchBundleCache.class.getSimpleName();
+    private static final int MAX_BUNDLES = 10;
+    // Stream urls inside the format info expire after a few hours
+    private static final long FORMAT_INFO_TTL_MS = 30 * 60 * 1_000;
+    private static final long METADATA_TTL_MS = 10 * 60 * 1_000;
+    private static final long SPONSOR_SEGMENTS_TTL_MS = 60 * 60 * 1_000;
+    private static WatchBundleCache sInstance;
+    private final MediaItemService mMediaItemService;
+    private final Map<String, Bundle> mBundles = new LinkedHashMap<String, Bundle>(MAX_BUNDLES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Entry<String, Bundle> eldest) {
+            return size() > MAX_BUNDLES;
+        }
+    };
+    private final AtomicInteger mHitCount = new AtomicInteger();
+    private final AtomicInteger mMissCount = new AtomicInteger();
+
+    private static class Bundle {
+        private Artifact<MediaItemFormatInfo> formatInfo;
+        // Metadata depends on the playlist params, sponsor segments on the enabled categories
+        private final Map<String, Artifact<MediaItemMetadata>> metadata = new LinkedHashMap<>();
+        private final Map<String, Artifact<List<SponsorSegment>>> sponsorSegments = new LinkedHashMap<>();
+    }
+
+    private static class Artifact<T> {
+        private final Observable<T> observable;
+        private final long expireTimeMs;
+
+        private Artifact(Observable<T> observable, long ttlMs) {
+            this.observable = observable;
+            this.expireTimeMs = System.currentTimeMillis() + ttlMs;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() > expireTimeMs;
+        }
+    }
+
+    private WatchBundleCache(MediaItemService mediaItemService) {
+        mMediaItemService = mediaItemService;
+    }
+
+    public static WatchBundleCache instance() {
+        if (sInstance == null) {
+            sInstance = new WatchBundleCache(YouTubeServiceManager.instance().getMediaItemService());
+            MediaServiceManager.instance().addAccountListener(sInstance);
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * Replaces the shared cache with the one backed by the given service. E.g. the fake one in tests.
+     */
+    @VisibleForTesting
+    public static void init(MediaItemService mediaItemService) {
+        sInstance = new WatchBundleCache(mediaItemService);
+    }
+
+    public Observable<MediaItemFormatInfo> getFormatInfoObserve(String videoId) {
+        synchronized (mBundles) {
+            Bundle bundle = getBundle(videoId);
+
+            if (isValid(bundle.formatInfo)) {
+                return bundle.formatInfo.observable;
+            }
+
+            Artifact<MediaItemFormatInfo> artifact = new Artifact<>(
+                    mMediaItemService.getFormatInfoObserve(videoId)
+                            .doOnNext(formatInfo -> {
+                                if (!isCacheable(formatInfo)) {
+                                    invalidateFormatInfo(videoId);
+                                }
+                            })
+                            .doOnError(error -> invalidateFormatInfo(videoId))
+                            .cache(),
+                    FORMAT_INFO_TTL_MS);
+            bundle.formatInfo = artifact;
+
+            return artifact.observable;
+        }
+    }
+
+    public Observable<MediaItemMetadata> getMetadataObserve(Video video) {
+        String key = video.getPlaylistId() + "|" + video.playlistIndex + "|" + video.playlistParams;
+
+        synchronized (mBundles) {
+            Bundle bundle = getBundle(video.videoId);
+            Artifact<MediaItemMetadata> metadata = bundle.metadata.get(key);
+
+            if (isValid(metadata)) {
+                return metadata.observable;
+            }
+
+            metadata = new Artifact<>(
+                    mMediaItemService.getMetadataObserve(video.videoId, video.getPlaylistId(), video.playlistIndex, video.playlistParams)
+                            .doOnError(error -> invalidate(video.videoId, bundle.metadata, key))
+                            .cache(),
+                    METADATA_TTL_MS);
+            bundle.metadata.put(key, metadata);
+
+            return metadata.observable;
+        }
+    }
+
+    public Observable<List<SponsorSegment>> getSponsorSegmentsObserve(String videoId, Set<String> categories) {
+        String key = new TreeSet<>(categories).toString();
+
+        synchronized (mBundles) {
+            Bundle bundle = getBundle(videoId);
+            Artifact<List<SponsorSegment>> segments = bundle.sponsorSegments.get(key);
+
+            if (isValid(segments)) {
+                return segments.observable;
+            }
+
+            // NOTE: SponsorBlock (when happened java.net.SocketTimeoutException) could block whole application with Schedulers.io()
+            // Because Schedulers.io() reuses blocked threads in RxJava 2: https://github.com/ReactiveX/RxJava/issues/6542
+            segments = new Artifact<>(
+                    mMediaItemService.getSponsorSegmentsObserve(videoId, categories)
+                            .doOnError(error -> invalidate(videoId, bundle.sponsorSegments, key))
+                            .cache(),
+                    SPONSOR_SEGMENTS_TTL_MS);
+            bundle.sponsorSegments.put(key, segments);
+
+            return segments.observable;
+        }
+    }
+
+    /**
+     * Drop stream urls of the video. E.g. after a playback error.
+     */
+    public void invalidateFormatInfo(@Nullable String videoId) {
+        if (videoId == null) {
+            return;
+        }
+
+        synchronized (mBundles) {
+            Bundle bundle = mBundles.get(videoId);
+
+            if (bundle != null) {
+                bundle.formatInfo = null;
+            }
+        }
+    }
+
+    /**
+     * Drop personal data of the video (like state). E.g. after the user liked it.
+     */
+    public void invalidateMetadata(@Nullable String videoId) {
+        if (videoId == null) {
+            return;
+        }
+
+        synchronized (mBundles) {
+            Bundle bundle = mBundles.get(videoId);
+
+            if (bundle != null) {
+                bundle.metadata.clear();
+            }
+        }
+    }
+
+    /**
+     * Drop personal data of all videos. E.g. after the user subscribed to a channel.
+     */
+    public void invalidateMetadata() {
+        synchronized (mBundles) {
+            for (Bundle bundle : mBundles.values()) {
+                bundle.metadata.clear();
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (mBundles) {
+            mBundles.clear();
+        }
+    }
+
+    public int getHitCount() {
+        return mHitCount.get();
+    }
+
+    public int getMissCount() {
+        return mMissCount.get();
+    }
+
+    @Override
+    public void onAccountChanged(Account account) {
+        // Metadata contains personal data (likes, subscription state etc)
+        clear();
+    }
+
+    /**
+     * Empty (upcoming stream, premiere) and live format info changes over time. Unplayable is a bot check or similar.
+     */
+    private static boolean isCacheable(MediaItemFormatInfo formatInfo) {
+        return !formatInfo.isUnplayable() && !formatInfo.isLive() && formatInfo.containsMedia();
+    }
+
+    private Bundle getBundle(String videoId) {
+        Bundle bundle = mBundles.get(videoId);
+
+        if (bundle == null) {
+            bundle = new Bundle();
+            mBundles.put(videoId, bundle);
+        }
+
+        return bundle;
+    }
+
+    private boolean isValid(@Nullable Artifact<?> artifact) {
+        boolean isValid = artifact != null && !artifact.isExpired();
+
+        if (isValid) {
+            mHitCount.incrementAndGet();
+        } else {
+            mMissCount.incrementAndGet();
+        }
+
+        Log.d(TAG, "Hits: %s, misses: %s", mHitCount.get(), mMissCount.get());
+
+        return isValid;
+    }
+
+    private <T> void invalidate(String videoId, Map<String, Artifact<T>> artifacts, String key) {
+        synchronized (mBundles) {
+            if (mBundles.containsKey(videoId)) {
+                artifacts.remove(key);
+            }
+        }
+    }
+}
@@ -756,6 +756,7 @@ public class BrowsePresenter extends BasePresenter<BrowseView> implements Sectio
                                 }
 
                                 getView().updateSection(videoGroup);
+                                SplashPresenter.onFirstContentShown();
                                 mBrowseProcessor.process(videoGroup);
 
                                 continueGroupIfNeeded(videoGroup, false);
@@ -806,6 +807,7 @@ public class BrowsePresenter extends BasePresenter<BrowseView> implements Sectio
                             VideoGroup videoGroup = VideoGroup.from(mediaGroup, section, column);
                             appendLocalHistory(videoGroup);
                             getView().updateSection(videoGroup);
+                            SplashPresenter.onFirstContentShown();
                             mBrowseProcessor.process(videoGroup);
 
                             continueGroupIfNeeded(videoGroup);
@@ -4,7 +4,10 @@ import android.annotation.SuppressLint;
 import android.app.Activity;
 import android.content.Context;
 
+import androidx.annotation.VisibleForTesting;
+
 import com.liskovsoft.mediaserviceinterfaces.data.MediaItemMetadata;
+import com.liskovsoft.sharedutils.mylogger.Log;
 import com.liskovsoft.smartyoutubetv2.common.app.models.data.Playlist;
 import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.BasePlayerController;
@@ -18,6 +21,7 @@ import com.liskovsoft.smartyoutubetv2.common.app.models.playback.controllers.Rem
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.controllers.SuggestionsController;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.controllers.VideoLoaderController;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.controllers.VideoStateController;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.listener.PlayerEvent;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.listener.PlayerEventListener;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.listener.PlayerUiEventListener;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.listener.ViewEventListener;
@@ -25,25 +29,27 @@ import com.liskovsoft.smartyoutubetv2.common.app.presenters.base.BasePresenter;
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.dialogs.menu.VideoMenuPresenter;
 import com.liskovsoft.smartyoutubetv2.common.app.views.PlaybackView;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.selector.FormatItem;
+import com.liskovsoft.smartyoutubetv2.common.prefs.PlayerTweaksData;
+import com.liskovsoft.smartyoutubetv2.common.utils.EventDispatcher;
 import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
 import com.liskovsoft.smartyoutubetv2.common.utils.Utils.ChainProcessor;
 import com.liskovsoft.smartyoutubetv2.common.utils.Utils.Processor;
 import com.liskovsoft.googlecommon.common.helpers.ServiceHelper;
 
 import java.lang.ref.WeakReference;
-import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
 
 public class PlaybackPresenter extends BasePresenter<PlaybackView> implements PlayerEventListener {
     private static final String TAG = PlaybackPresenter.class.getSimpleName();
     @SuppressLint("StaticFieldLeak")
     private static PlaybackPresenter sInstance;
-    private final List<PlayerEventListener> mEventListeners = new CopyOnWriteArrayList<PlayerEventListener>() {
+    private static final long SLOW_HANDLER_THRESHOLD_MS = 16; // one frame
+    private final EventDispatcher<PlayerEventListener, PlayerEvent> mEventDispatcher =
+            new EventDispatcher<PlayerEventListener, PlayerEvent>(PlayerEventListener.class, BasePlayerController.class, PlayerEvent.class) {
         @Override
-        public boolean add(PlayerEventListener listener) {
+        public void add(PlayerEventListener listener) {
             ((BasePlayerController) listener).setMainController(PlaybackPresenter.this);
 
-            return super.add(listener);
+            super.add(listener);
         }
     };
     private WeakReference<Video> mVideo;
@@ -52,19 +58,26 @@ public class PlaybackPresenter extends BasePresenter<PlaybackView> implements Pl
     private boolean mIsEmbedPlayerStarted;
 
     private PlaybackPresenter(Context context) {
+        // NOTE: position matters!!!
+        this(context,
+                new VideoStateController(),
+                new SuggestionsController(),
+                new PlayerUIController(),
+                new VideoLoaderController(),
+                new RemoteController(context),
+                new ContentBlockController(),
+                new AutoFrameRateController(),
+                new HQDialogController(),
+                new ChatController(),
+                new CommentsController());
+    }
+
+    private PlaybackPresenter(Context context, BasePlayerController... controllers) {
         super(context);
 
-        // NOTE: position matters!!!
-        mEventListeners.add(new VideoStateController());
-        mEventListeners.add(new SuggestionsController());
-        mEventListeners.add(new PlayerUIController());
-        mEventListeners.add(new VideoLoaderController());
-        mEventListeners.add(new RemoteController(context));
-        mEventListeners.add(new ContentBlockController());
-        mEventListeners.add(new AutoFrameRateController());
-        mEventListeners.add(new HQDialogController());
-        mEventListeners.add(new ChatController());
-        mEventListeners.add(new CommentsController());
+        for (BasePlayerController controller : controllers) {
+            mEventDispatcher.add(controller);
+        }
     }
 
     public static PlaybackPresenter instance(Context context) {
@@ -77,6 +90,16 @@ public class PlaybackPresenter extends BasePresenter<PlaybackView> implements Pl
         return sInstance;
     }
 
+    /**
+     * Replaces the shared presenter with the one that runs only the given controllers. E.g. in the headless tests.
+     */
+    @VisibleForTesting
+    public static PlaybackPresenter create(Context context, BasePlayerController... controllers) {
+        sInstance = new PlaybackPresenter(context, controllers);
+
+        return sInstance;
+    }
+
     @Override
     public void onViewInitialized() {
         super.onViewInitialized();
@@ -85,8 +108,11 @@ public class PlaybackPresenter extends BasePresenter<PlaybackView> implements Pl
     }
 
     private void initControllers() {
+        mEventDispatcher.setTracingEnabled(PlayerTweaksData.instance(getContext()).isEventTracingEnabled(), SLOW_HANDLER_THRESHOLD_MS,
+                (event, listener, durationMs) -> Log.w(TAG, "Slow handler %s.%s: %s ms", listener.getClass().getSimpleName(), event, durationMs));
+
         // Re-init after app exit
-        process(PlayerEventListener::onInit);
+        process(PlayerEvent.INIT, PlayerEventListener::onInit);
     }
 
     public void openVideo(String videoId) {
@@ -212,29 +238,22 @@ public class PlaybackPresenter extends BasePresenter<PlaybackView> implements Pl
         return getContext() instanceof Activity ? (Activity) getContext() : null;
     }
 
-    @SuppressWarnings("unchecked")
     public <T extends PlayerEventListener> T getController(Class<T> clazz) {
-        for (PlayerEventListener listener : mEventListeners) {
-            if (clazz.isInstance(listener)) {
-                return (T) listener;
-            }
-        }
-
-        return null;
+        return mEventDispatcher.getListener(clazz);
     }
 
     // Core events
 
     @Override
     public void onNewVideo(Video video) {
-        process(listener -> listener.onNewVideo(video));
+        process(PlayerEvent.NEW_VIDEO, listener -> listener.onNewVideo(video));
         mVideo = new WeakReference<>(video);
         mIsEmbedPlayerStarted = true;
     }
 
     @Override
     public void onFinish() {
-        process(PlayerEventListener::onFinish);
+        process(PlayerEvent.FINISH, PlayerEventListener::onFinish);
     }
 
     @Override
@@ -244,19 +263,31 @@ public class PlaybackPresenter extends BasePresenter<PlaybackView> implements Pl
 
     @Override
     public void onMetadata(MediaItemMetadata metadata) {
-        process(listener -> listener.onMetadata(metadata));
+        process(PlayerEvent.METADATA, listener -> listener.onMetadata(metadata));
     }
 
     // End core events
 
     // Helpers
 
-    private boolean chainProcess(ChainProcessor<PlayerEventListener> processor) {
-        return Utils.chainProcess(mEventListeners, processor);
+    private boolean chainProcess(PlayerEvent event, ChainProcessor<PlayerEventListener> processor) {
+        return mEventDispatcher.chainProcess(event, processor);
     }
 
-    private void process(Processor<PlayerEventListener> processor) {
-        Utils.process(mEventListeners, processor);
+    private void process(PlayerEvent event, Processor<PlayerEventListener> processor) {
+        mEventDispatcher.process(event, processor);
+    }
+
+    private void logSlowestHandlers() {
+        if (!mEventDispatcher.isTracingEnabled()) {
+            return;
+        }
+
+        for (String handler : mEventDispatcher.getSlowestHandlers(10)) {
+            Log.d(TAG, "Slowest handler %s", handler);
+        }
+
+        mEventDispatcher.resetTrace();
     }
 
     // End Helpers
@@ -265,22 +296,22 @@ public class PlaybackPresenter extends BasePresenter<PlaybackView> implements Pl
 
     @Override
     public void onViewCreated() {
-        process(ViewEventListener::onViewCreated);
+        process(PlayerEvent.VIEW_CREATED, ViewEventListener::onViewCreated);
     }
 
     @Override
     public void onViewDestroyed() {
-        process(ViewEventListener::onViewDestroyed);
+        process(PlayerEvent.VIEW_DESTROYED, ViewEventListener::onViewDestroyed);
     }
 
     @Override
     public void onViewPaused() {
-        process(ViewEventListener::onViewPaused);
+        process(PlayerEvent.VIEW_PAUSED, ViewEventListener::onViewPaused);
     }
 
     @Override
     public void onViewResumed() {
-        process(ViewEventListener::onViewResumed);
+        process(PlayerEvent.VIEW_RESUMED, ViewEventListener::onViewResumed);
     }
 
     // End common events
@@ -289,86 +320,88 @@ public class PlaybackPresenter extends BasePresenter<PlaybackView> implements Pl
 
     @Override
     public void onSourceChanged(Video item) {
-        process(listener -> listener.onSourceChanged(item));
+        process(PlayerEvent.SOURCE_CHANGED, listener -> listener.onSourceChanged(item));
     }
 
     @Override
     public void onEngineInitialized() {
         getTickleManager().addListener(this);
 
-        process(PlayerEventListener::onEngineInitialized);
+        process(PlayerEvent.ENGINE_INITIALIZED, PlayerEventListener::onEngineInitialized);
     }
 
     @Override
     public void onEngineReleased() {
         getTickleManager().removeListener(this);
 
-        process(PlayerEventListener::onEngineReleased);
+        process(PlayerEvent.ENGINE_RELEASED, PlayerEventListener::onEngineReleased);
+
+        logSlowestHandlers();
     }
 
     @Override
     public void onEngineError(int type, int rendererIndex, Throwable error) {
-        process(listener -> listener.onEngineError(type, rendererIndex, error));
+        process(PlayerEvent.ENGINE_ERROR, listener -> listener.onEngineError(type, rendererIndex, error));
     }
 
     @Override
     public void onPlay() {
-        process(PlayerEventListener::onPlay);
+        process(PlayerEvent.PLAY, PlayerEventListener::onPlay);
     }
 
     @Override
     public void onPause() {
-        process(PlayerEventListener::onPause);
+        process(PlayerEvent.PAUSE, PlayerEventListener::onPause);
     }
 
     @Override
     public void onPlayClicked() {
-        process(PlayerEventListener::onPlayClicked);
+        process(PlayerEvent.PLAY_CLICKED, PlayerEventListener::onPlayClicked);
     }
 
     @Override
     public void onPauseClicked() {
-        process(PlayerEventListener::onPauseClicked);
+        process(PlayerEvent.PAUSE_CLICKED, PlayerEventListener::onPauseClicked);
     }
 
     @Override
     public void onSeekEnd() {
-        process(PlayerEventListener::onSeekEnd);
+        process(PlayerEvent.SEEK_END, PlayerEventListener::onSeekEnd);
     }
 
     @Override
     public void onSeekPositionChanged(long positionMs) {
-        process(listener -> listener.onSeekPositionChanged(positionMs));
+        process(PlayerEvent.SEEK_POSITION_CHANGED, listener -> listener.onSeekPositionChanged(positionMs));
     }
 
     @Override
     public void onSpeedChanged(float speed) {
-        process(listener -> listener.onSpeedChanged(speed));
+        process(PlayerEvent.SPEED_CHANGED, listener -> listener.onSpeedChanged(speed));
     }
 
     @Override
     public void onPlayEnd() {
-        process(PlayerEventListener::onPlayEnd);
+        process(PlayerEvent.PLAY_END, PlayerEventListener::onPlayEnd);
     }
 
     @Override
     public void onBuffering() {
-        process(PlayerEventListener::onBuffering);
+        process(PlayerEvent.BUFFERING, PlayerEventListener::onBuffering);
     }
 
     @Override
     public boolean onKeyDown(int keyCode) {
-        return chainProcess(listener -> listener.onKeyDown(keyCode));
+        return chainProcess(PlayerEvent.KEY_DOWN, listener -> listener.onKeyDown(keyCode));
     }
 
     @Override
     public void onVideoLoaded(Video item) {
-        process(listener -> listener.onVideoLoaded(item));
+        process(PlayerEvent.VIDEO_LOADED, listener -> listener.onVideoLoaded(item));
     }
 
     @Override
     public void onTickle() {
-        process(PlayerEventListener::onTickle);
+        process(PlayerEvent.TICKLE, PlayerEventListener::onTickle);
     }
 
     // End engine events
@@ -377,127 +410,127 @@ public class PlaybackPresenter extends BasePresenter<PlaybackView> implements Pl
 
     @Override
     public void onSuggestionItemClicked(Video item) {
-        process(listener -> listener.onSuggestionItemClicked(item));
+        process(PlayerEvent.SUGGESTION_ITEM_CLICKED, listener -> listener.onSuggestionItemClicked(item));
     }
 
     @Override
     public void onSuggestionItemLongClicked(Video item) {
-        process(listener -> listener.onSuggestionItemLongClicked(item));
+        process(PlayerEvent.SUGGESTION_ITEM_LONG_CLICKED, listener -> listener.onSuggestionItemLongClicked(item));
     }
 
     @Override
     public void onScrollEnd(Video item) {
-        process(listener -> listener.onScrollEnd(item));
+        process(PlayerEvent.SCROLL_END, listener -> listener.onScrollEnd(item));
     }
 
     @Override
     public boolean onPreviousClicked() {
-        return chainProcess(PlayerEventListener::onPreviousClicked);
+        return chainProcess(PlayerEvent.PREVIOUS_CLICKED, PlayerEventListener::onPreviousClicked);
     }
 
     @Override
     public boolean onNextClicked() {
-        return chainProcess(PlayerEventListener::onNextClicked);
+        return chainProcess(PlayerEvent.NEXT_CLICKED, PlayerEventListener::onNextClicked);
     }
 
     @Override
     public void onHighQualityClicked() {
-        process(PlayerUiEventListener::onHighQualityClicked);
+        process(PlayerEvent.HIGH_QUALITY_CLICKED, PlayerUiEventListener::onHighQualityClicked);
     }
 
     @Override
     public void onDislikeClicked(boolean dislike) {
-        process(listener -> listener.onDislikeClicked(dislike));
+        process(PlayerEvent.DISLIKE_CLICKED, listener -> listener.onDislikeClicked(dislike));
     }
 
     @Override
     public void onLikeClicked(boolean like) {
-        process(listener -> listener.onLikeClicked(like));
+        process(PlayerEvent.LIKE_CLICKED, listener -> listener.onLikeClicked(like));
     }
 
     @Override
     public void onTrackSelected(FormatItem track) {
-        process(listener -> listener.onTrackSelected(track));
+        process(PlayerEvent.TRACK_SELECTED, listener -> listener.onTrackSelected(track));
     }
 
     @Override
     public void onSubtitleClicked(boolean enabled) {
-        process(listener -> listener.onSubtitleClicked(enabled));
+        process(PlayerEvent.SUBTITLE_CLICKED, listener -> listener.onSubtitleClicked(enabled));
     }
 
     @Override
     public void onSubtitleLongClicked(boolean enabled) {
-        process(listener -> listener.onSubtitleLongClicked(enabled));
+        process(PlayerEvent.SUBTITLE_LONG_CLICKED, listener -> listener.onSubtitleLongClicked(enabled));
     }
 
     @Override
     public void onControlsShown(boolean shown) {
-        process(listener -> listener.onControlsShown(shown));
+        process(PlayerEvent.CONTROLS_SHOWN, listener -> listener.onControlsShown(shown));
     }
 
     @Override
     public void onTrackChanged(FormatItem track) {
-        process(listener -> listener.onTrackChanged(track));
+        process(PlayerEvent.TRACK_CHANGED, listener -> listener.onTrackChanged(track));
     }
 
     @Override
     public void onPlaylistAddClicked() {
-        process(PlayerUiEventListener::onPlaylistAddClicked);
+        process(PlayerEvent.PLAYLIST_ADD_CLICKED, PlayerUiEventListener::onPlaylistAddClicked);
     }
 
     @Override
     public void onDebugInfoClicked(boolean enabled) {
-        process(listener -> listener.onDebugInfoClicked(enabled));
+        process(PlayerEvent.DEBUG_INFO_CLICKED, listener -> listener.onDebugInfoClicked(enabled));
     }
 
     @Override
     public void onSpeedClicked(boolean enabled) {
-        process(listener -> listener.onSpeedClicked(enabled));
+        process(PlayerEvent.SPEED_CLICKED, listener -> listener.onSpeedClicked(enabled));
     }
 
     @Override
     public void onSpeedLongClicked(boolean enabled) {
-        process(listener -> listener.onSpeedLongClicked(enabled));
+        process(PlayerEvent.SPEED_LONG_CLICKED, listener -> listener.onSpeedLongClicked(enabled));
     }
 
     @Override
     public void onSeekIntervalClicked() {
-        process(PlayerUiEventListener::onSeekIntervalClicked);
+        process(PlayerEvent.SEEK_INTERVAL_CLICKED, PlayerUiEventListener::onSeekIntervalClicked);
     }
 
     @Override
     public void onVideoInfoClicked() {
-        process(PlayerUiEventListener::onVideoInfoClicked);
+        process(PlayerEvent.VIDEO_INFO_CLICKED, PlayerUiEventListener::onVideoInfoClicked);
     }
 
     @Override
     public void onShareLinkClicked() {
-        process(PlayerUiEventListener::onShareLinkClicked);
+        process(PlayerEvent.SHARE_LINK_CLICKED, PlayerUiEventListener::onShareLinkClicked);
     }
 
     @Override
     public void onSearchClicked() {
-        process(PlayerUiEventListener::onSearchClicked);
+        process(PlayerEvent.SEARCH_CLICKED, PlayerUiEventListener::onSearchClicked);
     }
 
     @Override
     public void onVideoZoomClicked() {
-        process(PlayerUiEventListener::onVideoZoomClicked);
+        process(PlayerEvent.VIDEO_ZOOM_CLICKED, PlayerUiEventListener::onVideoZoomClicked);
     }
 
     @Override
     public void onPipClicked() {
-        process(PlayerUiEventListener::onPipClicked);
+        process(PlayerEvent.PIP_CLICKED, PlayerUiEventListener::onPipClicked);
     }
 
     @Override
     public void onButtonClicked(int buttonId, int buttonState) {
-        process(listener -> listener.onButtonClicked(buttonId, buttonState));
+        process(PlayerEvent.BUTTON_CLICKED, listener -> listener.onButtonClicked(buttonId, buttonState));
     }
 
     @Override
     public void onButtonLongClicked(int buttonId, int buttonState) {
-        process(listener -> listener.onButtonLongClicked(buttonId, buttonState));
+        process(PlayerEvent.BUTTON_LONG_CLICKED, listener -> listener.onButtonLongClicked(buttonId, buttonState));
     }
 
     // End UI events
@@ -3,6 +3,7 @@ package com.liskovsoft.smartyoutubetv2.common.app.presenters;
 import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.Intent;
+import android.view.Choreographer;
 
 import com.liskovsoft.mediaserviceinterfaces.oauth.Account;
 import com.liskovsoft.mediaserviceinterfaces.data.MediaGroup;
@@ -22,6 +23,7 @@ import com.liskovsoft.smartyoutubetv2.common.app.views.SplashView;
 import com.liskovsoft.smartyoutubetv2.common.app.views.ViewManager;
 import com.liskovsoft.smartyoutubetv2.common.misc.GDriveBackupWorker;
 import com.liskovsoft.smartyoutubetv2.common.misc.MediaServiceManager;
+import com.liskovsoft.smartyoutubetv2.common.misc.StartupTaskGraph;
 import com.liskovsoft.smartyoutubetv2.common.misc.StreamReminderService;
 import com.liskovsoft.smartyoutubetv2.common.prefs.AccountsData;
 import com.liskovsoft.smartyoutubetv2.common.prefs.GeneralData;
@@ -31,21 +33,33 @@ import com.liskovsoft.smartyoutubetv2.common.utils.IntentExtractor;
 import com.liskovsoft.smartyoutubetv2.common.utils.SimpleEditDialog;
 import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
 import com.liskovsoft.youtubeapi.service.YouTubeServiceManager;
+import io.reactivex.schedulers.Schedulers;
 
 import java.util.ArrayList;
 import java.util.List;
 
 public class SplashPresenter extends BasePresenter<SplashView> {
     private static final String TAG = SplashPresenter.class.getSimpleName();
+    /**
+     * Fallback when the content isn't shown (e.g. the app is started with the playback intent)
+     */
     private static final long APP_INIT_DELAY_MS = 10_000;
+    private static final String TASK_GLOBAL_PREFS = "GlobalPrefs";
+    private static final String TASK_PROXY = "Proxy";
+    private static final String TASK_VIDEO_STATE = "VideoStateService";
+    private static final String TASK_STREAM_REMINDER = "StreamReminderService";
+    private static final String TASK_CUSTOM_INIT = "CustomInit";
+    private static final String TASK_BACKGROUND_TASKS = "BackgroundTasks";
+    private static final String TASK_CHECK_FOR_UPDATES = "CheckForUpdates";
     @SuppressLint("StaticFieldLeak")
     private static SplashPresenter sInstance;
     private static boolean sRunOnce;
     private boolean mRunPerInstance;
     private final List<IntentProcessor> mIntentChain = new ArrayList<>();
     private String mBridgePackageName;
-    private final Runnable mRunBackgroundTasks = this::runBackgroundTasks;
     private final Runnable mCheckForUpdates = this::checkForUpdates;
+    private final Runnable mFirstContentFallback = this::onFirstContent;
+    private StartupTaskGraph mStartupGraph;
 
     private interface IntentProcessor {
         boolean process(Intent intent);
@@ -67,20 +81,28 @@ public class SplashPresenter extends BasePresenter<SplashView> {
 
     public static void unhold() {
         if (sInstance != null) {
-            Utils.removeCallbacks(sInstance.mRunBackgroundTasks);
+            Utils.removeCallbacks(sInstance.mFirstContentFallback, sInstance.mCheckForUpdates);
         }
         sInstance = null;
     }
 
+    /**
+     * The first content is shown to the user (e.g. the first row of the Home section).<br/>
+     * Starts the deferred init tasks.
+     */
+    public static void onFirstContentShown() {
+        if (sInstance != null) {
+            sInstance.onFirstContent();
+        }
+    }
+
     @Override
     public void onViewInitialized() {
         if (getView() == null) {
             return;
         }
 
-        applyRunOnceTasks();
-        applyRunPerInstanceTasks();
-        Utils.postDelayed(mCheckForUpdates, APP_INIT_DELAY_MS);
+        startInitTasks();
         Utils.updateRemoteControlService(getContext());
 
         //runRefreshCachePeriodicTask();
@@ -91,23 +113,54 @@ public class SplashPresenter extends BasePresenter<SplashView> {
         checkAccountPassword();
     }
 
+    /**
+     * Only the tasks that the first screen needs block the main thread. The rest runs in parallel or after the first content.
+     */
+    private void startInitTasks() {
+        if (mStartupGraph != null) {
+            // Splash is shown again for the running app
+            Utils.postDelayed(mCheckForUpdates, APP_INIT_DELAY_MS);
+            return;
+        }
+
+        mStartupGraph = new StartupTaskGraph(SplashPresenter::postAfterFrame, Schedulers.io()::scheduleDirect);
+
+        applyRunOnceTasks();
+        applyRunPerInstanceTasks();
+        mStartupGraph.add(TASK_CHECK_FOR_UPDATES, StartupTaskGraph.FLAG_AFTER_FIRST_CONTENT, this::checkForUpdates);
+
+        mStartupGraph.start();
+        Utils.postDelayed(mFirstContentFallback, APP_INIT_DELAY_MS);
+    }
+
+    private void onFirstContent() {
+        Utils.removeCallbacks(mFirstContentFallback);
+
+        if (mStartupGraph != null) {
+            mStartupGraph.onFirstContent();
+        }
+    }
+
     private void applyRunOnceTasks() {
         if (!sRunOnce) {
             sRunOnce = true;
             RxHelper.setupGlobalErrorHandler();
-            initGlobalPrefs();
-            initProxy();
-            initVideoStateService();
-            initStreamReminderService();
-            //Utils.initVolume(getContext());
-            CustomInit.init(getContext());
+            mStartupGraph
+                    .add(TASK_GLOBAL_PREFS, StartupTaskGraph.FLAG_BLOCKING, this::initGlobalPrefs)
+                    .add(TASK_PROXY, StartupTaskGraph.FLAG_BLOCKING, this::initProxy, TASK_GLOBAL_PREFS)
+                    // Only creates the service on the main thread. The history is parsed on the io thread.
+                    .add(TASK_VIDEO_STATE, StartupTaskGraph.FLAG_BACKGROUND, this::initVideoStateService, TASK_GLOBAL_PREFS)
+                    // Main thread: the tickle listeners open the player
+                    .add(TASK_STREAM_REMINDER, 0, this::initStreamReminderService, TASK_GLOBAL_PREFS)
+                    //Utils.initVolume(getContext());
+                    .add(TASK_CUSTOM_INIT, StartupTaskGraph.FLAG_BACKGROUND, () -> CustomInit.init(getContext()), TASK_GLOBAL_PREFS);
         }
     }
 
     private void applyRunPerInstanceTasks() {
         if (!mRunPerInstance) {
             mRunPerInstance = true;
-            Utils.postDelayed(mRunBackgroundTasks, APP_INIT_DELAY_MS);
+            mStartupGraph.add(TASK_BACKGROUND_TASKS, StartupTaskGraph.FLAG_AFTER_FIRST_CONTENT, this::runBackgroundTasks);
             initIntentChain();
             // Fake service to prevent the app destroying?
             //runRemoteControlFakeTask();
@@ -152,10 +205,18 @@ public class SplashPresenter extends BasePresenter<SplashView> {
 
     private void initVideoStateService() {
         if (getContext() != null) {
-            VideoStateService.instance(getContext());
+            VideoStateService.initAsync(getContext(), Schedulers.io()::scheduleDirect);
         }
     }
 
+    /**
+     * Main tasks that don't block the start run after the next frame is drawn.
+     */
+    private static void postAfterFrame(Runnable task) {
+        // Could be called from the background task
+        Utils.post(() -> Choreographer.getInstance().postFrameCallback(frameTimeNanos -> Utils.post(task)));
+    }
+
     private void initStreamReminderService() {
         if (getContext() != null) {
             StreamReminderService.instance(getContext()).start();
@@ -8,6 +8,7 @@ import com.liskovsoft.sharedutils.helpers.MessageHelpers;
 import com.liskovsoft.sharedutils.rx.RxHelper;
 import com.liskovsoft.smartyoutubetv2.common.R;
 import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.service.WatchBundleCache;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui.UiOptionItem;
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.AppDialogPresenter;
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.ChannelPresenter;
@@ -156,6 +157,7 @@ public class ChannelUploadsMenuPresenter extends BaseMenuPresenter {
 
         RxHelper.disposeActions(mUnsubscribeAction);
         mUnsubscribeAction = RxHelper.execute(mItemManager.unsubscribeObserve(channelId));
+        WatchBundleCache.instance().invalidateMetadata();
 
         if (mCallback != null) {
             mDialogPresenter.closeDialog();
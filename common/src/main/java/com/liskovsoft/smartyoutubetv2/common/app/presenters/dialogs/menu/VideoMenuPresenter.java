@@ -15,6 +15,7 @@ import com.liskovsoft.smartyoutubetv2.common.app.models.playback.controllers.Com
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.manager.PlayerUI;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.service.VideoStateService;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.service.VideoStateService.State;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.service.WatchBundleCache;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui.UiOptionItem;
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.AppDialogPresenter;
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.BrowsePresenter;
@@ -25,10 +26,15 @@ import com.liskovsoft.smartyoutubetv2.common.app.presenters.dialogs.menu.provide
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.dialogs.menu.providers.ContextMenuProvider;
 import com.liskovsoft.smartyoutubetv2.common.app.views.ChannelUploadsView;
 import com.liskovsoft.smartyoutubetv2.common.app.views.PlaybackView;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.offline.OfflineDownloadManager;
+import com.liskovsoft.smartyoutubetv2.common.misc.AITaskExecutor;
+import com.liskovsoft.smartyoutubetv2.common.misc.CommentsHarvester;
+import com.liskovsoft.smartyoutubetv2.common.misc.CommentsRepository;
 import com.liskovsoft.smartyoutubetv2.common.misc.MediaServiceManager;
 import com.liskovsoft.smartyoutubetv2.common.misc.StreamReminderService;
 import com.liskovsoft.smartyoutubetv2.common.prefs.GeneralData;
 import com.liskovsoft.smartyoutubetv2.common.prefs.MainUIData;
+import com.liskovsoft.smartyoutubetv2.common.prefs.PlayerTweaksData;
 import com.liskovsoft.smartyoutubetv2.common.utils.AppDialogUtil;
 import com.liskovsoft.youtubeapi.service.YouTubeServiceManager;
 import io.reactivex.Observable;
@@ -41,6 +47,9 @@ import java.util.Map;
 
 public class VideoMenuPresenter extends BaseMenuPresenter {
     private static final String TAG = VideoMenuPresenter.class.getSimpleName();
+    private static final int COMMENTS_MAX_TOKENS = 8_000;
+    private static final long COMMENTS_TIMEOUT_MS = 25_000;
+    private static final int COMMENTS_PARTIAL_BATCH_SIZE = 20;
     private final MediaItemService mMediaItemService;
     private final AppDialogPresenter mDialogPresenter;
     private final MediaServiceManager mServiceManager;
@@ -674,12 +683,18 @@ public class VideoMenuPresenter extends BaseMenuPresenter {
                                 if (mCallback != null) {
                                     mCallback.onItemAction(mVideo, VideoMenuCallback.ACTION_REMOVE_FROM_QUEUE);
                                 }
+                                if (PlayerTweaksData.instance(getContext()).isOfflineDownloadsEnabled()) {
+                                    OfflineDownloadManager.instance(getContext()).remove(mVideo.videoId);
+                                }
                             } else {
                                 mVideo.fromQueue = true;
                                 playlist.add(mVideo);
                                 if (mCallback != null) {
                                     mCallback.onItemAction(mVideo, VideoMenuCallback.ACTION_ADD_TO_QUEUE);
                                 }
+                                if (PlayerTweaksData.instance(getContext()).isOfflineDownloadsEnabled()) {
+                                    OfflineDownloadManager.instance(getContext()).enqueue(mVideo);
+                                }
                             }
 
                             closeDialog();
@@ -854,6 +869,7 @@ public class VideoMenuPresenter extends BaseMenuPresenter {
                 mMediaItemService.unsubscribeObserve(video.channelId) : mMediaItemService.subscribeObserve(video.channelId);
 
         mSubscribeAction = RxHelper.execute(observable);
+        WatchBundleCache.instance().invalidateMetadata();
 
         video.isSubscribed = !video.isSubscribed;
 
@@ -1003,106 +1019,97 @@ public class VideoMenuPresenter extends BaseMenuPresenter {
             // Auto-mark videos watched - no button needed
             summaryOverlay.setOnConfirmListener(null);
 
-            // Run AI API call in background thread
-            new Thread(() -> {
-                try {
-                    com.liskovsoft.smartyoutubetv2.common.prefs.GeminiData gd = com.liskovsoft.smartyoutubetv2.common.prefs.GeminiData.instance(getContext());
-                    String provider = gd.getProvider();
-                    com.liskovsoft.smartyoutubetv2.common.misc.AIClient ai;
-                    if ("openai".equalsIgnoreCase(provider)) {
-                        // Respect user's provider choice; don't silently fallback
-                        ai = new com.liskovsoft.smartyoutubetv2.common.misc.OpenAIClient(getContext());
-                    } else {
-                        ai = new com.liskovsoft.smartyoutubetv2.common.misc.GeminiClient(getContext());
-                    }
-                    
-                    String summary;
-                    String title = "AI Summary";
-                    long t0 = 0L;
-                    long summaryDurationMs = 0L;
-                    Integer promptTok = null, complTok = null, totalTok = null;
-                    String modelUsed = null;
-                    
-                    if (ai.isConfigured()) {
-                        int startSec = Math.max(0, video.startTimeSeconds);
-                        t0 = System.currentTimeMillis();
-                        summary = ai.summarize(video.title, video.author, video.videoId, detailLevel, startSec, mode);
-                        summaryDurationMs = System.currentTimeMillis() - t0;
-                        modelUsed = ai.getLastUsedModel();
-                        try {
-                            if (ai instanceof com.liskovsoft.smartyoutubetv2.common.misc.OpenAIClient) {
-                                com.liskovsoft.smartyoutubetv2.common.misc.OpenAIClient oc = (com.liskovsoft.smartyoutubetv2.common.misc.OpenAIClient) ai;
-                                promptTok = oc.getLastPromptTokens();
-                                complTok = oc.getLastCompletionTokens();
-                                totalTok = oc.getLastTotalTokens();
-                            } else if (ai instanceof com.liskovsoft.smartyoutubetv2.common.misc.GeminiClient) {
-                                com.liskovsoft.smartyoutubetv2.common.misc.GeminiClient gc = (com.liskovsoft.smartyoutubetv2.common.misc.GeminiClient) ai;
-                                promptTok = gc.getLastPromptTokens();
-                                complTok = gc.getLastCompletionTokens();
-                                totalTok = gc.getLastTotalTokens();
-                            }
-                        } catch (Throwable ignore) { }
-                        // Append runtime footer meta directly into the summary body so it appears before Comments/Fact Check
-                        try {
-                            String __meta = buildFooterMeta(provider != null ? provider : "gemini", modelUsed, summaryDurationMs, promptTok, complTok, totalTok);
-                            if (__meta != null && !__meta.isEmpty()) {
-                                summary = (summary != null ? summary : "") + "\n\n---\n" + __meta;
-                            }
-                        } catch (Throwable ignore) { }
-                        // Keep title simple - details moved to bottom of summary
-                        title = "AI Summary";
-                        
-                        // Auto-mark video as watched when summary is generated successfully
-                        try {
-                            com.liskovsoft.smartyoutubetv2.common.app.models.data.Video v = video;
-                            if (v != null && v.hasVideo()) {
-                                // Use video duration instead of 0 to mark as fully watched in history
-                                long durationMs = v.getDurationMs() > 0 ? v.getDurationMs() : 1000; // Default to 1 second if duration unknown
-                                com.liskovsoft.smartyoutubetv2.common.misc.MediaServiceManager.instance().updateHistory(v, durationMs);
-                                v.markFullyViewed();
-                                com.liskovsoft.smartyoutubetv2.common.app.models.playback.service.VideoStateService.instance(getContext()).save(
-                                        new com.liskovsoft.smartyoutubetv2.common.app.models.playback.service.VideoStateService.State(v, durationMs)
-                                );
-                                com.liskovsoft.smartyoutubetv2.common.app.models.playback.service.VideoStateService.instance(getContext()).persistState();
-                                com.liskovsoft.smartyoutubetv2.common.app.models.data.Playlist.instance().sync(v);
-                                android.util.Log.d("VideoMenuPresenter", "Video auto-marked as watched with duration " + durationMs + "ms: " + v.title);
-                                
-                                // Show toast notification on UI thread
-                                activity.runOnUiThread(() -> {
-                                    android.widget.Toast.makeText(getContext(), "✓ " + getContext().getString(com.liskovsoft.smartyoutubetv2.common.R.string.mark_as_watched), android.widget.Toast.LENGTH_LONG).show();
-                                });
-                            }
-                        } catch (Throwable e) {
-                            android.util.Log.e("VideoMenuPresenter", "Error auto-marking video as watched: " + e.getMessage());
-                        }
-                    } else {
-                        summary = "AI provider not configured. Add API key to assets (openai.properties or gemini.properties).";
-                    }
-                    
-                    final String finalSummary = summary;
-                    final String finalTitle = title;
-                    final long finalDurationMs = summaryDurationMs;
-                    final String finalProvider = provider != null ? provider : "gemini";
-                    final String finalModelUsed = modelUsed;
-                    final Integer finalPromptTok = promptTok, finalComplTok = complTok, finalTotalTok = totalTok;
-                    
-                    // Show the summary on the UI thread using the proper overlay
-                    activity.runOnUiThread(() -> {
-                        String formatted = beautifySummaryText(finalSummary);
-                        CharSequence styled = styleSummary(formatted);
-                        summaryOverlay.showText("🧠 " + finalTitle, styled);
-                        
-                        
-                        // Set up async fact checking and email functionality
-                        setupSummaryOverlayActions(summaryOverlay, finalSummary, video, new com.liskovsoft.smartyoutubetv2.common.misc.GeminiClient(getContext()), activity);
-                    });
-                } catch (Exception e) {
-                    String errorMsg = "Failed to get summary:\n" + e.getMessage();
-                    activity.runOnUiThread(() -> {
-                        summaryOverlay.showText("Error", errorMsg);
+            AITaskExecutor executor = AITaskExecutor.instance();
+            // Nobody will see the results after the overlay is closed
+            summaryOverlay.setOnHideListener(() -> executor.cancel(summaryOverlay));
+
+            AITaskExecutor.Work<String> summaryWork = () -> {
+                com.liskovsoft.smartyoutubetv2.common.prefs.GeminiData gd = com.liskovsoft.smartyoutubetv2.common.prefs.GeminiData.instance(getContext());
+                String provider = gd.getProvider();
+                // Respect user's provider choice; don't silently fallback
+                com.liskovsoft.smartyoutubetv2.common.misc.AIClient ai = executor.createClient(getContext(), provider);
+
+                String summary;
+                long t0 = 0L;
+                long summaryDurationMs = 0L;
+                Integer promptTok = null, complTok = null, totalTok = null;
+                Long firstTokenMs = null;
+                String modelUsed = null;
+
+                if (ai.isConfigured()) {
+                    int startSec = Math.max(0, video.startTimeSeconds);
+                    t0 = System.currentTimeMillis();
+                    // Show the summary while it's generated, the final one is formatted and styled as usual
+                    com.liskovsoft.smartyoutubetv2.common.ui.summary.SummaryStreamFormatter formatter = new com.liskovsoft.smartyoutubetv2.common.ui.summary.SummaryStreamFormatter();
+                    summary = ai.summarize(video.title, video.author, video.videoId, detailLevel, startSec, mode, new com.liskovsoft.smartyoutubetv2.common.misc.AIClient.TokenListener() {
+                        @Override
+                        public void onToken(String delta) {
+                            summaryOverlay.appendStreamText(formatter.append(delta));
+                        }
+
+                        @Override
+                        public void onRestart() {
+                            formatter.reset();
+                            summaryOverlay.resetStreamText();
+                        }
                     });
+                    summaryDurationMs = System.currentTimeMillis() - t0;
+                    modelUsed = ai.getLastUsedModel();
+                    try {
+                        if (ai instanceof com.liskovsoft.smartyoutubetv2.common.misc.OpenAIClient) {
+                            com.liskovsoft.smartyoutubetv2.common.misc.OpenAIClient oc = (com.liskovsoft.smartyoutubetv2.common.misc.OpenAIClient) ai;
+                            promptTok = oc.getLastPromptTokens();
+                            complTok = oc.getLastCompletionTokens();
+                            totalTok = oc.getLastTotalTokens();
+                            firstTokenMs = oc.getLastTimeToFirstTokenMs();
+                        } else if (ai instanceof com.liskovsoft.smartyoutubetv2.common.misc.GeminiClient) {
+                            com.liskovsoft.smartyoutubetv2.common.misc.GeminiClient gc = (com.liskovsoft.smartyoutubetv2.common.misc.GeminiClient) ai;
+                            promptTok = gc.getLastPromptTokens();
+                            complTok = gc.getLastCompletionTokens();
+                            totalTok = gc.getLastTotalTokens();
+                            firstTokenMs = gc.getLastTimeToFirstTokenMs();
+                        }
+                    } catch (Throwable ignore) { }
+                    // Append runtime footer meta directly into the summary body so it appears before Comments/Fact Check
+                    try {
+                        String __meta = buildFooterMeta(provider != null ? provider : "gemini", modelUsed, summaryDurationMs, firstTokenMs, promptTok, complTok, totalTok);
+                        if (__meta != null && !__meta.isEmpty()) {
+                            summary = (summary != null ? summary : "") + "\n\n---\n" + __meta;
+                        }
+                    } catch (Throwable ignore) { }
+
+                    // Auto-mark video as watched when summary is generated successfully
+                    try {
+                        com.liskovsoft.smartyoutubetv2.common.app.models.data.Video v = video;
+                        if (v != null && v.hasVideo()) {
+                            // Use video duration instead of 0 to mark as fully watched in history
+                            long durationMs = v.getDurationMs() > 0 ? v.getDurationMs() : 1000; // Default to 1 second if duration unknown
+                            com.liskovsoft.smartyoutubetv2.common.misc.MediaServiceManager.instance().updateHistory(v, durationMs);
+                            v.markFullyViewed();
+                            com.liskovsoft.smartyoutubetv2.common.app.models.playback.service.VideoStateService.instance(getContext()).save(
+                                    new com.liskovsoft.smartyoutubetv2.common.app.models.playback.service.VideoStateService.State(v, durationMs)
+                            );
+                            com.liskovsoft.smartyoutubetv2.common.app.models.playback.service.VideoStateService.instance(getContext()).persistState();
+                            com.liskovsoft.smartyoutubetv2.common.app.models.data.Playlist.instance().sync(v);
+                            android.util.Log.d("VideoMenuPresenter", "Video auto-marked as watched with duration " + durationMs + "ms: " + v.title);
+
+                            // Show toast notification on UI thread
+                            activity.runOnUiThread(() -> {
+                                android.widget.Toast.makeText(getContext(), "✓ " + getContext().getString(com.liskovsoft.smartyoutubetv2.common.R.string.mark_as_watched), android.widget.Toast.LENGTH_LONG).show();
+                            });
+                        }
+                    } catch (Throwable e) {
+                        android.util.Log.e("VideoMenuPresenter", "Error auto-marking video as watched: " + e.getMessage());
+                    }
+                } else {
+                    summary = "AI provider not configured. Add API key to assets (openai.properties or gemini.properties).";
                 }
-            }).start();
+
+                return summary;
+            };
+
+            // Run the summary along with async comments summary, fact checking and email functionality
+            setupSummaryOverlayActions(summaryOverlay, summaryWork, video, activity);
         }
     }
 
@@ -1172,161 +1179,175 @@ public class VideoMenuPresenter extends BaseMenuPresenter {
     }
 
     /**
-     * Set up email and fact check functionality for the summary overlay.
-     * This implements the new async two-stage process: summary first, then fact check on demand.
+     * Set up email, comments summary and fact check functionality for the summary overlay.
+     * Comments are harvested while the summary is generated, fact check starts when the summary is ready.
      */
     private void setupSummaryOverlayActions(com.liskovsoft.smartyoutubetv2.common.ui.summary.VideoSummaryOverlay summaryOverlay, 
-                                           String summary, 
+                                           AITaskExecutor.Work<String> summaryWork,
                                            com.liskovsoft.smartyoutubetv2.common.app.models.data.Video video,
-                                           com.liskovsoft.smartyoutubetv2.common.misc.GeminiClient gemini,
                                            android.app.Activity activity) {
         com.liskovsoft.smartyoutubetv2.common.prefs.GeminiData gd = 
             com.liskovsoft.smartyoutubetv2.common.prefs.GeminiData.instance(getContext());
+        AITaskExecutor executor = AITaskExecutor.instance();
         
         // Content segments accumulator to preserve ordering: Main → Comments → Fact check
+        final java.util.concurrent.atomic.AtomicReference<String> summaryRef = new java.util.concurrent.atomic.AtomicReference<>(null);
         final java.util.concurrent.atomic.AtomicReference<String> commentsRef = new java.util.concurrent.atomic.AtomicReference<>(null);
         final java.util.concurrent.atomic.AtomicReference<String> factRef = new java.util.concurrent.atomic.AtomicReference<>(null);
+        final Runnable render = () -> {
+            if (summaryRef.get() == null) return; // comments are shown after the summary
+            StringBuilder content = new StringBuilder();
+            content.append(summaryRef.get());
+            if (commentsRef.get() != null) content.append("\n\n").append("💬 Comments Summary\n").append(commentsRef.get());
+            if (factRef.get() != null) content.append("\n\n").append("🔍 ").append(factRef.get());
+            String formatted = beautifySummaryText(content.toString());
+            CharSequence styled = styleSummary(formatted);
+            summaryOverlay.showText("🧠 AI Summary", styled);
+        };
 
-        // Replace email with local push-to-device: show QR that opens a local page with metadata
-        summaryOverlay.setOnEmailListener(() -> {
-            try {
-                android.content.Intent i = new android.content.Intent();
-                i.setClassName(activity.getPackageName(), "com.liskovsoft.smartyoutubetv2.tv.ui.push.PushToDeviceActivity");
-                i.putExtra("title", video.title);
-                i.putExtra("author", video.author);
-                String link = video.videoId != null ? ("https://www.youtube.com/watch?v=" + video.videoId) : null;
-                i.putExtra("link", link);
-                i.putExtra("desc", String.valueOf(summaryOverlay.getCurrentText()));
-                // Optional metadata
-                /* published omitted */
-                try { String dur = (video.mediaItem != null && video.mediaItem.getDurationMs() > 0) ? com.liskovsoft.googlecommon.common.helpers.ServiceHelper.millisToTimeText(video.mediaItem.getDurationMs()) : null; if (dur != null) i.putExtra("duration", dur); } catch (Throwable ignored) {}
-                activity.startActivity(i);
-            } catch (Throwable e) {
-                android.util.Log.e("VideoMenuPresenter", "Push to device error: " + e.getMessage());
+        AITaskExecutor.Task<String> summaryTask = executor.submit(summaryOverlay, AITaskExecutor.PRIORITY_FOREGROUND, summaryWork, new AITaskExecutor.Callback<String>() {
+            @Override
+            public void onResult(String summary) {
+                summaryRef.set(summary);
+                render.run();
+                setupPushToDevice(summaryOverlay, video, activity);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                summaryOverlay.showText("Error", "Failed to get summary:\n" + error.getMessage());
             }
         });
 
         // Summarize comments (async) if enabled
         if (gd.isCommentsSummaryEnabled()) {
-            new Thread(() -> {
-                try {
-                    // Fetch comments key from metadata (blocking)
-                    com.liskovsoft.mediaserviceinterfaces.data.MediaItemMetadata md = mMediaItemService.getMetadata(video.videoId);
-                    String nextKey = md != null ? md.getCommentsKey() : null;
-                    if (nextKey == null) return; // no comments
+            int max = Math.max(0, gd.getCommentsMaxCount());
+            // Summary of the first batch is shown until the summary of all comments is ready
+            final java.util.concurrent.atomic.AtomicBoolean isFinalShown = new java.util.concurrent.atomic.AtomicBoolean();
+            final java.util.concurrent.atomic.AtomicInteger partialSize = new java.util.concurrent.atomic.AtomicInteger();
+            final AITaskExecutor.Callback<String> partialCallback = new AITaskExecutor.Callback<String>() {
+                @Override
+                public void onResult(String csum) {
+                    if (csum == null || csum.isEmpty() || isFinalShown.get()) return;
+                    commentsRef.set(csum);
+                    render.run();
+                }
 
-                    java.util.List<String> texts = new java.util.ArrayList<>();
-                    int max = Math.max(0, gd.getCommentsMaxCount());
-                    // Paginate until we reach the configured max or run out of pages/time.
-                    long deadlineNs = System.nanoTime() + java.util.concurrent.TimeUnit.SECONDS.toNanos(25);
-                    while ((max == 0 || texts.size() < max) && nextKey != null && System.nanoTime() < deadlineNs) {
-                        final java.util.concurrent.CountDownLatch pageLatch = new java.util.concurrent.CountDownLatch(1);
-                        final io.reactivex.disposables.Disposable[] subHolder = new io.reactivex.disposables.Disposable[1];
-                        final String[] outNextKey = new String[1];
-                        subHolder[0] = getCommentsService().getCommentsObserve(nextKey)
-                                .subscribe(group -> {
-                                    try {
-                                        if (group != null && group.getComments() != null) {
-                                            for (com.liskovsoft.mediaserviceinterfaces.data.CommentItem item : group.getComments()) {
-                                                if (item == null || item.getMessage() == null) continue;
-                                                if (max > 0 && texts.size() >= max) break;
-                                                texts.add(item.getMessage());
-                                            }
-                                            outNextKey[0] = group.getNextCommentsKey();
-                                        }
-                                    } finally {
-                                        if (subHolder[0] != null) subHolder[0].dispose();
-                                        pageLatch.countDown();
-                                    }
-                                }, err -> {
-                                    if (subHolder[0] != null) subHolder[0].dispose();
-                                    pageLatch.countDown();
-                                });
-                        // Wait for this page (cap per-page wait to 8s)
-                        pageLatch.await(8, java.util.concurrent.TimeUnit.SECONDS);
-                        nextKey = outNextKey[0];
-                        if (max > 0 && texts.size() >= max) break;
-                    }
+                @Override
+                public void onError(Throwable error) {
+                    android.util.Log.w("VideoMenuPresenter", "Partial comments summary failed: " + error.getMessage());
+                }
+            };
 
-                    if (texts.isEmpty()) return;
-                    android.util.Log.d("VideoMenuPresenter", "Comments collected for summary: " + texts.size());
-                    com.liskovsoft.smartyoutubetv2.common.misc.AIClient aiComments;
-                    if ("openai".equalsIgnoreCase(gd.getProvider())) {
-                        aiComments = new com.liskovsoft.smartyoutubetv2.common.misc.OpenAIClient(getContext());
-                        if (!aiComments.isConfigured()) aiComments = new com.liskovsoft.smartyoutubetv2.common.misc.GeminiClient(getContext());
-                    } else {
-                        aiComments = new com.liskovsoft.smartyoutubetv2.common.misc.GeminiClient(getContext());
+            executor.submit(summaryOverlay, AITaskExecutor.PRIORITY_BACKGROUND, () -> {
+                CommentsHarvester harvester = CommentsHarvester.instance(getContext());
+                java.util.List<String> texts = harvester.getCached(video.videoId, max);
+
+                if (texts == null) {
+                    String commentsKey = null;
+
+                    // First page is prefetched or seen in the comments panel
+                    if (!CommentsRepository.instance(getContext()).isCached(video.videoId)) {
+                        // Fetch comments key from metadata (blocking)
+                        com.liskovsoft.mediaserviceinterfaces.data.MediaItemMetadata md = mMediaItemService.getMetadata(video.videoId);
+                        commentsKey = md != null ? md.getCommentsKey() : null;
+                        if (commentsKey == null) return null; // no comments
                     }
-                    int analyzed = max > 0 ? Math.min(texts.size(), max) : texts.size();
-                    String csum = aiComments.summarizeComments(video.title, video.author, video.videoId, texts, analyzed);
+
+                    texts = harvester.harvest(video.videoId, commentsKey, max, COMMENTS_MAX_TOKENS, COMMENTS_TIMEOUT_MS, COMMENTS_PARTIAL_BATCH_SIZE,
+                            partial -> {
+                                partialSize.set(partial.size());
+                                executor.submit(summaryOverlay, AITaskExecutor.PRIORITY_BACKGROUND,
+                                        () -> summarizeComments(executor, gd, video, partial), partialCallback);
+                            });
+                }
+
+                // Nothing new after the partial batch
+                if (texts.isEmpty() || texts.size() == partialSize.get()) return null;
+                android.util.Log.d("VideoMenuPresenter", "Comments collected for summary: " + texts.size());
+                return summarizeComments(executor, gd, video, texts);
+            }, new AITaskExecutor.Callback<String>() {
+                @Override
+                public void onResult(String csum) {
                     if (csum == null || csum.isEmpty()) return;
+                    isFinalShown.set(true);
                     commentsRef.set(csum);
+                    render.run();
+                }
 
-                    activity.runOnUiThread(() -> {
-                        StringBuilder content = new StringBuilder();
-                        content.append(summary);
-                        if (commentsRef.get() != null) {
-                            content.append("\n\n").append("💬 Comments Summary\n").append(commentsRef.get());
-                        }
-                        if (factRef.get() != null) content.append("\n\n").append("🔍 ").append(factRef.get());
-                        String formatted = beautifySummaryText(content.toString());
-                        CharSequence styled = styleSummary(formatted);
-                        summaryOverlay.showText("🧠 AI Summary", styled);
-                    });
-                } catch (Throwable t) {
-                    android.util.Log.w("VideoMenuPresenter", "Comments summary failed: " + t.getMessage());
+                @Override
+                public void onError(Throwable error) {
+                    android.util.Log.w("VideoMenuPresenter", "Comments summary failed: " + error.getMessage());
                 }
-            }).start();
+            });
         }
 
-        // Set up fact check functionality (async, on-demand)
+        // Set up fact check functionality (async, starts when the summary is ready)
         android.util.Log.d("VideoMenuPresenter", "Checking fact check setting: " + gd.isFactCheckEnabled());
         if (gd.isFactCheckEnabled()) {
-            android.util.Log.d("VideoMenuPresenter", "✓ Fact checking ENABLED - starting async fact check for: " + video.title);
-            
-            // For now, auto-trigger fact check after a 3-second delay (temporary)
-            new Thread(() -> {
-                try {
-                    Thread.sleep(3000); // 3 second delay
-                    android.util.Log.d("VideoMenuPresenter", "Starting async fact check after delay...");
-                    
-                    String factCheckResult;
-                    if ("openai".equalsIgnoreCase(gd.getProvider())) {
-                        com.liskovsoft.smartyoutubetv2.common.misc.OpenAIClient oai = new com.liskovsoft.smartyoutubetv2.common.misc.OpenAIClient(getContext());
-                        if (oai.isConfigured()) factCheckResult = oai.factCheck(summary, video.title, video.author, video.videoId);
-                        else factCheckResult = gemini.factCheck(summary, video.title, video.author, video.videoId);
-                    } else {
-                        factCheckResult = gemini.factCheck(summary, video.title, video.author, video.videoId);
-                    }
-                    
-            android.util.Log.d("VideoMenuPresenter", "Fact check result: " + (factCheckResult != null ? "SUCCESS (" + factCheckResult.length() + " chars)" : "NULL"));
-                    
+            android.util.Log.d("VideoMenuPresenter", "✓ Fact checking ENABLED - queueing async fact check for: " + video.title);
+
+            executor.then(summaryTask, AITaskExecutor.PRIORITY_BACKGROUND, summary -> {
+                android.util.Log.d("VideoMenuPresenter", "Starting async fact check...");
+                com.liskovsoft.smartyoutubetv2.common.misc.AIClient ai = executor.createClient(getContext(), gd.getProvider());
+                if (!ai.isConfigured()) ai = executor.createClient(getContext(), "gemini");
+                return ai.factCheck(summary, video.title, video.author, video.videoId);
+            }, new AITaskExecutor.Callback<String>() {
+                @Override
+                public void onResult(String factCheckResult) {
+                    android.util.Log.d("VideoMenuPresenter", "Fact check result: " + (factCheckResult != null ? "SUCCESS (" + factCheckResult.length() + " chars)" : "NULL"));
+
                     if (factCheckResult != null && !factCheckResult.isEmpty()) {
                         // Update overlay with fact check results
-                        activity.runOnUiThread(() -> {
-                            factRef.set(factCheckResult);
-                            StringBuilder content = new StringBuilder();
-                            content.append(summary);
-                            if (commentsRef.get() != null) content.append("\n\n").append("💬 Comments Summary\n").append(commentsRef.get());
-                            content.append("\n\n").append("🔍 ").append(factRef.get());
-                            String formatted = beautifySummaryText(content.toString());
-                            CharSequence styled = styleSummary(formatted);
-                            summaryOverlay.showText("🧠 AI Summary", styled);
-                            android.util.Log.d("VideoMenuPresenter", "Fact check completed and overlay updated");
-                        });
+                        factRef.set(factCheckResult);
+                        render.run();
+                        android.util.Log.d("VideoMenuPresenter", "Fact check completed and overlay updated");
                     } else {
                         android.util.Log.w("VideoMenuPresenter", "Fact check returned empty or null result");
                     }
-                } catch (Exception e) {
-                    android.util.Log.e("VideoMenuPresenter", "Async fact check failed: " + e.getMessage(), e);
                 }
-            }).start();
+
+                @Override
+                public void onError(Throwable error) {
+                    android.util.Log.e("VideoMenuPresenter", "Async fact check failed: " + error.getMessage(), error);
+                }
+            });
         } else {
             android.util.Log.w("VideoMenuPresenter", "✗ Fact checking DISABLED in settings - not starting fact check");
         }
     }
 
-    private static String buildFooterMeta(String provider, String model, long durationMs,
+    private String summarizeComments(AITaskExecutor executor, com.liskovsoft.smartyoutubetv2.common.prefs.GeminiData gd,
+                                     com.liskovsoft.smartyoutubetv2.common.app.models.data.Video video, java.util.List<String> comments) throws Exception {
+        com.liskovsoft.smartyoutubetv2.common.misc.AIClient ai = executor.createClient(getContext(), gd.getProvider());
+        if (!ai.isConfigured()) ai = executor.createClient(getContext(), "gemini");
+        return ai.summarizeComments(video.title, video.author, video.videoId, comments, comments.size());
+    }
+
+    private void setupPushToDevice(com.liskovsoft.smartyoutubetv2.common.ui.summary.VideoSummaryOverlay summaryOverlay,
+                                   com.liskovsoft.smartyoutubetv2.common.app.models.data.Video video,
+                                   android.app.Activity activity) {
+        // Replace email with local push-to-device: show QR that opens a local page with metadata
+        summaryOverlay.setOnEmailListener(() -> {
+            try {
+                android.content.Intent i = new android.content.Intent();
+                i.setClassName(activity.getPackageName(), "com.liskovsoft.smartyoutubetv2.tv.ui.push.PushToDeviceActivity");
+                i.putExtra("title", video.title);
+                i.putExtra("author", video.author);
+                String link = video.videoId != null ? ("https://www.youtube.com/watch?v=" + video.videoId) : null;
+                i.putExtra("link", link);
+                i.putExtra("desc", String.valueOf(summaryOverlay.getCurrentText()));
+                // Optional metadata
+                /* published omitted */
+                try { String dur = (video.mediaItem != null && video.mediaItem.getDurationMs() > 0) ? com.liskovsoft.googlecommon.common.helpers.ServiceHelper.millisToTimeText(video.mediaItem.getDurationMs()) : null; if (dur != null) i.putExtra("duration", dur); } catch (Throwable ignored) {}
+                activity.startActivity(i);
+            } catch (Throwable e) {
+                android.util.Log.e("VideoMenuPresenter", "Push to device error: " + e.getMessage());
+            }
+        });
+    }
+
+    private static String buildFooterMeta(String provider, String model, long durationMs, Long firstTokenMs,
                                           Integer promptTok, Integer complTok, Integer totalTok) {
         String prov = provider == null ? "" : provider.trim();
         if (prov.isEmpty()) prov = "gemini";
@@ -1340,6 +1361,10 @@ public class VideoMenuPresenter extends BaseMenuPresenter {
         } else {
             timeStr = durationMs + "ms";
         }
+        if (firstTokenMs != null) {
+            timeStr += firstTokenMs >= 1000 ? String.format(java.util.Locale.US, " (first token %.1fs)", firstTokenMs / 1000.0)
+                    : " (first token " + firstTokenMs + "ms)";
+        }
         // Tokens formatting
         Integer tot = totalTok;
         if (tot == null && promptTok != null && complTok != null) tot = promptTok + complTok;
@@ -13,6 +13,7 @@ import com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui.UiOptionItem
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.AppDialogPresenter;
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.base.BasePresenter;
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.service.SidebarService;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.other.DecoderPerformanceProfile;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.selector.TrackSelectorUtil;
 import com.liskovsoft.smartyoutubetv2.common.prefs.GeneralData;
 import com.liskovsoft.smartyoutubetv2.common.prefs.PlayerData;
@@ -72,6 +73,7 @@ public class PlayerSettingsPresenter extends BasePresenter<Void> {
         //appendPlayerExitCategory(settingsPresenter);
         appendMiscCategory(settingsPresenter);
         appendDeveloperCategory(settingsPresenter);
+        appendResetDecoderStatsButton(settingsPresenter);
 
         settingsPresenter.showDialog(getContext().getString(R.string.settings_player), () -> {
             if (mRestartApp) {
@@ -242,6 +244,31 @@ public class PlayerSettingsPresenter extends BasePresenter<Void> {
                 option -> mPlayerTweaksData.setNetworkErrorFixingDisabled(option.isSelected()),
                 mPlayerTweaksData.isNetworkErrorFixingDisabled()));
 
+        options.add(UiOptionItem.from(getContext().getString(R.string.shared_loader_threads),
+                getContext().getString(R.string.shared_loader_threads_desc),
+                option -> mPlayerTweaksData.setSharedLoaderThreadsEnabled(option.isSelected()),
+                mPlayerTweaksData.isSharedLoaderThreadsEnabled()));
+
+        options.add(UiOptionItem.from(getContext().getString(R.string.player_event_tracing),
+                getContext().getString(R.string.player_event_tracing_desc),
+                option -> mPlayerTweaksData.setEventTracingEnabled(option.isSelected()),
+                mPlayerTweaksData.isEventTracingEnabled()));
+
+        options.add(UiOptionItem.from(getContext().getString(R.string.dash_segment_merging),
+                getContext().getString(R.string.dash_segment_merging_desc),
+                option -> mPlayerTweaksData.setSegmentMergingEnabled(option.isSelected()),
+                mPlayerTweaksData.isSegmentMergingEnabled()));
+
+        options.add(UiOptionItem.from(getContext().getString(R.string.segment_index_cache),
+                getContext().getString(R.string.segment_index_cache_desc),
+                option -> mPlayerTweaksData.setSegmentIndexCacheEnabled(option.isSelected()),
+                mPlayerTweaksData.isSegmentIndexCacheEnabled()));
+
+        options.add(UiOptionItem.from(getContext().getString(R.string.offline_downloads),
+                getContext().getString(R.string.offline_downloads_desc),
+                option -> mPlayerTweaksData.setOfflineDownloadsEnabled(option.isSelected()),
+                mPlayerTweaksData.isOfflineDownloadsEnabled()));
+
         // Oculus Quest fix: back button not closing the activity
         options.add(UiOptionItem.from(getContext().getString(R.string.oculus_quest_fix),
                 option -> {
@@ -307,6 +334,11 @@ public class PlayerSettingsPresenter extends BasePresenter<Void> {
                 },
                 mPlayerTweaksData.isDashUrlStreamsForced()));
 
+        options.add(UiOptionItem.from(getContext().getString(R.string.live_latency_control),
+                getContext().getString(R.string.live_latency_control_desc),
+                option -> mPlayerTweaksData.setLiveLatencyControlEnabled(option.isSelected()),
+                mPlayerTweaksData.isLiveLatencyControlEnabled()));
+
         options.add(UiOptionItem.from(getContext().getString(R.string.disable_stream_buffer),
                 getContext().getString(R.string.disable_stream_buffer_desc),
                 option -> mPlayerTweaksData.setBufferOnStreamsDisabled(option.isSelected()),
@@ -406,6 +438,13 @@ public class PlayerSettingsPresenter extends BasePresenter<Void> {
         settingsPresenter.appendCheckedCategory(getContext().getString(R.string.player_tweaks), options);
     }
 
+    private void appendResetDecoderStatsButton(AppDialogPresenter settingsPresenter) {
+        settingsPresenter.appendSingleButton(UiOptionItem.from(getContext().getString(R.string.reset_decoder_stats), option -> {
+            DecoderPerformanceProfile.instance(getContext()).reset();
+            MessageHelpers.showMessage(getContext(), R.string.msg_done);
+        }));
+    }
+
     private void appendSeekTypeCategory(AppDialogPresenter settingsPresenter) {
         List<OptionItem> options = new ArrayList<>();
 
@@ -507,6 +546,11 @@ public class PlayerSettingsPresenter extends BasePresenter<Void> {
                 option -> mPlayerTweaksData.setPlayerAutoVolumeEnabled(option.isSelected()),
                 mPlayerTweaksData.isPlayerAutoVolumeEnabled()));
 
+        options.add(UiOptionItem.from(getContext().getString(R.string.loudness_normalization),
+                getContext().getString(R.string.loudness_normalization_desc),
+                option -> mPlayerTweaksData.setLoudnessNormalizationEnabled(option.isSelected()),
+                mPlayerTweaksData.isLoudnessNormalizationEnabled()));
+
         options.add(UiOptionItem.from(getContext().getString(R.string.player_section_playlist),
                 option -> mPlayerTweaksData.setSectionPlaylistEnabled(option.isSelected()),
                 mPlayerTweaksData.isSectionPlaylistEnabled()));
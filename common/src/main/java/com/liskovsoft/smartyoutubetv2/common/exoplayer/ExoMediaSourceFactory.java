@@ -7,14 +7,15 @@ import android.text.TextUtils;
 import androidx.annotation.NonNull;
 import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.ext.cronet.CronetDataSourceFactory;
-import com.google.android.exoplayer2.ext.cronet.CronetEngineWrapper;
 import com.google.android.exoplayer2.ext.okhttp.OkHttpDataSourceFactory;
 import com.google.android.exoplayer2.extractor.DefaultExtractorsFactory;
+import com.google.android.exoplayer2.offline.StreamKey;
 import com.google.android.exoplayer2.source.ExtractorMediaSource;
 import com.google.android.exoplayer2.source.MediaSource;
 import com.google.android.exoplayer2.source.dash.DashChunkSource;
 import com.google.android.exoplayer2.source.dash.DashMediaSource;
 import com.google.android.exoplayer2.source.dash.DefaultDashChunkSource;
+import com.google.android.exoplayer2.source.dash.SegmentIndexCache;
 import com.google.android.exoplayer2.source.dash.manifest.DashManifest;
 import com.google.android.exoplayer2.source.dash.manifest.DashManifestParser;
 import com.google.android.exoplayer2.source.dash.manifest.Period;
@@ -34,29 +35,31 @@ import com.google.android.exoplayer2.upstream.DefaultDataSourceFactory;
 import com.google.android.exoplayer2.upstream.DefaultHttpDataSourceFactory;
 import com.google.android.exoplayer2.upstream.HttpDataSource;
 import com.google.android.exoplayer2.upstream.HttpDataSource.BaseFactory;
+import com.google.android.exoplayer2.upstream.SharedLoaderExecutor;
 import com.google.android.exoplayer2.util.Util;
 import com.liskovsoft.mediaserviceinterfaces.data.MediaItemFormatInfo;
-import com.liskovsoft.sharedutils.cronet.CronetManager;
 import com.liskovsoft.sharedutils.helpers.FileHelpers;
 import com.liskovsoft.sharedutils.mylogger.Log;
 import com.liskovsoft.sharedutils.okhttp.OkHttpCommons;
-import com.liskovsoft.sharedutils.okhttp.OkHttpManager;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.errors.DashDefaultLoadErrorHandlingPolicy;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.errors.TrackErrorFixer;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.offline.OfflineDownloadManager;
+import com.liskovsoft.smartyoutubetv2.common.misc.MediaNetworkStack;
 import com.liskovsoft.smartyoutubetv2.common.prefs.PlayerTweaksData;
 import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
 import com.liskovsoft.googlecommon.common.helpers.DefaultHeaders;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
-import java.util.concurrent.Executors;
 
 public class ExoMediaSourceFactory {
     private static final String TAG = ExoMediaSourceFactory.class.getSimpleName();
     @SuppressLint("StaticFieldLeak")
     //private static ExoMediaSourceFactory sInstance;
     private static final int MAX_SEGMENTS_PER_LOAD = 1;
+    private static final int MAX_MERGED_SEGMENTS_PER_LOAD = 8;
     private static final String USER_AGENT = DefaultHeaders.APP_USER_AGENT;
     @SuppressLint("StaticFieldLeak")
     private static final DefaultBandwidthMeter BANDWIDTH_METER = new DefaultBandwidthMeter();
@@ -65,8 +68,12 @@ public class ExoMediaSourceFactory {
     private static final String DASH_MANIFEST_EXTENSION = "mpd";
     private static final String HLS_PLAYLIST_EXTENSION = "m3u8";
     private static final boolean USE_BANDWIDTH_METER = false;
+    private static final String SEGMENT_INDEX_CACHE_DIR = "dash_index";
+    private static SegmentIndexCache sSegmentIndexCache;
+    private static SharedLoaderExecutor sLoaderExecutor;
     private TrackErrorFixer mTrackErrorFixer;
     private Factory mMediaDataSourceFactory;
+    private String mVideoId;
 
     public ExoMediaSourceFactory(Context context) {
         mContext = context;
@@ -123,7 +130,7 @@ public class ExoMediaSourceFactory {
         int source = tweaksData.getPlayerDataSource();
         DefaultBandwidthMeter bandwidthMeter = useBandwidthMeter ? BANDWIDTH_METER : null;
         return source == PlayerTweaksData.PLAYER_DATA_SOURCE_OKHTTP ? buildOkHttpDataSourceFactory(bandwidthMeter) :
-                        source == PlayerTweaksData.PLAYER_DATA_SOURCE_CRONET && CronetManager.getEngine(mContext) != null ? buildCronetDataSourceFactory(bandwidthMeter) :
+                        source == PlayerTweaksData.PLAYER_DATA_SOURCE_CRONET && MediaNetworkStack.instance(mContext).getCronetEngine() != null ? buildCronetDataSourceFactory(bandwidthMeter) :
                                 buildDefaultHttpDataSourceFactory(bandwidthMeter);
     }
 
@@ -150,6 +157,7 @@ public class ExoMediaSourceFactory {
                         )
                                 .setManifestParser(new LiveDashManifestParser()) // Don't make static! Need state reset for each live source.
                                 .setLoadErrorHandlingPolicy(new DashDefaultLoadErrorHandlingPolicy())
+                                .setLoaderExecutor(getLoaderExecutor())
                                 .createMediaSource(uri);
                 if (mTrackErrorFixer != null) {
                     dashSource.addEventListener(Utils.sHandler, mTrackErrorFixer);
@@ -190,13 +198,26 @@ public class ExoMediaSourceFactory {
     }
 
     private MediaSource buildMPDMediaSource(Uri uri, InputStream mpdContent) {
+        DashManifest manifest = getManifest(uri, mpdContent);
+        OfflineDownloadManager offlineManager = getOfflineDownloadManager();
+        Factory dataSourceFactory = getMediaDataSourceFactory();
+        List<StreamKey> streamKeys = null;
+
+        if (offlineManager != null) {
+            // Downloaded video. Play from the cache.
+            dataSourceFactory = offlineManager.getDataSourceFactory(mVideoId, dataSourceFactory);
+            streamKeys = offlineManager.getStreamKeys(mVideoId, manifest);
+        }
+
         // Are you using FrameworkSampleSource or ExtractorSampleSource when you build your player?
         DashMediaSource dashSource = new DashMediaSource.Factory(
-                getDashChunkSourceFactory(),
+                getDashChunkSourceFactory(dataSourceFactory),
                 null
         )
                 .setLoadErrorHandlingPolicy(new DashDefaultLoadErrorHandlingPolicy())
-                .createMediaSource(getManifest(uri, mpdContent));
+                .setLoaderExecutor(getLoaderExecutor())
+                .setStreamKeys(streamKeys)
+                .createMediaSource(manifest);
         if (mTrackErrorFixer != null) {
             dashSource.addEventListener(Utils.sHandler, mTrackErrorFixer);
         }
@@ -211,9 +232,10 @@ public class ExoMediaSourceFactory {
 
         // Are you using FrameworkSampleSource or ExtractorSampleSource when you build your player?
         DashMediaSource dashSource = new DashMediaSource.Factory(
-                new DefaultDashChunkSource.Factory(getMediaDataSourceFactory()),
+                getDashChunkSourceFactory(),
                 null
         )
+                .setLoaderExecutor(getLoaderExecutor())
                 .createMediaSource(getManifest(uri, mpdContent));
         if (mTrackErrorFixer != null) {
             dashSource.addEventListener(Utils.sHandler, mTrackErrorFixer);
@@ -251,17 +273,21 @@ public class ExoMediaSourceFactory {
      * Use OkHttp for networking
      */
     private HttpDataSource.Factory buildOkHttpDataSourceFactory(DefaultBandwidthMeter bandwidthMeter) {
-        OkHttpDataSourceFactory dataSourceFactory = new OkHttpDataSourceFactory(OkHttpManager.instance().getClient(), USER_AGENT,
+        OkHttpDataSourceFactory dataSourceFactory = new OkHttpDataSourceFactory(MediaNetworkStack.instance(mContext).getOkHttpClient(), USER_AGENT,
                 bandwidthMeter);
         addCommonHeaders(dataSourceFactory);
         return dataSourceFactory;
     }
 
+    /**
+     * Engine and executor are shared between the videos
+     */
     private HttpDataSource.Factory buildCronetDataSourceFactory(DefaultBandwidthMeter bandwidthMeter) {
+        MediaNetworkStack networkStack = MediaNetworkStack.instance(mContext);
         CronetDataSourceFactory dataSourceFactory =
                 new CronetDataSourceFactory(
-                        new CronetEngineWrapper(CronetManager.getEngine(mContext)),
-                        Executors.newSingleThreadExecutor(),
+                        networkStack.getCronetEngine(),
+                        networkStack.getCronetExecutor(),
                         null,
                         bandwidthMeter,
                         (int) OkHttpCommons.CONNECT_TIMEOUT_MS,
@@ -326,6 +352,10 @@ public class ExoMediaSourceFactory {
         mTrackErrorFixer = trackErrorFixer;
     }
 
+    public void setVideoId(String videoId) {
+        mVideoId = videoId;
+    }
+
     public void release() {
         mMediaDataSourceFactory = null;
     }
@@ -342,7 +372,74 @@ public class ExoMediaSourceFactory {
 
     @NonNull
     private DashChunkSource.Factory getDashChunkSourceFactory() {
-        return new DefaultDashChunkSource.Factory(getMediaDataSourceFactory(), MAX_SEGMENTS_PER_LOAD);
+        return getDashChunkSourceFactory(getMediaDataSourceFactory());
+    }
+
+    @NonNull
+    private DashChunkSource.Factory getDashChunkSourceFactory(Factory dataSourceFactory) {
+        DefaultDashChunkSource.Factory factory;
+
+        if (PlayerTweaksData.instance(mContext).isSegmentMergingEnabled()) {
+            // Adjacent byte ranges of the same url are requested at once
+            factory = new DefaultDashChunkSource.Factory(dataSourceFactory, MAX_MERGED_SEGMENTS_PER_LOAD, true);
+        } else {
+            factory = new DefaultDashChunkSource.Factory(dataSourceFactory, MAX_SEGMENTS_PER_LOAD);
+        }
+
+        SegmentIndexCache segmentIndexCache = getSegmentIndexCache();
+
+        if (segmentIndexCache != null && mVideoId != null) {
+            // Loaded in the background while the player is being prepared
+            segmentIndexCache.prefetch(mVideoId);
+        }
+
+        // Resume and quality switch don't wait for the index and init segment
+        return factory.setSegmentIndexCache(segmentIndexCache, mVideoId);
+    }
+
+    private SegmentIndexCache getSegmentIndexCache() {
+        if (!PlayerTweaksData.instance(mContext).isSegmentIndexCacheEnabled()) {
+            return null;
+        }
+
+        if (sSegmentIndexCache == null) {
+            sSegmentIndexCache = new SegmentIndexCache(
+                    new File(mContext.getCacheDir(), SEGMENT_INDEX_CACHE_DIR),
+                    SegmentIndexCache.DEFAULT_MAX_MEMORY_ENTRIES,
+                    SegmentIndexCache.DEFAULT_MAX_DISK_BYTES
+            );
+        }
+
+        return sSegmentIndexCache;
+    }
+
+    private OfflineDownloadManager getOfflineDownloadManager() {
+        if (mVideoId == null || !PlayerTweaksData.instance(mContext).isOfflineDownloadsEnabled()) {
+            return null;
+        }
+
+        OfflineDownloadManager offlineManager = OfflineDownloadManager.instance(mContext);
+
+        return offlineManager.isDownloaded(mVideoId) ? offlineManager : null;
+    }
+
+    /**
+     * Manifest and chunk loads of all players (main and preview) share few threads.<br/>
+     * Manifest refreshes and audio chunks are started before the video and speculative ones.<br/>
+     * Idle threads are kept for the next video, so the executor is never released.
+     */
+    private SharedLoaderExecutor getLoaderExecutor() {
+        if (!PlayerTweaksData.instance(mContext).isSharedLoaderThreadsEnabled()) {
+            return null;
+        }
+
+        synchronized (ExoMediaSourceFactory.class) {
+            if (sLoaderExecutor == null) {
+                sLoaderExecutor = new SharedLoaderExecutor(SharedLoaderExecutor.DEFAULT_MAX_THREADS);
+            }
+
+            return sLoaderExecutor;
+        }
     }
 
     private Factory getMediaDataSourceFactory() {
@@ -9,7 +9,9 @@ import com.google.android.exoplayer2.ExoPlaybackException;
 import com.google.android.exoplayer2.Format;
 import com.google.android.exoplayer2.PlaybackParameters;
 import com.google.android.exoplayer2.Player;
+import com.google.android.exoplayer2.SeekParameters;
 import com.google.android.exoplayer2.SimpleExoPlayer;
+import com.google.android.exoplayer2.Timeline;
 import com.google.android.exoplayer2.source.MediaSource;
 import com.google.android.exoplayer2.source.MergingMediaSource;
 import com.google.android.exoplayer2.source.TrackGroupArray;
@@ -23,7 +25,9 @@ import com.liskovsoft.smartyoutubetv2.common.BuildConfig;
 import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.listener.PlayerEventListener;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.ExoMediaSourceFactory;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.errors.FailureLedger;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.errors.TrackErrorFixer;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.other.LoudnessGainStore;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.other.VolumeBooster;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.selector.ExoFormatItem;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.selector.FormatItem;
@@ -40,7 +44,7 @@ import java.io.InputStream;
 import java.lang.ref.WeakReference;
 import java.util.List;
 
-public class ExoPlayerController implements Player.EventListener {
+public class ExoPlayerController implements Player.EventListener, SeekScheduler.SeekTarget, LiveLatencyController.LiveTarget {
     private static final String TAG = ExoPlayerController.class.getSimpleName();
     private final Context mContext;
     private final ExoMediaSourceFactory mMediaSourceFactory;
@@ -55,6 +59,8 @@ public class ExoPlayerController implements Player.EventListener {
     private VolumeBooster mVolumeBooster;
     private boolean mIsEnded;
     private Runnable mOnVideoLoaded;
+    private SeekScheduler mSeekScheduler;
+    private LiveLatencyController mLiveLatencyController;
 
     public ExoPlayerController(Context context, PlayerEventListener eventListener) {
         PlayerTweaksData playerTweaksData = PlayerTweaksData.instance(context);
@@ -63,7 +69,7 @@ public class ExoPlayerController implements Player.EventListener {
         mTrackSelectorManager = new TrackSelectorManager(context);
         mTrackFormatter = new TrackInfoFormatter2();
         mTrackFormatter.enableBitrate(PlayerTweaksData.instance(context).isQualityInfoBitrateEnabled());
-        mTrackErrorFixer = new TrackErrorFixer(mTrackSelectorManager);
+        mTrackErrorFixer = new TrackErrorFixer(mTrackSelectorManager, FailureLedger.instance(context));
 
         mMediaSourceFactory.setTrackErrorFixer(mTrackErrorFixer);
         mEventListener = eventListener;
@@ -115,13 +121,19 @@ public class ExoPlayerController implements Player.EventListener {
         resetPlayerState(); // fixes occasional video artifacts and problems with quality switching
         setQualityInfo("");
 
+        if (mLiveLatencyController != null) {
+            mLiveLatencyController.reset();
+        }
+
         mTrackSelectorManager.setMergedSource(mediaSource instanceof MergingMediaSource);
         mTrackSelectorManager.invalidate();
+        mTrackErrorFixer.startSession();
         mOnSourceChanged = true;
         mEventListener.onSourceChanged(getVideo());
         mPlayer.prepare(mediaSource);
     }
 
+    @Override
     public long getPositionMs() {
         if (mPlayer == null) {
             return -1;
@@ -135,10 +147,69 @@ public class ExoPlayerController implements Player.EventListener {
      * (e.g. 302200 when duration is 302000).
      */
     public void setPositionMs(long positionMs) {
+        // Position from the app wins over the user scrubbing
+        if (mSeekScheduler != null) {
+            mSeekScheduler.cancel();
+        }
+
+        seekTo(positionMs, SeekParameters.EXACT);
+    }
+
+    /**
+     * Seek parameters are applied to this seek only. The configured ones (see ExoPlayerInitializer) are restored after it.
+     */
+    @Override
+    public void seekTo(long positionMs, SeekParameters seekParameters) {
         // Url list videos at load stage has undefined (-1) length. So, we need to remove length check.
         if (mPlayer != null && positionMs >= 0 && positionMs <= getDurationMs()) {
+            SeekParameters defaultParameters = mPlayer.getSeekParameters();
+            boolean isOverridden = seekParameters != null && !seekParameters.equals(defaultParameters);
+
+            if (isOverridden) {
+                mPlayer.setSeekParameters(seekParameters);
+            }
+
             mPlayer.seekTo(positionMs);
+
+            // The messages are handled in order, so the seek above uses the overridden parameters
+            if (isOverridden) {
+                mPlayer.setSeekParameters(defaultParameters);
+            }
+        }
+    }
+
+    @Override
+    public long getBufferedPositionMs() {
+        if (mPlayer == null) {
+            return -1;
+        }
+
+        return mPlayer.getBufferedPosition();
+    }
+
+    /**
+     * Used by the user seeks (D-pad scrubbing, rewind/fast forward).
+     */
+    public SeekScheduler getSeekScheduler() {
+        return mSeekScheduler;
+    }
+
+    @Override
+    public Timeline getCurrentTimeline() {
+        if (mPlayer == null) {
+            return Timeline.EMPTY;
+        }
+
+        return mPlayer.getCurrentTimeline();
+    }
+
+    @Override
+    public int getCurrentWindowIndex() {
+        if (mPlayer == null) {
+            return C.INDEX_UNSET;
         }
+
+        return mPlayer.getCurrentWindowIndex();
     }
 
     public long getDurationMs() {
@@ -164,6 +235,7 @@ public class ExoPlayerController implements Player.EventListener {
         return mPlayer.getPlayWhenReady();
     }
 
+    @Override
     public boolean isPlaying() {
         return ExoUtils.isPlaying(mPlayer);
     }
@@ -185,6 +257,18 @@ public class ExoPlayerController implements Player.EventListener {
         mMediaSourceFactory.release();
         releasePlayer();
         mPlayerView = null;
+        // The audio sink is released. The last gain is in the store.
+        LoudnessGainStore.instance(mContext).persist();
+
+        if (mSeekScheduler != null) {
+            mSeekScheduler.release();
+            mSeekScheduler = null;
+        }
+
+        if (mLiveLatencyController != null) {
+            mLiveLatencyController.release();
+            mLiveLatencyController = null;
+        }
         // Don't destroy it (needed inside the bridge)!
         //mEventListener = null;
     }
@@ -192,6 +276,19 @@ public class ExoPlayerController implements Player.EventListener {
     public void setPlayer(SimpleExoPlayer player) {
         mPlayer = player;
         player.addListener(this);
+
+        if (mSeekScheduler != null) {
+            mSeekScheduler.release();
+        }
+        mSeekScheduler = new SeekScheduler(this);
+
+        if (mLiveLatencyController != null) {
+            mLiveLatencyController.release();
+            mLiveLatencyController = null;
+        }
+        if (PlayerTweaksData.instance(mContext).isLiveLatencyControlEnabled()) {
+            mLiveLatencyController = new LiveLatencyController(this);
+        }
     }
 
     //@Override
@@ -216,6 +313,8 @@ public class ExoPlayerController implements Player.EventListener {
     
     public void setVideo(Video video) {
         mVideo = new WeakReference<>(video);
+        mMediaSourceFactory.setVideoId(video != null ? video.videoId : null);
+        LoudnessGainStore.instance(mContext).setContent(video != null ? video.videoId : null, video != null ? video.channelId : null);
     }
     
     public Video getVideo() {
@@ -309,6 +408,10 @@ public class ExoPlayerController implements Player.EventListener {
 
         Throwable nested = error.getCause() != null ? error.getCause() : error;
 
+        if (error.type == ExoPlaybackException.TYPE_RENDERER && mPlayer != null) {
+            mTrackErrorFixer.onRendererError(mPlayer.getRendererType(error.rendererIndex));
+        }
+
         mEventListener.onEngineError(error.type, error.rendererIndex, nested);
     }
 
@@ -332,6 +435,7 @@ public class ExoPlayerController implements Player.EventListener {
             mEventListener.onPlay();
         } else if (isPausePressed) {
             mEventListener.onPause();
+            LoudnessGainStore.instance(mContext).persist();
         } else if (isPlaybackEnded) {
             mEventListener.onPlayEnd();
             mIsEnded = true;
@@ -357,10 +461,22 @@ public class ExoPlayerController implements Player.EventListener {
 
     @Override
     public void onSeekProcessed() {
+        if (mSeekScheduler != null) {
+            mSeekScheduler.onSeekProcessed();
+        }
+
+        if (mLiveLatencyController != null) {
+            mLiveLatencyController.onSeekProcessed();
+        }
+
         mEventListener.onSeekEnd();
     }
     
     public void setSpeed(float speed) {
+        if (mLiveLatencyController != null) {
+            mLiveLatencyController.stopAdjusting();
+        }
+
         if (mPlayer != null && speed > 0 && !Helpers.floatEquals(speed, getSpeed())) {
             mPlayer.setPlaybackParameters(new PlaybackParameters(speed, mPlayer.getPlaybackParameters().pitch));
 
@@ -370,7 +486,13 @@ public class ExoPlayerController implements Player.EventListener {
         }
     }
     
+    @Override
     public float getSpeed() {
+        if (mLiveLatencyController != null && mLiveLatencyController.isAdjusting()) {
+            // Live catch up is hidden from the user
+            return 1.0f;
+        }
+
         if (mPlayer != null) {
             return mPlayer.getPlaybackParameters().speed;
         } else {
@@ -378,6 +500,16 @@ public class ExoPlayerController implements Player.EventListener {
         }
     }
     
+    /**
+     * Live catch up. The ui isn't notified.
+     */
+    @Override
+    public void setLiveSpeed(float speed) {
+        if (mPlayer != null && speed > 0) {
+            mPlayer.setPlaybackParameters(new PlaybackParameters(speed, mPlayer.getPlaybackParameters().pitch));
+        }
+    }
+
     public void setPitch(float pitch) {
         if (mPlayer != null && pitch > 0 && !Helpers.floatEquals(pitch, getPitch())) {
             mPlayer.setPlaybackParameters(new PlaybackParameters(mPlayer.getPlaybackParameters().speed, pitch));
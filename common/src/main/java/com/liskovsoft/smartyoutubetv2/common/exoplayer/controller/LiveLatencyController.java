@@ -0,0 +1,276 @@
+package com.liskovsoft.smartyoutubetv2.common.exoplayer.controller;
+
+import android.os.Handler;
+import android.os.Message;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.SeekParameters;
+import com.google.android.exoplayer2.Timeline;
+import com.google.android.exoplayer2.util.Clock;
+import com.google.android.exoplayer2.util.HandlerWrapper;
+import com.google.android.exoplayer2.util.Util;
+
+/**
+ * Keeps live streams (dash and hls) at the target distance from the live edge.<br/>
+ * The latency is the distance between the end of the live window and the position.
+ * The target is the distance of the window default position (the player starts there).<br/>
+ * Small drift is removed by the playback speed (within {@link #MAX_SPEED_DEVIATION}).
+ * The speed up is skipped when the buffer is low, so the catch up can't cause a rebuffer.
+ * Large drift (long stalls, pauses) is removed by the seek.<br/>
+ * The user seek away from the live edge turns the control off until the user returns to the edge.<br/>
+ * Must be used from the player thread.
+ */
+public class LiveLatencyController implements Handler.Callback {
+    private static final long UPDATE_INTERVAL_MS = 1_000;
+    /**
+     * Used when the window doesn't define the default position
+     */
+    private static final long DEFAULT_TARGET_LATENCY_MS = 30_000;
+    private static final float MAX_SPEED_DEVIATION = 0.03f;
+    /**
+     * Speed deviation per sec of the latency error
+     */
+    private static final float SPEED_DEVIATION_PER_SEC = 0.01f;
+    /**
+     * The window end moves by segments. Smaller errors are the noise.
+     */
+    private static final long MIN_ERROR_MS = 1_000;
+    private static final float ERROR_SMOOTHING = 0.3f;
+    /**
+     * Seek if behind further than that. At the max speed the catch up takes more than 10 min.
+     */
+    private static final long MAX_CATCH_UP_MS = 20_000;
+    private static final long MIN_SEEK_INTERVAL_MS = 60_000;
+    /**
+     * Seek processed event could be lost (e.g. player stopped)
+     */
+    private static final long SEEK_TIMEOUT_MS = 5_000;
+    /**
+     * The speed up is resumed at the double of it. Fewer speed changes.
+     */
+    private static final long MIN_BUFFER_FOR_SPEED_UP_MS = 5_000;
+    /**
+     * The user seek this close to the target latency means 'go to live'
+     */
+    private static final long LIVE_SEEK_TOLERANCE_MS = 5_000;
+    private static final int MSG_UPDATE = 1;
+    private final LiveTarget mTarget;
+    private final Clock mClock;
+    private final HandlerWrapper mHandler;
+    private final Timeline.Window mWindow = new Timeline.Window();
+    private boolean mIsFollowingLive = true;
+    private boolean mIsSeekPending;
+    private long mLastSeekTimeMs = C.TIME_UNSET;
+    private long mSmoothedErrorMs = C.TIME_UNSET;
+    private float mSpeed = 1.0f;
+    private boolean mIsBufferLow;
+
+    public interface LiveTarget {
+        Timeline getCurrentTimeline();
+        int getCurrentWindowIndex();
+        /**
+         * Negative if unknown
+         */
+        long getPositionMs();
+        /**
+         * Negative if unknown
+         */
+        long getBufferedPositionMs();
+        boolean isPlaying();
+        /**
+         * Speed selected by the user
+         */
+        float getSpeed();
+        /**
+         * Shouldn't change the speed selected by the user
+         */
+        void setLiveSpeed(float speed);
+        void seekTo(long positionMs, SeekParameters seekParameters);
+    }
+
+    public LiveLatencyController(LiveTarget target) {
+        this(target, Clock.DEFAULT);
+    }
+
+    public LiveLatencyController(LiveTarget target, Clock clock) {
+        mTarget = target;
+        mClock = clock;
+        mHandler = clock.createHandler(Util.getLooper(), this);
+        scheduleUpdate();
+    }
+
+    /**
+     * Speed differs from the user one
+     */
+    public boolean isAdjusting() {
+        return mSpeed != 1.0f;
+    }
+
+    /**
+     * Current latency or {@link C#TIME_UNSET} if not a live stream.
+     */
+    public long getLatencyMs() {
+        Timeline.Window window = getLiveWindow();
+        return window != null ? getLatencyMs(window) : C.TIME_UNSET;
+    }
+
+    public void onSeekProcessed() {
+        mSmoothedErrorMs = C.TIME_UNSET;
+
+        if (mIsSeekPending) {
+            mIsSeekPending = false;
+            return;
+        }
+
+        // The user or the app seek
+        Timeline.Window window = getLiveWindow();
+
+        if (window != null) {
+            mIsFollowingLive = getLatencyMs(window) - getTargetLatencyMs(window) <= LIVE_SEEK_TOLERANCE_MS;
+        }
+
+        if (!mIsFollowingLive) {
+            stopAdjusting();
+        }
+    }
+
+    /**
+     * Restores the user speed. E.g. before the user changes the speed.
+     */
+    public void stopAdjusting() {
+        setSpeed(1.0f);
+    }
+
+    /**
+     * New media source
+     */
+    public void reset() {
+        stopAdjusting();
+        mIsFollowingLive = true;
+        mIsSeekPending = false;
+        mLastSeekTimeMs = C.TIME_UNSET;
+        mSmoothedErrorMs = C.TIME_UNSET;
+        mIsBufferLow = false;
+    }
+
+    public void release() {
+        mHandler.removeCallbacksAndMessages(null);
+        reset();
+    }
+
+    @Override
+    public boolean handleMessage(Message msg) {
+        if (msg.what == MSG_UPDATE) {
+            update();
+            scheduleUpdate();
+            return true;
+        }
+
+        return false;
+    }
+
+    private void scheduleUpdate() {
+        mHandler.sendEmptyMessageAtTime(MSG_UPDATE, mClock.uptimeMillis() + UPDATE_INTERVAL_MS);
+    }
+
+    private void update() {
+        Timeline.Window window = getLiveWindow();
+
+        if (window == null || !mIsFollowingLive) {
+            stopAdjusting();
+            return;
+        }
+
+        long nowMs = mClock.elapsedRealtime();
+
+        if (mIsSeekPending && nowMs - mLastSeekTimeMs >= SEEK_TIMEOUT_MS) {
+            mIsSeekPending = false;
+        }
+
+        // Paused or buffering. Keep the state until the playback continues.
+        // The user speed has priority.
+        if (!mTarget.isPlaying() || mTarget.getSpeed() != 1.0f || mIsSeekPending) {
+            return;
+        }
+
+        long targetLatencyMs = getTargetLatencyMs(window);
+        long errorMs = getLatencyMs(window) - targetLatencyMs;
+
+        if (errorMs > MAX_CATCH_UP_MS && (mLastSeekTimeMs == C.TIME_UNSET || nowMs - mLastSeekTimeMs >= MIN_SEEK_INTERVAL_MS)) {
+            stopAdjusting();
+            mIsSeekPending = true;
+            mLastSeekTimeMs = nowMs;
+            mSmoothedErrorMs = C.TIME_UNSET;
+            // Segments start with the sync samples
+            mTarget.seekTo(Math.max(0, window.getDurationMs() - targetLatencyMs), SeekParameters.CLOSEST_SYNC);
+            return;
+        }
+
+        mSmoothedErrorMs = mSmoothedErrorMs == C.TIME_UNSET ? errorMs : mSmoothedErrorMs + Math.round(ERROR_SMOOTHING * (errorMs - mSmoothedErrorMs));
+
+        float speed = getSpeed(mSmoothedErrorMs);
+
+        // Don't trade the latency for a rebuffer
+        long bufferedAheadMs = mTarget.getBufferedPositionMs() - mTarget.getPositionMs();
+        if (bufferedAheadMs < MIN_BUFFER_FOR_SPEED_UP_MS) {
+            mIsBufferLow = true;
+        } else if (bufferedAheadMs >= 2 * MIN_BUFFER_FOR_SPEED_UP_MS) {
+            mIsBufferLow = false;
+        }
+
+        if (speed > 1.0f && mIsBufferLow) {
+            speed = 1.0f;
+        }
+
+        setSpeed(speed);
+    }
+
+    private static float getSpeed(long errorMs) {
+        if (Math.abs(errorMs) < MIN_ERROR_MS) {
+            return 1.0f;
+        }
+
+        float deviation = Math.max(-MAX_SPEED_DEVIATION, Math.min(MAX_SPEED_DEVIATION, errorMs / 1_000f * SPEED_DEVIATION_PER_SEC));
+
+        // Fewer speed changes (each one resets the audio processors)
+        return Math.round((1.0f + deviation) * 100) / 100f;
+    }
+
+    private void setSpeed(float speed) {
+        if (speed != mSpeed) {
+            mSpeed = speed;
+            mTarget.setLiveSpeed(speed);
+        }
+    }
+
+    private Timeline.Window getLiveWindow() {
+        Timeline timeline = mTarget.getCurrentTimeline();
+        int windowIndex = mTarget.getCurrentWindowIndex();
+
+        if (timeline == null || windowIndex < 0 || windowIndex >= timeline.getWindowCount()) {
+            return null;
+        }
+
+        timeline.getWindow(windowIndex, mWindow);
+
+        if (!mWindow.isDynamic || !mWindow.isSeekable || mWindow.durationUs == C.TIME_UNSET || mTarget.getPositionMs() < 0) {
+            return null;
+        }
+
+        return mWindow;
+    }
+
+    private long getLatencyMs(Timeline.Window window) {
+        return window.getDurationMs() - mTarget.getPositionMs();
+    }
+
+    private static long getTargetLatencyMs(Timeline.Window window) {
+        long defaultPositionMs = window.getDefaultPositionMs();
+
+        if (defaultPositionMs <= 0 || defaultPositionMs > window.getDurationMs()) {
+            return DEFAULT_TARGET_LATENCY_MS;
+        }
+
+        return window.getDurationMs() - defaultPositionMs;
+    }
+}
@@ -0,0 +1,208 @@
+package com.liskovsoft.smartyoutubetv2.common.exoplayer.controller;
+
+import android.os.Handler;
+import android.os.Message;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.SeekParameters;
+import com.google.android.exoplayer2.util.Clock;
+import com.google.android.exoplayer2.util.HandlerWrapper;
+import com.google.android.exoplayer2.util.Util;
+
+/**
+ * Sits between the player ui (D-pad scrubbing, rewind/fast forward buttons) and the player.<br/>
+ * Every seek outside of the buffer cancels the running loads and flushes the decoders,
+ * so rapid seeks are coalesced into the latest target and issued no more often than {@link #MIN_SEEK_INTERVAL_MS}.<br/>
+ * Targets inside the buffer are issued at once with exact parameters: the player keeps the loaded samples for them.<br/>
+ * Fast scrubbing uses {@link SeekParameters#CLOSEST_SYNC}, the exact position is restored when the scrubbing stops.<br/>
+ * Must be used from the player thread.
+ */
+public class SeekScheduler implements Handler.Callback {
+    /**
+     * Media ms per real ms. Holding the key with 10 sec step is about 100.
+     */
+    private static final float FAST_SCRUB_SPEED = 20;
+    private static final long MIN_SEEK_INTERVAL_MS = 250;
+    private static final long SETTLE_DELAY_MS = 400;
+    /**
+     * Seek processed event could be lost (e.g. player stopped)
+     */
+    private static final long SEEK_TIMEOUT_MS = 1_000;
+    private static final int MSG_ISSUE_PENDING = 1;
+    private static final int MSG_SETTLE = 2;
+    private final SeekTarget mTarget;
+    private final Clock mClock;
+    private final HandlerWrapper mHandler;
+    private long mLastRequestTimeMs = C.TIME_UNSET;
+    private long mLastRequestedPositionMs = C.TIME_UNSET;
+    private long mPendingPositionMs = C.TIME_UNSET;
+    private SeekParameters mPendingParameters;
+    private long mLastIssueTimeMs = C.TIME_UNSET;
+    private long mLastIssuedPositionMs = C.TIME_UNSET;
+    private boolean mIsLastIssueApproximate;
+    private int mSeeksInFlight;
+
+    public interface SeekTarget {
+        /**
+         * Negative if unknown
+         */
+        long getPositionMs();
+        /**
+         * Negative if unknown
+         */
+        long getBufferedPositionMs();
+        void seekTo(long positionMs, SeekParameters seekParameters);
+    }
+
+    public SeekScheduler(SeekTarget target) {
+        this(target, Clock.DEFAULT);
+    }
+
+    public SeekScheduler(SeekTarget target, Clock clock) {
+        mTarget = target;
+        mClock = clock;
+        mHandler = clock.createHandler(Util.getLooper(), this);
+    }
+
+    public void seekTo(long positionMs) {
+        long nowMs = mClock.elapsedRealtime();
+        boolean isFastScrub = isFastScrub(positionMs, nowMs);
+        mLastRequestTimeMs = nowMs;
+        mLastRequestedPositionMs = positionMs;
+
+        if (!isSeekInFlight(nowMs) && isInBuffer(positionMs)) {
+            // No loads are cancelled. Keyframe could be behind the buffer so seek exactly.
+            issue(positionMs, SeekParameters.EXACT, nowMs);
+            return;
+        }
+
+        schedule(positionMs, isFastScrub ? SeekParameters.CLOSEST_SYNC : SeekParameters.EXACT, nowMs);
+    }
+
+    /**
+     * Latest requested position that isn't reached by the player yet or {@link C#TIME_UNSET}.<br/>
+     * Use it as the base of the next relative seek.
+     */
+    public long getTargetPositionMs() {
+        if (mPendingPositionMs != C.TIME_UNSET || mSeeksInFlight > 0 || mIsLastIssueApproximate) {
+            return mLastRequestedPositionMs;
+        }
+
+        return C.TIME_UNSET;
+    }
+
+    public void onSeekProcessed() {
+        if (mSeeksInFlight > 0) {
+            mSeeksInFlight--;
+        }
+
+        if (mSeeksInFlight == 0 && mPendingPositionMs != C.TIME_UNSET) {
+            schedule(mPendingPositionMs, mPendingParameters, mClock.elapsedRealtime());
+        }
+    }
+
+    /**
+     * Drops pending seeks. E.g. when the position is set by the app.
+     */
+    public void cancel() {
+        mHandler.removeCallbacksAndMessages(null);
+        mPendingPositionMs = C.TIME_UNSET;
+        mPendingParameters = null;
+        mIsLastIssueApproximate = false;
+        mLastRequestTimeMs = C.TIME_UNSET;
+        mLastRequestedPositionMs = C.TIME_UNSET;
+    }
+
+    public void release() {
+        cancel();
+        mSeeksInFlight = 0;
+    }
+
+    @Override
+    public boolean handleMessage(Message msg) {
+        long nowMs = mClock.elapsedRealtime();
+
+        // Messages could be outdated. Check the state again.
+        switch (msg.what) {
+            case MSG_ISSUE_PENDING:
+                if (mPendingPositionMs != C.TIME_UNSET) {
+                    schedule(mPendingPositionMs, mPendingParameters, nowMs);
+                }
+                return true;
+            case MSG_SETTLE:
+                if (mIsLastIssueApproximate && nowMs - mLastRequestTimeMs >= SETTLE_DELAY_MS) {
+                    mIsLastIssueApproximate = false;
+                    schedule(mLastRequestedPositionMs, SeekParameters.EXACT, nowMs);
+                }
+                return true;
+        }
+
+        return false;
+    }
+
+    private void schedule(long positionMs, SeekParameters seekParameters, long nowMs) {
+        long nextIssueTimeMs = mLastIssueTimeMs == C.TIME_UNSET ? nowMs : mLastIssueTimeMs + MIN_SEEK_INTERVAL_MS;
+
+        if (!isSeekInFlight(nowMs) && nextIssueTimeMs <= nowMs) {
+            issue(positionMs, seekParameters, nowMs);
+            return;
+        }
+
+        // Coalesce. Only the latest target matters.
+        mPendingPositionMs = positionMs;
+        mPendingParameters = seekParameters;
+
+        // Normally issued when the previous seek is processed. The timeout is a fallback.
+        long issueTimeMs = isSeekInFlight(nowMs) ? mLastIssueTimeMs + SEEK_TIMEOUT_MS : nextIssueTimeMs;
+        mHandler.removeMessages(MSG_ISSUE_PENDING);
+        mHandler.sendEmptyMessageAtTime(MSG_ISSUE_PENDING, mClock.uptimeMillis() + (issueTimeMs - nowMs));
+    }
+
+    private void issue(long positionMs, SeekParameters seekParameters, long nowMs) {
+        mPendingPositionMs = C.TIME_UNSET;
+        mPendingParameters = null;
+
+        boolean isApproximate = seekParameters != SeekParameters.EXACT;
+
+        if (!isApproximate && !mIsLastIssueApproximate && positionMs == mLastIssuedPositionMs && !isSeekInFlight(nowMs)
+                && positionMs == mTarget.getPositionMs()) {
+            // Already there
+            return;
+        }
+
+        mIsLastIssueApproximate = isApproximate;
+        mLastIssuedPositionMs = positionMs;
+        mLastIssueTimeMs = nowMs;
+        mSeeksInFlight++;
+        mTarget.seekTo(positionMs, seekParameters);
+
+        if (isApproximate) {
+            mHandler.removeMessages(MSG_SETTLE);
+            mHandler.sendEmptyMessageAtTime(MSG_SETTLE, mClock.uptimeMillis() + SETTLE_DELAY_MS);
+        }
+    }
+
+    private boolean isFastScrub(long positionMs, long nowMs) {
+        if (mLastRequestTimeMs == C.TIME_UNSET || nowMs - mLastRequestTimeMs >= SETTLE_DELAY_MS) {
+            return false;
+        }
+
+        long elapsedMs = Math.max(1, nowMs - mLastRequestTimeMs);
+        return Math.abs(positionMs - mLastRequestedPositionMs) / (float) elapsedMs >= FAST_SCRUB_SPEED;
+    }
+
+    private boolean isSeekInFlight(long nowMs) {
+        if (mSeeksInFlight > 0 && nowMs - mLastIssueTimeMs >= SEEK_TIMEOUT_MS) {
+            mSeeksInFlight = 0;
+        }
+
+        return mSeeksInFlight > 0;
+    }
+
+    private boolean isInBuffer(long positionMs) {
+        long currentPositionMs = mTarget.getPositionMs();
+        long bufferedPositionMs = mTarget.getBufferedPositionMs();
+
+        return currentPositionMs >= 0 && bufferedPositionMs >= 0 && positionMs >= currentPositionMs && positionMs <= bufferedPositionMs;
+    }
+}
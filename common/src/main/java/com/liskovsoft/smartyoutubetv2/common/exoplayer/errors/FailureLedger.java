@@ -0,0 +1,188 @@
+package com.liskovsoft.smartyoutubetv2.common.exoplayer.errors;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.google.android.exoplayer2.Format;
+import com.liskovsoft.sharedutils.helpers.Helpers;
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.other.DecoderPerformanceProfile;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Remembers which formats the decoder failed on in the previous sessions and which network engines stalled.<br/>
+ * Formats are keyed by codec, resolution and frame rate, like in {@link DecoderPerformanceProfile}.
+ * Load errors aren't counted: they depend on the network or the url (403 of an expired url), not on the format.<br/>
+ * Every failure adds a point to the score. The score halves every {@link #HALF_LIFE_MS}, so an old failure is forgiven eventually.<br/>
+ * The same key is counted once per {@link #FAILURE_INTERVAL_MS}.
+ */
+public class FailureLedger {
+    private static final String TAG = FailureLedger.class.getSimpleName();
+    private static final String PREFS_NAME = FailureLedger.class.getName();
+    private static final String DECODER_PREFIX = "decoder:";
+    private static final String ENGINE_PREFIX = "engine:";
+    private static final long HALF_LIFE_MS = 24 * 60 * 60 * 1_000;
+    private static final long FAILURE_INTERVAL_MS = 10_000;
+    /**
+     * Three failed sessions within about 12 hours (older failures weigh less)
+     */
+    private static final float AVOID_SCORE = 2.5f;
+    private static final float MIN_SCORE = 0.01f;
+    @SuppressLint("StaticFieldLeak")
+    private static FailureLedger sInstance;
+    private final SharedPreferences mPrefs;
+    private final Map<String, Score> mScores = new HashMap<>();
+
+    private static class Score {
+        public float value;
+        public long timeMs;
+
+        private static Score from(String data) {
+            String[] split = Helpers.splitData(data);
+            Score score = new Score();
+
+            if (split == null) {
+                return score;
+            }
+
+            score.value = Helpers.parseFloat(split, 0, 0);
+            score.timeMs = Helpers.parseLong(split, 1, 0);
+
+            return score;
+        }
+
+        public float getValue(long currentTimeMs) {
+            long elapsedMs = Math.max(currentTimeMs - timeMs, 0);
+            return (float) (value * Math.pow(0.5, elapsedMs / (double) HALF_LIFE_MS));
+        }
+
+        @Override
+        public String toString() {
+            return Helpers.mergeData(value, timeMs);
+        }
+    }
+
+    @VisibleForTesting
+    FailureLedger(Context context) {
+        mPrefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+
+        long currentTimeMs = getCurrentTimeMs();
+
+        for (Map.Entry<String, ?> entry : mPrefs.getAll().entrySet()) {
+            if (entry.getValue() instanceof String) {
+                Score score = Score.from((String) entry.getValue());
+
+                if (score.getValue(currentTimeMs) >= MIN_SCORE) {
+                    mScores.put(entry.getKey(), score);
+                }
+            }
+        }
+    }
+
+    public static FailureLedger instance(Context context) {
+        if (sInstance == null) {
+            sInstance = new FailureLedger(context.getApplicationContext());
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * Video decoder or renderer failed on the format
+     */
+    public synchronized void onDecoderError(Format format) {
+        String formatKey = DecoderPerformanceProfile.getFormatKey(format);
+
+        Log.d(TAG, "Decoder error: %s", formatKey);
+
+        addFailure(DECODER_PREFIX, formatKey);
+    }
+
+    /**
+     * Long buffering with the given network engine
+     */
+    public synchronized void onEngineStall(int engine) {
+        addFailure(ENGINE_PREFIX, String.valueOf(engine));
+    }
+
+    /**
+     * The format failed in the recent sessions. Better to pick another one from the start.
+     */
+    public synchronized boolean isAvoided(Format format) {
+        return getScore(DECODER_PREFIX, DecoderPerformanceProfile.getFormatKey(format)) >= AVOID_SCORE;
+    }
+
+    public synchronized float getEngineScore(int engine) {
+        return getScore(ENGINE_PREFIX, String.valueOf(engine));
+    }
+
+    /**
+     * Next engine from the list. Engines that stalled recently are tried last.
+     */
+    public synchronized int getNextEngine(int currentEngine, Integer[] engineList) {
+        int currentIndex = 0;
+
+        for (int i = 0; i < engineList.length; i++) {
+            if (engineList[i] == currentEngine) {
+                currentIndex = i;
+                break;
+            }
+        }
+
+        int result = currentEngine;
+        float resultScore = Float.MAX_VALUE;
+
+        for (int i = 1; i < engineList.length; i++) {
+            int engine = engineList[(currentIndex + i) % engineList.length];
+            float score = getEngineScore(engine);
+
+            if (score < resultScore) {
+                result = engine;
+                resultScore = score;
+            }
+        }
+
+        return result;
+    }
+
+    @VisibleForTesting
+    long getCurrentTimeMs() {
+        return System.currentTimeMillis();
+    }
+
+    private void addFailure(String prefix, String name) {
+        if (name == null) {
+            return;
+        }
+
+        String key = prefix + name;
+        long currentTimeMs = getCurrentTimeMs();
+        Score score = mScores.get(key);
+
+        if (score == null) {
+            score = new Score();
+            mScores.put(key, score);
+        } else if (currentTimeMs - score.timeMs < FAILURE_INTERVAL_MS) {
+            return;
+        }
+
+        score.value = score.getValue(currentTimeMs) + 1;
+        score.timeMs = currentTimeMs;
+        mPrefs.edit().putString(key, score.toString()).apply();
+    }
+
+    private float getScore(String prefix, String name) {
+        if (name == null) {
+            return 0;
+        }
+
+        Score score = mScores.get(prefix + name);
+
+        return score != null ? score.getValue(getCurrentTimeMs()) : 0;
+    }
+}
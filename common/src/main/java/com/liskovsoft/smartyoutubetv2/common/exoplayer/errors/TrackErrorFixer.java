@@ -1,7 +1,9 @@
 package com.liskovsoft.smartyoutubetv2.common.exoplayer.errors;
 
 import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.ExoPlaybackException;
+import com.google.android.exoplayer2.Format;
 import com.google.android.exoplayer2.mediacodec.MediaCodecRenderer.DecoderInitializationException;
 import com.google.android.exoplayer2.source.DefaultMediaSourceEventListener;
 import com.google.android.exoplayer2.source.MediaSource.MediaPeriodId;
@@ -25,12 +27,15 @@ public class TrackErrorFixer extends DefaultMediaSourceEventListener {
     private static final int BLACKLIST_CLEAR_MS = 10_000;
     private static final String TAG = TrackErrorFixer.class.getSimpleName();
     private final TrackSelectorManager mTrackSelectorManager;
+    private final FailureLedger mFailureLedger;
     private long mSelectionTimeMs;
     private final Map<MediaTrack, Long> mBlacklistedTracks = new HashMap<>();
     private InvalidResponseCodeException mLastEx;
+    private Format mVideoFormat;
 
-    public TrackErrorFixer(TrackSelectorManager trackSelectorManager) {
+    public TrackErrorFixer(TrackSelectorManager trackSelectorManager, FailureLedger failureLedger) {
         mTrackSelectorManager = trackSelectorManager;
+        mFailureLedger = failureLedger;
     }
 
     /**
@@ -251,9 +256,33 @@ public class TrackErrorFixer extends DefaultMediaSourceEventListener {
         }
     }
 
+    /**
+     * New media source is opened
+     */
+    public void startSession() {
+        mVideoFormat = null;
+    }
+
     @Override
     public void onLoadError(int windowIndex, @Nullable MediaPeriodId mediaPeriodId, LoadEventInfo loadEventInfo,
                             MediaLoadData mediaLoadData, IOException error, boolean wasCanceled) {
         fixError(error);
     }
+
+    @Override
+    public void onDownstreamFormatChanged(int windowIndex, @Nullable MediaPeriodId mediaPeriodId, MediaLoadData mediaLoadData) {
+        if (mediaLoadData.trackType == C.TRACK_TYPE_VIDEO && mediaLoadData.trackFormat != null) {
+            mVideoFormat = mediaLoadData.trackFormat;
+        }
+    }
+
+    /**
+     * Remember the video format for the next sessions. See TrackSelectorManager.<br/>
+     * Only the renderer errors are counted. Load errors don't depend on the format (e.g. 403 of an expired url).
+     */
+    public void onRendererError(int trackType) {
+        if (trackType == C.TRACK_TYPE_VIDEO && mVideoFormat != null) {
+            mFailureLedger.onDecoderError(mVideoFormat);
+        }
+    }
 }
@@ -0,0 +1,496 @@
+package com.liskovsoft.smartyoutubetv2.common.exoplayer.offline;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.database.ExoDatabaseProvider;
+import com.google.android.exoplayer2.ext.okhttp.OkHttpDataSourceFactory;
+import com.google.android.exoplayer2.offline.DefaultDownloadIndex;
+import com.google.android.exoplayer2.offline.DefaultDownloaderFactory;
+import com.google.android.exoplayer2.offline.Download;
+import com.google.android.exoplayer2.offline.DownloadCursor;
+import com.google.android.exoplayer2.offline.DownloadManager;
+import com.google.android.exoplayer2.offline.DownloadRequest;
+import com.google.android.exoplayer2.offline.DownloaderConstructorHelper;
+import com.google.android.exoplayer2.offline.StreamKey;
+import com.google.android.exoplayer2.scheduler.Requirements;
+import com.google.android.exoplayer2.source.dash.manifest.AdaptationSet;
+import com.google.android.exoplayer2.source.dash.manifest.DashManifest;
+import com.google.android.exoplayer2.source.dash.manifest.DashManifestParser;
+import com.google.android.exoplayer2.source.dash.manifest.Period;
+import com.google.android.exoplayer2.source.dash.manifest.Representation;
+import com.google.android.exoplayer2.source.dash.manifest.Representation.SingleSegmentRepresentation;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.FileDataSourceFactory;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSource;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSourceFactory;
+import com.google.android.exoplayer2.upstream.cache.CacheUtil;
+import com.google.android.exoplayer2.upstream.cache.NoOpCacheEvictor;
+import com.google.android.exoplayer2.upstream.cache.SimpleCache;
+import com.google.android.exoplayer2.util.MimeTypes;
+import com.google.android.exoplayer2.util.Util;
+import com.liskovsoft.googlecommon.common.helpers.DefaultHeaders;
+import com.liskovsoft.sharedutils.helpers.Helpers;
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.service.WatchBundleCache;
+import com.liskovsoft.smartyoutubetv2.common.misc.MediaNetworkStack;
+
+import io.reactivex.Observable;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Downloads the queued videos with ExoPlayer's {@link DownloadManager}.<br/>
+ * One video and one audio representation per video (avc and aac up to {@link #MAX_HEIGHT}).<br/>
+ * Every representation is a progressive download keyed by videoId.itag, so the content stays reachable after the urls expire.<br/>
+ * Downloads run on unmetered network and are paused while something is playing.<br/>
+ * Failed download is restarted once with the urls of the fresh manifest (the old ones expire), then removed.
+ */
+public class OfflineDownloadManager implements DownloadManager.Listener {
+    private static final String TAG = OfflineDownloadManager.class.getSimpleName();
+    private static final String CACHE_DIR = "offline";
+    private static final Uri DASH_MANIFEST_URI = Uri.parse("https://example.com/test.mpd");
+    private static final int MAX_HEIGHT = 1080;
+    private static final long MAX_VIDEO_BYTES = 1_000_000_000L;
+    private static final long MAX_CACHE_BYTES = 4_000_000_000L;
+    /**
+     * Expired url won't recover, the fresh one is requested instead
+     */
+    private static final int MIN_RETRY_COUNT = 2;
+    @SuppressLint("StaticFieldLeak")
+    private static OfflineDownloadManager sInstance;
+    private final File mCacheDir;
+    private final SimpleCache mCache;
+    private final DownloadManager mDownloadManager;
+    private final Map<String, Download> mDownloads = new HashMap<>();
+    private final Set<String> mRefreshedIds = new HashSet<>();
+
+    @VisibleForTesting
+    OfflineDownloadManager(Context context, File cacheDir, DataSource.Factory upstreamFactory, Requirements requirements) {
+        ExoDatabaseProvider databaseProvider = new ExoDatabaseProvider(context);
+        mCacheDir = cacheDir;
+        mCache = new SimpleCache(cacheDir, new NoOpCacheEvictor(), databaseProvider);
+        mDownloadManager = new DownloadManager(context, new DefaultDownloadIndex(databaseProvider),
+                new DefaultDownloaderFactory(new DownloaderConstructorHelper(mCache, upstreamFactory)));
+        mDownloadManager.setRequirements(requirements);
+        mDownloadManager.setMaxParallelDownloads(1);
+        mDownloadManager.setMinRetryCount(MIN_RETRY_COUNT);
+        mDownloadManager.addListener(this);
+
+        restoreDownloads();
+
+        mDownloadManager.resumeDownloads();
+    }
+
+    public static OfflineDownloadManager instance(Context context) {
+        if (sInstance == null) {
+            sInstance = new OfflineDownloadManager(context.getApplicationContext(),
+                    new File(context.getFilesDir(), CACHE_DIR),
+                    new OkHttpDataSourceFactory(MediaNetworkStack.instance(context).getOkHttpClient(), DefaultHeaders.APP_USER_AGENT),
+                    new Requirements(Requirements.NETWORK_UNMETERED));
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * Downloads shouldn't take the bandwidth from the player
+     */
+    public static void setPlaybackActive(boolean active) {
+        if (sInstance == null) {
+            return;
+        }
+
+        if (active) {
+            sInstance.mDownloadManager.pauseDownloads();
+        } else {
+            sInstance.mDownloadManager.resumeDownloads();
+        }
+    }
+
+    /**
+     * Fetches the manifest of the video and downloads it later
+     */
+    public void enqueue(Video video) {
+        if (video == null || video.videoId == null || video.isLive || containsVideo(video.videoId)) {
+            return;
+        }
+
+        getManifestObserve(video.videoId)
+                .subscribe(
+                        dashManifest -> download(video.videoId, dashManifest),
+                        error -> Log.e(TAG, "Can't enqueue video %s: %s", video.videoId, error.getMessage())
+                );
+    }
+
+    /**
+     * @return false if the manifest has no suitable formats or the video doesn't fit the limits
+     */
+    public boolean download(String videoId, byte[] dashManifest) {
+        DashManifest manifest = parseManifest(dashManifest);
+
+        if (manifest == null || manifest.getPeriodCount() == 0) {
+            return false;
+        }
+
+        Representation video = null;
+        Representation audio = null;
+
+        for (AdaptationSet adaptationSet : manifest.getPeriod(0).adaptationSets) {
+            for (Representation representation : adaptationSet.representations) {
+                if (!(representation instanceof SingleSegmentRepresentation) || !Helpers.isInteger(representation.format.id)) {
+                    continue;
+                }
+
+                if (adaptationSet.type == C.TRACK_TYPE_VIDEO && isBetterVideo(representation, video)) {
+                    video = representation;
+                } else if (adaptationSet.type == C.TRACK_TYPE_AUDIO && isBetterAudio(representation, audio)) {
+                    audio = representation;
+                }
+            }
+        }
+
+        if (video == null || audio == null) {
+            Log.d(TAG, "Video %s: no formats to download", videoId);
+            return false;
+        }
+
+        long durationMs = manifest.getPeriodDurationMs(0);
+        long sizeBytes = getSizeBytes(video, durationMs) + getSizeBytes(audio, durationMs);
+
+        if (sizeBytes > MAX_VIDEO_BYTES || mCache.getCacheSpace() + sizeBytes > MAX_CACHE_BYTES
+                || sizeBytes > mCacheDir.getUsableSpace() / 2) {
+            Log.d(TAG, "Video %s: size %s doesn't fit the limits", videoId, sizeBytes);
+            return false;
+        }
+
+        addDownload(videoId, (SingleSegmentRepresentation) video, dashManifest);
+        addDownload(videoId, (SingleSegmentRepresentation) audio, null);
+
+        return true;
+    }
+
+    /**
+     * Restarts the failed downloads of the video with the urls of the fresh manifest
+     * @return false if the manifest doesn't contain the failed formats
+     */
+    @VisibleForTesting
+    boolean refresh(String videoId, byte[] dashManifest) {
+        DashManifest manifest = parseManifest(dashManifest);
+
+        if (manifest == null || manifest.getPeriodCount() == 0) {
+            return false;
+        }
+
+        for (String id : getDownloadIds(videoId)) {
+            Download download = mDownloads.get(id);
+
+            if (download.state != Download.STATE_FAILED) {
+                continue;
+            }
+
+            Representation representation = findRepresentation(manifest, id.substring(getDownloadId(videoId, "").length()));
+
+            if (representation == null) {
+                return false;
+            }
+
+            addDownload(videoId, (SingleSegmentRepresentation) representation, download.request.data.length > 0 ? dashManifest : null);
+        }
+
+        return true;
+    }
+
+    public void remove(String videoId) {
+        for (String id : getDownloadIds(videoId)) {
+            mDownloadManager.removeDownload(id);
+        }
+    }
+
+    public boolean isDownloaded(String videoId) {
+        List<String> ids = getDownloadIds(videoId);
+
+        for (String id : ids) {
+            if (mDownloads.get(id).state != Download.STATE_COMPLETED) {
+                return false;
+            }
+        }
+
+        return ids.size() >= 2;
+    }
+
+    /**
+     * Manifest saved with the download. Its urls are expired but the content is taken from the cache.
+     */
+    @Nullable
+    public byte[] getManifest(String videoId) {
+        for (String id : getDownloadIds(videoId)) {
+            byte[] data = mDownloads.get(id).request.data;
+
+            if (data.length > 0) {
+                return data;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Only the downloaded representations could be played without the network
+     */
+    public List<StreamKey> getStreamKeys(String videoId, DashManifest manifest) {
+        List<StreamKey> result = new ArrayList<>();
+
+        for (int periodIndex = 0; periodIndex < manifest.getPeriodCount(); periodIndex++) {
+            Period period = manifest.getPeriod(periodIndex);
+
+            for (int groupIndex = 0; groupIndex < period.adaptationSets.size(); groupIndex++) {
+                List<Representation> representations = period.adaptationSets.get(groupIndex).representations;
+
+                for (int trackIndex = 0; trackIndex < representations.size(); trackIndex++) {
+                    Download download = mDownloads.get(getDownloadId(videoId, representations.get(trackIndex).format.id));
+
+                    if (download != null && download.state == Download.STATE_COMPLETED) {
+                        result.add(new StreamKey(periodIndex, groupIndex, trackIndex));
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Reads the downloaded content from the cache. The rest is loaded from the upstream.
+     */
+    public DataSource.Factory getDataSourceFactory(String videoId, DataSource.Factory upstreamFactory) {
+        return new CacheDataSourceFactory(mCache, upstreamFactory, new FileDataSourceFactory(), null,
+                CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR, null, dataSpec -> getCacheKey(videoId, dataSpec));
+    }
+
+    /**
+     * Manifest with the fresh urls
+     */
+    @VisibleForTesting
+    Observable<byte[]> getManifestObserve(String videoId) {
+        return WatchBundleCache.instance().getFormatInfoObserve(videoId)
+                .flatMap(formatInfo -> !formatInfo.isLive() && formatInfo.containsDashFormats() ?
+                        formatInfo.createMpdStreamObservable() : Observable.<InputStream>empty())
+                .map(Util::toByteArray);
+    }
+
+    @VisibleForTesting
+    void release() {
+        mDownloadManager.release();
+        mCache.release();
+
+        if (sInstance == this) {
+            sInstance = null;
+        }
+    }
+
+    @Override
+    public void onDownloadChanged(DownloadManager downloadManager, Download download) {
+        mDownloads.put(download.request.id, download);
+
+        if (download.state == Download.STATE_FAILED) {
+            Log.e(TAG, "Download %s failed", download.request.id);
+            onDownloadFailed(download.request.id);
+        } else if (download.state == Download.STATE_COMPLETED) {
+            mRefreshedIds.remove(download.request.id);
+        }
+    }
+
+    @Override
+    public void onDownloadRemoved(DownloadManager downloadManager, Download download) {
+        mDownloads.remove(download.request.id);
+        mRefreshedIds.remove(download.request.id);
+    }
+
+    private void onDownloadFailed(String id) {
+        String videoId = id.substring(0, id.lastIndexOf('.'));
+
+        if (!mRefreshedIds.add(id)) {
+            // The fresh url has failed too
+            remove(videoId);
+            return;
+        }
+
+        WatchBundleCache.instance().invalidateFormatInfo(videoId);
+
+        getManifestObserve(videoId)
+                .defaultIfEmpty(new byte[0])
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                        dashManifest -> {
+                            if (!refresh(videoId, dashManifest)) {
+                                remove(videoId);
+                            }
+                        },
+                        error -> {
+                            Log.e(TAG, "Can't refresh video %s: %s", videoId, error.getMessage());
+                            remove(videoId);
+                        }
+                );
+    }
+
+    /**
+     * Failed downloads aren't restarted after the restart of the app, their urls are expired
+     */
+    private void restoreDownloads() {
+        try (DownloadCursor cursor = mDownloadManager.getDownloadIndex().getDownloads()) {
+            while (cursor.moveToNext()) {
+                Download download = cursor.getDownload();
+
+                if (download.state == Download.STATE_FAILED) {
+                    mDownloadManager.removeDownload(download.request.id);
+                } else {
+                    mDownloads.put(download.request.id, download);
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Can't restore downloads: %s", e.getMessage());
+        }
+    }
+
+    private void addDownload(String videoId, SingleSegmentRepresentation representation, byte[] data) {
+        String id = getDownloadId(videoId, representation.format.id);
+        mDownloadManager.addDownload(new DownloadRequest(id, DownloadRequest.TYPE_PROGRESSIVE, representation.uri,
+                new ArrayList<>(), id, data));
+    }
+
+    private boolean containsVideo(String videoId) {
+        for (String id : getDownloadIds(videoId)) {
+            if (mDownloads.get(id).state != Download.STATE_FAILED) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private List<String> getDownloadIds(String videoId) {
+        List<String> result = new ArrayList<>();
+        String prefix = getDownloadId(videoId, "");
+
+        for (String id : mDownloads.keySet()) {
+            if (id.startsWith(prefix)) {
+                result.add(id);
+            }
+        }
+
+        return result;
+    }
+
+    private static String getDownloadId(String videoId, String itag) {
+        return videoId + "." + itag;
+    }
+
+    /**
+     * Same key for the download and the playback. The urls differ every time.
+     */
+    private static String getCacheKey(String videoId, DataSpec dataSpec) {
+        String itag = dataSpec.uri.isHierarchical() ? dataSpec.uri.getQueryParameter("itag") : null;
+
+        return itag != null ? getDownloadId(videoId, itag) : CacheUtil.getKey(dataSpec);
+    }
+
+    @Nullable
+    private static Representation findRepresentation(DashManifest manifest, String itag) {
+        for (AdaptationSet adaptationSet : manifest.getPeriod(0).adaptationSets) {
+            for (Representation representation : adaptationSet.representations) {
+                if (representation instanceof SingleSegmentRepresentation && itag.equals(representation.format.id)) {
+                    return representation;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    @Nullable
+    private static DashManifest parseManifest(byte[] dashManifest) {
+        try {
+            return new DashManifestParser().parse(DASH_MANIFEST_URI, new ByteArrayInputStream(dashManifest));
+        } catch (IOException e) {
+            Log.e(TAG, "Malformed mpd file: %s", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Avc is decoded on every device
+     */
+    private static boolean isBetterVideo(Representation representation, Representation current) {
+        Format format = representation.format;
+
+        if (format.height > MAX_HEIGHT) {
+            return false;
+        }
+
+        if (current == null) {
+            return true;
+        }
+
+        boolean isAvc = MimeTypes.VIDEO_H264.equals(format.sampleMimeType);
+        boolean isCurrentAvc = MimeTypes.VIDEO_H264.equals(current.format.sampleMimeType);
+
+        if (isAvc != isCurrentAvc) {
+            return isAvc;
+        }
+
+        return format.height != current.format.height ? format.height > current.format.height : format.bitrate > current.format.bitrate;
+    }
+
+    private static boolean isBetterAudio(Representation representation, Representation current) {
+        if (current == null) {
+            return true;
+        }
+
+        boolean isAac = MimeTypes.AUDIO_AAC.equals(representation.format.sampleMimeType);
+        boolean isCurrentAac = MimeTypes.AUDIO_AAC.equals(current.format.sampleMimeType);
+
+        if (isAac != isCurrentAac) {
+            return isAac;
+        }
+
+        return representation.format.bitrate > current.format.bitrate;
+    }
+
+    /**
+     * Content length from the url (clen) or the estimate from the bitrate
+     */
+    private static long getSizeBytes(Representation representation, long durationMs) {
+        Uri uri = ((SingleSegmentRepresentation) representation).uri;
+        String contentLength = uri.isHierarchical() ? uri.getQueryParameter("clen") : null;
+
+        if (contentLength != null) {
+            try {
+                return Long.parseLong(contentLength);
+            } catch (NumberFormatException e) {
+                // NOP
+            }
+        }
+
+        return representation.format.bitrate != Format.NO_VALUE && durationMs != C.TIME_UNSET ?
+                representation.format.bitrate * durationMs / 8_000 : 0;
+    }
+}
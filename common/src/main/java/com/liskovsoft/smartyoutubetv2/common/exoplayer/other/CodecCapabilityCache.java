@@ -0,0 +1,105 @@
+package com.liskovsoft.smartyoutubetv2.common.exoplayer.other;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.liskovsoft.sharedutils.helpers.Helpers;
+import com.liskovsoft.sharedutils.mylogger.Log;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Codec capabilities that the app checks on every cold start (default formats, supported presets and tracks).<br/>
+ * Querying MediaCodecList is slow on tv boxes, so the answers are stored on disk.<br/>
+ * The cache belongs to the firmware: it's dropped when the build fingerprint is changed (system update, restored backup).
+ */
+public class CodecCapabilityCache {
+    private static final String TAG = CodecCapabilityCache.class.getSimpleName();
+    private static final String PREFS_NAME = CodecCapabilityCache.class.getName();
+    private static final String FINGERPRINT = "fingerprint";
+    public static final String CODEC_VP9 = "vp9";
+    public static final String CODEC_AV1 = "av1";
+    @SuppressLint("StaticFieldLeak")
+    private static CodecCapabilityCache sInstance;
+    private final CodecList mCodecList;
+    private final SharedPreferences mPrefs;
+    private final Map<String, Boolean> mCache = new ConcurrentHashMap<>();
+
+    public interface CodecList {
+        boolean isResolutionSupported(String codec, int height);
+    }
+
+    private static class SystemCodecList implements CodecList {
+        @Override
+        public boolean isResolutionSupported(String codec, int height) {
+            switch (codec) {
+                case CODEC_VP9:
+                    return Helpers.isVP9ResolutionSupported(height);
+                case CODEC_AV1:
+                    return Helpers.isAV1ResolutionSupported(height);
+            }
+
+            return true;
+        }
+    }
+
+    @VisibleForTesting
+    CodecCapabilityCache(Context context, CodecList codecList, String fingerprint) {
+        mCodecList = codecList;
+        mPrefs = getDevicePrefs(context, PREFS_NAME, fingerprint);
+
+        for (Map.Entry<String, ?> entry : mPrefs.getAll().entrySet()) {
+            if (entry.getValue() instanceof Boolean) {
+                mCache.put(entry.getKey(), (Boolean) entry.getValue());
+            }
+        }
+    }
+
+    public static CodecCapabilityCache instance(Context context) {
+        if (sInstance == null) {
+            sInstance = new CodecCapabilityCache(context.getApplicationContext(), new SystemCodecList(), Build.FINGERPRINT);
+        }
+
+        return sInstance;
+    }
+
+    public boolean isVP9ResolutionSupported(int height) {
+        return isResolutionSupported(CODEC_VP9, height);
+    }
+
+    public boolean isAV1ResolutionSupported(int height) {
+        return isResolutionSupported(CODEC_AV1, height);
+    }
+
+    public boolean isResolutionSupported(String codec, int height) {
+        String key = codec + ":" + height;
+        Boolean result = mCache.get(key);
+
+        if (result == null) {
+            result = mCodecList.isResolutionSupported(codec, height);
+            mCache.put(key, result);
+            mPrefs.edit().putBoolean(key, result).apply();
+        }
+
+        return result;
+    }
+
+    /**
+     * Preferences that are cleared when the firmware is changed.
+     */
+    static SharedPreferences getDevicePrefs(Context context, String name, String fingerprint) {
+        SharedPreferences prefs = context.getSharedPreferences(name, Context.MODE_PRIVATE);
+
+        if (!Helpers.equals(fingerprint, prefs.getString(FINGERPRINT, null))) {
+            Log.d(TAG, "Build fingerprint changed. Clearing %s...", name);
+            prefs.edit().clear().putString(FINGERPRINT, fingerprint).apply();
+        }
+
+        return prefs;
+    }
+}
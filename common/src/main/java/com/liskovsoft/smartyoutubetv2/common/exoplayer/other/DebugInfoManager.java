@@ -1,27 +1,26 @@
 package com.liskovsoft.smartyoutubetv2.common.exoplayer.other;
 
-import android.annotation.SuppressLint;
 import android.app.Activity;
 import android.graphics.Color;
 import android.graphics.Point;
 import android.net.Uri;
 import android.os.Build.VERSION;
+import android.util.Pair;
 import android.util.TypedValue;
 import android.view.Display;
 import android.view.Gravity;
 import android.view.LayoutInflater;
+import android.view.Surface;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.LinearLayout;
 import android.widget.TextView;
-import android.util.Pair;
-import com.google.android.exoplayer2.ExoPlaybackException;
+import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.ExoPlayerLibraryInfo;
 import com.google.android.exoplayer2.Format;
-import com.google.android.exoplayer2.PlaybackParameters;
 import com.google.android.exoplayer2.Player;
 import com.google.android.exoplayer2.SimpleExoPlayer;
-import com.google.android.exoplayer2.Timeline;
+import com.google.android.exoplayer2.analytics.AnalyticsListener;
 import com.google.android.exoplayer2.decoder.DecoderCounters;
 import com.google.android.exoplayer2.mediacodec.MediaCodecInfo;
 import com.google.android.exoplayer2.source.TrackGroupArray;
@@ -34,29 +33,27 @@ import com.liskovsoft.smartyoutubetv2.common.R;
 import com.liskovsoft.smartyoutubetv2.common.autoframerate.internal.DisplayHolder.Mode;
 import com.liskovsoft.smartyoutubetv2.common.autoframerate.internal.UhdHelper;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.versions.ExoUtils;
+import com.liskovsoft.smartyoutubetv2.common.misc.MediaNetworkStack;
 import com.liskovsoft.smartyoutubetv2.common.prefs.AppPrefs;
 import com.liskovsoft.smartyoutubetv2.common.prefs.PlayerTweaksData;
-import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
 import com.liskovsoft.youtubeapi.app.models.AppInfo;
 import com.liskovsoft.youtubeapi.service.internal.MediaServiceData;
 
 import org.chromium.net.ApiVersion;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Locale;
-
 // NOTE: original file taken from
 // https://github.com/google/ExoPlayer/blob/release-v2/library/ui/src/main/java/com/google/android/exoplayer2/ui/DebugTextViewHelper.java
 
 /**
- * A helper class for periodically updating a {@link TextView} with debug information obtained from
- * a {@link SimpleExoPlayer}.
+ * A helper class for updating a {@link TextView} with debug information obtained from
+ * a {@link SimpleExoPlayer}.<br/>
+ * Rows are updated on the player events. Only the counters are polled every {@link #REFRESH_INTERVAL_MS}.<br/>
+ * Only changed rows are passed to the views. The overlay shouldn't cause the frame drops it's showing.
  */
-public final class DebugInfoManager implements Runnable, Player.EventListener {
+public final class DebugInfoManager implements Runnable, AnalyticsListener {
     private static final String TAG = DebugInfoManager.class.getSimpleName();
     private static final int REFRESH_INTERVAL_MS = 1000;
-    private static final String NOT_AVAILABLE = "none";
+    static final String NOT_AVAILABLE = "none";
     private final float mTextSize;
 
     private final SimpleExoPlayer mPlayer;
@@ -67,10 +64,38 @@ public final class DebugInfoManager implements Runnable, Player.EventListener {
     private LinearLayout column1;
     private LinearLayout column2;
     private UhdHelper mUhdHelper;
-    private final List<Pair<String, String>> mVideoInfo = new ArrayList<>();
-    private final List<Pair<String, String>> mDisplayModeId = new ArrayList<>();
-    private final List<Pair<String, String>> mDisplayInfo = new ArrayList<>();
-    private final String mAppVersion;
+    private final DebugInfoRows mRows = new DebugInfoRows();
+    private final DebugInfoRows.Renderer mRenderer = this::renderRow;
+    private int[] mRowColors;
+    private int mDefaultTextColor;
+    private final int mVideoResolutionRow;
+    private final int mCodecsRow;
+    private final int mBitrateRow;
+    private final int mDecoderNameRow;
+    private final int mHardwareAcceleratedRow;
+    private final int mFramesRow;
+    private final int mBufferRow;
+    private final int mConnectionsRow;
+    private final int mPausedRow;
+    private final int mPlaybackStateRow;
+    private final int mDisplayDpiRow;
+    private final int mUiResolutionRow;
+    private final int mBootResolutionRow;
+    private final int mDisplayModeIdRow;
+    private final int mDisplayModesLengthRow;
+    private final int mExoVersionRow;
+    private final int mDataSourceRow;
+    private final int mCronetVersionRow;
+    private final int mAppVersionRow;
+    private final int mDeviceNameRow;
+    private final int mSdkRow;
+    private final int mDiskCacheRow;
+    private final int mMemoryLimitRow;
+    private final int mAllocatedMemoryRow;
+    private final int mNpPotRow;
+    private final int mVideoInfoTypeRow;
+    private final int mVideoInfoVersionRow;
+    private final int mVideoInfoUrlRow;
 
     /**
      * @param activity context
@@ -82,7 +107,36 @@ public final class DebugInfoManager implements Runnable, Player.EventListener {
         mDebugViewGroup = activity.findViewById(resLayoutId);
         mContext = activity;
         mTextSize = activity.getResources().getDimension(R.dimen.debug_text_size);
-        mAppVersion = String.format("%s Version", mContext.getString(R.string.app_name));
+
+        mVideoResolutionRow = mRows.add("Video Resolution");
+        mCodecsRow = mRows.add("Video/Audio Codecs");
+        mBitrateRow = mRows.add("Video/Audio Bitrate");
+        mDecoderNameRow = mRows.add("Video Decoder Name");
+        mHardwareAcceleratedRow = mRows.add("Hardware Accelerated");
+        mFramesRow = mRows.add("Dropped/Rendered Frames");
+        mBufferRow = mRows.add("Buffer size (seconds)");
+        mConnectionsRow = mRows.add("Connections New/Reused/TLS");
+        mPausedRow = mRows.add("Player Paused");
+        mPlaybackStateRow = mRows.add("Playback State");
+        mDisplayDpiRow = mRows.add("Display dpi");
+        mUiResolutionRow = mRows.add("UI Resolution");
+        mBootResolutionRow = mRows.add("Boot Resolution");
+        mDisplayModeIdRow = mRows.add("Display Mode ID");
+        mDisplayModesLengthRow = mRows.add("Display Modes Length");
+        mExoVersionRow = mRows.add("ExoPlayer Version");
+        mDataSourceRow = mRows.add("ExoPlayer DataSource");
+        mCronetVersionRow = mRows.add("Cronet version");
+        mAppVersionRow = mRows.add(String.format("%s Version", mContext.getString(R.string.app_name)));
+        mDeviceNameRow = mRows.add("Device Name");
+        mSdkRow = mRows.add("Android SDK");
+        mDiskCacheRow = mRows.add("Disk cache size (MB)");
+        mMemoryLimitRow = mRows.add("Memory Limit (MB)");
+        mAllocatedMemoryRow = mRows.add("Allocated Memory (MB)");
+        mNpPotRow = mRows.add("NpPot supported");
+        mVideoInfoTypeRow = mRows.add("Video info type");
+        mVideoInfoVersionRow = mRows.add("Video info version");
+        mVideoInfoUrlRow = mRows.add("Video info url");
+
         inflate();
     }
 
@@ -92,6 +146,19 @@ public final class DebugInfoManager implements Runnable, Player.EventListener {
         inflater.inflate(R.layout.debug_view, mDebugViewGroup, true);
         column1 = mDebugViewGroup.findViewById(R.id.debug_view_column1);
         column2 = mDebugViewGroup.findViewById(R.id.debug_view_column2);
+
+        mRowColors = new int[mRows.size()];
+
+        for (int i = 0; i < mRows.size(); i++) {
+            TextView nameView = createTextView();
+            nameView.setGravity(Gravity.END);
+            column1.addView(nameView);
+            TextView valueView = createTextView();
+            mDefaultTextColor = valueView.getCurrentTextColor();
+            column2.addView(valueView);
+        }
+
+        mRows.invalidate();
     }
 
     public void show(boolean show) {
@@ -107,7 +174,7 @@ public final class DebugInfoManager implements Runnable, Player.EventListener {
     }
 
     /**
-     * Starts periodic updates of the {@link TextView}. Must be called from the application's main
+     * Starts updates of the {@link TextView}. Must be called from the application's main
      * thread.
      */
     private void create() {
@@ -118,12 +185,17 @@ public final class DebugInfoManager implements Runnable, Player.EventListener {
         mStarted = true;
         mDebugViewGroup.setVisibility(View.VISIBLE);
         mUhdHelper = new UhdHelper(mContext);
-        mPlayer.addListener(this);
+        mPlayer.addAnalyticsListener(this);
+
+        updateStaticInfo();
+        updateVideoInfo();
+        updateVideoRelatedInfo();
+        updatePlayerState();
         updateAndPost();
     }
 
     /**
-     * Stops periodic updates of the {@link TextView}. Must be called from the application's main
+     * Stops updates of the {@link TextView}. Must be called from the application's main
      * thread.
      */
     private void destroy() {
@@ -133,51 +205,48 @@ public final class DebugInfoManager implements Runnable, Player.EventListener {
 
         mStarted = false;
         mDebugViewGroup.setVisibility(View.GONE);
-        mPlayer.removeListener(this);
+        mPlayer.removeAnalyticsListener(this);
         mDebugViewGroup.removeCallbacks(this);
         mUhdHelper = null;
     }
 
-    // Player.EventListener implementation.
+    // AnalyticsListener implementation.
 
     @Override
-    public void onLoadingChanged(boolean isLoading) {
-        // NOP
+    public void onPlayerStateChanged(EventTime eventTime, boolean playWhenReady, int playbackState) {
+        updatePlayerState();
+        render();
     }
 
     @Override
-    public void onPlayerStateChanged(boolean playWhenReady, int playbackState) {
-        // NOP
-    }
-
-    @Override
-    public void onRepeatModeChanged(int repeatMode) {
-        // NOP
-    }
-
-    @Override
-    public void onPositionDiscontinuity(int reason) {
-        // NOP
+    public void onTracksChanged(EventTime eventTime, TrackGroupArray trackGroups, TrackSelectionArray trackSelections) {
+        updateVideoInfo();
+        updateVideoRelatedInfo();
+        render();
     }
 
     @Override
-    public void onPlaybackParametersChanged(PlaybackParameters playbackParameters) {
-        // NOP
+    public void onDecoderInitialized(EventTime eventTime, int trackType, String decoderName, long initializationDurationMs) {
+        onDecoderChanged(trackType);
     }
 
     @Override
-    public void onTimelineChanged(Timeline timeline, Object manifest, int reason) {
-        // Do nothing.
+    public void onDecoderInputFormatChanged(EventTime eventTime, int trackType, Format format) {
+        onDecoderChanged(trackType);
     }
 
     @Override
-    public void onPlayerError(ExoPlaybackException error) {
-        // Do nothing.
+    public void onRenderedFirstFrame(EventTime eventTime, Surface surface) {
+        // Display mode is switched by afr before the playback
+        updateDisplayInfo();
+        updateDisplayModeId();
+        render();
     }
 
     @Override
-    public void onTracksChanged(TrackGroupArray tracks, TrackSelectionArray selections) {
-        // NOP
+    public void onDroppedVideoFrames(EventTime eventTime, int droppedFrames, long elapsedMs) {
+        updateRuntimeInfo();
+        render();
     }
 
     // Runnable implementation.
@@ -189,89 +258,118 @@ public final class DebugInfoManager implements Runnable, Player.EventListener {
 
     // Private methods.
 
-    @SuppressLint("SetTextI18n")
+    /**
+     * Counters that change all the time
+     */
     private void updateAndPost() {
-        column1.removeAllViews();
-        column2.removeAllViews();
-
-        updateRareChangedValues();
-
-        appendVideoInfo();
-        appendRuntimeInfo();
-        appendPlayerState();
-        appendDisplayInfo();
-        appendDisplayModeId();
-        //appendPlayerWindowIndex();
-        appendVersion();
-        appendDeviceNameSDKCache();
-        appendMemoryInfo();
-        appendWebViewInfo();
-        appendVideoInfoType();
-        appendVideoInfoVersion();
+        updateRuntimeInfo();
+        updateMemoryInfo();
+        render();
 
         // Schedule next update
         mDebugViewGroup.removeCallbacks(this);
         mDebugViewGroup.postDelayed(this, REFRESH_INTERVAL_MS);
     }
 
-    private void updateRareChangedValues() {
-        updateVideoInfo();
-        updateDisplayModeId();
-        updateDisplayInfo();
+    private void render() {
+        if (mStarted) {
+            mRows.render(mRenderer);
+        }
     }
 
-    private void appendVideoInfo() {
-        for (Pair<String, String> pair : mVideoInfo) {
-            appendRow(pair.first, pair.second);
+    private void renderRow(int index, String name, char[] value, int length, int color, boolean visible) {
+        TextView nameView = (TextView) column1.getChildAt(index);
+        TextView valueView = (TextView) column2.getChildAt(index);
+
+        int visibility = visible ? View.VISIBLE : View.GONE;
+        if (nameView.getVisibility() != visibility) {
+            nameView.setVisibility(visibility);
+            valueView.setVisibility(visibility);
         }
+
+        if (nameView.length() == 0) {
+            nameView.setText(name);
+        }
+
+        if (mRowColors[index] != color) {
+            mRowColors[index] = color;
+            valueView.setTextColor(color != 0 ? color : mDefaultTextColor);
+        }
+
+        // No copy of the value
+        valueView.setText(value, 0, length);
     }
 
-    private void updateVideoInfo() {
-        mVideoInfo.clear();
+    private void onDecoderChanged(int trackType) {
+        if (trackType == C.TRACK_TYPE_VIDEO || trackType == C.TRACK_TYPE_AUDIO) {
+            updateVideoInfo();
+            render();
+        }
+    }
 
+    private void updateVideoInfo() {
         Format video = mPlayer.getVideoFormat();
         Format audio = mPlayer.getAudioFormat();
-        if (video == null || audio == null) {
+        boolean visible = video != null && audio != null;
+
+        mRows.setVisible(mVideoResolutionRow, visible);
+        mRows.setVisible(mCodecsRow, visible);
+        mRows.setVisible(mBitrateRow, visible);
+        mRows.setVisible(mDecoderNameRow, visible);
+        mRows.setVisible(mHardwareAcceleratedRow, visible);
+
+        if (!visible) {
             return;
         }
 
-        String videoRes = getVideoResolution(video);
-
-        mVideoInfo.add(new Pair<>("Video Resolution", videoRes));
-        mVideoInfo.add(new Pair<>("Video/Audio Codecs", String.format(
-                "%s(%s)/%s(%s)",
-                getFormatMimeType(video),
-                getFormatId(video),
-                getFormatMimeType(audio),
-                getFormatId(audio)
-        )));
-        mVideoInfo.add(new Pair<>("Video/Audio Bitrate", String.format(
-                "%s/%s",
-                toHumanReadable(video.bitrate),
-                toHumanReadable(audio.bitrate)
-        )));
+        appendVideoResolution(mRows.edit(), video);
+        mRows.commit(mVideoResolutionRow);
+
+        mRows.edit()
+                .append(getFormatMimeType(video)).append('(').append(getFormatId(video)).append(")/")
+                .append(getFormatMimeType(audio)).append('(').append(getFormatId(audio)).append(')');
+        mRows.commit(mCodecsRow);
+
+        StringBuilder bitrate = mRows.edit();
+        DebugInfoRows.appendMbps(bitrate, video.bitrate).append('/');
+        DebugInfoRows.appendMbps(bitrate, audio.bitrate);
+        mRows.commit(mBitrateRow);
         // Aspect info is not valid since we're using custom views
         //String par = video.pixelWidthHeightRatio == Format.NO_VALUE ||
         //        video.pixelWidthHeightRatio == 1f ?
         //        DEFAULT : String.format(Locale.US, "%.02f", video.pixelWidthHeightRatio);
-        //mVideoInfo.add(new Pair<>("Aspect Ratio", par));
+        //mRows.set(mAspectRatioRow, par);
         String videoCodecName = getVideoDecoderNameV2();
-        mVideoInfo.add(new Pair<>("Video Decoder Name", videoCodecName));
-        mVideoInfo.add(new Pair<>("Hardware Accelerated", String.valueOf(Helpers.isHardwareAccelerated(videoCodecName))));
+        mRows.set(mDecoderNameRow, videoCodecName);
+        mRows.set(mHardwareAcceleratedRow, Helpers.isHardwareAccelerated(videoCodecName));
     }
 
-    private void appendRuntimeInfo() {
+    private void updateRuntimeInfo() {
         DecoderCounters counters = mPlayer.getVideoDecoderCounters();
-        if (counters == null)
+        boolean visible = counters != null;
+
+        mRows.setVisible(mFramesRow, visible);
+        mRows.setVisible(mBufferRow, visible);
+        mRows.setVisible(mConnectionsRow, visible);
+
+        if (!visible) {
             return;
+        }
 
         counters.ensureUpdated();
-        appendRow("Dropped/Rendered Frames", counters.droppedBufferCount + "/" + counters.renderedOutputBufferCount);
-        appendRow("Buffer size (seconds)", (int)(mPlayer.getBufferedPosition() - mPlayer.getCurrentPosition()) / 1_000);
+        mRows.edit().append(counters.droppedBufferCount).append('/').append(counters.renderedOutputBufferCount);
+        mRows.commit(mFramesRow);
+        mRows.set(mBufferRow, (int)(mPlayer.getBufferedPosition() - mPlayer.getCurrentPosition()) / 1_000);
+
+        MediaNetworkStack networkStack = MediaNetworkStack.instance(mContext);
+        mRows.edit().append(networkStack.getNewConnectionCount()).append('/')
+                .append(networkStack.getReusedConnectionCount()).append('/')
+                .append(networkStack.getTlsHandshakeCount());
+        mRows.commit(mConnectionsRow);
     }
 
-    private void appendPlayerState() {
-        appendRow("Player Paused", !mPlayer.getPlayWhenReady());
+    private void updatePlayerState() {
+        mRows.set(mPausedRow, !mPlayer.getPlayWhenReady());
 
         String text;
         switch (mPlayer.getPlaybackState()) {
@@ -291,13 +389,7 @@ public final class DebugInfoManager implements Runnable, Player.EventListener {
                 text = "unknown";
                 break;
         }
-        appendRow("Playback State", text);
-    }
-
-    private void appendDisplayModeId() {
-        for (Pair<String, String> pair : mDisplayModeId) {
-            appendRow(pair.first, pair.second);
-        }
+        mRows.set(mPlaybackStateRow, text);
     }
 
     //private void updateDisplayModeId() {
@@ -328,139 +420,107 @@ public final class DebugInfoManager implements Runnable, Player.EventListener {
             return;
         }
 
-        mDisplayModeId.clear();
-
         Mode currentMode = mUhdHelper.getCurrentMode();
         Mode[] supportedModes = mUhdHelper.getSupportedModes();
 
         String bootResolution = AppPrefs.instance(mContext).getBootResolution();
         String currentResolution = UhdHelper.toResolution(currentMode);
 
-        mDisplayModeId.add(new Pair<>("UI Resolution", currentResolution != null ? currentResolution : NOT_AVAILABLE));
-        mDisplayModeId.add(new Pair<>("Boot Resolution", bootResolution != null ? bootResolution : NOT_AVAILABLE));
+        mRows.set(mUiResolutionRow, currentResolution != null ? currentResolution : NOT_AVAILABLE);
+        mRows.set(mBootResolutionRow, bootResolution != null ? bootResolution : NOT_AVAILABLE);
 
-        mDisplayModeId.add(new Pair<>("Display Mode ID", currentMode != null ? String.valueOf(currentMode.getModeId()) : NOT_AVAILABLE));
-        mDisplayModeId.add(new Pair<>("Display Modes Length", supportedModes != null ? String.valueOf(supportedModes.length) : NOT_AVAILABLE));
-    }
+        if (currentMode != null) {
+            mRows.set(mDisplayModeIdRow, currentMode.getModeId());
+        } else {
+            mRows.set(mDisplayModeIdRow, NOT_AVAILABLE);
+        }
 
-    private void appendDisplayInfo() {
-        for (Pair<String, String> pair : mDisplayInfo) {
-            appendRow(pair.first, pair.second);
+        if (supportedModes != null) {
+            mRows.set(mDisplayModesLengthRow, supportedModes.length);
+        } else {
+            mRows.set(mDisplayModesLengthRow, NOT_AVAILABLE);
         }
     }
 
     private void updateDisplayInfo() {
-        mDisplayInfo.clear();
-
-        mDisplayInfo.add(new Pair<>("Display dpi", String.valueOf(Helpers.getDeviceDpi(mContext))));
+        mRows.set(mDisplayDpiRow, Helpers.getDeviceDpi(mContext));
     }
 
-    private void appendPlayerWindowIndex() {
-        appendRow("Window Index", mPlayer.getCurrentWindowIndex());
-    }
-
-    private void appendVersion() {
-        appendRow("ExoPlayer Version", ExoPlayerLibraryInfo.VERSION);
-        appendRow("ExoPlayer DataSource",
+    /**
+     * Values that don't change while the overlay is shown
+     */
+    private void updateStaticInfo() {
+        mRows.set(mExoVersionRow, ExoPlayerLibraryInfo.VERSION);
+        mRows.set(mDataSourceRow,
                 PlayerTweaksData.instance(mContext).getPlayerDataSource() == PlayerTweaksData.PLAYER_DATA_SOURCE_OKHTTP ? "OkHttp" :
                         PlayerTweaksData.instance(mContext).getPlayerDataSource() == PlayerTweaksData.PLAYER_DATA_SOURCE_CRONET ? "Cronet" :
                         "Default");
-        appendRow("Cronet version", ApiVersion.getCronetVersion());
-        //appendRow("OkHttp version", Version.userAgent());
-        appendRow(mAppVersion, AppInfoHelpers.getAppVersionName(mContext));
+        mRows.set(mCronetVersionRow, ApiVersion.getCronetVersion());
+        //mRows.set(mOkHttpVersionRow, Version.userAgent());
+        mRows.set(mAppVersionRow, AppInfoHelpers.getAppVersionName(mContext));
+        mRows.set(mDeviceNameRow, Helpers.getDeviceName());
+        mRows.set(mSdkRow, VERSION.SDK_INT);
     }
 
-    private void appendDeviceNameSDKCache() {
-        appendRow("Device Name", Helpers.getDeviceName());
-        appendRow("Android SDK", VERSION.SDK_INT);
-        appendRow("Disk cache size (MB)", String.valueOf(
+    /**
+     * Values that may change with the next video
+     */
+    private void updateVideoRelatedInfo() {
+        updateDisplayInfo();
+        updateDisplayModeId();
+        updateDiskCacheInfo();
+        updateWebViewInfo();
+        updateVideoInfoType();
+        updateVideoInfoVersion();
+    }
+
+    private void updateDiskCacheInfo() {
+        mRows.set(mDiskCacheRow, (int) (
                 (FileHelpers.getDirSize(FileHelpers.getInternalCacheDir(mContext)) + FileHelpers.getDirSize(FileHelpers.getExternalCacheDir(mContext)))
                         / 1024 / 1024
         ));
     }
 
-    private void appendMemoryInfo() {
+    private void updateMemoryInfo() {
         long maxMemory = Runtime.getRuntime().maxMemory();
         long allocatedMemory = Runtime.getRuntime().totalMemory();
-        appendRow("Memory Limit (MB)", (int)(maxMemory / (1024 * 1024))); // Growth Limit
-        appendRow("Allocated Memory (MB)", (int)(allocatedMemory / (1024 * 1024)));
+        mRows.set(mMemoryLimitRow, (int)(maxMemory / (1024 * 1024))); // Growth Limit
+        mRows.set(mAllocatedMemoryRow, (int)(allocatedMemory / (1024 * 1024)));
     }
 
-    private void appendWebViewInfo() {
-        appendRow("NpPot supported", MediaServiceData.instance().isNpPotSupported());
+    private void updateWebViewInfo() {
+        mRows.set(mNpPotRow, MediaServiceData.instance().isNpPotSupported());
     }
 
-    private void appendVideoInfoType() {
+    private void updateVideoInfoType() {
         Pair<Integer, Boolean> videoInfoType = MediaServiceData.instance().getVideoInfoType();
-        appendRow("Video info type", videoInfoType != null ? videoInfoType.first : -1);
+        mRows.set(mVideoInfoTypeRow, videoInfoType != null ? videoInfoType.first : -1);
     }
 
-    private void appendVideoInfoVersion() {
+    private void updateVideoInfoVersion() {
         AppInfo appInfo = Helpers.firstNonNull(MediaServiceData.instance().getFailedAppInfo(), MediaServiceData.instance().getAppInfo());
         String playerUrl = appInfo != null ? appInfo.getPlayerUrl() : null;
+
+        mRows.setVisible(mVideoInfoVersionRow, playerUrl != null);
+        mRows.setVisible(mVideoInfoUrlRow, playerUrl != null);
+
         if (playerUrl != null) {
             String playerVersion = UrlQueryStringFactory.parse(Uri.parse(playerUrl)).get("player");
             String shortPlayerUrl = playerVersion != null ? playerUrl.split(playerVersion)[1] : null;
             boolean isFailed = MediaServiceData.instance().getFailedAppInfo() != null;
-            appendRow("Video info version", isFailed ? Utils.color(playerVersion, Color.RED) : playerVersion);
-            appendRow("Video info url", isFailed ? Utils.color(shortPlayerUrl, Color.RED) : shortPlayerUrl);
+            mRows.set(mVideoInfoVersionRow, playerVersion);
+            mRows.set(mVideoInfoUrlRow, shortPlayerUrl);
+            mRows.setColor(mVideoInfoVersionRow, isFailed ? Color.RED : 0);
+            mRows.setColor(mVideoInfoUrlRow, isFailed ? Color.RED : 0);
         }
     }
 
-    private void appendRow(String name, boolean val) {
-        appendNameColumn(createTextView(name));
-        appendValueColumn(createTextView(val));
-    }
-
-    private void appendRow(String name, CharSequence val) {
-        appendNameColumn(createTextView(name));
-        appendValueColumn(createTextView(val));
-    }
-
-    private void appendRow(String name, int val) {
-        appendNameColumn(createTextView(name));
-        appendValueColumn(createTextView(val));
-    }
-
-    private void appendNameColumn(TextView content) {
-        content.setGravity(Gravity.END);
-        column1.addView(content);
-    }
-
-    private void appendValueColumn(TextView content) {
-        column2.addView(content);
-    }
-
-    private TextView createTextView(CharSequence name) {
-        TextView textView = new TextView(mContext);
-        textView.setText(name);
-        textView.setTextSize(TypedValue.COMPLEX_UNIT_PX, mTextSize);
-        return textView;
-    }
-
-    private TextView createTextView(boolean val) {
+    private TextView createTextView() {
         TextView textView = new TextView(mContext);
-        textView.setText(String.valueOf(val));
         textView.setTextSize(TypedValue.COMPLEX_UNIT_PX, mTextSize);
         return textView;
     }
 
-    private TextView createTextView(int val) {
-        TextView textView = new TextView(mContext);
-        textView.setText(String.valueOf(val));
-        textView.setTextSize(TypedValue.COMPLEX_UNIT_PX, mTextSize);
-        return textView;
-    }
-
-    private String toHumanReadable(int bitrate) {
-        if (bitrate < 0) {
-            return NOT_AVAILABLE;
-        }
-
-        float mbit = ((float) bitrate) / 1_000_000;
-        return String.format(Locale.ENGLISH, "%.2fMbps", mbit);
-    }
-
     private String getFormatId(Format video) {
         return video.id;
     }
@@ -473,12 +533,12 @@ public final class DebugInfoManager implements Runnable, Player.EventListener {
         return video.sampleMimeType.replace("video/", "").replace("audio/", "");
     }
 
-    private String getVideoResolution(Format video) {
-        String result = video.width + "x" + video.height;
+    private static StringBuilder appendVideoResolution(StringBuilder builder, Format video) {
+        builder.append(video.width).append('x').append(video.height);
         if (video.frameRate > 0) {
-            result += "@" + ((int) video.frameRate);
+            builder.append('@').append((int) video.frameRate);
         }
-        return result;
+        return builder;
     }
 
     // NOTE: Be aware. This info isn't real! It's like caps or something like that. To get real info use method below.
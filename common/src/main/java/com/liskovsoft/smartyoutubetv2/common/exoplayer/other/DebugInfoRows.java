@@ -0,0 +1,171 @@
+package com.liskovsoft.smartyoutubetv2.common.exoplayer.other;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rows of the stats overlay.<br/>
+ * The value is written into the shared buffer ({@link #edit()}) and copied into the row only when it's changed ({@link #commit(int)}).<br/>
+ * Only changed rows are passed to the {@link Renderer}. Buffers are reused, so the refresh of the counters allocates nothing.
+ */
+final class DebugInfoRows {
+    private static final int INITIAL_CAPACITY = 64;
+    private final List<Row> mRows = new ArrayList<>();
+    private final StringBuilder mBuffer = new StringBuilder(INITIAL_CAPACITY * 4);
+
+    interface Renderer {
+        /**
+         * The value array is reused. It's valid until the next render.
+         */
+        void onRowChanged(int index, String name, char[] value, int length, int color, boolean visible);
+    }
+
+    private static final class Row {
+        private final String mName;
+        private char[] mValue = new char[INITIAL_CAPACITY];
+        private int mLength;
+        private int mColor;
+        private boolean mVisible = true;
+        private boolean mDirty = true;
+
+        private Row(String name) {
+            mName = name;
+        }
+    }
+
+    /**
+     * @return row index
+     */
+    public int add(String name) {
+        mRows.add(new Row(name));
+        return mRows.size() - 1;
+    }
+
+    public int size() {
+        return mRows.size();
+    }
+
+    /**
+     * Buffer for the new value of the row
+     */
+    public StringBuilder edit() {
+        mBuffer.setLength(0);
+        return mBuffer;
+    }
+
+    /**
+     * Apply the buffer to the row
+     */
+    public void commit(int index) {
+        Row row = mRows.get(index);
+        int length = mBuffer.length();
+
+        if (row.mLength == length && contentEquals(row.mValue, mBuffer, length)) {
+            return;
+        }
+
+        if (row.mValue.length < length) {
+            row.mValue = new char[Math.max(length, row.mValue.length * 2)];
+        }
+
+        mBuffer.getChars(0, length, row.mValue, 0);
+        row.mLength = length;
+        row.mDirty = true;
+    }
+
+    public void set(int index, CharSequence value) {
+        StringBuilder buffer = edit();
+        if (value != null) {
+            buffer.append(value);
+        }
+        commit(index);
+    }
+
+    public void set(int index, int value) {
+        edit().append(value);
+        commit(index);
+    }
+
+    public void set(int index, boolean value) {
+        edit().append(value);
+        commit(index);
+    }
+
+    /**
+     * @param color 0 - default color
+     */
+    public void setColor(int index, int color) {
+        Row row = mRows.get(index);
+
+        if (row.mColor != color) {
+            row.mColor = color;
+            row.mDirty = true;
+        }
+    }
+
+    public void setVisible(int index, boolean visible) {
+        Row row = mRows.get(index);
+
+        if (row.mVisible != visible) {
+            row.mVisible = visible;
+            row.mDirty = true;
+        }
+    }
+
+    /**
+     * Passes changed rows to the renderer
+     * @return changed rows count
+     */
+    public int render(Renderer renderer) {
+        int changed = 0;
+
+        for (int i = 0; i < mRows.size(); i++) {
+            Row row = mRows.get(i);
+
+            if (row.mDirty) {
+                row.mDirty = false;
+                changed++;
+                renderer.onRowChanged(i, row.mName, row.mValue, row.mLength, row.mColor, row.mVisible);
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Render all rows on the next {@link #render(Renderer)}. E.g. views are recreated.
+     */
+    public void invalidate() {
+        for (Row row : mRows) {
+            row.mDirty = true;
+        }
+    }
+
+    /**
+     * Same as String.format("%.2fMbps") without allocations
+     */
+    public static StringBuilder appendMbps(StringBuilder builder, int bitrate) {
+        if (bitrate < 0) {
+            return builder.append(DebugInfoManager.NOT_AVAILABLE);
+        }
+
+        int hundredths = (bitrate + 5_000) / 10_000;
+        builder.append(hundredths / 100).append('.');
+
+        if (hundredths % 100 < 10) {
+            builder.append('0');
+        }
+
+        return builder.append(hundredths % 100).append("Mbps");
+    }
+
+    private static boolean contentEquals(char[] value, StringBuilder buffer, int length) {
+        for (int i = 0; i < length; i++) {
+            if (value[i] != buffer.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,272 @@
+package com.liskovsoft.smartyoutubetv2.common.exoplayer.other;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.util.MimeTypes;
+import com.liskovsoft.sharedutils.helpers.Helpers;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.selector.TrackSelectorUtil;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * How well this device decodes a codec at a given resolution and frame rate.<br/>
+ * Filled by the video renderer: rendered and dropped frames, decoder init time and decoder fallbacks.<br/>
+ * Old samples weigh less and the poor mark expires, so the format is tried again.<br/>
+ * Kept on disk per firmware (see {@link CodecCapabilityCache}).
+ */
+public class DecoderPerformanceProfile {
+    private static final String PREFS_NAME = DecoderPerformanceProfile.class.getName();
+    private static final String KEY_PREFIX = "profile:";
+    /**
+     * About half a minute of the video. Less isn't enough to judge.
+     */
+    private static final int MIN_FRAMES = 1_000;
+    /**
+     * About ten minutes of the video. Frames are halved above it.
+     */
+    private static final int MAX_FRAMES = 20_000;
+    private static final int MAX_DECODER_INITS = 20;
+    /**
+     * Poor format isn't played and gets no new samples
+     */
+    private static final long MAX_AGE_MS = 7 * 24 * 60 * 60 * 1_000L;
+    private static final float MAX_DROPPED_RATIO = 0.1f;
+    private static final int MIN_FALLBACKS = 3;
+    @SuppressLint("StaticFieldLeak")
+    private static DecoderPerformanceProfile sInstance;
+    private final SharedPreferences mPrefs;
+    private final Map<String, Stats> mStats = new HashMap<>();
+
+    public static class Stats {
+        public int sessions;
+        public int renderedFrames;
+        public int droppedFrames;
+        public int decoderInits;
+        public long decoderInitTimeMs;
+        public int fallbacks;
+        public long updateTimeMs;
+
+        private static Stats from(String data) {
+            String[] split = Helpers.splitData(data);
+            Stats stats = new Stats();
+
+            if (split == null) {
+                return stats;
+            }
+
+            stats.sessions = Helpers.parseInt(split, 0, 0);
+            stats.renderedFrames = Helpers.parseInt(split, 1, 0);
+            stats.droppedFrames = Helpers.parseInt(split, 2, 0);
+            stats.decoderInits = Helpers.parseInt(split, 3, 0);
+            stats.decoderInitTimeMs = Helpers.parseLong(split, 4, 0);
+            stats.fallbacks = Helpers.parseInt(split, 5, 0);
+            stats.updateTimeMs = Helpers.parseLong(split, 6, 0);
+
+            return stats;
+        }
+
+        public float getDroppedRatio() {
+            int total = renderedFrames + droppedFrames;
+            return total > 0 ? droppedFrames / (float) total : 0;
+        }
+
+        public long getAverageInitTimeMs() {
+            return decoderInits > 0 ? decoderInitTimeMs / decoderInits : 0;
+        }
+
+        public boolean isPoor() {
+            if (renderedFrames + droppedFrames >= MIN_FRAMES && getDroppedRatio() >= MAX_DROPPED_RATIO) {
+                return true;
+            }
+
+            // The preferred decoder fails most of the time
+            return fallbacks >= MIN_FALLBACKS && fallbacks * 2 > decoderInits;
+        }
+
+        @Override
+        public String toString() {
+            return Helpers.mergeData(sessions, renderedFrames, droppedFrames, decoderInits, decoderInitTimeMs, fallbacks, updateTimeMs);
+        }
+
+        private void decay() {
+            if (renderedFrames + droppedFrames > MAX_FRAMES) {
+                renderedFrames /= 2;
+                droppedFrames /= 2;
+            }
+
+            if (decoderInits > MAX_DECODER_INITS) {
+                decoderInits /= 2;
+                decoderInitTimeMs /= 2;
+                fallbacks /= 2;
+            }
+        }
+    }
+
+    @VisibleForTesting
+    DecoderPerformanceProfile(Context context, String fingerprint) {
+        mPrefs = CodecCapabilityCache.getDevicePrefs(context, PREFS_NAME, fingerprint);
+
+        for (Map.Entry<String, ?> entry : mPrefs.getAll().entrySet()) {
+            if (entry.getKey().startsWith(KEY_PREFIX) && entry.getValue() instanceof String) {
+                mStats.put(entry.getKey(), Stats.from((String) entry.getValue()));
+            }
+        }
+    }
+
+    public static DecoderPerformanceProfile instance(Context context) {
+        if (sInstance == null) {
+            sInstance = new DecoderPerformanceProfile(context.getApplicationContext(), Build.FINGERPRINT);
+        }
+
+        return sInstance;
+    }
+
+    public synchronized void onDecoderInitialized(Format format, long initTimeMs) {
+        Stats stats = getOrCreate(format);
+
+        if (stats == null) {
+            return;
+        }
+
+        stats.decoderInits++;
+        stats.decoderInitTimeMs += initTimeMs;
+        persist(format, stats);
+    }
+
+    /**
+     * Preferred decoder isn't used (failed or skipped by the selector).
+     */
+    public synchronized void onDecoderFallback(Format format) {
+        Stats stats = getOrCreate(format);
+
+        if (stats == null) {
+            return;
+        }
+
+        stats.fallbacks++;
+        persist(format, stats);
+    }
+
+    /**
+     * Frames of the format since the previous call.<br/>
+     * Only the frames played at normal speed count (no seeking or buffering).
+     */
+    public synchronized void onFramesRendered(Format format, int renderedFrames, int droppedFrames) {
+        if (renderedFrames <= 0 && droppedFrames <= 0) {
+            return;
+        }
+
+        Stats stats = getOrCreate(format);
+
+        if (stats == null) {
+            return;
+        }
+
+        stats.sessions++;
+        stats.renderedFrames += Math.max(renderedFrames, 0);
+        stats.droppedFrames += Math.max(droppedFrames, 0);
+        persist(format, stats);
+    }
+
+    public synchronized boolean isPoor(Format format) {
+        String key = getKey(format);
+        Stats stats = key != null ? mStats.get(key) : null;
+
+        return stats != null && !isExpired(stats) && stats.isPoor();
+    }
+
+    /**
+     * Forget all the formats. E.g. after the user has changed the device settings.
+     */
+    public synchronized void reset() {
+        SharedPreferences.Editor editor = mPrefs.edit();
+
+        for (String key : mStats.keySet()) {
+            editor.remove(key);
+        }
+
+        editor.apply();
+        mStats.clear();
+    }
+
+    public synchronized Stats getStats(Format format) {
+        String key = getKey(format);
+        return key != null ? mStats.get(key) : null;
+    }
+
+    private Stats getOrCreate(Format format) {
+        String key = getKey(format);
+
+        if (key == null) {
+            return null;
+        }
+
+        Stats stats = mStats.get(key);
+
+        if (stats == null || isExpired(stats)) {
+            stats = new Stats();
+            mStats.put(key, stats);
+        }
+
+        return stats;
+    }
+
+    private boolean isExpired(Stats stats) {
+        return getCurrentTimeMs() - stats.updateTimeMs > MAX_AGE_MS;
+    }
+
+    private void persist(Format format, Stats stats) {
+        stats.decay();
+        stats.updateTimeMs = getCurrentTimeMs();
+        mPrefs.edit().putString(getKey(format), stats.toString()).apply();
+    }
+
+    @VisibleForTesting
+    long getCurrentTimeMs() {
+        return System.currentTimeMillis();
+    }
+
+    private static String getKey(Format format) {
+        String formatKey = getFormatKey(format);
+        return formatKey != null ? KEY_PREFIX + formatKey : null;
+    }
+
+    /**
+     * Codec, resolution and frame rate, e.g. vp9:2160:60. Null if it isn't a video format.
+     */
+    public static String getFormatKey(Format format) {
+        if (format == null || format.sampleMimeType == null || !MimeTypes.isVideo(format.sampleMimeType)) {
+            return null;
+        }
+
+        int height = TrackSelectorUtil.getRealHeight(format);
+
+        if (height == -1) {
+            return null;
+        }
+
+        int fps = format.frameRate > 30 ? 60 : 30;
+
+        return getCodec(format.sampleMimeType) + ":" + height + ":" + fps;
+    }
+
+    private static String getCodec(String mimeType) {
+        switch (mimeType) {
+            case MimeTypes.VIDEO_H264:
+                return "avc";
+            case MimeTypes.VIDEO_VP9:
+                return CodecCapabilityCache.CODEC_VP9;
+            case MimeTypes.VIDEO_AV1:
+                return CodecCapabilityCache.CODEC_AV1;
+        }
+
+        return mimeType;
+    }
+}
@@ -143,7 +143,9 @@ public class ExoPlayerInitializer {
     private void setupVolumeBoost(SimpleExoPlayer player) {
         // 5.1 audio cannot be boosted (format isn't supported error)
         // also, other 2.0 tracks in 5.1 group is already too loud. so cancel them too.
-        float volume = mPlayerTweaksData.isPlayerAutoVolumeEnabled() ? 2.0f : mPlayerData.getPlayerVolume();
+        // Loudness normalization does the job inside the audio sink
+        boolean isAutoVolume = mPlayerTweaksData.isPlayerAutoVolumeEnabled() && !mPlayerTweaksData.isLoudnessNormalizationEnabled();
+        float volume = isAutoVolume ? 2.0f : mPlayerData.getPlayerVolume();
         if (volume > 1f && Build.VERSION.SDK_INT >= 19) {
             VolumeBooster mVolumeBooster = new VolumeBooster(true, volume);
             player.addAudioListener(mVolumeBooster);
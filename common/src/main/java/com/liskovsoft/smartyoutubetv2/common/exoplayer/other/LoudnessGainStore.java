@@ -0,0 +1,184 @@
+package com.liskovsoft.smartyoutubetv2.common.exoplayer.other;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.liskovsoft.sharedutils.helpers.Helpers;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Remembers the normalization gain of the videos and channels, so the replay starts at the right level.<br/>
+ * The video that wasn't played before takes the gain of its channel.<br/>
+ * The audio thread updates the gains in memory only. They're written to the disk by {@link #persist()}.
+ */
+public class LoudnessGainStore {
+    private static final String PREFS_NAME = LoudnessGainStore.class.getName();
+    private static final String VIDEO_PREFIX = "video:";
+    private static final String CHANNEL_PREFIX = "channel:";
+    private static final int MAX_ENTRIES = 500;
+    @SuppressLint("StaticFieldLeak")
+    private static LoudnessGainStore sInstance;
+    private final SharedPreferences mPrefs;
+    private final Map<String, Gain> mGains = new HashMap<>();
+    private final Set<String> mChangedKeys = new HashSet<>();
+    private String mVideoId;
+    private String mChannelId;
+
+    private static class Gain {
+        public float valueDb;
+        public long timeMs;
+
+        private static Gain from(String data) {
+            String[] split = Helpers.splitData(data);
+            Gain gain = new Gain();
+
+            if (split == null) {
+                return gain;
+            }
+
+            gain.valueDb = Helpers.parseFloat(split, 0, 0);
+            gain.timeMs = Helpers.parseLong(split, 1, 0);
+
+            return gain;
+        }
+
+        @Override
+        public String toString() {
+            return Helpers.mergeData(valueDb, timeMs);
+        }
+    }
+
+    @VisibleForTesting
+    LoudnessGainStore(Context context) {
+        mPrefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+
+        for (Map.Entry<String, ?> entry : mPrefs.getAll().entrySet()) {
+            if (entry.getValue() instanceof String) {
+                mGains.put(entry.getKey(), Gain.from((String) entry.getValue()));
+            }
+        }
+    }
+
+    public static LoudnessGainStore instance(Context context) {
+        if (sInstance == null) {
+            sInstance = new LoudnessGainStore(context.getApplicationContext());
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * The video that is about to play. Called from the main thread.
+     */
+    public synchronized void setContent(String videoId, String channelId) {
+        mVideoId = videoId;
+        mChannelId = channelId;
+    }
+
+    public synchronized String getVideoId() {
+        return mVideoId;
+    }
+
+    public synchronized String getChannelId() {
+        return mChannelId;
+    }
+
+    /**
+     * Gain of the video, or of its channel when the video is new
+     * @return null if both are unknown
+     */
+    public synchronized Float getGainDb(String videoId, String channelId) {
+        Gain gain = videoId != null ? mGains.get(VIDEO_PREFIX + videoId) : null;
+
+        if (gain == null && channelId != null) {
+            gain = mGains.get(CHANNEL_PREFIX + channelId);
+        }
+
+        return gain != null ? gain.valueDb : null;
+    }
+
+    public synchronized void putGainDb(String videoId, String channelId, float gainDb) {
+        put(VIDEO_PREFIX, videoId, gainDb);
+        put(CHANNEL_PREFIX, channelId, gainDb);
+        prune();
+    }
+
+    /**
+     * Writes the changed gains. Called on pause and release, not from the audio thread.
+     */
+    public synchronized void persist() {
+        if (mChangedKeys.isEmpty()) {
+            return;
+        }
+
+        SharedPreferences.Editor editor = mPrefs.edit();
+
+        for (String key : mChangedKeys) {
+            Gain gain = mGains.get(key);
+
+            if (gain != null) {
+                editor.putString(key, gain.toString());
+            } else {
+                editor.remove(key);
+            }
+        }
+
+        mChangedKeys.clear();
+        editor.apply();
+    }
+
+    @VisibleForTesting
+    long getCurrentTimeMs() {
+        return System.currentTimeMillis();
+    }
+
+    @VisibleForTesting
+    synchronized int size() {
+        return mGains.size();
+    }
+
+    private void put(String prefix, String id, float gainDb) {
+        if (id == null) {
+            return;
+        }
+
+        String key = prefix + id;
+        Gain gain = mGains.get(key);
+
+        if (gain == null) {
+            gain = new Gain();
+            mGains.put(key, gain);
+        }
+
+        gain.valueDb = gainDb;
+        gain.timeMs = getCurrentTimeMs();
+        mChangedKeys.add(key);
+    }
+
+    /**
+     * Removes the least recently played entries
+     */
+    private void prune() {
+        while (mGains.size() > MAX_ENTRIES) {
+            String oldestKey = null;
+            long oldestTimeMs = Long.MAX_VALUE;
+
+            for (Map.Entry<String, Gain> entry : mGains.entrySet()) {
+                if (entry.getValue().timeMs < oldestTimeMs) {
+                    oldestKey = entry.getKey();
+                    oldestTimeMs = entry.getValue().timeMs;
+                }
+            }
+
+            mGains.remove(oldestKey);
+            mChangedKeys.add(oldestKey);
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.liskovsoft.smartyoutubetv2.common.exoplayer.other;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.audio.BaseAudioProcessor;
+import com.liskovsoft.sharedutils.helpers.Helpers;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Replacement of the {@link VolumeBooster} that works inside the audio sink.<br/>
+ * Measures short-term loudness of the pcm stream (ITU-R BS.1770 K-weighting, 3s window)
+ * and slowly moves the gain towards the target. Peaks above the ceiling are caught by the limiter.<br/>
+ * The gain is remembered per video and channel in the {@link LoudnessGainStore}.
+ */
+public class LoudnessNormalizer extends BaseAudioProcessor {
+    private static final float TARGET_LUFS = -16;
+    private static final float MAX_GAIN_DB = 12;
+    private static final float MIN_GAIN_DB = -12;
+    private static final int BLOCK_MS = 100;
+    private static final int WINDOW_BLOCKS = 30;
+    /**
+     * Don't trust the first second of the new video
+     */
+    private static final int MIN_WINDOW_BLOCKS = 10;
+    private static final float GAIN_UP_DB_PER_BLOCK = 0.2f;
+    private static final float GAIN_DOWN_DB_PER_BLOCK = 0.6f;
+    private static final int SAVE_INTERVAL_BLOCKS = 50;
+    private static final double ABSOLUTE_GATE_ENERGY = loudnessToEnergy(-70);
+    private static final double RELATIVE_GATE = 0.01; // -20 LU
+    private static final float LIMITER_CEILING = (float) (Short.MAX_VALUE * Math.pow(10, -1 / 20.0));
+    private static final float LIMITER_RELEASE_MS = 50;
+    private static final double DENORMAL_OFFSET = 1e-20;
+    @Nullable
+    private final LoudnessGainStore mStore;
+    private String mVideoId;
+    private String mChannelId;
+    // K-weighting: high shelf then high pass. Transposed direct form II.
+    private double mShelfB0, mShelfB1, mShelfB2, mShelfA1, mShelfA2;
+    private double mHighPassA1, mHighPassA2;
+    private double[] mShelfState;
+    private double[] mHighPassState;
+    private float[] mChannelWeights;
+    private float[] mFrame;
+    private int mFramesPerBlock;
+    private int mBlockFrames;
+    private double mBlockEnergy;
+    private final double[] mWindow = new double[WINDOW_BLOCKS];
+    private int mWindowIndex;
+    private int mWindowSize;
+    private float mGainDb;
+    private float mGain = 1;
+    private float mGainStep;
+    private float mEnvelope = 1;
+    private float mReleaseCoef;
+    private int mBlocksSinceSave;
+    private boolean mIsGainMeasured;
+
+    public LoudnessNormalizer(@Nullable LoudnessGainStore store) {
+        mStore = store;
+    }
+
+    @Override
+    public boolean configure(int sampleRateHz, int channelCount, @C.PcmEncoding int encoding) throws UnhandledFormatException {
+        if (encoding != C.ENCODING_PCM_16BIT) {
+            throw new UnhandledFormatException(sampleRateHz, channelCount, encoding);
+        }
+
+        if (!setInputFormat(sampleRateHz, channelCount, encoding)) {
+            return false;
+        }
+
+        double shelfK = Math.tan(Math.PI * 1681.974450955533 / sampleRateHz);
+        double shelfQ = 0.7071752369554196;
+        double shelfVh = Math.pow(10, 3.999843853973347 / 20);
+        double shelfVb = Math.pow(shelfVh, 0.4996667741545416);
+        double shelfA0 = 1 + shelfK / shelfQ + shelfK * shelfK;
+        mShelfB0 = (shelfVh + shelfVb * shelfK / shelfQ + shelfK * shelfK) / shelfA0;
+        mShelfB1 = 2 * (shelfK * shelfK - shelfVh) / shelfA0;
+        mShelfB2 = (shelfVh - shelfVb * shelfK / shelfQ + shelfK * shelfK) / shelfA0;
+        mShelfA1 = 2 * (shelfK * shelfK - 1) / shelfA0;
+        mShelfA2 = (1 - shelfK / shelfQ + shelfK * shelfK) / shelfA0;
+
+        double highPassK = Math.tan(Math.PI * 38.13547087602444 / sampleRateHz);
+        double highPassQ = 0.5003270373238773;
+        double highPassA0 = 1 + highPassK / highPassQ + highPassK * highPassK;
+        mHighPassA1 = 2 * (highPassK * highPassK - 1) / highPassA0;
+        mHighPassA2 = (1 - highPassK / highPassQ + highPassK * highPassK) / highPassA0;
+
+        mShelfState = new double[channelCount * 2];
+        mHighPassState = new double[channelCount * 2];
+        mFrame = new float[channelCount];
+        mChannelWeights = new float[channelCount];
+
+        for (int i = 0; i < channelCount; i++) {
+            // 5.1: L, R, C, LFE, Ls, Rs
+            mChannelWeights[i] = channelCount == 6 ? (i == 3 ? 0 : i > 3 ? 1.41f : 1) : 1;
+        }
+
+        mFramesPerBlock = sampleRateHz * BLOCK_MS / 1_000;
+        mReleaseCoef = (float) Math.exp(-1_000 / (LIMITER_RELEASE_MS * sampleRateHz));
+        resetMeter();
+
+        return true;
+    }
+
+    @Override
+    public void queueInput(ByteBuffer inputBuffer) {
+        checkContent();
+
+        int position = inputBuffer.position();
+        int limit = inputBuffer.limit();
+        int frameSize = channelCount * 2;
+        ByteBuffer buffer = replaceOutputBuffer(limit - position);
+
+        for (; position + frameSize <= limit; position += frameSize) {
+            double energy = 0;
+            float peak = 0;
+
+            for (int channel = 0; channel < channelCount; channel++) {
+                float sample = inputBuffer.getShort(position + channel * 2);
+                double weighted = kWeight(channel, sample / 32768.0);
+                energy += mChannelWeights[channel] * weighted * weighted;
+
+                float gained = sample * mGain;
+                mFrame[channel] = gained;
+                peak = Math.max(peak, Math.abs(gained));
+            }
+
+            if (peak * mEnvelope > LIMITER_CEILING) {
+                mEnvelope = LIMITER_CEILING / peak;
+            }
+
+            for (int channel = 0; channel < channelCount; channel++) {
+                buffer.putShort((short) Math.round(mFrame[channel] * mEnvelope));
+            }
+
+            mEnvelope = 1 - (1 - mEnvelope) * mReleaseCoef;
+            mGain += mGainStep;
+            mBlockEnergy += energy;
+
+            if (++mBlockFrames == mFramesPerBlock) {
+                onBlock();
+            }
+        }
+
+        inputBuffer.position(limit);
+        buffer.flip();
+    }
+
+    @Override
+    protected void onFlush() {
+        // Seek. Same video, so keep the gain and the window.
+        if (mShelfState != null) {
+            clear(mShelfState);
+            clear(mHighPassState);
+        }
+
+        mBlockFrames = 0;
+        mBlockEnergy = 0;
+        mEnvelope = 1;
+    }
+
+    @Override
+    protected void onReset() {
+        saveGain();
+        mShelfState = null;
+        mHighPassState = null;
+    }
+
+    /**
+     * Current gain
+     */
+    @VisibleForTesting
+    float getGainDb() {
+        return mGainDb;
+    }
+
+    /**
+     * Short-term loudness of the input or {@link Float#NEGATIVE_INFINITY} when it's not measured yet
+     */
+    @VisibleForTesting
+    float getLoudness() {
+        double energy = getWindowEnergy();
+        return energy > 0 ? energyToLoudness(energy) : Float.NEGATIVE_INFINITY;
+    }
+
+    private double kWeight(int channel, double input) {
+        int index = channel * 2;
+        double[] state = mShelfState;
+
+        input += DENORMAL_OFFSET;
+        double shelf = mShelfB0 * input + state[index];
+        state[index] = mShelfB1 * input - mShelfA1 * shelf + state[index + 1];
+        state[index + 1] = mShelfB2 * input - mShelfA2 * shelf;
+
+        state = mHighPassState;
+        double output = shelf + state[index];
+        state[index] = -2 * shelf - mHighPassA1 * output + state[index + 1];
+        state[index + 1] = shelf - mHighPassA2 * output;
+
+        return output;
+    }
+
+    private void onBlock() {
+        double blockEnergy = mBlockEnergy / mFramesPerBlock;
+        mBlockFrames = 0;
+        mBlockEnergy = 0;
+
+        // Silence doesn't change the gain
+        if (blockEnergy > ABSOLUTE_GATE_ENERGY) {
+            mWindow[mWindowIndex] = blockEnergy;
+            mWindowIndex = (mWindowIndex + 1) % WINDOW_BLOCKS;
+            mWindowSize = Math.min(mWindowSize + 1, WINDOW_BLOCKS);
+        }
+
+        if (mWindowSize >= MIN_WINDOW_BLOCKS) {
+            float targetGainDb = TARGET_LUFS - energyToLoudness(getWindowEnergy());
+            targetGainDb = Math.max(MIN_GAIN_DB, Math.min(MAX_GAIN_DB, targetGainDb));
+
+            if (targetGainDb > mGainDb) {
+                mGainDb = Math.min(targetGainDb, mGainDb + GAIN_UP_DB_PER_BLOCK);
+            } else {
+                mGainDb = Math.max(targetGainDb, mGainDb - GAIN_DOWN_DB_PER_BLOCK);
+            }
+
+            mIsGainMeasured = true;
+        }
+
+        // Smooth transition to the new gain during the next block
+        mGainStep = (dbToLinear(mGainDb) - mGain) / mFramesPerBlock;
+
+        if (mIsGainMeasured && ++mBlocksSinceSave >= SAVE_INTERVAL_BLOCKS) {
+            saveGain();
+        }
+    }
+
+    /**
+     * Mean energy of the window without the quiet blocks (relative gate)
+     */
+    private double getWindowEnergy() {
+        if (mWindowSize == 0) {
+            return 0;
+        }
+
+        double sum = 0;
+        for (int i = 0; i < mWindowSize; i++) {
+            sum += mWindow[i];
+        }
+
+        double gate = sum / mWindowSize * RELATIVE_GATE;
+        double gatedSum = 0;
+        int gatedSize = 0;
+
+        for (int i = 0; i < mWindowSize; i++) {
+            if (mWindow[i] > gate) {
+                gatedSum += mWindow[i];
+                gatedSize++;
+            }
+        }
+
+        return gatedSum / gatedSize;
+    }
+
+    /**
+     * New video starts from the remembered gain
+     */
+    private void checkContent() {
+        if (mStore == null) {
+            return;
+        }
+
+        String videoId = mStore.getVideoId();
+
+        if (Helpers.equals(videoId, mVideoId)) {
+            return;
+        }
+
+        saveGain();
+
+        mVideoId = videoId;
+        mChannelId = mStore.getChannelId();
+        Float gainDb = mStore.getGainDb(mVideoId, mChannelId);
+        mGainDb = gainDb != null ? gainDb : 0;
+        mGain = dbToLinear(mGainDb);
+        mGainStep = 0;
+        resetMeter();
+    }
+
+    private void saveGain() {
+        if (mStore != null && mIsGainMeasured) {
+            mStore.putGainDb(mVideoId, mChannelId, mGainDb);
+        }
+
+        mBlocksSinceSave = 0;
+    }
+
+    private void resetMeter() {
+        onFlush();
+        clear(mWindow);
+        mWindowIndex = 0;
+        mWindowSize = 0;
+        mIsGainMeasured = false;
+    }
+
+    private static void clear(double[] values) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 0;
+        }
+    }
+
+    private static float dbToLinear(float db) {
+        return (float) Math.pow(10, db / 20);
+    }
+
+    private static float energyToLoudness(double energy) {
+        return (float) (-0.691 + 10 * Math.log10(energy));
+    }
+
+    private static double loudnessToEnergy(float loudness) {
+        return Math.pow(10, (loudness + 0.691) / 10);
+    }
+}
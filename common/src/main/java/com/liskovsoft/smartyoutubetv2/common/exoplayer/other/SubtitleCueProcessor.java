@@ -0,0 +1,199 @@
+package com.liskovsoft.smartyoutubetv2.common.exoplayer.other;
+
+import com.google.android.exoplayer2.text.Cue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Post-processes cues before they reach the subtitle view.<br/>
+ * Centers the text, removes repeated lines of the auto-generated (rolling) captions and applies optional transforms.<br/>
+ * Unchanged cues and unchanged cue lists are reused, so the view could skip the redraw.
+ */
+public class SubtitleCueProcessor {
+    private final List<CueTransform> mTransforms = new CopyOnWriteArrayList<>();
+    private final StringBuilder mTextBuilder = new StringBuilder();
+    private final StringBuilder mSubsBuffer = new StringBuilder();
+    private final List<Cue> mPending = new ArrayList<>();
+    private List<Cue> mLastResult = Collections.emptyList();
+
+    /**
+     * Text transform applied to every displayed cue (e.g. translation or profanity filter).<br/>
+     * Return null to hide the cue.
+     */
+    public interface CueTransform {
+        CharSequence transform(CharSequence text);
+    }
+
+    public void addTransform(CueTransform transform) {
+        if (transform != null && !mTransforms.contains(transform)) {
+            mTransforms.add(transform);
+            mLastResult = Collections.emptyList(); // re-apply transforms to the next cues
+        }
+    }
+
+    public void removeTransform(CueTransform transform) {
+        if (mTransforms.remove(transform)) {
+            mLastResult = Collections.emptyList();
+        }
+    }
+
+    public void reset() {
+        mSubsBuffer.setLength(0);
+        mLastResult = Collections.emptyList();
+    }
+
+    public List<Cue> process(List<Cue> cues) {
+        if (cues == null || cues.isEmpty()) {
+            mLastResult = Collections.emptyList();
+            return mLastResult;
+        }
+
+        mPending.clear();
+
+        for (Cue cue : cues) {
+            CharSequence text = cue.text;
+
+            if (text == null) {
+                continue;
+            }
+
+            int length = text.length();
+
+            // Autogenerated subs repeated lines fix
+            if (length > 0 && (text.charAt(length - 1) == '\n' || text.charAt(length - 1) == ' ')) { // vtt subs format
+                setSubsBuffer(text, 0, length);
+            } else {
+                int newLineIndex = indexOf(text, '\n', 0);
+
+                if (newLineIndex != -1) { // ttml subs format
+                    removeSubsBuffer(text, true);
+                    addCue(mTextBuilder);
+
+                    // Only the last line of a two-line cue is repeated in the next one
+                    if (indexOf(text, '\n', newLineIndex + 1) == -1) {
+                        setSubsBuffer(text, newLineIndex + 1, length);
+                    } else {
+                        setSubsBuffer(text, 0, length);
+                    }
+                } else {
+                    removeSubsBuffer(text, false);
+                    addCue(mTextBuilder);
+                    setSubsBuffer(mTextBuilder, 0, mTextBuilder.length());
+                }
+            }
+        }
+
+        if (isSameAsLast(mPending)) {
+            return mLastResult;
+        }
+
+        mLastResult = new ArrayList<>(mPending);
+
+        return mLastResult;
+    }
+
+    private void addCue(CharSequence text) {
+        for (CueTransform transform : mTransforms) {
+            text = transform.transform(text);
+
+            if (text == null) {
+                return;
+            }
+        }
+
+        int index = mPending.size();
+        Cue lastCue = index < mLastResult.size() ? mLastResult.get(index) : null;
+
+        if (lastCue != null && contentEquals(lastCue.text, text)) {
+            mPending.add(lastCue);
+        } else {
+            mPending.add(new Cue(text.toString())); // sub centered by default
+        }
+    }
+
+    /**
+     * Copies the text into the builder skipping every occurrence of the subs buffer.<br/>
+     * New lines are skipped only when there's a previous cue. The first cue keeps its lines.
+     */
+    private void removeSubsBuffer(CharSequence text, boolean skipNewLines) {
+        mTextBuilder.setLength(0);
+
+        int length = text.length();
+        int bufferLength = mSubsBuffer.length();
+        skipNewLines = skipNewLines && bufferLength > 0;
+        int i = 0;
+
+        while (i < length) {
+            if (bufferLength > 0 && regionMatches(text, i, mSubsBuffer, bufferLength)) {
+                i += bufferLength;
+                continue;
+            }
+
+            char c = text.charAt(i);
+
+            if (!skipNewLines || c != '\n') {
+                mTextBuilder.append(c);
+            }
+
+            i++;
+        }
+    }
+
+    private void setSubsBuffer(CharSequence text, int start, int end) {
+        mSubsBuffer.setLength(0);
+        mSubsBuffer.append(text, start, end);
+    }
+
+    private boolean isSameAsLast(List<Cue> cues) {
+        if (cues.size() != mLastResult.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < cues.size(); i++) {
+            if (cues.get(i) != mLastResult.get(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean regionMatches(CharSequence text, int offset, CharSequence pattern, int patternLength) {
+        if (offset + patternLength > text.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < patternLength; i++) {
+            if (text.charAt(offset + i) != pattern.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static int indexOf(CharSequence text, char c, int fromIndex) {
+        for (int i = fromIndex; i < text.length(); i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static boolean contentEquals(CharSequence a, CharSequence b) {
+        if (a == b) {
+            return true;
+        }
+
+        if (a == null || b == null || a.length() != b.length()) {
+            return false;
+        }
+
+        return regionMatches(a, 0, b, b.length());
+    }
+}
@@ -12,11 +12,13 @@ import android.view.accessibility.CaptioningManager.CaptionStyle;
 
 import androidx.annotation.RequiresApi;
 import androidx.core.content.ContextCompat;
+import com.google.android.exoplayer2.Player;
+import com.google.android.exoplayer2.source.TrackGroupArray;
 import com.google.android.exoplayer2.text.CaptionStyleCompat;
 import com.google.android.exoplayer2.text.Cue;
 import com.google.android.exoplayer2.text.TextOutput;
+import com.google.android.exoplayer2.trackselection.TrackSelectionArray;
 import com.google.android.exoplayer2.ui.SubtitleView;
-import com.liskovsoft.sharedutils.helpers.Helpers;
 import com.liskovsoft.smartyoutubetv2.common.R;
 import com.liskovsoft.smartyoutubetv2.common.prefs.AppPrefs;
 import com.liskovsoft.smartyoutubetv2.common.prefs.common.DataChangeBase.OnDataChange;
@@ -25,14 +27,14 @@ import com.liskovsoft.smartyoutubetv2.common.prefs.PlayerData;
 import java.util.ArrayList;
 import java.util.List;
 
-public class SubtitleManager implements TextOutput, OnDataChange {
+public class SubtitleManager implements TextOutput, OnDataChange, Player.EventListener {
     private static final String TAG = SubtitleManager.class.getSimpleName();
     private final SubtitleView mSubtitleView;
     private final Context mContext;
     private final List<SubtitleStyle> mSubtitleStyles = new ArrayList<>();
     private final AppPrefs mPrefs;
     private final PlayerData mPlayerData;
-    private CharSequence subsBuffer;
+    private final SubtitleCueProcessor mCueProcessor = new SubtitleCueProcessor();
 
     public static class SubtitleStyle {
         public final int nameResId;
@@ -73,10 +75,26 @@ public class SubtitleManager implements TextOutput, OnDataChange {
     @Override
     public void onCues(List<Cue> cues) {
         if (mSubtitleView != null) {
-            mSubtitleView.setCues(forceCenterAlignment(cues));
+            mSubtitleView.setCues(mCueProcessor.process(cues));
         }
     }
 
+    /**
+     * New video or other subtitle track. The repeated lines of the previous one are forgotten.
+     */
+    @Override
+    public void onTracksChanged(TrackGroupArray trackGroups, TrackSelectionArray trackSelections) {
+        mCueProcessor.reset();
+    }
+
+    public void addCueTransform(SubtitleCueProcessor.CueTransform transform) {
+        mCueProcessor.addTransform(transform);
+    }
+
+    public void removeCueTransform(SubtitleCueProcessor.CueTransform transform) {
+        mCueProcessor.removeTransform(transform);
+    }
+
     public void show(boolean show) {
         if (mSubtitleView != null) {
             mSubtitleView.setVisibility(show ? View.VISIBLE : View.GONE);
@@ -96,30 +114,6 @@ public class SubtitleManager implements TextOutput, OnDataChange {
         configureSubtitleView();
     }
 
-    private List<Cue> forceCenterAlignment(List<Cue> cues) {
-        List<Cue> result = new ArrayList<>();
-
-        for (Cue cue : cues) {
-            // Autogenerated subs repeated lines fix
-            final String textStr = cue.text.toString();
-            if (Helpers.endsWithAny(textStr, "\n", " ")) { // vtt subs format
-                subsBuffer = textStr;
-            } else if (textStr.contains("\n")) { // ttml subs format
-                CharSequence text = subsBuffer != null ? textStr.replace(subsBuffer, "").replace("\n", "") : textStr;
-                result.add(new Cue(text)); // sub centered by default
-
-                String[] split = textStr.split("\n");
-                subsBuffer = split.length == 2 ? split[1] : textStr;
-            } else {
-                CharSequence text = subsBuffer != null ? textStr.replace(subsBuffer, "") : textStr;
-                result.add(new Cue(text)); // sub centered by default
-                subsBuffer = text;
-            }
-        }
-
-        return result;
-    }
-
     private void configureSubtitleView() {
         if (mSubtitleView != null) {
             // disable default style
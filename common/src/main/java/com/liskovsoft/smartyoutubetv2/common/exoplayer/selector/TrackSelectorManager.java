@@ -16,6 +16,8 @@ import com.google.android.exoplayer2.trackselection.TrackSelection;
 import com.google.android.exoplayer2.trackselection.TrackSelection.Definition;
 import com.liskovsoft.sharedutils.helpers.Helpers;
 import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.errors.FailureLedger;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.other.DecoderPerformanceProfile;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.selector.track.AudioTrack;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.selector.track.MediaTrack;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.selector.track.VideoTrack;
@@ -209,7 +211,7 @@ public class TrackSelectorManager implements TrackSelectorCallback {
                     continue;
                 }
 
-                if (!PlayerTweaksData.instance(mContext).isAllFormatsUnlocked() && !Utils.isFormatSupported(mediaTrack)) {
+                if (!PlayerTweaksData.instance(mContext).isAllFormatsUnlocked() && !Utils.isFormatSupported(mContext, mediaTrack)) {
                     continue;
                 }
 
@@ -518,6 +520,16 @@ public class TrackSelectorManager implements TrackSelectorCallback {
                         break outerloop;
                     }
 
+                    // Frames are dropped or the decoder fails. Go for the lower format.
+                    if (isPoorlyDecoded(mediaTrack)) {
+                        continue;
+                    }
+
+                    // The format failed to load in the recent sessions (e.g. 503 on every segment)
+                    if (isFailing(mediaTrack)) {
+                        continue;
+                    }
+
                     if (bounds >= 0) {
                         int compare = mediaTrack.compare(result);
 
@@ -826,6 +838,28 @@ public class TrackSelectorManager implements TrackSelectorCallback {
         return false;
     }
 
+    /**
+     * Device has played the format before and it didn't go well. See {@link DecoderPerformanceProfile}.
+     */
+    private boolean isPoorlyDecoded(MediaTrack mediaTrack) {
+        if (!(mediaTrack instanceof VideoTrack) || PlayerTweaksData.instance(mContext).isAllFormatsUnlocked()) {
+            return false;
+        }
+
+        return DecoderPerformanceProfile.instance(mContext).isPoor(mediaTrack.format);
+    }
+
+    /**
+     * See {@link FailureLedger}
+     */
+    private boolean isFailing(MediaTrack mediaTrack) {
+        if (mediaTrack.format == null || PlayerTweaksData.instance(mContext).isAllFormatsUnlocked()) {
+            return false;
+        }
+
+        return FailureLedger.instance(mContext).isAvoided(mediaTrack.format);
+    }
+
     private boolean isUnsafeFormat(MediaTrack mediaTrack) {
         return mediaTrack.isMP4ACodec() && mediaTrack.format.bitrate >= 195_000;
     }
@@ -13,6 +13,8 @@ import com.google.android.exoplayer2.drm.FrameworkMediaCrypto;
 import com.google.android.exoplayer2.mediacodec.MediaCodecSelector;
 import com.google.android.exoplayer2.util.AmazonQuirks;
 import com.google.android.exoplayer2.video.VideoRendererEventListener;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.other.LoudnessGainStore;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.other.LoudnessNormalizer;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.versions.selector.BlacklistMediaCodecSelector;
 import com.liskovsoft.smartyoutubetv2.common.prefs.PlayerData;
 import com.liskovsoft.smartyoutubetv2.common.prefs.PlayerTweaksData;
@@ -31,6 +33,7 @@ public class CustomOverridesRenderersFactory extends CustomRenderersFactoryBase
     };
     private final PlayerData mPlayerData;
     private final PlayerTweaksData mPlayerTweaksData;
+    private final LoudnessGainStore mLoudnessGainStore;
     // 2.12, 2.13
     //private int mOperationMode = MediaCodecRenderer.OPERATION_MODE_SYNCHRONOUS;
 
@@ -40,6 +43,7 @@ public class CustomOverridesRenderersFactory extends CustomRenderersFactoryBase
 
         mPlayerData = PlayerData.instance(activity);
         mPlayerTweaksData = PlayerTweaksData.instance(activity);
+        mLoudnessGainStore = LoudnessGainStore.instance(activity);
 
         setExtensionRendererMode(EXTENSION_RENDERER_MODE_ON);
         // setEnableDecoderFallback(true); // Exo 2.10 and up
@@ -73,6 +77,15 @@ public class CustomOverridesRenderersFactory extends CustomRenderersFactoryBase
     //    AmazonQuirks.skipProfileLevelCheck(mPlayerTweaksData.isProfileLevelCheckSkipped());
     //}
 
+    @Override
+    protected AudioProcessor[] buildAudioProcessors() {
+        if (mPlayerTweaksData.isLoudnessNormalizationEnabled()) {
+            return new AudioProcessor[] {new LoudnessNormalizer(mLoudnessGainStore)};
+        }
+
+        return super.buildAudioProcessors();
+    }
+
     // Exo 2.9
     //@Override
     //protected void buildAudioRenderers(Context context, int extensionRendererMode, MediaCodecSelector mediaCodecSelector,
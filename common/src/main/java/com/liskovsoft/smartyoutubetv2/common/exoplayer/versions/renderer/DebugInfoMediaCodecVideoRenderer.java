@@ -4,6 +4,7 @@ import android.content.Context;
 import android.media.MediaCodec;
 import android.os.Build.VERSION;
 import android.os.Handler;
+import android.os.SystemClock;
 import android.view.Surface;
 import androidx.annotation.Nullable;
 import com.google.android.exoplayer2.C;
@@ -13,15 +14,35 @@ import com.google.android.exoplayer2.drm.DrmSessionManager;
 import com.google.android.exoplayer2.drm.FrameworkMediaCrypto;
 import com.google.android.exoplayer2.mediacodec.MediaCodecInfo;
 import com.google.android.exoplayer2.mediacodec.MediaCodecSelector;
+import com.google.android.exoplayer2.mediacodec.MediaCodecUtil.DecoderQueryException;
 import com.google.android.exoplayer2.video.MediaCodecVideoRenderer;
 import com.google.android.exoplayer2.video.VideoRendererEventListener;
+import com.liskovsoft.sharedutils.helpers.Helpers;
 import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.other.DecoderPerformanceProfile;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.versions.ExoUtils;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 public class DebugInfoMediaCodecVideoRenderer extends MediaCodecVideoRenderer {
     private static final String TAG = DebugInfoMediaCodecVideoRenderer.class.getSimpleName();
+    /**
+     * Frames are dropped while the playback catches up after the start or the seek
+     */
+    private static final long SAMPLING_DELAY_MS = 2_000;
     private int mFrameIndex;
     private boolean mIsSetOutputSurfaceWorkaroundEnabled;
+    private final DecoderPerformanceProfile mProfile;
+    private final Map<String, String> mPreferredDecoders = new HashMap<>();
+    private Format mFormat;
+    private int mLastRenderedFrames;
+    private int mLastDroppedFrames;
+    private boolean mIsStarted;
+    private float mOperatingRate = 1;
+    private boolean mIsSampling;
+    private long mSamplingStartMs = C.TIME_UNSET;
 
     // Exo 2.9
     //public DebugInfoMediaCodecVideoRenderer(Context context, MediaCodecSelector mediaCodecSelector, long allowedJoiningTimeMs,
@@ -36,6 +57,7 @@ public class DebugInfoMediaCodecVideoRenderer extends MediaCodecVideoRenderer {
     public DebugInfoMediaCodecVideoRenderer(Context context, MediaCodecSelector mediaCodecSelector, long allowedJoiningTimeMs,
                                             @Nullable DrmSessionManager<FrameworkMediaCrypto> drmSessionManager, boolean playClearSamplesWithoutKeys, boolean enableDecoderFallback, @Nullable Handler eventHandler, @Nullable VideoRendererEventListener eventListener, int maxDroppedFramesToNotify) {
         super(context, mediaCodecSelector, allowedJoiningTimeMs, drmSessionManager, playClearSamplesWithoutKeys, enableDecoderFallback, eventHandler, eventListener, maxDroppedFramesToNotify);
+        mProfile = DecoderPerformanceProfile.instance(context);
     }
 
     // Exo 2.12, 2.13
@@ -50,9 +72,141 @@ public class DebugInfoMediaCodecVideoRenderer extends MediaCodecVideoRenderer {
             MediaCodecInfo codecInfo, Format format, Format[] streamFormats) {
         ExoUtils.updateVideoDecoderInfo(codecInfo);
 
+        String preferredDecoder = mPreferredDecoders.get(format.sampleMimeType);
+
+        if (preferredDecoder != null && !Helpers.equals(preferredDecoder, codecInfo.name)) {
+            Log.d(TAG, "Decoder fallback: %s instead of %s", codecInfo.name, preferredDecoder);
+            mProfile.onDecoderFallback(format);
+        }
+
         return super.getCodecMaxValues(codecInfo, format, streamFormats);
     }
 
+    @Override
+    protected List<MediaCodecInfo> getDecoderInfos(MediaCodecSelector mediaCodecSelector, Format format, boolean requiresSecureDecoder)
+            throws DecoderQueryException {
+        List<MediaCodecInfo> decoderInfos = super.getDecoderInfos(mediaCodecSelector, format, requiresSecureDecoder);
+
+        if (!decoderInfos.isEmpty()) {
+            mPreferredDecoders.put(format.sampleMimeType, decoderInfos.get(0).name);
+        }
+
+        return decoderInfos;
+    }
+
+    @Override
+    protected void onEnabled(boolean joining) throws ExoPlaybackException {
+        super.onEnabled(joining);
+
+        // New counters
+        mLastRenderedFrames = 0;
+        mLastDroppedFrames = 0;
+    }
+
+    @Override
+    protected void onStarted() {
+        super.onStarted();
+
+        mIsStarted = true;
+        startSampling();
+    }
+
+    @Override
+    protected void onStopped() {
+        // Paused or buffering
+        stopSampling();
+        mIsStarted = false;
+
+        super.onStopped();
+    }
+
+    @Override
+    protected void onPositionReset(long positionUs, boolean joining) throws ExoPlaybackException {
+        super.onPositionReset(positionUs, joining);
+
+        stopSampling();
+        startSampling();
+    }
+
+    @Override
+    protected void onOperatingRateChanged(float operatingRate) {
+        super.onOperatingRateChanged(operatingRate);
+
+        stopSampling();
+        mOperatingRate = operatingRate;
+        startSampling();
+    }
+
+    @Override
+    public void render(long positionUs, long elapsedRealtimeUs) throws ExoPlaybackException {
+        super.render(positionUs, elapsedRealtimeUs);
+
+        if (mSamplingStartMs != C.TIME_UNSET && elapsedRealtimeUs / 1_000 >= mSamplingStartMs) {
+            mSamplingStartMs = C.TIME_UNSET;
+            // Skip the frames of the delay
+            updateProfile();
+            mIsSampling = true;
+        }
+    }
+
+    @Override
+    protected void onInputFormatChanged(Format newFormat) throws ExoPlaybackException {
+        updateProfile();
+        mFormat = newFormat;
+
+        super.onInputFormatChanged(newFormat);
+    }
+
+    @Override
+    protected void onCodecInitialized(String name, long initializedTimestampMs, long initializationDurationMs) {
+        super.onCodecInitialized(name, initializedTimestampMs, initializationDurationMs);
+
+        mProfile.onDecoderInitialized(mFormat, initializationDurationMs);
+    }
+
+    @Override
+    protected void onDisabled() {
+        stopSampling();
+        mFormat = null;
+
+        super.onDisabled();
+    }
+
+    /**
+     * Only normal speed playback is measured
+     */
+    private void startSampling() {
+        if (mIsStarted && mOperatingRate == 1) {
+            mSamplingStartMs = SystemClock.elapsedRealtime() + SAMPLING_DELAY_MS;
+        }
+    }
+
+    private void stopSampling() {
+        updateProfile();
+        mIsSampling = false;
+        mSamplingStartMs = C.TIME_UNSET;
+    }
+
+    /**
+     * Frames of the current format to the decoder profile. Frames outside of the sampling are skipped.
+     */
+    private void updateProfile() {
+        if (decoderCounters == null || mFormat == null) {
+            return;
+        }
+
+        decoderCounters.ensureUpdated();
+        int renderedFrames = decoderCounters.renderedOutputBufferCount;
+        int droppedFrames = decoderCounters.droppedBufferCount;
+
+        if (mIsSampling) {
+            mProfile.onFramesRendered(mFormat, renderedFrames - mLastRenderedFrames, droppedFrames - mLastDroppedFrames);
+        }
+
+        mLastRenderedFrames = renderedFrames;
+        mLastDroppedFrames = droppedFrames;
+    }
+
     // Measure real fps.
     // Note, that you can't accurate measure frame rate because actual frame rate is the average frame rate for the whole video track!
     // 29.97fps test: https://www.youtube.com/watch?v=LXb3EKWsInQ (Costa Rica)
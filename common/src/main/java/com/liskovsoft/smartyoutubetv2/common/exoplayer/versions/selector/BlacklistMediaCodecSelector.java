@@ -8,7 +8,10 @@ import com.liskovsoft.sharedutils.mylogger.Log;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.versions.renderer.CustomOverridesRenderersFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Usage {@link CustomOverridesRenderersFactory#setMediaCodecSelector}
@@ -24,6 +27,9 @@ public class BlacklistMediaCodecSelector implements MediaCodecSelector {
     };
     final static String[] SW_DECODERS = {"OMX.google"};
     final static String[] HW_DECODERS = {"OMX.amlogic", "OMX.MTK", "OMX.Nvidia", "OMX.qcom", "OMX.rk", "OMX.allwinner"};
+    private static final String[] HW_DECODERS_LOWER = toLowerCase(HW_DECODERS);
+    // Codec list doesn't change while the app is running. Filter once per query.
+    private static final Map<String, List<MediaCodecInfo>> sFilteredCodecInfos = new ConcurrentHashMap<>();
 
     // Ver. 2.9.6
     //@Override
@@ -53,6 +59,12 @@ public class BlacklistMediaCodecSelector implements MediaCodecSelector {
     // Exo 2.10 and up
     @Override
     public List<MediaCodecInfo> getDecoderInfos(String mimeType, boolean requiresSecureDecoder, boolean requiresTunnelingDecoder) throws MediaCodecUtil.DecoderQueryException {
+        String key = mimeType + ":" + requiresSecureDecoder + ":" + requiresTunnelingDecoder;
+        List<MediaCodecInfo> cachedCodecInfos = sFilteredCodecInfos.get(key);
+
+        if (cachedCodecInfos != null) {
+            return cachedCodecInfos;
+        }
 
         List<MediaCodecInfo> codecInfos = MediaCodecUtil.getDecoderInfos(
                 mimeType, requiresSecureDecoder, requiresTunnelingDecoder);
@@ -61,8 +73,9 @@ public class BlacklistMediaCodecSelector implements MediaCodecSelector {
         for (MediaCodecInfo codecInfo: codecInfos) {
             Log.d(TAG, "Checking codec: " + codecInfo);
             boolean blacklisted = false;
-            for (String blacklistedDecoder: HW_DECODERS) {
-                if (codecInfo != null && codecInfo.name.toLowerCase().startsWith(blacklistedDecoder.toLowerCase())) {
+            String codecName = codecInfo != null ? codecInfo.name.toLowerCase() : null;
+            for (String blacklistedDecoder: HW_DECODERS_LOWER) {
+                if (codecName != null && codecName.startsWith(blacklistedDecoder)) {
                     Log.d(TAG, "Blacklisting decoder: " + blacklistedDecoder);
                     blacklisted = true;
                     break;
@@ -72,6 +85,10 @@ public class BlacklistMediaCodecSelector implements MediaCodecSelector {
                 filteredCodecInfos.add(codecInfo);
             }
         }
+
+        filteredCodecInfos = Collections.unmodifiableList(filteredCodecInfos);
+        sFilteredCodecInfos.put(key, filteredCodecInfos);
+
         return filteredCodecInfos;
     }
 
@@ -81,4 +98,14 @@ public class BlacklistMediaCodecSelector implements MediaCodecSelector {
     public MediaCodecInfo getPassthroughDecoderInfo() throws MediaCodecUtil.DecoderQueryException {
         return MediaCodecUtil.getPassthroughDecoderInfo();
     }
+
+    private static String[] toLowerCase(String[] values) {
+        String[] result = new String[values.length];
+
+        for (int i = 0; i < values.length; i++) {
+            result[i] = values[i].toLowerCase();
+        }
+
+        return result;
+    }
 }
\ No newline at end of file
@@ -1,6 +1,17 @@
 package com.liskovsoft.smartyoutubetv2.common.misc;
 
 public interface AIClient {
+    /**
+     * Receives the summary text while it's generated. Called on the request thread.
+     */
+    interface TokenListener {
+        void onToken(String delta);
+        /**
+         * Previous tokens are discarded, e.g. the request is repeated with the fallback model.
+         */
+        void onRestart();
+    }
+
     boolean isConfigured();
     String getLastUsedModel();
 
@@ -8,6 +19,7 @@ public interface AIClient {
     String summarize(String title, String author, String videoId, String detailLevel) throws java.io.IOException, org.json.JSONException;
     String summarize(String title, String author, String videoId, String detailLevel, int startTimeSeconds) throws java.io.IOException, org.json.JSONException;
     String summarize(String title, String author, String videoId, String detailLevel, int startTimeSeconds, String forceMode) throws java.io.IOException, org.json.JSONException;
+    String summarize(String title, String author, String videoId, String detailLevel, int startTimeSeconds, String forceMode, TokenListener listener) throws java.io.IOException, org.json.JSONException;
 
     String summarizeComments(String videoTitle, String author, String videoId, java.util.List<String> comments, int analyzedCount) throws java.io.IOException, org.json.JSONException;
 
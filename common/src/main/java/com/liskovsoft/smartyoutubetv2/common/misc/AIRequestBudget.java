@@ -0,0 +1,147 @@
+package com.liskovsoft.smartyoutubetv2.common.misc;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sliding window limit of the requests and tokens per minute for the AI provider.<br/>
+ * Callers wait for the free slot instead of hitting the provider's throttling.
+ */
+public class AIRequestBudget {
+    public static final String PROVIDER_GEMINI = "gemini";
+    public static final String PROVIDER_OPENAI = "openai";
+    private static final long WINDOW_MS = 60_000;
+    // Free tier limits of the flash models
+    private static final int GEMINI_MAX_REQUESTS = 15;
+    private static final int GEMINI_MAX_TOKENS = 1_000_000;
+    // Lowest paid tier limits of the mini models
+    private static final int OPENAI_MAX_REQUESTS = 60;
+    private static final int OPENAI_MAX_TOKENS = 200_000;
+    private static final Map<String, AIRequestBudget> sBudgets = new HashMap<>();
+    private final int mMaxRequests;
+    private final int mMaxTokens;
+    private final long mWindowMs;
+    private final ArrayDeque<Entry> mEntries = new ArrayDeque<>();
+    private int mRequests;
+    private int mTokens;
+
+    private static class Entry {
+        final long timeMs;
+        final int requests;
+        final int tokens;
+
+        Entry(long timeMs, int requests, int tokens) {
+            this.timeMs = timeMs;
+            this.requests = requests;
+            this.tokens = tokens;
+        }
+    }
+
+    @VisibleForTesting
+    AIRequestBudget(int maxRequests, int maxTokens, long windowMs) {
+        mMaxRequests = maxRequests;
+        mMaxTokens = maxTokens;
+        mWindowMs = windowMs;
+    }
+
+    public static synchronized AIRequestBudget forProvider(String provider) {
+        String key = PROVIDER_OPENAI.equalsIgnoreCase(provider) ? PROVIDER_OPENAI : PROVIDER_GEMINI;
+        AIRequestBudget budget = sBudgets.get(key);
+
+        if (budget == null) {
+            budget = PROVIDER_OPENAI.equals(key) ?
+                    new AIRequestBudget(OPENAI_MAX_REQUESTS, OPENAI_MAX_TOKENS, WINDOW_MS) :
+                    new AIRequestBudget(GEMINI_MAX_REQUESTS, GEMINI_MAX_TOKENS, WINDOW_MS);
+            sBudgets.put(key, budget);
+        }
+
+        return budget;
+    }
+
+    /**
+     * Rough token count of the request body (~4 chars per token).
+     */
+    public static int estimateTokens(int payloadLength) {
+        return Math.max(1, payloadLength / 4);
+    }
+
+    /**
+     * Blocks until the request fits into the budget. Interrupt to give up.
+     */
+    public void acquire(int tokens) throws InterruptedIOException {
+        while (!tryAcquire(tokens, System.currentTimeMillis())) {
+            try {
+                Thread.sleep(getDelayMs(tokens, System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Request budget wait is interrupted");
+            }
+        }
+    }
+
+    @VisibleForTesting
+    synchronized boolean tryAcquire(int tokens, long nowMs) {
+        if (getDelayMs(tokens, nowMs) > 0) {
+            return false;
+        }
+
+        add(new Entry(nowMs, 1, tokens));
+        return true;
+    }
+
+    /**
+     * Corrects the estimation when the provider reports the real usage.
+     */
+    public synchronized void addTokens(int tokens) {
+        if (tokens != 0) {
+            add(new Entry(System.currentTimeMillis(), 0, tokens));
+        }
+    }
+
+    /**
+     * Time to wait before the request fits into the budget. Zero if it fits now.
+     */
+    @VisibleForTesting
+    synchronized long getDelayMs(int tokens, long nowMs) {
+        evict(nowMs);
+
+        // The request that is bigger than the whole budget waits for the empty window
+        int maxTokens = Math.max(mMaxTokens, tokens);
+        int requests = mRequests;
+        int usedTokens = mTokens;
+
+        if (requests < mMaxRequests && usedTokens + tokens <= maxTokens) {
+            return 0;
+        }
+
+        // Find the oldest entry whose expiration frees enough
+        for (Entry entry : mEntries) {
+            requests -= entry.requests;
+            usedTokens -= entry.tokens;
+
+            if (requests < mMaxRequests && usedTokens + tokens <= maxTokens) {
+                return Math.max(1, entry.timeMs + mWindowMs - nowMs);
+            }
+        }
+
+        return mWindowMs;
+    }
+
+    private void add(Entry entry) {
+        mEntries.add(entry);
+        mRequests += entry.requests;
+        mTokens += entry.tokens;
+    }
+
+    private void evict(long nowMs) {
+        while (!mEntries.isEmpty() && mEntries.peek().timeMs + mWindowMs <= nowMs) {
+            Entry entry = mEntries.poll();
+            mRequests -= entry.requests;
+            mTokens -= entry.tokens;
+        }
+    }
+}
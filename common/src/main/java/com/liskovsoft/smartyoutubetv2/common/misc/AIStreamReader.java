@@ -0,0 +1,123 @@
+package com.liskovsoft.smartyoutubetv2.common.misc;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads server-sent events of the streaming AI response (Gemini streamGenerateContent?alt=sse, OpenAI stream=true).<br/>
+ * Text deltas are passed to the listener as soon as they arrive.
+ */
+public final class AIStreamReader {
+    private static final String DATA_PREFIX = "data:";
+    private static final String DONE = "[DONE]";
+
+    public interface EventParser {
+        /**
+         * Text delta of the event or null.
+         */
+        String parse(JSONObject event) throws JSONException;
+    }
+
+    public static final class Result {
+        public final String text;
+        /**
+         * Last usage object of the stream or null. Providers send it with the last event.
+         */
+        public final JSONObject usage;
+        /**
+         * From the request start. -1 if there was no text.
+         */
+        public final long timeToFirstTokenMs;
+        public final long durationMs;
+
+        private Result(String text, JSONObject usage, long timeToFirstTokenMs, long durationMs) {
+            this.text = text;
+            this.usage = usage;
+            this.timeToFirstTokenMs = timeToFirstTokenMs;
+            this.durationMs = durationMs;
+        }
+    }
+
+    private AIStreamReader() {
+    }
+
+    /**
+     * Blocks until the end of the stream.
+     *
+     * @param startMs time of the request start, used for the metrics
+     * @param usageKey name of the usage object in the event
+     */
+    public static Result read(InputStream is, long startMs, String usageKey, EventParser parser, AIClient.TokenListener listener)
+            throws IOException, JSONException {
+        StringBuilder text = new StringBuilder();
+        StringBuilder data = new StringBuilder();
+        JSONObject usage = null;
+        long firstTokenMs = -1;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+            String line;
+            boolean isDone = false;
+
+            while (!isDone) {
+                line = reader.readLine();
+
+                // Blank line (or the end of the stream) dispatches the event
+                if (line == null || line.isEmpty()) {
+                    if (data.length() > 0) {
+                        String payload = data.toString();
+                        data.setLength(0);
+
+                        if (DONE.equals(payload)) {
+                            break;
+                        }
+
+                        JSONObject event = new JSONObject(payload);
+                        JSONObject error = event.optJSONObject("error");
+
+                        if (error != null) {
+                            throw new IOException("Stream error: " + error.optString("message", error.toString()));
+                        }
+
+                        if (usageKey != null && event.optJSONObject(usageKey) != null) {
+                            usage = event.optJSONObject(usageKey);
+                        }
+
+                        String delta = parser.parse(event);
+
+                        if (delta != null && !delta.isEmpty()) {
+                            if (firstTokenMs == -1) {
+                                firstTokenMs = System.currentTimeMillis() - startMs;
+                            }
+
+                            text.append(delta);
+
+                            if (listener != null) {
+                                listener.onToken(delta);
+                            }
+                        }
+                    }
+
+                    isDone = line == null;
+                    continue;
+                }
+
+                if (line.startsWith(DATA_PREFIX)) {
+                    if (data.length() > 0) {
+                        data.append('\n');
+                    }
+                    data.append(line.substring(DATA_PREFIX.length()).trim());
+                }
+
+                // Comments (":") and other fields (event, id, retry) aren't used by the providers
+            }
+        }
+
+        return new Result(text.toString(), usage, firstTokenMs, System.currentTimeMillis() - startMs);
+    }
+}
@@ -0,0 +1,384 @@
+package com.liskovsoft.smartyoutubetv2.common.misc;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.liskovsoft.sharedutils.mylogger.Log;
+
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs all AI requests (summaries, comments summaries, fact checks) on the small shared pool.<br/>
+ * Foreground tasks go before the background ones, follow-up tasks start when their parent is done,
+ * tasks of the same owner (e.g. the summary overlay) are cancelled together.<br/>
+ * Results are delivered on the main thread.
+ */
+public class AITaskExecutor {
+    private static final String TAG = AITaskExecutor.class.getSimpleName();
+    public static final int PRIORITY_FOREGROUND = 0;
+    public static final int PRIORITY_BACKGROUND = 1;
+    private static final int MAX_THREADS = 2;
+    private static final ThreadLocal<Task<?>> sCurrentTask = new ThreadLocal<>();
+    private static AITaskExecutor sInstance;
+    private final ThreadPoolExecutor mExecutor;
+    private final Executor mCallbackExecutor;
+    private final AtomicLong mSequence = new AtomicLong();
+    private final List<Task<?>> mTasks = new ArrayList<>();
+
+    public interface Work<T> {
+        T run() throws Exception;
+    }
+
+    public interface Chain<T, R> {
+        R run(T input) throws Exception;
+    }
+
+    public interface Callback<T> {
+        void onResult(T result);
+        void onError(Throwable error);
+    }
+
+    public static final class Task<T> implements Runnable, Comparable<Task<?>> {
+        private static final int STATE_WAITING = 0;
+        private static final int STATE_QUEUED = 1;
+        private static final int STATE_RUNNING = 2;
+        private static final int STATE_DONE = 3;
+        private static final int STATE_CANCELLED = 4;
+        private final AITaskExecutor mOwner;
+        private final Object mTag;
+        private final int mPriority;
+        private final long mSequence;
+        private final Callback<T> mCallback;
+        private final List<Runnable> mDependents = new ArrayList<>();
+        private Work<T> mWork;
+        private int mState = STATE_WAITING;
+        private Thread mThread;
+        private HttpURLConnection mConnection;
+        private boolean mIsDelivered;
+        private T mResult;
+        private Throwable mError;
+
+        private Task(AITaskExecutor owner, Object tag, int priority, Work<T> work, Callback<T> callback) {
+            mOwner = owner;
+            mTag = tag;
+            mPriority = priority;
+            mSequence = owner.mSequence.getAndIncrement();
+            mWork = work;
+            mCallback = callback;
+        }
+
+        public Object getTag() {
+            return mTag;
+        }
+
+        public synchronized boolean isCancelled() {
+            return mState == STATE_CANCELLED;
+        }
+
+        public synchronized boolean isDone() {
+            return mState == STATE_DONE || mState == STATE_CANCELLED;
+        }
+
+        @Override
+        public int compareTo(Task<?> other) {
+            if (mPriority != other.mPriority) {
+                return Integer.compare(mPriority, other.mPriority);
+            }
+
+            return Long.compare(mSequence, other.mSequence);
+        }
+
+        @Override
+        public void run() {
+            Work<T> work;
+
+            synchronized (this) {
+                if (mState != STATE_QUEUED) {
+                    return;
+                }
+
+                mState = STATE_RUNNING;
+                mThread = Thread.currentThread();
+                work = mWork;
+            }
+
+            T result = null;
+            Throwable error = null;
+
+            sCurrentTask.set(this);
+
+            try {
+                result = work.run();
+            } catch (Throwable e) {
+                error = e;
+            } finally {
+                sCurrentTask.remove();
+            }
+
+            synchronized (this) {
+                mThread = null;
+                mConnection = null;
+                // Clear the interruption of the cancelled task before the thread goes back to the pool
+                Thread.interrupted();
+            }
+
+            complete(result, error);
+        }
+
+        /**
+         * Stores the outcome, starts the dependents and posts the callback. Nothing is done if the task is cancelled.
+         */
+        private void complete(T result, Throwable error) {
+            List<Runnable> dependents;
+
+            synchronized (this) {
+                if (mState == STATE_CANCELLED) {
+                    return;
+                }
+
+                mState = STATE_DONE;
+                mResult = result;
+                mError = error;
+                dependents = new ArrayList<>(mDependents);
+                mDependents.clear();
+            }
+
+            if (error != null) {
+                Log.e(TAG, "Task %s failed: %s", mTag, error.getMessage());
+            }
+
+            for (Runnable dependent : dependents) {
+                dependent.run();
+            }
+
+            mOwner.mCallbackExecutor.execute(this::deliver);
+        }
+
+        private void deliver() {
+            synchronized (this) {
+                // Owner could be cancelled while the result was posted
+                if (mState == STATE_CANCELLED) {
+                    return;
+                }
+
+                mIsDelivered = true;
+            }
+
+            mOwner.onFinished(this);
+
+            if (mCallback == null) {
+                return;
+            }
+
+            if (mError != null) {
+                mCallback.onError(mError);
+            } else {
+                mCallback.onResult(mResult);
+            }
+        }
+
+        private synchronized void cancel() {
+            if (mState == STATE_CANCELLED || mIsDelivered) {
+                return;
+            }
+
+            mState = STATE_CANCELLED;
+        }
+
+        private synchronized void interrupt() {
+            if (mState == STATE_CANCELLED && mThread != null) {
+                mThread.interrupt();
+            }
+
+            // Interruption doesn't stop the blocking socket read
+            if (mState == STATE_CANCELLED && mConnection != null) {
+                mConnection.disconnect();
+            }
+        }
+
+        private synchronized void attach(HttpURLConnection connection) {
+            if (mState == STATE_CANCELLED) {
+                connection.disconnect();
+                return;
+            }
+
+            mConnection = connection;
+        }
+
+        /**
+         * Runs the action when the task is done. Immediately if it's done already.
+         */
+        private void whenDone(Runnable action) {
+            synchronized (this) {
+                if (!isDone()) {
+                    mDependents.add(action);
+                    return;
+                }
+            }
+
+            action.run();
+        }
+    }
+
+    private AITaskExecutor() {
+        this(MAX_THREADS, new Handler(Looper.getMainLooper())::post);
+    }
+
+    @VisibleForTesting
+    AITaskExecutor(int maxThreads, Executor callbackExecutor) {
+        AtomicInteger threadNum = new AtomicInteger();
+        mExecutor = new ThreadPoolExecutor(maxThreads, maxThreads, 30, TimeUnit.SECONDS, new PriorityBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "AITask-" + threadNum.incrementAndGet());
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+        mExecutor.allowCoreThreadTimeOut(true);
+        mCallbackExecutor = callbackExecutor;
+    }
+
+    public static AITaskExecutor instance() {
+        if (sInstance == null) {
+            sInstance = new AITaskExecutor();
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * Queues the work.
+     *
+     * @param tag owner of the task, see {@link #cancel(Object)}
+     */
+    public <T> Task<T> submit(Object tag, int priority, Work<T> work, Callback<T> callback) {
+        Task<T> task = new Task<>(this, tag, priority, work, callback);
+        enqueue(task);
+        return task;
+    }
+
+    /**
+     * Queues the work when the parent is done successfully and passes the parent's result to it.<br/>
+     * If the parent fails, the work is skipped and the parent's error is passed to the callback.<br/>
+     * If the parent is cancelled, the task is cancelled too: no callback is called.
+     */
+    public <T, R> Task<R> then(Task<T> parent, int priority, Chain<T, R> chain, Callback<R> callback) {
+        Task<R> task = new Task<>(this, parent.mTag, priority, null, callback);
+
+        synchronized (mTasks) {
+            mTasks.add(task);
+        }
+
+        parent.whenDone(() -> {
+            if (parent.isCancelled()) {
+                task.cancel();
+                onFinished(task);
+                return;
+            }
+
+            if (parent.mError != null) {
+                task.complete(null, parent.mError);
+                return;
+            }
+
+            T input = parent.mResult;
+
+            synchronized (task) {
+                task.mWork = () -> chain.run(input);
+            }
+
+            enqueue(task);
+        });
+
+        return task;
+    }
+
+    /**
+     * Cancels queued, running and chained tasks of the owner. Their callbacks won't be called.
+     */
+    public void cancel(Object tag) {
+        List<Task<?>> cancelled = new ArrayList<>();
+
+        synchronized (mTasks) {
+            Iterator<Task<?>> iterator = mTasks.iterator();
+
+            while (iterator.hasNext()) {
+                Task<?> task = iterator.next();
+
+                if (task.mTag == tag) {
+                    cancelled.add(task);
+                    iterator.remove();
+                }
+            }
+        }
+
+        // Cancel all before interrupting, otherwise the freed thread could pick up the next task of the owner
+        for (Task<?> task : cancelled) {
+            task.cancel();
+        }
+
+        for (Task<?> task : cancelled) {
+            mExecutor.remove(task);
+            task.interrupt();
+        }
+
+        if (!cancelled.isEmpty()) {
+            Log.d(TAG, "Cancelled %s tasks of %s", cancelled.size(), tag);
+        }
+    }
+
+    /**
+     * Client of the provider for a single task.<br/>
+     * Clients aren't shared: they keep the model and the token usage of the last request
+     * and read the prefs (api key, language) when created.
+     */
+    public AIClient createClient(Context context, String provider) {
+        return AIRequestBudget.PROVIDER_OPENAI.equalsIgnoreCase(provider) ? new OpenAIClient(context) : new GeminiClient(context);
+    }
+
+    /**
+     * Request of the task running on the current thread. Disconnected when the task is cancelled.
+     */
+    public static void attachConnection(HttpURLConnection connection) {
+        Task<?> task = sCurrentTask.get();
+
+        if (task != null) {
+            task.attach(connection);
+        }
+    }
+
+    private void enqueue(Task<?> task) {
+        synchronized (task) {
+            if (task.mState != Task.STATE_WAITING) {
+                return;
+            }
+
+            task.mState = Task.STATE_QUEUED;
+        }
+
+        synchronized (mTasks) {
+            if (!mTasks.contains(task)) {
+                mTasks.add(task);
+            }
+        }
+
+        mExecutor.execute(task);
+    }
+
+    private void onFinished(Task<?> task) {
+        synchronized (mTasks) {
+            mTasks.remove(task);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.liskovsoft.smartyoutubetv2.common.misc;
+
+import android.content.Context;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.liskovsoft.mediaserviceinterfaces.CommentsService;
+import com.liskovsoft.mediaserviceinterfaces.data.CommentGroup;
+import com.liskovsoft.mediaserviceinterfaces.data.CommentItem;
+import com.liskovsoft.sharedutils.mylogger.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import io.reactivex.Observable;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Collects comments of the video for the AI comments summary.<br/>
+ * The next page is requested as soon as its continuation key is known, so the network wait overlaps with
+ * the processing of the current page. Stops at the comment or token budget.<br/>
+ * Harvested comments are cached per video. Pages are read through the {@link CommentsRepository}.
+ */
+public class CommentsHarvester {
+    private static final String TAG = CommentsHarvester.class.getSimpleName();
+    // Longer comments are truncated by the AI clients anyway
+    public static final int MAX_COMMENT_LENGTH = 220;
+    private static final long PAGE_TIMEOUT_MS = 8_000;
+    private static final long CACHE_TTL_MS = 30 * 60 * 1_000;
+    private static final int CACHE_SIZE = 20;
+    private static CommentsHarvester sInstance;
+    private final CommentsRepository mRepository;
+    private final long mPageTimeoutMs;
+    private final long mCacheTtlMs;
+    private final Map<String, Entry> mCache = new LinkedHashMap<String, Entry>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    public interface Listener {
+        /**
+         * First batch of the comments is ready while the rest is still loading. Called on the harvesting thread.
+         */
+        void onPartialBatch(List<String> comments);
+    }
+
+    private static class Entry {
+        final List<String> comments;
+        final boolean isExhausted;
+        final long timeMs;
+
+        Entry(List<String> comments, boolean isExhausted, long timeMs) {
+            this.comments = comments;
+            this.isExhausted = isExhausted;
+            this.timeMs = timeMs;
+        }
+    }
+
+    private static class Batch {
+        final List<String> comments = new ArrayList<>();
+        final Set<String> keys = new HashSet<>();
+        int tokens;
+    }
+
+    @VisibleForTesting
+    CommentsHarvester(CommentsService service, long pageTimeoutMs, long cacheTtlMs) {
+        this(new CommentsRepository(service, null, cacheTtlMs, 0), pageTimeoutMs, cacheTtlMs);
+    }
+
+    @VisibleForTesting
+    CommentsHarvester(CommentsRepository repository, long pageTimeoutMs, long cacheTtlMs) {
+        mRepository = repository;
+        mPageTimeoutMs = pageTimeoutMs;
+        mCacheTtlMs = cacheTtlMs;
+    }
+
+    public static CommentsHarvester instance(Context context) {
+        if (sInstance == null) {
+            sInstance = new CommentsHarvester(CommentsRepository.instance(context), PAGE_TIMEOUT_MS, CACHE_TTL_MS);
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * Comments of the previous harvest that satisfy the limits or null.
+     */
+    public synchronized List<String> getCached(String videoId, int maxComments) {
+        Entry entry = mCache.get(videoId);
+
+        if (entry == null) {
+            return null;
+        }
+
+        if (System.currentTimeMillis() - entry.timeMs > mCacheTtlMs) {
+            mCache.remove(videoId);
+            return null;
+        }
+
+        if (maxComments > 0 && entry.comments.size() >= maxComments) {
+            return entry.comments.subList(0, maxComments);
+        }
+
+        return entry.isExhausted || maxComments == 0 ? entry.comments : null;
+    }
+
+    /**
+     * Blocks until the budget is reached, the comments are over or the deadline is passed.
+     *
+     * @param commentsKey may be null when the first page is cached by the {@link CommentsRepository}
+     * @param maxComments zero means no limit
+     * @param maxTokens rough token limit of the collected text
+     * @param partialBatchSize size of the batch for the {@link Listener}, zero to disable
+     */
+    public List<String> harvest(String videoId, String commentsKey, int maxComments, int maxTokens, long timeoutMs,
+                                int partialBatchSize, Listener listener) throws InterruptedException {
+        List<String> cached = getCached(videoId, maxComments);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        long deadlineMs = System.currentTimeMillis() + timeoutMs;
+        Batch batch = new Batch();
+        boolean isExhausted = false;
+        boolean isBudgetReached = false;
+        boolean isPartialSent = partialBatchSize <= 0 || listener == null;
+        Future<CommentGroup> inFlight = commentsKey != null || mRepository.isCached(videoId) ?
+                requestPage(mRepository.getFirstPageObserve(videoId, commentsKey)) : null;
+
+        if (inFlight == null) {
+            isExhausted = true;
+        }
+
+        try {
+            while (inFlight != null) {
+                CommentGroup group = awaitPage(inFlight, deadlineMs);
+                inFlight = null;
+
+                if (group == null) {
+                    // Timeout or error. Don't cache the incomplete result.
+                    return batch.comments;
+                }
+
+                String nextKey = group.getNextCommentsKey();
+
+                // Keep the next page in flight while this one is processed
+                if (nextKey != null) {
+                    inFlight = requestPage(mRepository.getPageObserve(nextKey));
+                } else {
+                    isExhausted = true;
+                }
+
+                isBudgetReached = addPage(batch, group, maxComments, maxTokens);
+
+                if (!isPartialSent && batch.comments.size() >= partialBatchSize) {
+                    isPartialSent = true;
+                    listener.onPartialBatch(new ArrayList<>(batch.comments));
+                }
+
+                if (isBudgetReached) {
+                    break;
+                }
+            }
+        } finally {
+            if (inFlight != null) {
+                inFlight.cancel(true);
+            }
+        }
+
+        List<String> result = Collections.unmodifiableList(batch.comments);
+
+        synchronized (this) {
+            mCache.put(videoId, new Entry(result, isExhausted && !isBudgetReached, System.currentTimeMillis()));
+        }
+
+        return result;
+    }
+
+    public synchronized void clear() {
+        mCache.clear();
+    }
+
+    /**
+     * Rough token count of the comment (~4 chars per token).
+     */
+    public static int estimateTokens(String comment) {
+        return Math.max(1, comment.length() / 4);
+    }
+
+    /**
+     * Trims, collapses the whitespaces and truncates the comment. Null if there is nothing to summarize.
+     */
+    @VisibleForTesting
+    static String normalize(String message) {
+        if (message == null) {
+            return null;
+        }
+
+        String result = message.replaceAll("\\s+", " ").trim();
+
+        if (result.isEmpty()) {
+            return null;
+        }
+
+        return result.length() > MAX_COMMENT_LENGTH ? result.substring(0, MAX_COMMENT_LENGTH) + "…" : result;
+    }
+
+    /**
+     * @return budget is reached
+     */
+    private static boolean addPage(Batch batch, CommentGroup group, int maxComments, int maxTokens) {
+        List<CommentItem> items = group.getComments();
+
+        if (items == null) {
+            return false;
+        }
+
+        for (CommentItem item : items) {
+            if (item == null) {
+                continue;
+            }
+
+            String comment = normalize(item.getMessage());
+
+            // Same comment is often posted many times (bots, copy-paste jokes)
+            if (comment == null || !batch.keys.add(comment.toLowerCase(Locale.ROOT))) {
+                continue;
+            }
+
+            int tokens = estimateTokens(comment);
+
+            if (maxTokens > 0 && batch.tokens + tokens > maxTokens) {
+                return true;
+            }
+
+            batch.comments.add(comment);
+            batch.tokens += tokens;
+
+            if (maxComments > 0 && batch.comments.size() >= maxComments) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static Future<CommentGroup> requestPage(Observable<CommentGroup> page) {
+        return page
+                .subscribeOn(Schedulers.io())
+                .take(1)
+                .toFuture();
+    }
+
+    private CommentGroup awaitPage(Future<CommentGroup> page, long deadlineMs) throws InterruptedException {
+        long timeoutMs = Math.min(mPageTimeoutMs, deadlineMs - System.currentTimeMillis());
+
+        try {
+            if (timeoutMs <= 0) {
+                throw new TimeoutException();
+            }
+
+            return page.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            Log.w(TAG, "Comments page timeout");
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Comments page error: %s", e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+        } catch (InterruptedException e) {
+            page.cancel(true);
+            throw e;
+        }
+
+        page.cancel(true);
+        return null;
+    }
+}
@@ -0,0 +1,472 @@
+package com.liskovsoft.smartyoutubetv2.common.misc;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.liskovsoft.mediaserviceinterfaces.CommentsService;
+import com.liskovsoft.mediaserviceinterfaces.data.CommentGroup;
+import com.liskovsoft.mediaserviceinterfaces.data.CommentItem;
+import com.liskovsoft.mediaserviceinterfaces.oauth.Account;
+import com.liskovsoft.sharedutils.helpers.FileHelpers;
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.smartyoutubetv2.common.misc.MediaServiceManager.AccountChangeListener;
+import com.liskovsoft.youtubeapi.service.YouTubeServiceManager;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import io.reactivex.Observable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Comment pages shared by the comments panel and the comments summary.<br/>
+ * Pages are kept in memory and on disk for {@link #PAGE_TTL_MS}. The first page is stored under the video id,
+ * because the comments key of the video changes between metadata requests.<br/>
+ * Same page is never requested twice at the same time, e.g. the panel is opened while the page is prefetched.<br/>
+ * Pages are dropped on account change. The like state of the comments isn't stored on disk.
+ */
+public class CommentsRepository implements AccountChangeListener {
+    private static final String TAG = CommentsRepository.class.getSimpleName();
+    private static final String VIDEO_PREFIX = "video:";
+    private static final String PAGE_PREFIX = "page:";
+    private static final String CACHE_DIR = "comments";
+    private static final long PAGE_TTL_MS = 2 * 60 * 60 * 1_000;
+    private static final long MAX_DISK_BYTES = 4 * 1024 * 1024;
+    private static final int MEMORY_SIZE = 50;
+    @SuppressLint("StaticFieldLeak")
+    private static CommentsRepository sInstance;
+    private final CommentsService mService;
+    @Nullable
+    private final File mCacheDir;
+    private final long mTtlMs;
+    private final long mMaxDiskBytes;
+    private final ExecutorService mDiskExecutor = Executors.newSingleThreadExecutor();
+    private final Map<String, Observable<CommentGroup>> mInFlight = new HashMap<>();
+    private final Map<String, Entry> mMemory = new LinkedHashMap<String, Entry>(MEMORY_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MEMORY_SIZE;
+        }
+    };
+    private Disposable mPrefetchAction;
+
+    private static class Entry {
+        final CommentGroup group;
+        final long timeMs;
+
+        Entry(CommentGroup group, long timeMs) {
+            this.group = group;
+            this.timeMs = timeMs;
+        }
+    }
+
+    /**
+     * @param cacheDir null - memory only
+     */
+    @VisibleForTesting
+    CommentsRepository(CommentsService service, @Nullable File cacheDir, long ttlMs, long maxDiskBytes) {
+        mService = service;
+        mCacheDir = cacheDir;
+        mTtlMs = ttlMs;
+        mMaxDiskBytes = maxDiskBytes;
+    }
+
+    public static CommentsRepository instance(Context context) {
+        if (sInstance == null) {
+            sInstance = new CommentsRepository(YouTubeServiceManager.instance().getCommentsService(),
+                    new File(context.getApplicationContext().getCacheDir(), CACHE_DIR), PAGE_TTL_MS, MAX_DISK_BYTES);
+            MediaServiceManager.instance().addAccountListener(sInstance);
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * First page of the video
+     * @param commentsKey may be null when the page is cached
+     */
+    public Observable<CommentGroup> getFirstPageObserve(String videoId, String commentsKey) {
+        if (videoId == null) {
+            return getPageObserve(commentsKey);
+        }
+
+        return getObserve(VIDEO_PREFIX + videoId, commentsKey);
+    }
+
+    /**
+     * Next or nested page
+     */
+    public Observable<CommentGroup> getPageObserve(String commentsKey) {
+        return getObserve(PAGE_PREFIX + commentsKey, commentsKey);
+    }
+
+    /**
+     * Loads the first page in the background. E.g. the playback is stable and the network is idle.
+     */
+    public void prefetch(String videoId, String commentsKey) {
+        if (videoId == null || commentsKey == null || isCached(videoId)) {
+            return;
+        }
+
+        if (mPrefetchAction != null && !mPrefetchAction.isDisposed()) {
+            mPrefetchAction.dispose();
+        }
+
+        mPrefetchAction = getFirstPageObserve(videoId, commentsKey)
+                .subscribeOn(Schedulers.io())
+                .subscribe(
+                        group -> Log.d(TAG, "First page of %s is prefetched", videoId),
+                        error -> Log.e(TAG, "Prefetch error: %s", error.getMessage())
+                );
+    }
+
+    /**
+     * First page of the video is available without the network
+     */
+    public boolean isCached(String videoId) {
+        if (videoId == null) {
+            return false;
+        }
+
+        String cacheKey = VIDEO_PREFIX + videoId;
+
+        synchronized (this) {
+            Entry entry = mMemory.get(cacheKey);
+
+            if (entry != null && !isExpired(entry.timeMs)) {
+                return true;
+            }
+        }
+
+        return mCacheDir != null && !isExpired(getFile(cacheKey).lastModified());
+    }
+
+    public synchronized void clear() {
+        mMemory.clear();
+        mInFlight.clear();
+
+        if (mCacheDir != null) {
+            mDiskExecutor.execute(() -> FileHelpers.delete(mCacheDir));
+        }
+    }
+
+    @Override
+    public void onAccountChanged(Account account) {
+        clear();
+    }
+
+    /**
+     * Wait for the pending disk writes
+     */
+    @VisibleForTesting
+    void awaitWrites() throws InterruptedException {
+        try {
+            mDiskExecutor.submit(() -> {}).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Observable<CommentGroup> getObserve(String cacheKey, String commentsKey) {
+        return Observable.defer(() -> {
+            CommentGroup cached = getCached(cacheKey);
+
+            if (cached != null) {
+                return Observable.just(cached);
+            }
+
+            if (commentsKey == null) {
+                return Observable.empty();
+            }
+
+            return getInFlight(cacheKey, commentsKey);
+        });
+    }
+
+    private synchronized Observable<CommentGroup> getInFlight(String cacheKey, String commentsKey) {
+        Observable<CommentGroup> inFlight = mInFlight.get(cacheKey);
+
+        if (inFlight == null) {
+            inFlight = mService.getCommentsObserve(commentsKey)
+                    .take(1)
+                    .doOnNext(group -> put(cacheKey, group))
+                    .doFinally(() -> removeInFlight(cacheKey))
+                    .cache();
+            mInFlight.put(cacheKey, inFlight);
+        }
+
+        return inFlight;
+    }
+
+    private synchronized void removeInFlight(String cacheKey) {
+        mInFlight.remove(cacheKey);
+    }
+
+    private synchronized void put(String cacheKey, CommentGroup group) {
+        mMemory.put(cacheKey, new Entry(group, System.currentTimeMillis()));
+
+        if (mCacheDir != null) {
+            // Don't hold the page. The group may parse the comments on the first access.
+            mDiskExecutor.execute(() -> write(cacheKey, group));
+        }
+    }
+
+    private CommentGroup getCached(String cacheKey) {
+        synchronized (this) {
+            Entry entry = mMemory.get(cacheKey);
+
+            if (entry != null && !isExpired(entry.timeMs)) {
+                return entry.group;
+            }
+
+            mMemory.remove(cacheKey);
+        }
+
+        if (mCacheDir == null) {
+            return null;
+        }
+
+        File file = getFile(cacheKey);
+
+        // Missing file has zero time
+        if (isExpired(file.lastModified())) {
+            return null;
+        }
+
+        CommentGroup group = read(cacheKey, file);
+
+        if (group != null) {
+            synchronized (this) {
+                mMemory.put(cacheKey, new Entry(group, file.lastModified()));
+            }
+        }
+
+        return group;
+    }
+
+    private boolean isExpired(long timeMs) {
+        return System.currentTimeMillis() - timeMs > mTtlMs;
+    }
+
+    private File getFile(String cacheKey) {
+        return new File(mCacheDir, Integer.toHexString(cacheKey.hashCode()) + "-" + cacheKey.length() + ".json");
+    }
+
+    private void write(String cacheKey, CommentGroup group) {
+        try {
+            JSONObject json = new JSONObject();
+            json.put("key", cacheKey);
+            json.put("next", group.getNextCommentsKey());
+            JSONArray comments = new JSONArray();
+
+            if (group.getComments() != null) {
+                for (CommentItem item : group.getComments()) {
+                    if (item != null) {
+                        comments.put(CachedCommentItem.toJson(item));
+                    }
+                }
+            }
+
+            json.put("comments", comments);
+
+            if (!mCacheDir.exists() && !mCacheDir.mkdirs()) {
+                return;
+            }
+
+            try (OutputStream output = new FileOutputStream(getFile(cacheKey))) {
+                output.write(json.toString().getBytes(StandardCharsets.UTF_8));
+            }
+
+            trim();
+        } catch (JSONException | IOException e) {
+            Log.e(TAG, "Can't save comments page: %s", e.getMessage());
+        }
+    }
+
+    private static CommentGroup read(String cacheKey, File file) {
+        try (InputStream input = new FileInputStream(file)) {
+            byte[] data = new byte[(int) file.length()];
+            int length = 0;
+            int count;
+
+            while (length < data.length && (count = input.read(data, length, data.length - length)) != -1) {
+                length += count;
+            }
+
+            JSONObject json = new JSONObject(new String(data, 0, length, StandardCharsets.UTF_8));
+
+            // Same file name, other key
+            if (!cacheKey.equals(json.optString("key"))) {
+                return null;
+            }
+
+            JSONArray comments = json.getJSONArray("comments");
+            List<CommentItem> items = new ArrayList<>(comments.length());
+
+            for (int i = 0; i < comments.length(); i++) {
+                items.add(CachedCommentItem.fromJson(comments.getJSONObject(i)));
+            }
+
+            return new CachedCommentGroup(items, json.isNull("next") ? null : json.getString("next"));
+        } catch (JSONException | IOException e) {
+            Log.e(TAG, "Can't read comments page: %s", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Removes the oldest pages above the size limit
+     */
+    private void trim() {
+        File[] files = mCacheDir.listFiles();
+
+        if (files == null) {
+            return;
+        }
+
+        long totalBytes = 0;
+        for (File file : files) {
+            totalBytes += file.length();
+        }
+
+        if (totalBytes <= mMaxDiskBytes) {
+            return;
+        }
+
+        Arrays.sort(files, (o1, o2) -> Long.compare(o1.lastModified(), o2.lastModified()));
+
+        for (File file : files) {
+            if (totalBytes <= mMaxDiskBytes) {
+                break;
+            }
+
+            totalBytes -= file.length();
+            file.delete();
+        }
+    }
+
+    private static final class CachedCommentGroup implements CommentGroup {
+        private final List<CommentItem> mComments;
+        private final String mNextCommentsKey;
+
+        private CachedCommentGroup(List<CommentItem> comments, String nextCommentsKey) {
+            mComments = comments;
+            mNextCommentsKey = nextCommentsKey;
+        }
+
+        @Override
+        public List<CommentItem> getComments() {
+            return mComments;
+        }
+
+        @Override
+        public String getNextCommentsKey() {
+            return mNextCommentsKey;
+        }
+    }
+
+    private static final class CachedCommentItem implements CommentItem {
+        private final JSONObject mJson;
+
+        private CachedCommentItem(JSONObject json) {
+            mJson = json;
+        }
+
+        private static CachedCommentItem fromJson(JSONObject json) {
+            return new CachedCommentItem(json);
+        }
+
+        private static JSONObject toJson(CommentItem item) throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("id", item.getId());
+            json.put("message", item.getMessage());
+            json.put("authorName", item.getAuthorName());
+            json.put("authorPhoto", item.getAuthorPhoto());
+            json.put("publishedDate", item.getPublishedDate());
+            json.put("nestedCommentsKey", item.getNestedCommentsKey());
+            json.put("likeCount", item.getLikeCount());
+            json.put("replyCount", item.getReplyCount());
+            json.put("isEmpty", item.isEmpty());
+            return json;
+        }
+
+        private String getString(String name) {
+            return mJson.isNull(name) ? null : mJson.optString(name);
+        }
+
+        @Override
+        public String getId() {
+            return getString("id");
+        }
+
+        @Override
+        public String getMessage() {
+            return getString("message");
+        }
+
+        @Override
+        public String getAuthorName() {
+            return getString("authorName");
+        }
+
+        @Override
+        public String getAuthorPhoto() {
+            return getString("authorPhoto");
+        }
+
+        @Override
+        public String getPublishedDate() {
+            return getString("publishedDate");
+        }
+
+        @Override
+        public String getNestedCommentsKey() {
+            return getString("nestedCommentsKey");
+        }
+
+        /**
+         * Per account. Not stored.
+         */
+        @Override
+        public boolean isLiked() {
+            return false;
+        }
+
+        @Override
+        public String getLikeCount() {
+            return getString("likeCount");
+        }
+
+        @Override
+        public String getReplyCount() {
+            return getString("replyCount");
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return mJson.optBoolean("isEmpty");
+        }
+    }
+}
@@ -39,13 +39,16 @@ public class GeminiClient implements AIClient {
     private static final String MODEL = "gemini-2.0-flash-exp"; // Optimized for lower latency
     private static final String FALLBACK_MODEL = "gemini-2.5-flash";
     private static final String API_URL_TEMPLATE = "https://generativelanguage.googleapis.com/v1beta/models/%s:generateContent?key=";
+    private static final String STREAM_API_URL_TEMPLATE = "https://generativelanguage.googleapis.com/v1beta/models/%s:streamGenerateContent?alt=sse&key=";
     private final String apiKey;
     private final String prefLang;
     private final boolean debug;
+    private final AIRequestBudget budget = AIRequestBudget.forProvider(AIRequestBudget.PROVIDER_GEMINI);
     private String lastUsedModel;
     private Integer lastPromptTokens;
     private Integer lastCandidatesTokens;
     private Integer lastTotalTokens;
+    private Long lastTimeToFirstTokenMs;
 
     public GeminiClient(Context context) {
         String k = null;
@@ -70,6 +73,7 @@ public class GeminiClient implements AIClient {
     public Integer getLastPromptTokens() { return lastPromptTokens; }
     public Integer getLastCompletionTokens() { return lastCandidatesTokens; }
     public Integer getLastTotalTokens() { return lastTotalTokens; }
+    public Long getLastTimeToFirstTokenMs() { return lastTimeToFirstTokenMs; }
 
     public String summarize(String title, String author, String videoId) throws IOException, JSONException {
         return summarize(title, author, videoId, "moderate");
@@ -84,6 +88,10 @@ public class GeminiClient implements AIClient {
     }
     
     public String summarize(String title, String author, String videoId, String detailLevel, int startTimeSeconds, String forceMode) throws IOException, JSONException {
+        return summarize(title, author, videoId, detailLevel, startTimeSeconds, forceMode, null);
+    }
+
+    public String summarize(String title, String author, String videoId, String detailLevel, int startTimeSeconds, String forceMode, TokenListener listener) throws IOException, JSONException {
         android.util.Log.d("GeminiClient", "=== GEMINI SUMMARIZE DEBUG ===");
         android.util.Log.d("GeminiClient", "Title: " + title);
         android.util.Log.d("GeminiClient", "Author: " + author);
@@ -115,7 +123,7 @@ public class GeminiClient implements AIClient {
             boolean officialAvailable = hasOfficialTrack(videoId);
             String prompt = buildPrompt(title, author, videoId, detailLevel, transcript, transcriptSource, officialAvailable);
             try {
-                String summary = callGemini(prompt);
+                String summary = callGemini(prompt, null, listener);
                 return summary;
             } catch (IOException e) {
                 if (!TextUtils.isEmpty(transcript)) {
@@ -127,7 +135,7 @@ public class GeminiClient implements AIClient {
                         partials.append("\n[Chunk ").append(i+1).append("]\n").append(part).append("\n");
                     }
                     String combine = "Summarize the following partial summaries into a single cohesive summary with the same format and header requirements.\n\n" + partials;
-                    String summary = callGemini(combine);
+                    String summary = callGemini(combine, null, listener);
                     return summary;
                 }
                 throw e;
@@ -161,7 +169,7 @@ public class GeminiClient implements AIClient {
             }
             // Use proper API structure: pass URL as fileData, not in text prompt
             android.util.Log.d("GeminiClient", "Sending URL as fileData to Gemini API");
-            String summary = callGemini(prompt, watchUrl);
+            String summary = callGemini(prompt, watchUrl, listener);
             return summary;
         }
     }
@@ -626,6 +634,7 @@ public class GeminiClient implements AIClient {
     private String makeHttpRequest(String urlString) throws IOException {
         URL url = new URL(urlString);
         HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        AITaskExecutor.attachConnection(conn);
         conn.setRequestMethod("GET");
         conn.setRequestProperty("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36");
         String langHdr = TextUtils.isEmpty(prefLang) ? "en-US,en;q=0.9" : (prefLang + ";q=1.0,en;q=0.8");
@@ -773,6 +782,10 @@ public class GeminiClient implements AIClient {
     }
     
     private String callGemini(String prompt, String videoUrl) throws IOException, JSONException {
+        return callGemini(prompt, videoUrl, null);
+    }
+
+    private String callGemini(String prompt, String videoUrl, TokenListener listener) throws IOException, JSONException {
         // Check user's model preference from settings
         String userModel = com.liskovsoft.smartyoutubetv2.common.prefs.GeminiData
                 .instance(com.liskovsoft.youtubeapi.app.AppService.instance().getContext())
@@ -783,19 +796,19 @@ public class GeminiClient implements AIClient {
         if ("auto".equals(userModel)) {
             // Auto mode: Try fast model first, then fallback
             try {
-                return callGeminiWithModel(prompt, videoUrl, MODEL);
+                return callGeminiWithModel(prompt, videoUrl, MODEL, listener);
             } catch (IOException e) {
                 android.util.Log.w("GeminiClient", "Fast model failed, trying fallback: " + e.getMessage());
-                return callGeminiWithModel(prompt, videoUrl, FALLBACK_MODEL);
+                return callGeminiWithModel(prompt, videoUrl, FALLBACK_MODEL, listener);
             }
         } else {
             // Use specific model selected by user - no fallback
             android.util.Log.d("GeminiClient", "Using user-selected model (no fallback): " + userModel);
-            return callGeminiWithModel(prompt, videoUrl, userModel);
+            return callGeminiWithModel(prompt, videoUrl, userModel, listener);
         }
     }
     
-    private String callGeminiWithModel(String prompt, String videoUrl, String model) throws IOException, JSONException {
+    private String callGeminiWithModel(String prompt, String videoUrl, String model, TokenListener listener) throws IOException, JSONException {
         long startTime = System.currentTimeMillis();
         android.util.Log.d("GeminiClient", "Starting Gemini API call with model " + model + " at: " + startTime);
         
@@ -818,9 +831,12 @@ public class GeminiClient implements AIClient {
         android.util.Log.d("GeminiClient", "Optimized request JSON: " + req.toString());
 
         byte[] payload = req.toString().getBytes(StandardCharsets.UTF_8);
+        int estimatedTokens = AIRequestBudget.estimateTokens(payload.length);
+        budget.acquire(estimatedTokens);
 
-        String apiUrl = String.format(API_URL_TEMPLATE, model) + apiKey;
+        String apiUrl = String.format(listener != null ? STREAM_API_URL_TEMPLATE : API_URL_TEMPLATE, model) + apiKey;
         HttpURLConnection conn = (HttpURLConnection) new URL(apiUrl).openConnection();
+        AITaskExecutor.attachConnection(conn);
         conn.setRequestMethod("POST");
         conn.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
         conn.setDoOutput(true);
@@ -838,6 +854,18 @@ public class GeminiClient implements AIClient {
         }
 
         int code = conn.getResponseCode();
+        if (listener != null && code >= 200 && code < 300) {
+            // Text of the failed model is replaced by the fallback one
+            listener.onRestart();
+            AIStreamReader.Result result = AIStreamReader.read(conn.getInputStream(), startTime, "usageMetadata", GeminiClient::parseStreamText, listener);
+            lastUsedModel = model;
+            lastTimeToFirstTokenMs = result.timeToFirstTokenMs >= 0 ? result.timeToFirstTokenMs : null;
+            android.util.Log.d("GeminiClient", "Gemini stream completed in: " + result.durationMs + "ms, first token in: " + result.timeToFirstTokenMs + "ms");
+            parseUsage(result.usage, estimatedTokens);
+            return result.text;
+        }
+        lastTimeToFirstTokenMs = null;
+
         InputStream is = code >= 200 && code < 300 ? conn.getInputStream() : conn.getErrorStream();
         String resp = readAll(is);
         if (code < 200 || code >= 300) {
@@ -860,18 +888,7 @@ public class GeminiClient implements AIClient {
                     // Store the model used for this response
                     lastUsedModel = model;
                     // Parse usage metadata when available
-                    try {
-                        JSONObject usage = json.optJSONObject("usageMetadata");
-                        if (usage != null) {
-                            lastPromptTokens = usage.has("promptTokenCount") ? usage.optInt("promptTokenCount") : null;
-                            lastCandidatesTokens = usage.has("candidatesTokenCount") ? usage.optInt("candidatesTokenCount") : null;
-                            lastTotalTokens = usage.has("totalTokenCount") ? usage.optInt("totalTokenCount") : null;
-                        } else {
-                            lastPromptTokens = lastCandidatesTokens = lastTotalTokens = null;
-                        }
-                    } catch (Throwable ignore) {
-                        lastPromptTokens = lastCandidatesTokens = lastTotalTokens = null;
-                    }
+                    parseUsage(json.optJSONObject("usageMetadata"), estimatedTokens);
                     return summaryText;
                 }
             }
@@ -882,6 +899,38 @@ public class GeminiClient implements AIClient {
         return resp;
     }
 
+    private void parseUsage(JSONObject usage, int estimatedTokens) {
+        try {
+            if (usage != null) {
+                lastPromptTokens = usage.has("promptTokenCount") ? usage.optInt("promptTokenCount") : null;
+                lastCandidatesTokens = usage.has("candidatesTokenCount") ? usage.optInt("candidatesTokenCount") : null;
+                lastTotalTokens = usage.has("totalTokenCount") ? usage.optInt("totalTokenCount") : null;
+                if (lastTotalTokens != null) budget.addTokens(lastTotalTokens - estimatedTokens);
+            } else {
+                lastPromptTokens = lastCandidatesTokens = lastTotalTokens = null;
+            }
+        } catch (Throwable ignore) {
+            lastPromptTokens = lastCandidatesTokens = lastTotalTokens = null;
+        }
+    }
+
+    /**
+     * Text of the streamed response chunk: candidates[0].content.parts[*].text
+     */
+    static String parseStreamText(JSONObject chunk) {
+        JSONArray candidates = chunk.optJSONArray("candidates");
+        if (candidates == null || candidates.length() == 0) return null;
+        JSONObject content = candidates.optJSONObject(0) != null ? candidates.optJSONObject(0).optJSONObject("content") : null;
+        JSONArray parts = content != null ? content.optJSONArray("parts") : null;
+        if (parts == null) return null;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < parts.length(); i++) {
+            JSONObject part = parts.optJSONObject(i);
+            if (part != null) sb.append(part.optString("text", ""));
+        }
+        return sb.toString();
+    }
+
     private static String[] splitTranscript(String transcript, int chunkLen) {
         if (transcript == null) return new String[0];
         int len = transcript.length();
@@ -947,9 +996,11 @@ public class GeminiClient implements AIClient {
         req.put("tools", toolsArray);
 
         byte[] payload = req.toString().getBytes(StandardCharsets.UTF_8);
+        budget.acquire(AIRequestBudget.estimateTokens(payload.length));
 
         String apiUrl = String.format(API_URL_TEMPLATE, model) + apiKey;
         HttpURLConnection conn = (HttpURLConnection) new URL(apiUrl).openConnection();
+        AITaskExecutor.attachConnection(conn);
         conn.setRequestMethod("POST");
         conn.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
         conn.setDoOutput(true);
@@ -0,0 +1,207 @@
+package com.liskovsoft.smartyoutubetv2.common.misc;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+
+import com.google.android.exoplayer2.ext.cronet.CronetEngineWrapper;
+import com.liskovsoft.sharedutils.cronet.CronetManager;
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.sharedutils.okhttp.OkHttpManager;
+import com.liskovsoft.smartyoutubetv2.common.prefs.AppPrefs;
+
+import org.chromium.net.CronetEngine;
+import org.chromium.net.ExperimentalCronetEngine;
+import org.chromium.net.RequestFinishedInfo;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+
+/**
+ * Network stack shared by the players (main and embed), storyboards and thumbnails.<br/>
+ * Owns one Cronet engine, one bounded executor for the Cronet callbacks and one OkHttp connection pool,
+ * so connections, QUIC sessions and DNS results survive between videos.<br/>
+ * Rebuilt only when the web proxy settings are changed. Cronet can't use the proxy, so it's bypassed while the proxy is enabled.
+ */
+public class MediaNetworkStack {
+    private static final String TAG = MediaNetworkStack.class.getSimpleName();
+    private static final int MAX_CRONET_THREADS = 4;
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+    private static final long KEEP_ALIVE_MS = 5 * 60 * 1_000;
+    @SuppressLint("StaticFieldLeak")
+    private static MediaNetworkStack sInstance;
+    private final Context mContext;
+    private final ThreadPoolExecutor mCronetExecutor;
+    private final AtomicInteger mNewConnections = new AtomicInteger();
+    private final AtomicInteger mReusedConnections = new AtomicInteger();
+    private final AtomicInteger mTlsHandshakes = new AtomicInteger();
+    private String mProxyKey;
+    private boolean mIsProxyEnabled;
+    private ConnectionPool mConnectionPool;
+    private OkHttpClient mOkHttpClient;
+    private CronetEngine mCronetEngine;
+    private CronetEngineWrapper mCronetEngineWrapper;
+
+    private class ConnectionCounter extends EventListener {
+        private boolean mIsConnecting;
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            mIsConnecting = true;
+            mNewConnections.incrementAndGet();
+        }
+
+        @Override
+        public void secureConnectStart(Call call) {
+            mTlsHandshakes.incrementAndGet();
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            if (!mIsConnecting) {
+                mReusedConnections.incrementAndGet();
+            }
+        }
+    }
+
+    private MediaNetworkStack(Context context) {
+        mContext = context.getApplicationContext();
+        AtomicInteger threadNum = new AtomicInteger();
+        mCronetExecutor = new ThreadPoolExecutor(MAX_CRONET_THREADS, MAX_CRONET_THREADS, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> new Thread(runnable, "MediaNetwork-" + threadNum.incrementAndGet()));
+        mCronetExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    public static synchronized MediaNetworkStack instance(Context context) {
+        if (sInstance == null) {
+            sInstance = new MediaNetworkStack(context);
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * Client with the shared connection pool. Don't cache it, it's replaced when the proxy is changed.
+     */
+    public synchronized OkHttpClient getOkHttpClient() {
+        checkProxy();
+
+        if (mOkHttpClient == null) {
+            if (mConnectionPool == null) {
+                mConnectionPool = new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MS, TimeUnit.MILLISECONDS);
+            }
+
+            mOkHttpClient = OkHttpManager.instance().getClient().newBuilder()
+                    .connectionPool(mConnectionPool)
+                    .eventListenerFactory(call -> new ConnectionCounter())
+                    .build();
+        }
+
+        return mOkHttpClient;
+    }
+
+    /**
+     * Null if Cronet isn't supported by the device or the web proxy is enabled.
+     */
+    public synchronized CronetEngineWrapper getCronetEngine() {
+        checkProxy();
+
+        if (mIsProxyEnabled) {
+            // The engine would connect directly
+            return null;
+        }
+
+        if (mCronetEngineWrapper == null) {
+            CronetEngine engine = CronetManager.getEngine(mContext);
+
+            if (engine == null) {
+                return null;
+            }
+
+            if (engine != mCronetEngine && engine instanceof ExperimentalCronetEngine) {
+                ((ExperimentalCronetEngine) engine).addRequestFinishedListener(new RequestFinishedInfo.Listener(mCronetExecutor) {
+                    @Override
+                    public void onRequestFinished(RequestFinishedInfo requestInfo) {
+                        onCronetRequestFinished(requestInfo);
+                    }
+                });
+            }
+
+            mCronetEngine = engine;
+            mCronetEngineWrapper = new CronetEngineWrapper(engine);
+        }
+
+        return mCronetEngineWrapper;
+    }
+
+    /**
+     * Shared by all Cronet data sources. Same threads are reused between the videos.
+     */
+    public Executor getCronetExecutor() {
+        return mCronetExecutor;
+    }
+
+    public int getNewConnectionCount() {
+        return mNewConnections.get();
+    }
+
+    public int getReusedConnectionCount() {
+        return mReusedConnections.get();
+    }
+
+    public int getTlsHandshakeCount() {
+        return mTlsHandshakes.get();
+    }
+
+    private void onCronetRequestFinished(RequestFinishedInfo requestInfo) {
+        RequestFinishedInfo.Metrics metrics = requestInfo.getMetrics();
+
+        if (metrics == null) {
+            return;
+        }
+
+        if (metrics.getSocketReused()) {
+            mReusedConnections.incrementAndGet();
+        } else if (metrics.getConnectStart() != null) {
+            mNewConnections.incrementAndGet();
+        }
+
+        if (metrics.getSslStart() != null) {
+            mTlsHandshakes.incrementAndGet();
+        }
+    }
+
+    private void checkProxy() {
+        AppPrefs prefs = AppPrefs.instance(mContext);
+        String proxyKey = prefs.isWebProxyEnabled() + prefs.getWebProxyUri();
+
+        if (proxyKey.equals(mProxyKey)) {
+            return;
+        }
+
+        if (mProxyKey != null) {
+            Log.d(TAG, "Proxy changed. Rebuilding the network stack...");
+        }
+
+        mProxyKey = proxyKey;
+        mIsProxyEnabled = prefs.isWebProxyEnabled();
+        mOkHttpClient = null;
+
+        // Connections of the previous route are useless now
+        if (mConnectionPool != null) {
+            mConnectionPool.evictAll();
+        }
+
+        mCronetEngineWrapper = null;
+    }
+}
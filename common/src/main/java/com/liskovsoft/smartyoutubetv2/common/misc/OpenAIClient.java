@@ -4,6 +4,8 @@ import android.content.Context;
 import android.content.res.AssetManager;
 import android.text.TextUtils;
 
+import androidx.annotation.VisibleForTesting;
+
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -28,10 +30,13 @@ public class OpenAIClient implements AIClient {
     private static final String API_URL = "https://api.openai.com/v1/chat/completions";
     private final Context ctx;
     private final String apiKey;
+    private final String apiUrl;
+    private final AIRequestBudget budget;
     private String lastUsedModel;
     private Integer lastPromptTokens;
     private Integer lastCompletionTokens;
     private Integer lastTotalTokens;
+    private Long lastTimeToFirstTokenMs;
 
     public OpenAIClient(Context context) {
         this.ctx = context.getApplicationContext();
@@ -41,6 +46,16 @@ public class OpenAIClient implements AIClient {
             if (k != null) k = k.trim();
         } catch (Throwable ignore) { }
         this.apiKey = !TextUtils.isEmpty(k) ? k : loadApiKey(this.ctx);
+        this.apiUrl = API_URL;
+        this.budget = AIRequestBudget.forProvider(AIRequestBudget.PROVIDER_OPENAI);
+    }
+
+    @VisibleForTesting
+    OpenAIClient(Context context, String apiKey, String apiUrl, AIRequestBudget budget) {
+        this.ctx = context.getApplicationContext();
+        this.apiKey = apiKey;
+        this.apiUrl = apiUrl;
+        this.budget = budget;
     }
 
     @Override
@@ -56,6 +71,7 @@ public class OpenAIClient implements AIClient {
     public Integer getLastPromptTokens() { return lastPromptTokens; }
     public Integer getLastCompletionTokens() { return lastCompletionTokens; }
     public Integer getLastTotalTokens() { return lastTotalTokens; }
+    public Long getLastTimeToFirstTokenMs() { return lastTimeToFirstTokenMs; }
 
     private String getModel() {
         com.liskovsoft.smartyoutubetv2.common.prefs.GeminiData gd = com.liskovsoft.smartyoutubetv2.common.prefs.GeminiData.instance(ctx);
@@ -94,6 +110,11 @@ public class OpenAIClient implements AIClient {
 
     @Override
     public String summarize(String title, String author, String videoId, String detailLevel, int startTimeSeconds, String forceMode) throws IOException, JSONException {
+        return summarize(title, author, videoId, detailLevel, startTimeSeconds, forceMode, null);
+    }
+
+    @Override
+    public String summarize(String title, String author, String videoId, String detailLevel, int startTimeSeconds, String forceMode, TokenListener listener) throws IOException, JSONException {
         android.util.Log.d("OpenAIClient", "=== OPENAI SUMMARIZE DEBUG ===");
         if (TextUtils.isEmpty(apiKey)) {
             return "OpenAI API key not set. Put API_KEY in assets/openai.properties";
@@ -104,7 +125,7 @@ public class OpenAIClient implements AIClient {
         boolean officialAvailable = GeminiClient.hasOfficialCC(ctx, videoId);
         String prompt = buildPrompt(title, author, videoId, detailLevel, transcript, officialAvailable);
         try {
-            String result = callOpenAI(prompt);
+            String result = callOpenAI(prompt, listener);
             lastUsedModel = getModel();
             return result;
         } catch (Throwable t) {
@@ -119,7 +140,7 @@ public class OpenAIClient implements AIClient {
                 try {
                     gd.setModel("gemini-2.5-flash");
                     com.liskovsoft.smartyoutubetv2.common.misc.GeminiClient g = new com.liskovsoft.smartyoutubetv2.common.misc.GeminiClient(ctx);
-                    return g.summarize(title, author, videoId, detailLevel, startTimeSeconds);
+                    return g.summarize(title, author, videoId, detailLevel, startTimeSeconds, null, listener);
                 } finally {
                     // restore user preference
                     try { gd.setModel(prevModel); } catch (Throwable ignore) {}
@@ -232,6 +253,10 @@ public class OpenAIClient implements AIClient {
     }
 
     private String callOpenAI(String prompt) throws IOException, JSONException {
+        return callOpenAI(prompt, null);
+    }
+
+    private String callOpenAI(String prompt, TokenListener listener) throws IOException, JSONException {
         String model = getModel();
         JSONObject body = new JSONObject();
         body.put("model", model);
@@ -240,10 +265,19 @@ public class OpenAIClient implements AIClient {
         messages.put(new JSONObject().put("role", "system").put("content", "You write clear, concise, skimmable summaries for TV screens."));
         messages.put(new JSONObject().put("role", "user").put("content", prompt));
         body.put("messages", messages);
+        if (listener != null) {
+            body.put("stream", true);
+            // Usage comes with the last chunk
+            body.put("stream_options", new JSONObject().put("include_usage", true));
+        }
 
         byte[] payload = body.toString().getBytes(StandardCharsets.UTF_8);
+        int estimatedTokens = AIRequestBudget.estimateTokens(payload.length);
+        budget.acquire(estimatedTokens);
 
-        HttpURLConnection conn = (HttpURLConnection) new URL(API_URL).openConnection();
+        long startTime = System.currentTimeMillis();
+        HttpURLConnection conn = (HttpURLConnection) new URL(apiUrl).openConnection();
+        AITaskExecutor.attachConnection(conn);
         conn.setRequestMethod("POST");
         conn.setRequestProperty("Authorization", "Bearer " + apiKey);
         conn.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
@@ -256,6 +290,16 @@ public class OpenAIClient implements AIClient {
         }
 
         int code = conn.getResponseCode();
+        if (listener != null && code >= 200 && code < 300) {
+            listener.onRestart();
+            AIStreamReader.Result result = AIStreamReader.read(conn.getInputStream(), startTime, "usage", OpenAIClient::parseStreamDelta, listener);
+            lastTimeToFirstTokenMs = result.timeToFirstTokenMs >= 0 ? result.timeToFirstTokenMs : null;
+            android.util.Log.d("OpenAIClient", "Stream done in " + result.durationMs + "ms, first token in " + result.timeToFirstTokenMs + "ms");
+            parseUsage(result.usage, estimatedTokens);
+            return result.text;
+        }
+        lastTimeToFirstTokenMs = null;
+
         InputStream is = code >= 200 && code < 300 ? conn.getInputStream() : conn.getErrorStream();
         String resp = readAll(is);
         if (code < 200 || code >= 300) {
@@ -269,19 +313,7 @@ public class OpenAIClient implements AIClient {
             if (choice != null) {
                 JSONObject msg = choice.optJSONObject("message");
                 if (msg != null) {
-                    // Usage parsing
-                    try {
-                        JSONObject usage = json.optJSONObject("usage");
-                        if (usage != null) {
-                            lastPromptTokens = usage.has("prompt_tokens") ? usage.optInt("prompt_tokens") : null;
-                            lastCompletionTokens = usage.has("completion_tokens") ? usage.optInt("completion_tokens") : null;
-                            lastTotalTokens = usage.has("total_tokens") ? usage.optInt("total_tokens") : null;
-                        } else {
-                            lastPromptTokens = lastCompletionTokens = lastTotalTokens = null;
-                        }
-                    } catch (Throwable ignore) {
-                        lastPromptTokens = lastCompletionTokens = lastTotalTokens = null;
-                    }
+                    parseUsage(json.optJSONObject("usage"), estimatedTokens);
                     return msg.optString("content", resp);
                 }
             }
@@ -291,6 +323,33 @@ public class OpenAIClient implements AIClient {
         return resp;
     }
 
+    private void parseUsage(JSONObject usage, int estimatedTokens) {
+        try {
+            if (usage != null) {
+                lastPromptTokens = usage.has("prompt_tokens") ? usage.optInt("prompt_tokens") : null;
+                lastCompletionTokens = usage.has("completion_tokens") ? usage.optInt("completion_tokens") : null;
+                lastTotalTokens = usage.has("total_tokens") ? usage.optInt("total_tokens") : null;
+                if (lastTotalTokens != null) budget.addTokens(lastTotalTokens - estimatedTokens);
+            } else {
+                lastPromptTokens = lastCompletionTokens = lastTotalTokens = null;
+            }
+        } catch (Throwable ignore) {
+            lastPromptTokens = lastCompletionTokens = lastTotalTokens = null;
+        }
+    }
+
+    /**
+     * Text of the chat completion chunk: choices[0].delta.content
+     */
+    static String parseStreamDelta(JSONObject chunk) {
+        JSONArray choices = chunk.optJSONArray("choices");
+        if (choices == null || choices.length() == 0) return null;
+        JSONObject choice = choices.optJSONObject(0);
+        JSONObject delta = choice != null ? choice.optJSONObject("delta") : null;
+        if (delta == null || delta.isNull("content")) return null;
+        return delta.optString("content", null);
+    }
+
     private static String loadApiKey(Context ctx) {
         try {
             AssetManager am = ctx.getAssets();
@@ -0,0 +1,280 @@
+package com.liskovsoft.smartyoutubetv2.common.misc;
+
+import com.liskovsoft.sharedutils.mylogger.Log;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * App initializers with their dependencies.<br/>
+ * Background tasks run in parallel on the background executor. Main tasks run on the main executor.<br/>
+ * {@link #start()} returns when the blocking tasks (and their dependencies) are done. The main thread is free after that,
+ * so the rest doesn't delay the first frame.<br/>
+ * Tasks with {@link #FLAG_AFTER_FIRST_CONTENT} wait for {@link #onFirstContent()} instead of a fixed delay.
+ */
+public class StartupTaskGraph {
+    private static final String TAG = StartupTaskGraph.class.getSimpleName();
+    public static final int FLAG_BACKGROUND = 1;
+    public static final int FLAG_BLOCKING = 1 << 1;
+    public static final int FLAG_AFTER_FIRST_CONTENT = 1 << 2;
+    private static final String FIRST_CONTENT = "FirstContent";
+    /**
+     * Don't hang the app if a blocking task is stuck
+     */
+    private static final long BLOCKING_TIMEOUT_MS = 5_000;
+    private static final Task WAKE_UP = new Task("WakeUp", 0, null, new String[0]);
+    private final Executor mMainExecutor;
+    private final Executor mBackgroundExecutor;
+    private final Map<String, Task> mTasks = new LinkedHashMap<>();
+    private final BlockingQueue<Task> mBlockingMainQueue = new LinkedBlockingQueue<>();
+    private StartupTrace mTrace;
+    private boolean mIsStarted;
+    private boolean mIsStarting;
+    private boolean mIsFirstContent;
+    private int mPendingBlockingCount;
+    private int mPendingCount;
+
+    private static class Task {
+        private final String name;
+        private final int flags;
+        private final Runnable runnable;
+        private final String[] dependencies;
+        private final List<Task> dependents = new ArrayList<>();
+        private boolean isBlocking;
+        private int pendingDependencies;
+        private boolean isDispatched;
+
+        private Task(String name, int flags, Runnable runnable, String[] dependencies) {
+            this.name = name;
+            this.flags = flags;
+            this.runnable = runnable;
+            this.dependencies = dependencies;
+        }
+
+        private boolean hasFlag(int flag) {
+            return (flags & flag) == flag;
+        }
+    }
+
+    public StartupTaskGraph(Executor mainExecutor, Executor backgroundExecutor) {
+        mMainExecutor = mainExecutor;
+        mBackgroundExecutor = backgroundExecutor;
+    }
+
+    /**
+     * Should be called before {@link #start()}. Dependencies must be added before the dependent task.
+     */
+    public synchronized StartupTaskGraph add(String name, int flags, Runnable runnable, String... dependencies) {
+        if (mIsStarted) {
+            throw new IllegalStateException("Can't add task " + name + ". The graph is already started.");
+        }
+
+        for (String dependency : dependencies) {
+            if (!mTasks.containsKey(dependency)) {
+                throw new IllegalArgumentException("Task " + name + " depends on unknown task " + dependency);
+            }
+        }
+
+        mTasks.put(name, new Task(name, flags, runnable, dependencies));
+
+        return this;
+    }
+
+    /**
+     * Must be called on the main thread. Runs the blocking main tasks inline and waits for the blocking background ones.
+     */
+    public void start() {
+        List<Task> readyTasks = new ArrayList<>();
+
+        synchronized (this) {
+            if (mIsStarted) {
+                return;
+            }
+
+            mIsStarted = true;
+            mIsStarting = true;
+            mTrace = new StartupTrace(System.nanoTime());
+            mPendingCount = mTasks.size();
+
+            for (Task task : mTasks.values()) {
+                task.pendingDependencies = task.dependencies.length;
+
+                for (String dependency : task.dependencies) {
+                    mTasks.get(dependency).dependents.add(task);
+                }
+            }
+
+            // Everything the blocking tasks depend on is blocking too. Dependencies are added first, so go backwards.
+            List<Task> tasks = new ArrayList<>(mTasks.values());
+            for (int i = tasks.size() - 1; i >= 0; i--) {
+                Task task = tasks.get(i);
+
+                if (task.hasFlag(FLAG_BLOCKING) || task.isBlocking) {
+                    task.isBlocking = true;
+                    mPendingBlockingCount++;
+
+                    for (String dependency : task.dependencies) {
+                        mTasks.get(dependency).isBlocking = true;
+                    }
+                }
+            }
+
+            collectReadyTasks(mTasks.values(), readyTasks);
+        }
+
+        dispatch(readyTasks);
+
+        try {
+            while (true) {
+                synchronized (this) {
+                    if (mPendingBlockingCount == 0) {
+                        break;
+                    }
+                }
+
+                Task task = mBlockingMainQueue.poll(BLOCKING_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+                if (task == null) {
+                    Log.e(TAG, "Blocking startup tasks are timed out. Continue without them.");
+                    break;
+                }
+
+                if (task != WAKE_UP) {
+                    run(task);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<Task> mainTasks = new ArrayList<>();
+
+        synchronized (this) {
+            mIsStarting = false;
+            mBlockingMainQueue.drainTo(mainTasks);
+            mainTasks.remove(WAKE_UP);
+        }
+
+        for (Task task : mainTasks) {
+            mMainExecutor.execute(() -> run(task));
+        }
+    }
+
+    /**
+     * Releases the tasks that wait for the first content. Could be called multiple times and before {@link #start()}.
+     */
+    public void onFirstContent() {
+        List<Task> readyTasks = new ArrayList<>();
+
+        synchronized (this) {
+            if (mIsFirstContent) {
+                return;
+            }
+
+            mIsFirstContent = true;
+
+            if (!mIsStarted) {
+                return;
+            }
+
+            mTrace.mark(FIRST_CONTENT, System.nanoTime());
+            collectReadyTasks(mTasks.values(), readyTasks);
+        }
+
+        dispatch(readyTasks);
+    }
+
+    /**
+     * Null until started
+     */
+    public synchronized StartupTrace getTrace() {
+        return mTrace;
+    }
+
+    public synchronized boolean isFinished() {
+        return mIsStarted && mPendingCount == 0;
+    }
+
+    private void run(Task task) {
+        long startNs = System.nanoTime();
+        boolean isFailed = false;
+
+        try {
+            task.runnable.run();
+        } catch (RuntimeException e) {
+            // Dependents still run. Same as the task hasn't found anything to init.
+            isFailed = true;
+            Log.e(TAG, "Startup task %s failed: %s", task.name, e.getMessage());
+        }
+
+        mTrace.add(task.name, startNs, System.nanoTime(), isFailed);
+
+        onTaskFinished(task);
+    }
+
+    private void onTaskFinished(Task task) {
+        List<Task> readyTasks = new ArrayList<>();
+        boolean isFinished;
+
+        synchronized (this) {
+            if (task.isBlocking) {
+                mPendingBlockingCount--;
+
+                if (mPendingBlockingCount == 0 && mIsStarting) {
+                    // The last one could be a background task
+                    mBlockingMainQueue.add(WAKE_UP);
+                }
+            }
+
+            for (Task dependent : task.dependents) {
+                dependent.pendingDependencies--;
+            }
+
+            collectReadyTasks(task.dependents, readyTasks);
+
+            mPendingCount--;
+            isFinished = mPendingCount == 0;
+        }
+
+        dispatch(readyTasks);
+
+        if (isFinished) {
+            Log.d(TAG, "Startup tasks: %s", mTrace);
+            Log.d(TAG, "Startup trace (chrome://tracing): %s", mTrace.toJson());
+        }
+    }
+
+    private void collectReadyTasks(Iterable<Task> tasks, List<Task> readyTasks) {
+        for (Task task : tasks) {
+            if (!task.isDispatched && task.pendingDependencies == 0 && (mIsFirstContent || !task.hasFlag(FLAG_AFTER_FIRST_CONTENT))) {
+                task.isDispatched = true;
+                readyTasks.add(task);
+            }
+        }
+    }
+
+    private void dispatch(List<Task> tasks) {
+        for (Task task : tasks) {
+            if (task.hasFlag(FLAG_BACKGROUND)) {
+                mBackgroundExecutor.execute(() -> run(task));
+                continue;
+            }
+
+            synchronized (this) {
+                // The main thread is waiting inside start()
+                if (mIsStarting && task.isBlocking) {
+                    mBlockingMainQueue.add(task);
+                    continue;
+                }
+            }
+
+            mMainExecutor.execute(() -> run(task));
+        }
+    }
+}
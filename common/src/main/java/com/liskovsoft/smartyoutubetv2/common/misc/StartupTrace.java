@@ -0,0 +1,140 @@
+package com.liskovsoft.smartyoutubetv2.common.misc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Timings of the startup tasks relative to the start of the {@link StartupTaskGraph}.<br/>
+ * Exported in the Chrome trace event format (open with chrome://tracing or Perfetto).
+ */
+public class StartupTrace {
+    private final long mStartNs;
+    private final List<Entry> mEntries = new ArrayList<>();
+    private final List<Entry> mMarks = new ArrayList<>();
+
+    public static class Entry {
+        public final String name;
+        public final String threadName;
+        public final long startUs;
+        public final long durationUs;
+        public final boolean isFailed;
+
+        private Entry(String name, String threadName, long startUs, long durationUs, boolean isFailed) {
+            this.name = name;
+            this.threadName = threadName;
+            this.startUs = startUs;
+            this.durationUs = durationUs;
+            this.isFailed = isFailed;
+        }
+
+        public long getDurationMs() {
+            return durationUs / 1_000;
+        }
+
+        public long getEndUs() {
+            return startUs + durationUs;
+        }
+    }
+
+    public StartupTrace(long startNs) {
+        mStartNs = startNs;
+    }
+
+    public synchronized void add(String name, long startNs, long endNs, boolean isFailed) {
+        mEntries.add(new Entry(name, Thread.currentThread().getName(), toUs(startNs), toUs(endNs) - toUs(startNs), isFailed));
+    }
+
+    /**
+     * Instant event. E.g. the first content is shown.
+     */
+    public synchronized void mark(String name, long timeNs) {
+        mMarks.add(new Entry(name, Thread.currentThread().getName(), toUs(timeNs), 0, false));
+    }
+
+    public synchronized List<Entry> getEntries() {
+        return new ArrayList<>(mEntries);
+    }
+
+    public synchronized Entry get(String name) {
+        for (Entry entry : mEntries) {
+            if (entry.name.equals(name)) {
+                return entry;
+            }
+        }
+
+        for (Entry entry : mMarks) {
+            if (entry.name.equals(name)) {
+                return entry;
+            }
+        }
+
+        return null;
+    }
+
+    public synchronized String toJson() {
+        StringBuilder result = new StringBuilder("{\"traceEvents\":[");
+        List<String> threads = new ArrayList<>();
+
+        for (Entry entry : mEntries) {
+            appendEvent(result, entry, "X", threads);
+        }
+
+        for (Entry entry : mMarks) {
+            appendEvent(result, entry, "i", threads);
+        }
+
+        for (int i = 0; i < threads.size(); i++) {
+            result.append(String.format("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":%s,\"args\":{\"name\":\"%s\"}},",
+                    i + 1, escape(threads.get(i))));
+        }
+
+        if (result.charAt(result.length() - 1) == ',') {
+            result.setLength(result.length() - 1);
+        }
+
+        return result.append("]}").toString();
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder result = new StringBuilder();
+
+        for (Entry entry : mEntries) {
+            result.append(String.format("%s%s: %s ms at %s ms (%s); ",
+                    entry.name, entry.isFailed ? " (failed)" : "", entry.getDurationMs(), entry.startUs / 1_000, entry.threadName));
+        }
+
+        for (Entry entry : mMarks) {
+            result.append(String.format("%s at %s ms; ", entry.name, entry.startUs / 1_000));
+        }
+
+        return result.toString();
+    }
+
+    private static void appendEvent(StringBuilder result, Entry entry, String phase, List<String> threads) {
+        int threadIndex = threads.indexOf(entry.threadName);
+
+        if (threadIndex == -1) {
+            threads.add(entry.threadName);
+            threadIndex = threads.size() - 1;
+        }
+
+        result.append(String.format("{\"name\":\"%s\",\"cat\":\"startup\",\"ph\":\"%s\",\"ts\":%s,", escape(entry.name), phase, entry.startUs));
+
+        if ("X".equals(phase)) {
+            result.append(String.format("\"dur\":%s,\"args\":{\"failed\":%s},", entry.durationUs, entry.isFailed));
+        } else {
+            result.append("\"s\":\"g\",");
+        }
+
+        result.append(String.format("\"pid\":1,\"tid\":%s},", threadIndex + 1));
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private long toUs(long timeNs) {
+        return (timeNs - mStartNs) / 1_000;
+    }
+}
@@ -13,6 +13,7 @@ import com.liskovsoft.sharedutils.locale.LocaleUtility;
 import com.liskovsoft.smartyoutubetv2.common.R;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.manager.PlayerEngine;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.manager.PlayerConstants;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.other.CodecCapabilityCache;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.other.SubtitleManager.SubtitleStyle;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.selector.ExoFormatItem;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.selector.FormatItem;
@@ -39,6 +40,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
     @SuppressLint("StaticFieldLeak")
     private static PlayerData sInstance;
     private final AppPrefs mPrefs;
+    private final CodecCapabilityCache mCapabilities;
     private int mOKButtonBehavior;
     private int mUiHideTimeoutSec;
     private boolean mIsSeekConfirmPauseEnabled;
@@ -128,6 +130,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
     private PlayerData(Context context) {
         mPrefs = AppPrefs.instance(context);
         mPrefs.addListener(this);
+        mCapabilities = CodecCapabilityCache.instance(context);
         initSubtitleStyles();
         initDefaultFormats();
         restoreState();
@@ -702,7 +705,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
         // Android 4 (probably some others) doesn't support opus (ac3 will be reverted to opus)
         // Note, 5.1 mp4a doesn't work in 5.1 mode
         // Use opus (ac3 fallback) on modern devices. vp9 and opus should be supported at the same time?
-        return Helpers.isVP9ResolutionSupported(2160) ? FormatItem.AUDIO_51_AC3 : FormatItem.AUDIO_HQ_MP4A;
+        return mCapabilities.isVP9ResolutionSupported(2160) ? FormatItem.AUDIO_51_AC3 : FormatItem.AUDIO_HQ_MP4A;
     }
 
     public FormatItem getDefaultVideoFormat() {
@@ -711,11 +714,11 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
         if (formatItem == null) {
             if (VERSION.SDK_INT <= 19) { // Android 4 playback crash fix (memory leak?)
                 formatItem = FormatItem.VIDEO_SD_AVC_30;
-            } else if (VERSION.SDK_INT <= 23 && Helpers.isVP9ResolutionSupported(1080)) {
+            } else if (VERSION.SDK_INT <= 23 && mCapabilities.isVP9ResolutionSupported(1080)) {
                 formatItem = FormatItem.VIDEO_FHD_VP9_60;
-            } else if (Helpers.isVP9ResolutionSupported(2160)) {
+            } else if (mCapabilities.isVP9ResolutionSupported(2160)) {
                 formatItem = FormatItem.VIDEO_4K_VP9_60;
-            } else if (Helpers.isVP9ResolutionSupported(1080)) {
+            } else if (mCapabilities.isVP9ResolutionSupported(1080)) {
                 formatItem = FormatItem.VIDEO_FHD_VP9_60;
             }
         }
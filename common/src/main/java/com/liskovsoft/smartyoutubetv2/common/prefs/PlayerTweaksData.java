@@ -101,6 +101,13 @@ public class PlayerTweaksData implements ProfileChangeListener {
     private boolean mIsAudioFocusEnabled;
     private boolean mIsNetworkErrorFixingDisabled;
     private boolean mIsDontResizeVideoToFitDialogEnabled;
+    private boolean mIsSharedLoaderThreadsEnabled;
+    private boolean mIsEventTracingEnabled;
+    private boolean mIsSegmentMergingEnabled;
+    private boolean mIsOfflineDownloadsEnabled;
+    private boolean mIsLoudnessNormalizationEnabled;
+    private boolean mIsLiveLatencyControlEnabled;
+    private boolean mIsSegmentIndexCacheEnabled;
     private final Runnable mPersistDataInt = this::persistDataInt;
 
     private PlayerTweaksData(Context context) {
@@ -612,6 +619,69 @@ public class PlayerTweaksData implements ProfileChangeListener {
         persistData();
     }
 
+    public boolean isSharedLoaderThreadsEnabled() {
+        return mIsSharedLoaderThreadsEnabled;
+    }
+
+    public void setSharedLoaderThreadsEnabled(boolean enable) {
+        mIsSharedLoaderThreadsEnabled = enable;
+        persistData();
+    }
+
+    public boolean isEventTracingEnabled() {
+        return mIsEventTracingEnabled;
+    }
+
+    public void setEventTracingEnabled(boolean enable) {
+        mIsEventTracingEnabled = enable;
+        persistData();
+    }
+
+    public boolean isSegmentMergingEnabled() {
+        return mIsSegmentMergingEnabled;
+    }
+
+    public void setSegmentMergingEnabled(boolean enable) {
+        mIsSegmentMergingEnabled = enable;
+        persistData();
+    }
+
+    public boolean isOfflineDownloadsEnabled() {
+        return mIsOfflineDownloadsEnabled;
+    }
+
+    public void setOfflineDownloadsEnabled(boolean enable) {
+        mIsOfflineDownloadsEnabled = enable;
+        persistData();
+    }
+
+    public boolean isLoudnessNormalizationEnabled() {
+        return mIsLoudnessNormalizationEnabled;
+    }
+
+    public void setLoudnessNormalizationEnabled(boolean enable) {
+        mIsLoudnessNormalizationEnabled = enable;
+        persistData();
+    }
+
+    public boolean isLiveLatencyControlEnabled() {
+        return mIsLiveLatencyControlEnabled;
+    }
+
+    public void setLiveLatencyControlEnabled(boolean enable) {
+        mIsLiveLatencyControlEnabled = enable;
+        persistData();
+    }
+
+    public boolean isSegmentIndexCacheEnabled() {
+        return mIsSegmentIndexCacheEnabled;
+    }
+
+    public void setSegmentIndexCacheEnabled(boolean enable) {
+        mIsSegmentIndexCacheEnabled = enable;
+        persistData();
+    }
+
     private void restoreData() {
         String data = mPrefs.getProfileData(VIDEO_PLAYER_TWEAKS_DATA);
 
@@ -678,6 +748,13 @@ public class PlayerTweaksData implements ProfileChangeListener {
         //mIsPersistentAntiBotFixEnabled = Helpers.parseBoolean(split, 53, false);
         mIsAudioFocusEnabled = Helpers.parseBoolean(split, 54, true);
         mIsDontResizeVideoToFitDialogEnabled = Helpers.parseBoolean(split, 55, false);
+        mIsSharedLoaderThreadsEnabled = Helpers.parseBoolean(split, 56, false);
+        mIsEventTracingEnabled = Helpers.parseBoolean(split, 57, false);
+        mIsSegmentMergingEnabled = Helpers.parseBoolean(split, 58, false);
+        mIsOfflineDownloadsEnabled = Helpers.parseBoolean(split, 59, false);
+        mIsLoudnessNormalizationEnabled = Helpers.parseBoolean(split, 60, false);
+        mIsLiveLatencyControlEnabled = Helpers.parseBoolean(split, 61, true);
+        mIsSegmentIndexCacheEnabled = Helpers.parseBoolean(split, 62, false);
 
         updateDefaultValues();
     }
@@ -700,7 +777,9 @@ public class PlayerTweaksData implements ProfileChangeListener {
                 mScreenOffDimmingPercents, mIsBootScreenOffEnabled, mIsPlayerUiOnNextEnabled, mIsPlayerAutoVolumeEnabled, mIsSimplePlayerNavigationEnabled,
                 mIsUnsafeAudioFormatsEnabled, null, mIsLoopShortsEnabled, mIsQuickSkipShortsEnabled, mIsRememberPositionOfLiveVideosEnabled,
                 mIsOculusQuestFixEnabled, null, mIsExtraLongSpeedListEnabled, mIsQuickSkipVideosEnabled, mIsNetworkErrorFixingDisabled, mIsCommentsPlacedLeft,
-                null, mIsAudioFocusEnabled, mIsDontResizeVideoToFitDialogEnabled
+                null, mIsAudioFocusEnabled, mIsDontResizeVideoToFitDialogEnabled, mIsSharedLoaderThreadsEnabled,
+                mIsEventTracingEnabled, mIsSegmentMergingEnabled, mIsOfflineDownloadsEnabled,
+                mIsLoudnessNormalizationEnabled, mIsLiveLatencyControlEnabled, mIsSegmentIndexCacheEnabled
                 ));
     }
 
@@ -0,0 +1,127 @@
+package com.liskovsoft.smartyoutubetv2.common.ui.summary;
+
+/**
+ * Formats the streamed summary on the fly, the same way as the finished summary is formatted:
+ * hyphen bullets become dots, '---' lines become dividers, long runs of blank lines are compacted.<br/>
+ * Output is append-only: only the line breaks and the start of the line that could be a bullet or a divider are held back.
+ */
+public class SummaryStreamFormatter {
+    public static final String DIVIDER = "────────────────";
+    private static final String DIVIDER_MARK = "---";
+    private static final int MAX_NEWLINES = 2;
+    private final StringBuilder mLineStart = new StringBuilder();
+    private boolean mIsLineDecided;
+    private boolean mIsSkipSpaces;
+    private boolean mHasOutput;
+    private int mPendingNewlines;
+
+    /**
+     * @return formatted text to append to the previous output
+     */
+    public String append(CharSequence delta) {
+        StringBuilder out = new StringBuilder();
+
+        for (int i = 0; i < delta.length(); i++) {
+            char c = delta.charAt(i);
+
+            if (c == '\r') {
+                continue;
+            }
+
+            if (c == '\n') {
+                flushLineStart(out);
+                addNewline();
+                mIsLineDecided = false;
+                mIsSkipSpaces = false;
+            } else if (mIsLineDecided) {
+                emit(out, c);
+            } else {
+                mLineStart.append(c);
+                decideLineStart(out);
+            }
+        }
+
+        return out.toString();
+    }
+
+    /**
+     * Call at the end of the stream.
+     *
+     * @return held back text, trailing line breaks are dropped
+     */
+    public String finish() {
+        StringBuilder out = new StringBuilder();
+        flushLineStart(out);
+        return out.toString();
+    }
+
+    public void reset() {
+        mLineStart.setLength(0);
+        mIsLineDecided = false;
+        mIsSkipSpaces = false;
+        mHasOutput = false;
+        mPendingNewlines = 0;
+    }
+
+    private void decideLineStart(StringBuilder out) {
+        String start = mLineStart.toString();
+
+        if (start.equals("- ") || start.equals("-\t")) {
+            mLineStart.setLength(0);
+            mIsLineDecided = true;
+            emit(out, "• ");
+            mIsSkipSpaces = true;
+        } else if (!DIVIDER_MARK.startsWith(start)) {
+            mLineStart.setLength(0);
+            mIsLineDecided = true;
+            emit(out, start);
+        }
+
+        // Could be a bullet or a divider yet
+    }
+
+    private void flushLineStart(StringBuilder out) {
+        if (mLineStart.length() == 0) {
+            return;
+        }
+
+        String start = mLineStart.toString();
+        mLineStart.setLength(0);
+
+        if (DIVIDER_MARK.equals(start)) {
+            addNewline();
+            emit(out, DIVIDER);
+            addNewline();
+        } else {
+            emit(out, start);
+        }
+    }
+
+    private void emit(StringBuilder out, CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            emit(out, text.charAt(i));
+        }
+    }
+
+    private void emit(StringBuilder out, char c) {
+        if (mIsSkipSpaces && (c == ' ' || c == '\t')) {
+            return;
+        }
+
+        mIsSkipSpaces = false;
+
+        for (; mPendingNewlines > 0; mPendingNewlines--) {
+            out.append('\n');
+        }
+
+        mHasOutput = true;
+        out.append(c);
+    }
+
+    private void addNewline() {
+        // Leading blank lines are dropped
+        if (mHasOutput && mPendingNewlines < MAX_NEWLINES) {
+            mPendingNewlines++;
+        }
+    }
+}
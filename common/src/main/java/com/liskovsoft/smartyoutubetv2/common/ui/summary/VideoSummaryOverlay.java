@@ -14,6 +14,8 @@ import android.widget.TextView;
 import com.liskovsoft.smartyoutubetv2.common.R;
 
 public class VideoSummaryOverlay {
+    // Streamed text is appended at most ~10 times per second, TextView relayout is expensive on TV boxes
+    private static final long STREAM_FRAME_MS = 100;
     private final Activity activity;
     private final Handler handler = new Handler();
     private View root;
@@ -26,6 +28,11 @@ public class VideoSummaryOverlay {
     private android.widget.Button listenBtn;
     private TextView footerMeta;
     private boolean firstContentShown;
+    private final StringBuilder pendingStreamText = new StringBuilder();
+    private boolean streamFlushPosted;
+    private boolean streamClosed;
+    private long lastStreamFlushMs;
+    private final Runnable streamFlush = this::flushStreamText;
     public interface OnEmailListener { void onEmail(); }
     private OnEmailListener onEmailListener;
     public void setOnEmailListener(OnEmailListener l) { 
@@ -38,6 +45,9 @@ public class VideoSummaryOverlay {
     public interface OnConfirmListener { void onConfirm(); }
     private OnConfirmListener onConfirmListener;
     public void setOnConfirmListener(OnConfirmListener l) { this.onConfirmListener = l; }
+    public interface OnHideListener { void onHide(); }
+    private OnHideListener onHideListener;
+    public void setOnHideListener(OnHideListener l) { this.onHideListener = l; }
 
     public VideoSummaryOverlay(Activity activity) {
         this.activity = activity;
@@ -182,6 +192,8 @@ public class VideoSummaryOverlay {
     public void showLoading(CharSequence workingText) {
         ensureInflated();
         firstContentShown = false;
+        resetStreamText();
+        streamClosed = false;
         previousFocus = activity.getCurrentFocus();
         root.setVisibility(View.VISIBLE);
         progress.setVisibility(View.VISIBLE);
@@ -196,6 +208,9 @@ public class VideoSummaryOverlay {
 
     public void showText(CharSequence title, CharSequence body) {
         ensureInflated();
+        // Final text replaces the streamed one
+        streamClosed = true;
+        resetStreamText();
         progress.setVisibility(View.GONE);
         status.setText(title);
         int prevY = scroll != null ? scroll.getScrollY() : 0;
@@ -223,6 +238,47 @@ public class VideoSummaryOverlay {
         } // Ensure overlay keeps focus for D-pad navigation
     }
 
+    /**
+     * Appends the streamed text while the progress is still shown. Could be called from any thread.
+     */
+    public void appendStreamText(CharSequence delta) {
+        if (delta == null || delta.length() == 0) return;
+        synchronized (pendingStreamText) {
+            pendingStreamText.append(delta);
+            if (streamFlushPosted) return;
+            streamFlushPosted = true;
+        }
+        long delayMs = Math.max(0, lastStreamFlushMs + STREAM_FRAME_MS - android.os.SystemClock.uptimeMillis());
+        handler.postDelayed(streamFlush, delayMs);
+    }
+
+    /**
+     * Drops the streamed text, e.g. the request is repeated. Could be called from any thread.
+     */
+    public void resetStreamText() {
+        synchronized (pendingStreamText) {
+            pendingStreamText.setLength(0);
+            streamFlushPosted = false;
+        }
+        handler.removeCallbacks(streamFlush);
+        handler.post(() -> {
+            if (!streamClosed && text != null) text.setText("");
+        });
+    }
+
+    private void flushStreamText() {
+        String delta;
+        synchronized (pendingStreamText) {
+            delta = pendingStreamText.toString();
+            pendingStreamText.setLength(0);
+            streamFlushPosted = false;
+        }
+        if (streamClosed || !isVisible() || delta.isEmpty()) return;
+        lastStreamFlushMs = android.os.SystemClock.uptimeMillis();
+        // Append only the new part instead of setting the whole text on every token
+        text.append(delta);
+    }
+
     public void setFooterMeta(CharSequence meta) {
         ensureInflated();
         if (footerMeta != null) {
@@ -237,6 +293,7 @@ public class VideoSummaryOverlay {
             try { com.liskovsoft.smartyoutubetv2.common.utils.TtsManager.instance(activity).stop(); } catch (Throwable ignored) {}
             root.setVisibility(View.GONE);
             if (previousFocus != null) previousFocus.requestFocus();
+            if (onHideListener != null) onHideListener.onHide();
         }
     }
 
@@ -0,0 +1,260 @@
+package com.liskovsoft.smartyoutubetv2.common.utils;
+
+import com.liskovsoft.smartyoutubetv2.common.utils.Utils.ChainProcessor;
+import com.liskovsoft.smartyoutubetv2.common.utils.Utils.Processor;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Delivers events only to the listeners that override the event method.<br/>
+ * Events are the constants of an enum, so an unknown event doesn't compile. Every constant names an interface method.<br/>
+ * The dispatch table is built once on registration: event to the listeners
+ * whose implementation isn't inherited from the base (no-op) class. Registration order is preserved.<br/>
+ * Optionally measures every handler and keeps the slowest one per event.<br/>
+ * Not thread safe. Register and dispatch from the main thread.
+ */
+public class EventDispatcher<T, E extends Enum<E> & EventDispatcher.EventType> {
+    private final Class<T> mListenerType;
+    private final Class<?> mBaseType;
+    private final E[] mEventTypes;
+    private final List<T> mListeners = new ArrayList<>();
+    private final Map<Class<?>, T> mListenersByType = new HashMap<>();
+    // Indexed by the event ordinal
+    private List<Event<T>> mEvents;
+    private boolean mIsTracingEnabled;
+    private long mSlowHandlerThresholdNanos;
+    private SlowHandlerCallback mSlowHandlerCallback;
+
+    public interface EventType {
+        /**
+         * Name of the listener interface method
+         */
+        String getMethodName();
+    }
+
+    public interface SlowHandlerCallback {
+        void onSlowHandler(String event, Object listener, long durationMs);
+    }
+
+    private static class Event<T> {
+        private final String name;
+        private final List<T> listeners;
+        private final long[] maxNanos;
+        private final long[] totalNanos;
+        private final int[] counts;
+
+        private Event(String name, List<T> listeners) {
+            this.name = name;
+            this.listeners = listeners;
+            this.maxNanos = new long[listeners.size()];
+            this.totalNanos = new long[listeners.size()];
+            this.counts = new int[listeners.size()];
+        }
+    }
+
+    /**
+     * @param listenerType interface that contains all events
+     * @param baseType class with no-op implementations of the events (methods declared there aren't dispatched)
+     * @param eventType enum of the events
+     */
+    public EventDispatcher(Class<T> listenerType, Class<?> baseType, Class<E> eventType) {
+        mListenerType = listenerType;
+        mBaseType = baseType;
+        mEventTypes = eventType.getEnumConstants();
+        mEvents = buildEvents();
+    }
+
+    public void add(T listener) {
+        mListeners.add(listener);
+        mListenersByType.put(listener.getClass(), listener);
+        mEvents = buildEvents();
+    }
+
+    public List<T> getListeners() {
+        return Collections.unmodifiableList(mListeners);
+    }
+
+    /**
+     * Returns the first registered listener of the given type.
+     */
+    @SuppressWarnings("unchecked")
+    public <U extends T> U getListener(Class<U> clazz) {
+        T result = mListenersByType.get(clazz);
+
+        if (result == null && !mListenersByType.containsKey(clazz)) {
+            // Supertype lookup. Remember the result, even the missing one.
+            for (T listener : mListeners) {
+                if (clazz.isInstance(listener)) {
+                    result = listener;
+                    break;
+                }
+            }
+
+            mListenersByType.put(clazz, result);
+        }
+
+        return (U) result;
+    }
+
+    public void process(E event, Processor<T> processor) {
+        Event<T> entry = mEvents.get(event.ordinal());
+        List<T> listeners = entry.listeners;
+
+        for (int i = 0; i < listeners.size(); i++) {
+            if (mIsTracingEnabled) {
+                long startNanos = System.nanoTime();
+                processor.process(listeners.get(i));
+                trace(entry, i, System.nanoTime() - startNanos);
+            } else {
+                processor.process(listeners.get(i));
+            }
+        }
+    }
+
+    public boolean chainProcess(E event, ChainProcessor<T> processor) {
+        Event<T> entry = mEvents.get(event.ordinal());
+        List<T> listeners = entry.listeners;
+
+        for (int i = 0; i < listeners.size(); i++) {
+            boolean result;
+
+            if (mIsTracingEnabled) {
+                long startNanos = System.nanoTime();
+                result = processor.process(listeners.get(i));
+                trace(entry, i, System.nanoTime() - startNanos);
+            } else {
+                result = processor.process(listeners.get(i));
+            }
+
+            if (result) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Enables per-handler timing. The callback is called for every handler that runs longer than the threshold.
+     */
+    public void setTracingEnabled(boolean enabled, long slowHandlerThresholdMs, SlowHandlerCallback callback) {
+        mIsTracingEnabled = enabled;
+        mSlowHandlerThresholdNanos = slowHandlerThresholdMs * 1_000_000;
+        mSlowHandlerCallback = callback;
+    }
+
+    public boolean isTracingEnabled() {
+        return mIsTracingEnabled;
+    }
+
+    /**
+     * The slowest handler of every traced event, the slowest events first.<br/>
+     * Format: event: listener max/avg ms (calls)
+     */
+    public List<String> getSlowestHandlers(int limit) {
+        List<Event<T>> events = new ArrayList<>();
+        List<Integer> slowest = new ArrayList<>();
+
+        for (Event<T> event : mEvents) {
+            int slowestIdx = -1;
+
+            for (int i = 0; i < event.maxNanos.length; i++) {
+                if (event.counts[i] > 0 && (slowestIdx == -1 || event.maxNanos[i] > event.maxNanos[slowestIdx])) {
+                    slowestIdx = i;
+                }
+            }
+
+            if (slowestIdx != -1) {
+                events.add(event);
+                slowest.add(slowestIdx);
+            }
+        }
+
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < events.size(); i++) {
+            order.add(i);
+        }
+        Collections.sort(order, (a, b) ->
+                Long.compare(events.get(b).maxNanos[slowest.get(b)], events.get(a).maxNanos[slowest.get(a)]));
+
+        List<String> result = new ArrayList<>();
+
+        for (int i = 0; i < Math.min(limit, order.size()); i++) {
+            Event<T> event = events.get(order.get(i));
+            int idx = slowest.get(order.get(i));
+            result.add(String.format(Locale.US, "%s: %s %.2f/%.2f ms (%s)", event.name,
+                    event.listeners.get(idx).getClass().getSimpleName(),
+                    event.maxNanos[idx] / 1_000_000f, event.totalNanos[idx] / (float) event.counts[idx] / 1_000_000f,
+                    event.counts[idx]));
+        }
+
+        return result;
+    }
+
+    public void resetTrace() {
+        for (Event<T> event : mEvents) {
+            for (int i = 0; i < event.counts.length; i++) {
+                event.maxNanos[i] = 0;
+                event.totalNanos[i] = 0;
+                event.counts[i] = 0;
+            }
+        }
+    }
+
+    private void trace(Event<T> event, int listenerIdx, long durationNanos) {
+        event.counts[listenerIdx]++;
+        event.totalNanos[listenerIdx] += durationNanos;
+
+        if (durationNanos > event.maxNanos[listenerIdx]) {
+            event.maxNanos[listenerIdx] = durationNanos;
+        }
+
+        if (mSlowHandlerCallback != null && durationNanos > mSlowHandlerThresholdNanos) {
+            mSlowHandlerCallback.onSlowHandler(event.name, event.listeners.get(listenerIdx), durationNanos / 1_000_000);
+        }
+    }
+
+    private List<Event<T>> buildEvents() {
+        List<Event<T>> events = new ArrayList<>(mEventTypes.length);
+        Method[] methods = mListenerType.getMethods();
+
+        for (E eventType : mEventTypes) {
+            List<T> listeners = new ArrayList<>();
+
+            for (T listener : mListeners) {
+                if (isOverridden(listener, methods, eventType.getMethodName())) {
+                    listeners.add(listener);
+                }
+            }
+
+            events.add(new Event<>(eventType.getMethodName(), listeners));
+        }
+
+        return events;
+    }
+
+    private boolean isOverridden(T listener, Method[] methods, String methodName) {
+        for (Method method : methods) {
+            if (method.getName().equals(methodName) && isOverridden(listener, method)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean isOverridden(T listener, Method method) {
+        try {
+            Class<?> declaringClass = listener.getClass().getMethod(method.getName(), method.getParameterTypes()).getDeclaringClass();
+            return declaringClass != mBaseType && !declaringClass.isInterface();
+        } catch (NoSuchMethodException e) {
+            return true; // shouldn't happen, deliver to be safe
+        }
+    }
+}
@@ -69,6 +69,7 @@ import com.liskovsoft.smartyoutubetv2.common.app.presenters.SplashPresenter;
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.WebBrowserPresenter;
 import com.liskovsoft.smartyoutubetv2.common.app.views.PlaybackView;
 import com.liskovsoft.smartyoutubetv2.common.app.views.ViewManager;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.other.CodecCapabilityCache;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.selector.FormatItem.VideoPreset;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.selector.TrackSelectorUtil;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.selector.track.MediaTrack;
@@ -767,24 +768,28 @@ public class Utils {
         return stateService.isEmpty();
     }
 
-    public static boolean isPresetSupported(VideoPreset preset) {
-        if (preset.isVP9Preset() && !Helpers.isVP9ResolutionSupported(preset.getHeight())) {
+    public static boolean isPresetSupported(Context context, VideoPreset preset) {
+        CodecCapabilityCache capabilities = CodecCapabilityCache.instance(context);
+
+        if (preset.isVP9Preset() && !capabilities.isVP9ResolutionSupported(preset.getHeight())) {
             return false;
         }
 
-        if (preset.isAV1Preset() && !Helpers.isAV1ResolutionSupported(preset.getHeight())) {
+        if (preset.isAV1Preset() && !capabilities.isAV1ResolutionSupported(preset.getHeight())) {
             return false;
         }
 
         return true;
     }
 
-    public static boolean isFormatSupported(MediaTrack mediaTrack) {
-        if (mediaTrack.isVP9Codec() && !Helpers.isVP9ResolutionSupported(TrackSelectorUtil.getRealHeight(mediaTrack.format))) {
+    public static boolean isFormatSupported(Context context, MediaTrack mediaTrack) {
+        CodecCapabilityCache capabilities = CodecCapabilityCache.instance(context);
+
+        if (mediaTrack.isVP9Codec() && !capabilities.isVP9ResolutionSupported(TrackSelectorUtil.getRealHeight(mediaTrack.format))) {
             return false;
         }
 
-        if (mediaTrack.isAV1Codec() && !Helpers.isAV1ResolutionSupported(TrackSelectorUtil.getRealHeight(mediaTrack.format))) {
+        if (mediaTrack.isAV1Codec() && !capabilities.isAV1ResolutionSupported(TrackSelectorUtil.getRealHeight(mediaTrack.format))) {
             return false;
         }
 
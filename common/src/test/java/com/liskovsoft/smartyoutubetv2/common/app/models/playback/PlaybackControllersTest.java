@@ -0,0 +1,174 @@
+package com.liskovsoft.smartyoutubetv2.common.app.models.playback;
+
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.harness.EventScript;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.harness.FakeMediaItemService;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.harness.FakePlaybackView;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.harness.PlaybackHarness;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.harness.ScenarioReport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class PlaybackControllersTest {
+    // Format info request plus the engine start
+    private static final long START_TIME_MS = FakeMediaItemService.DEFAULT_LATENCY_MS + FakePlaybackView.DEFAULT_ENGINE_START_MS;
+    // Slack for the clock step and the posted tasks
+    private static final long TIME_TOLERANCE_MS = 100;
+    private static final int BENCHMARK_WARM_UP_RUNS = 5;
+    private static final int BENCHMARK_RUNS = 20;
+    // Relative to the module dir
+    private static final File BENCHMARK_REPORT_FILE = new File("build/reports/benchmarks/playback_scenarios.json");
+    private PlaybackHarness mHarness;
+
+    @Before
+    public void setUp() {
+        mHarness = new PlaybackHarness();
+        mHarness.setUp();
+    }
+
+    @After
+    public void tearDown() {
+        mHarness.tearDown();
+    }
+
+    @Test
+    public void testVideoSwitching() throws IOException {
+        mHarness.replay(EventScript.fromResource("/scenarios/video_switching.txt"));
+
+        Map<String, Integer> counters = mHarness.getCounters();
+        assertEquals(Arrays.asList("v1", "v2", "v1"), mHarness.getPlayer().getOpenedVideoIds());
+        // The replayed video takes the format info from the cache
+        assertEquals(2, (int) counters.get("formatInfo"));
+    }
+
+    @Test
+    public void testFirstFrameTime() {
+        mHarness.getService().add("v1", 600_000);
+        mHarness.getService().add("v2", 600_000);
+
+        mHarness.openVideo("v1");
+        long coldStartMs = mHarness.awaitFirstFrame("v1", 2_000);
+        mHarness.openVideo("v2");
+        mHarness.awaitFirstFrame("v2", 2_000);
+        mHarness.openVideo("v1");
+        long cachedStartMs = mHarness.awaitFirstFrame("v1", 2_000);
+
+        assertTrue("Cold start: " + coldStartMs, coldStartMs <= START_TIME_MS + TIME_TOLERANCE_MS);
+        assertTrue("Cached start: " + cachedStartMs, cachedStartMs <= FakePlaybackView.DEFAULT_ENGINE_START_MS + TIME_TOLERANCE_MS);
+    }
+
+    @Test
+    public void testAutoplay() throws IOException {
+        mHarness.replay(EventScript.fromResource("/scenarios/autoplay.txt"));
+
+        assertEquals(Arrays.asList("v1", "v2", "v3"), mHarness.getPlayer().getOpenedVideoIds());
+        assertEquals(3, (int) mHarness.getCounters().get("formatInfo"));
+    }
+
+    @Test
+    public void testAutoplayGap() {
+        mHarness.getService().add("v1", 5_000).next("v2");
+        mHarness.getService().add("v2", 5_000);
+
+        mHarness.openVideo("v1");
+        mHarness.awaitFirstFrame("v1", 2_000);
+        long gapMs = mHarness.awaitFirstFrame("v2", 7_000) - 5_000;
+
+        assertTrue("Gap between videos: " + gapMs, gapMs <= START_TIME_MS + TIME_TOLERANCE_MS);
+    }
+
+    @Test
+    public void testSponsorSkip() throws IOException {
+        mHarness.replay(EventScript.fromResource("/scenarios/sponsor_skip.txt"));
+
+        // Skip, user seek back, skip again
+        assertEquals(Arrays.asList(20_000L, 5_000L, 20_000L), mHarness.getPlayer().getSeekPositions());
+        assertEquals(1, (int) mHarness.getCounters().get("sponsorSegments"));
+    }
+
+    @Test
+    public void testSponsorSkipDelay() {
+        mHarness.getService().add("v1", 60_000).sponsor(10_000, 20_000);
+
+        mHarness.openVideo("v1");
+        mHarness.awaitFirstFrame("v1", 2_000);
+
+        long segmentStartMs = mHarness.getPlayer().getFirstFrameTimeMs() + 10_000;
+
+        while (mHarness.getPlayer().getSeekPositions().isEmpty() && mHarness.getClock().nowMs() < segmentStartMs + 5_000) {
+            mHarness.getClock().advance(10);
+        }
+
+        assertEquals(Collections.singletonList(20_000L), mHarness.getPlayer().getSeekPositions());
+        // The segments are checked once a second
+        long skipDelayMs = mHarness.getClock().nowMs() - segmentStartMs;
+        assertTrue("Skip delay: " + skipDelayMs, skipDelayMs <= 1_000 + TIME_TOLERANCE_MS);
+    }
+
+    @Test
+    public void testFormatInfoErrorIsNotCached() {
+        mHarness.getService().add("v1", 600_000);
+        mHarness.getService().failNextRequests("v1", 1);
+
+        mHarness.openVideo("v1");
+        mHarness.getClock().advance(2_000);
+        mHarness.openVideo("v1");
+        mHarness.awaitFirstFrame("v1", 2_000);
+
+        assertTrue(mHarness.getCounters().get("formatInfo") >= 2);
+    }
+
+    @Test
+    public void testUpcomingStreamIsReloaded() {
+        FakeMediaItemService.CannedVideo video = mHarness.getService().add("v1", 0).upcoming(true);
+
+        mHarness.openVideo("v1");
+        mHarness.getClock().advance(2_000);
+        assertTrue(mHarness.getPlayer().getOpenedVideoIds().isEmpty());
+
+        // The stream is started before the reload timer fires
+        video.upcoming(false);
+        mHarness.awaitFirstFrame("v1", 30_000 + START_TIME_MS + TIME_TOLERANCE_MS);
+
+        assertEquals(2, (int) mHarness.getCounters().get("formatInfo"));
+    }
+
+    /**
+     * Cost of the controllers per scenario. Run after the changes in the playback code and compare the report file with the previous one.
+     */
+    @Test
+    public void benchmarkScenarios() throws IOException {
+        mHarness.tearDown();
+
+        List<ScenarioReport> reports = new ArrayList<>();
+        for (String script : Arrays.asList("/scenarios/video_switching.txt", "/scenarios/autoplay.txt", "/scenarios/sponsor_skip.txt")) {
+            ScenarioReport report = PlaybackHarness.benchmark(script, BENCHMARK_WARM_UP_RUNS, BENCHMARK_RUNS);
+            assertEquals(report.toString(), BENCHMARK_RUNS, report.runs);
+            assertTrue(report.toString(), report.cpuTimeNs > 0);
+            assertTrue(report.toString(), report.virtualTimeMs > 0);
+            assertTrue(report.toString(), report.counters.get("formatInfo") > 0);
+            reports.add(report);
+        }
+
+        ScenarioReport.writeJson(BENCHMARK_REPORT_FILE, reports);
+        assertTrue(BENCHMARK_REPORT_FILE.length() > 0);
+
+        mHarness = new PlaybackHarness();
+        mHarness.setUp();
+    }
+}
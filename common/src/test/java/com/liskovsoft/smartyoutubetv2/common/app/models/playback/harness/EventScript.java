@@ -0,0 +1,120 @@
+package com.liskovsoft.smartyoutubetv2.common.app.models.playback.harness;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Recorded sequence of the player events. One command per line, arguments are separated by spaces, # starts a comment.<br/>
+ * <pre>
+ * video v1 60000 next=v2 sponsor=10000-20000   canned video: id, duration, options
+ * latency 300                                  network latency of the fake service
+ * fail v1 1                                    next requests of the video fail
+ * open v1                                      user opens the video
+ * wait 5000                                    virtual time passes
+ * await v1 2000                                first frame of the video within the timeout
+ * seek 30000 | next | previous | play | pause | error | release | init
+ * </pre>
+ */
+public class EventScript {
+    private final String mName;
+    private final List<Step> mSteps;
+
+    public static class Step {
+        public final int line;
+        public final String command;
+        public final List<String> args;
+
+        private Step(int line, String command, List<String> args) {
+            this.line = line;
+            this.command = command;
+            this.args = args;
+        }
+
+        public String arg(int index) {
+            if (index >= args.size()) {
+                throw new IllegalArgumentException(String.format("Line %s: '%s' needs %s arguments", line, command, index + 1));
+            }
+
+            return args.get(index);
+        }
+
+        public long longArg(int index) {
+            return Long.parseLong(arg(index));
+        }
+
+        @Override
+        public String toString() {
+            return line + ": " + command + " " + String.join(" ", args);
+        }
+    }
+
+    private EventScript(String name, List<Step> steps) {
+        mName = name;
+        mSteps = steps;
+    }
+
+    public static EventScript parse(String name, String text) {
+        try {
+            return parse(name, new BufferedReader(new StringReader(text)));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Script from the test resources, e.g. "/scenarios/autoplay.txt".
+     */
+    public static EventScript fromResource(String path) throws IOException {
+        InputStream stream = EventScript.class.getResourceAsStream(path);
+
+        if (stream == null) {
+            throw new IOException("Script not found: " + path);
+        }
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            return parse(path, reader);
+        }
+    }
+
+    private static EventScript parse(String name, BufferedReader reader) throws IOException {
+        List<Step> steps = new ArrayList<>();
+        String line;
+        int lineNum = 0;
+
+        while ((line = reader.readLine()) != null) {
+            lineNum++;
+
+            int commentStart = line.indexOf('#');
+            if (commentStart != -1) {
+                line = line.substring(0, commentStart);
+            }
+
+            line = line.trim();
+
+            if (line.isEmpty()) {
+                continue;
+            }
+
+            String[] split = line.split("\\s+");
+            steps.add(new Step(lineNum, split[0], Collections.unmodifiableList(Arrays.asList(split).subList(1, split.length))));
+        }
+
+        return new EventScript(name, Collections.unmodifiableList(steps));
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public List<Step> getSteps() {
+        return mSteps;
+    }
+}
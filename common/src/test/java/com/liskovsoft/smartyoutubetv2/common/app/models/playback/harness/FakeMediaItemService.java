@@ -0,0 +1,200 @@
+package com.liskovsoft.smartyoutubetv2.common.app.models.playback.harness;
+
+import com.liskovsoft.mediaserviceinterfaces.MediaItemService;
+import com.liskovsoft.mediaserviceinterfaces.data.MediaItem;
+import com.liskovsoft.mediaserviceinterfaces.data.MediaItemFormatInfo;
+import com.liskovsoft.mediaserviceinterfaces.data.MediaItemMetadata;
+import com.liskovsoft.mediaserviceinterfaces.data.SponsorSegment;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.harness.FakeObjects.Answer;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.harness.FakeObjects.CallLog;
+
+import io.reactivex.Observable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Media service that returns the canned format info, metadata and sponsor segments after a virtual network latency.
+ */
+public class FakeMediaItemService {
+    public static final long DEFAULT_LATENCY_MS = 300;
+    private final VirtualClock mClock;
+    private final CallLog mCallLog = new CallLog();
+    private final Map<String, CannedVideo> mVideos = new HashMap<>();
+    private final Map<String, Integer> mPendingErrors = new HashMap<>();
+    private final MediaItemService mService;
+    private long mLatencyMs = DEFAULT_LATENCY_MS;
+
+    /**
+     * Video as the service sees it.
+     */
+    public static class CannedVideo {
+        public final String videoId;
+        public final long durationMs;
+        public String nextVideoId;
+        public final List<long[]> sponsorSegments = new ArrayList<>();
+        /**
+         * Premiere or the stream that isn't started yet. No formats.
+         */
+        public boolean isUpcoming;
+        public boolean isLive;
+
+        public CannedVideo(String videoId, long durationMs) {
+            this.videoId = videoId;
+            this.durationMs = durationMs;
+        }
+
+        public CannedVideo next(String videoId) {
+            nextVideoId = videoId;
+            return this;
+        }
+
+        public CannedVideo sponsor(long startMs, long endMs) {
+            sponsorSegments.add(new long[] {startMs, endMs});
+            return this;
+        }
+
+        public CannedVideo upcoming(boolean isUpcoming) {
+            this.isUpcoming = isUpcoming;
+            return this;
+        }
+
+        public CannedVideo live(boolean isLive) {
+            this.isLive = isLive;
+            return this;
+        }
+    }
+
+    public FakeMediaItemService(VirtualClock clock) {
+        mClock = clock;
+
+        Map<String, Answer> answers = new HashMap<>();
+        answers.put("getFormatInfoObserve", args -> respond((String) args[0], createFormatInfo((String) args[0])));
+        answers.put("getMetadataObserve", args -> {
+            String videoId = args[0] instanceof MediaItem ? ((MediaItem) args[0]).getVideoId() : (String) args[0];
+            return respond(videoId, createMetadata(videoId));
+        });
+        answers.put("getSponsorSegmentsObserve", args -> respond((String) args[0], createSponsorSegments((String) args[0])));
+        mService = FakeObjects.create(MediaItemService.class, answers, mCallLog);
+    }
+
+    public MediaItemService getService() {
+        return mService;
+    }
+
+    public CallLog getCallLog() {
+        return mCallLog;
+    }
+
+    public CannedVideo add(String videoId, long durationMs) {
+        CannedVideo video = new CannedVideo(videoId, durationMs);
+        mVideos.put(videoId, video);
+        return video;
+    }
+
+    public CannedVideo getVideo(String videoId) {
+        return mVideos.get(videoId);
+    }
+
+    public void setLatencyMs(long latencyMs) {
+        mLatencyMs = latencyMs;
+    }
+
+    /**
+     * Next requests of the video fail with the network error.
+     */
+    public void failNextRequests(String videoId, int count) {
+        mPendingErrors.put(videoId, count);
+    }
+
+    private <T> Observable<T> respond(String videoId, T result) {
+        Integer errors = mPendingErrors.get(videoId);
+
+        Observable<T> response;
+
+        if (errors != null && errors > 0) {
+            mPendingErrors.put(videoId, errors - 1);
+            response = Observable.error(new IOException("Canned network error: " + videoId));
+        } else if (result == null) {
+            response = Observable.error(new IllegalStateException("Unknown video: " + videoId));
+        } else {
+            response = Observable.just(result);
+        }
+
+        // Error is delayed too, like the real timeout
+        return response.delay(mLatencyMs, TimeUnit.MILLISECONDS, mClock.getScheduler(), true);
+    }
+
+    private MediaItemFormatInfo createFormatInfo(String videoId) {
+        CannedVideo video = mVideos.get(videoId);
+
+        if (video == null) {
+            return null;
+        }
+
+        Map<String, Object> values = new HashMap<>();
+        values.put("getVideoId", videoId);
+        values.put("getLengthSeconds", String.valueOf(video.durationMs / 1_000));
+
+        if (video.isUpcoming) {
+            values.put("getPlayabilityStatus", "Premieres soon");
+        } else if (video.isLive) {
+            values.put("isLive", true);
+            values.put("containsMedia", true);
+            values.put("containsHlsUrl", true);
+            values.put("getHlsManifestUrl", "https://localhost/" + videoId + ".m3u8");
+        } else {
+            values.put("containsMedia", true);
+            values.put("containsUrlFormats", true);
+            values.put("createUrlList", Collections.singletonList("https://localhost/" + videoId + ".mp4"));
+        }
+
+        return FakeObjects.data(MediaItemFormatInfo.class, values);
+    }
+
+    private MediaItemMetadata createMetadata(String videoId) {
+        CannedVideo video = mVideos.get(videoId);
+
+        if (video == null) {
+            return null;
+        }
+
+        Map<String, Object> values = new HashMap<>();
+        values.put("getTitle", "Title of " + videoId);
+        values.put("getDurationMs", video.durationMs);
+
+        if (video.nextVideoId != null) {
+            Map<String, Object> nextValues = new HashMap<>();
+            nextValues.put("getVideoId", video.nextVideoId);
+            nextValues.put("getTitle", "Title of " + video.nextVideoId);
+            values.put("getNextVideo", FakeObjects.data(MediaItem.class, nextValues));
+        }
+
+        return FakeObjects.data(MediaItemMetadata.class, values);
+    }
+
+    private List<SponsorSegment> createSponsorSegments(String videoId) {
+        CannedVideo video = mVideos.get(videoId);
+
+        if (video == null) {
+            return null;
+        }
+
+        List<SponsorSegment> result = new ArrayList<>();
+
+        for (long[] range : video.sponsorSegments) {
+            Map<String, Object> values = new HashMap<>();
+            values.put("getStartMs", range[0]);
+            values.put("getEndMs", range[1]);
+            values.put("getCategory", SponsorSegment.CATEGORY_SPONSOR);
+            result.add(FakeObjects.data(SponsorSegment.class, values));
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,125 @@
+package com.liskovsoft.smartyoutubetv2.common.app.models.playback.harness;
+
+import io.reactivex.Observable;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fakes of the interfaces that aren't worth to implement by hand (data objects of the media service, player view).<br/>
+ * Every call is counted by the method name. Not answered methods return the default value of the type.
+ */
+public class FakeObjects {
+    /**
+     * Answer that depends on the call arguments.
+     */
+    public interface Answer {
+        Object answer(Object[] args) throws Throwable;
+    }
+
+    /**
+     * Counts calls of the fake objects by the method name.
+     */
+    public static class CallLog {
+        private final Map<String, Integer> mCalls = new HashMap<>();
+
+        public void record(String method) {
+            Integer count = mCalls.get(method);
+            mCalls.put(method, count == null ? 1 : count + 1);
+        }
+
+        public int count(String method) {
+            Integer count = mCalls.get(method);
+            return count == null ? 0 : count;
+        }
+
+        public void clear() {
+            mCalls.clear();
+        }
+
+        @Override
+        public String toString() {
+            return mCalls.toString();
+        }
+    }
+
+    private FakeObjects() {
+    }
+
+    /**
+     * Data object with the fixed values, e.g. "getVideoId" -> "abc".
+     */
+    public static <T> T data(Class<T> type, Map<String, Object> values) {
+        Map<String, Answer> answers = new HashMap<>();
+
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            Object value = entry.getValue();
+            answers.put(entry.getKey(), args -> value);
+        }
+
+        return create(type, answers, null);
+    }
+
+    public static <T> T create(Class<T> type, Map<String, Answer> answers, CallLog log) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return handleObjectMethod(proxy, method, args);
+            }
+
+            if (log != null) {
+                log.record(method.getName());
+            }
+
+            Answer answer = answers.get(method.getName());
+
+            return answer != null ? answer.answer(args) : defaultValue(method.getReturnType());
+        };
+
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, handler));
+    }
+
+    public static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == float.class) {
+            return 0f;
+        } else if (type == double.class) {
+            return 0d;
+        } else if (type == byte.class) {
+            return (byte) 0;
+        } else if (type == short.class) {
+            return (short) 0;
+        } else if (type == char.class) {
+            return (char) 0;
+        } else if (type == Observable.class) {
+            return Observable.empty();
+        } else if (type == List.class) {
+            return Collections.emptyList();
+        } else if (type == Set.class) {
+            return Collections.emptySet();
+        }
+
+        return null;
+    }
+
+    private static Object handleObjectMethod(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return proxy.getClass().getSimpleName();
+        }
+    }
+}
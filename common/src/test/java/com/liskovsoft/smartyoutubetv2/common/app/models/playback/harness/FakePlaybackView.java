@@ -0,0 +1,196 @@
+package com.liskovsoft.smartyoutubetv2.common.app.models.playback.harness;
+
+import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.harness.FakeMediaItemService.CannedVideo;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.harness.FakeObjects.Answer;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.harness.FakeObjects.CallLog;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.listener.PlayerEventListener;
+import com.liskovsoft.smartyoutubetv2.common.app.views.PlaybackView;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Player view without the ExoPlayer.<br/>
+ * Opened media starts after a virtual delay, the position moves with the virtual clock,
+ * the engine events are sent to the presenter like the real player does.
+ */
+public class FakePlaybackView {
+    public static final long DEFAULT_ENGINE_START_MS = 200;
+    private final VirtualClock mClock;
+    private final FakeMediaItemService mService;
+    private final PlayerEventListener mPresenter;
+    private final CallLog mCallLog = new CallLog();
+    private final List<Long> mSeekPositions = new ArrayList<>();
+    private final List<String> mOpenedVideoIds = new ArrayList<>();
+    private final PlaybackView mView;
+    private Video mVideo;
+    private boolean mIsEngineInitialized;
+    private boolean mPlayWhenReady = true;
+    private boolean mContainsMedia;
+    private boolean mIsEnded;
+    private long mPositionMs;
+    private long mDurationMs;
+    private long mPendingStartTimeMs = -1;
+    private long mLastTickMs;
+    private long mEngineStartMs = DEFAULT_ENGINE_START_MS;
+    private long mFirstFrameTimeMs = -1;
+    private String mStartedVideoId;
+
+    public FakePlaybackView(VirtualClock clock, FakeMediaItemService service, PlayerEventListener presenter) {
+        mClock = clock;
+        mService = service;
+        mPresenter = presenter;
+
+        Map<String, Answer> answers = new HashMap<>();
+        answers.put("setVideo", args -> mVideo = (Video) args[0]);
+        answers.put("getVideo", args -> mVideo);
+        answers.put("isEngineInitialized", args -> mIsEngineInitialized);
+        answers.put("containsMedia", args -> mContainsMedia);
+        answers.put("getPositionMs", args -> mPositionMs);
+        answers.put("setPositionMs", args -> {
+            seek((long) args[0]);
+            return null;
+        });
+        answers.put("getDurationMs", args -> mDurationMs);
+        answers.put("setPlayWhenReady", args -> mPlayWhenReady = (boolean) args[0]);
+        answers.put("getPlayWhenReady", args -> mPlayWhenReady);
+        answers.put("isPlaying", args -> isPlaying());
+        answers.put("getSpeed", args -> 1f);
+        answers.put("getVolume", args -> 1f);
+        answers.put("resetPlayerState", args -> {
+            reset();
+            return null;
+        });
+        Answer open = args -> {
+            open();
+            return null;
+        };
+        answers.put("openSabr", open);
+        answers.put("openDash", open);
+        answers.put("openDashUrl", open);
+        answers.put("openHlsUrl", open);
+        answers.put("openUrlList", open);
+        answers.put("openMerged", open);
+        mView = FakeObjects.create(PlaybackView.class, answers, mCallLog);
+
+        clock.addTicker(this::onTick);
+    }
+
+    public PlaybackView getView() {
+        return mView;
+    }
+
+    public CallLog getCallLog() {
+        return mCallLog;
+    }
+
+    public List<Long> getSeekPositions() {
+        return mSeekPositions;
+    }
+
+    public List<String> getOpenedVideoIds() {
+        return mOpenedVideoIds;
+    }
+
+    public void setEngineStartMs(long engineStartMs) {
+        mEngineStartMs = engineStartMs;
+    }
+
+    /**
+     * Virtual time of the first frame of the current video or -1.
+     */
+    public long getFirstFrameTimeMs() {
+        return mFirstFrameTimeMs;
+    }
+
+    /**
+     * Id of the video which first frame is shown or null.
+     */
+    public String getStartedVideoId() {
+        return mStartedVideoId;
+    }
+
+    public long getPositionMs() {
+        return mPositionMs;
+    }
+
+    public boolean isPlaying() {
+        return mContainsMedia && mPlayWhenReady && !mIsEnded;
+    }
+
+    public void initEngine() {
+        mIsEngineInitialized = true;
+        mPresenter.onEngineInitialized();
+    }
+
+    public void releaseEngine() {
+        mIsEngineInitialized = false;
+        reset();
+        mPresenter.onEngineReleased();
+    }
+
+    /**
+     * User seek (e.g. from the seek bar).
+     */
+    public void seekByUser(long positionMs) {
+        seek(positionMs);
+        mPresenter.onSeekEnd();
+    }
+
+    private void seek(long positionMs) {
+        mSeekPositions.add(positionMs);
+        mPositionMs = Math.max(0, Math.min(positionMs, mDurationMs));
+        mIsEnded = false;
+    }
+
+    private void reset() {
+        mContainsMedia = false;
+        mIsEnded = false;
+        mPositionMs = 0;
+        mPendingStartTimeMs = -1;
+        mFirstFrameTimeMs = -1;
+        mStartedVideoId = null;
+    }
+
+    private void open() {
+        mOpenedVideoIds.add(mVideo != null ? mVideo.videoId : null);
+        mContainsMedia = false;
+        mIsEnded = false;
+        mFirstFrameTimeMs = -1;
+        mStartedVideoId = null;
+        mPendingStartTimeMs = mClock.nowMs() + mEngineStartMs;
+        mLastTickMs = mClock.nowMs();
+    }
+
+    private void onTick() {
+        long nowMs = mClock.nowMs();
+        long elapsedMs = nowMs - mLastTickMs;
+        mLastTickMs = nowMs;
+
+        if (mPendingStartTimeMs != -1 && nowMs >= mPendingStartTimeMs) {
+            mPendingStartTimeMs = -1;
+            mContainsMedia = true;
+            mFirstFrameTimeMs = nowMs;
+            mStartedVideoId = mVideo != null ? mVideo.videoId : null;
+            CannedVideo video = mVideo != null ? mService.getVideo(mVideo.videoId) : null;
+            mDurationMs = video != null ? video.durationMs : 0;
+            mPresenter.onVideoLoaded(mVideo);
+            mPresenter.onPlay();
+            return;
+        }
+
+        if (!isPlaying()) {
+            return;
+        }
+
+        mPositionMs = Math.min(mPositionMs + elapsedMs, mDurationMs);
+
+        if (mPositionMs >= mDurationMs) {
+            mIsEnded = true;
+            mPresenter.onPlayEnd();
+        }
+    }
+}
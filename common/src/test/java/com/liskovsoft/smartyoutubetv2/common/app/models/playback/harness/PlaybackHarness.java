@@ -0,0 +1,245 @@
+package com.liskovsoft.smartyoutubetv2.common.app.models.playback.harness;
+
+import com.liskovsoft.smartyoutubetv2.common.app.models.data.Playlist;
+import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.controllers.AutoFrameRateController;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.controllers.ContentBlockController;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.controllers.SuggestionsController;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.controllers.VideoLoaderController;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.controllers.VideoStateController;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.harness.EventScript.Step;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.harness.FakeMediaItemService.CannedVideo;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.listener.PlayerEventListener;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.service.WatchBundleCache;
+import com.liskovsoft.smartyoutubetv2.common.app.presenters.PlaybackPresenter;
+import com.liskovsoft.smartyoutubetv2.common.misc.TickleManager;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Drives {@link PlaybackPresenter} and the core controllers without a device.<br/>
+ * Player and media service are fakes, time is virtual, background work runs on the test thread.<br/>
+ * Must be used from a Robolectric test (controllers need the app resources and the main looper).
+ */
+public class PlaybackHarness {
+    private final VirtualClock mClock = new VirtualClock();
+    private FakeMediaItemService mService;
+    private FakePlaybackView mPlayer;
+    private PlaybackPresenter mPresenter;
+
+    public void setUp() {
+        mClock.install();
+
+        mService = new FakeMediaItemService(mClock);
+        WatchBundleCache.init(mService.getService());
+        Playlist.instance().clear();
+        TickleManager.instance().clear();
+
+        // NOTE: same order as in the app
+        mPresenter = PlaybackPresenter.create(RuntimeEnvironment.application,
+                new VideoStateController(),
+                new SuggestionsController(),
+                new VideoLoaderController(),
+                new ContentBlockController(),
+                new AutoFrameRateController());
+        mPlayer = new FakePlaybackView(mClock, mService, mPresenter);
+
+        mPresenter.setView(mPlayer.getView());
+        mPresenter.onViewCreated();
+        mPresenter.onViewInitialized();
+        mPlayer.initEngine();
+        mClock.runDueTasks();
+    }
+
+    public void tearDown() {
+        if (mPlayer != null) {
+            mPlayer.releaseEngine();
+            mPresenter.onViewDestroyed();
+        }
+
+        TickleManager.instance().clear();
+        mClock.uninstall();
+    }
+
+    public VirtualClock getClock() {
+        return mClock;
+    }
+
+    public FakeMediaItemService getService() {
+        return mService;
+    }
+
+    public FakePlaybackView getPlayer() {
+        return mPlayer;
+    }
+
+    public PlayerEventListener getPresenter() {
+        return mPresenter;
+    }
+
+    public void openVideo(String videoId) {
+        mPresenter.onNewVideo(Video.from(videoId));
+        mClock.runDueTasks();
+    }
+
+    /**
+     * Advances the clock until the first frame of the video is shown.
+     *
+     * @return virtual time spent
+     * @throws AssertionError if the video isn't started within the timeout
+     */
+    public long awaitFirstFrame(String videoId, long timeoutMs) {
+        long startMs = mClock.nowMs();
+
+        while (!isStarted(videoId)) {
+            if (mClock.nowMs() - startMs >= timeoutMs) {
+                throw new AssertionError(String.format("Video %s isn't started in %s ms. Opened: %s", videoId, timeoutMs, mPlayer.getOpenedVideoIds()));
+            }
+
+            mClock.advance(10);
+        }
+
+        return mClock.nowMs() - startMs;
+    }
+
+    public void replay(EventScript script) {
+        for (Step step : script.getSteps()) {
+            try {
+                apply(step);
+            } catch (RuntimeException | AssertionError e) {
+                throw new AssertionError(String.format("%s, step %s: %s", script.getName(), step, e.getMessage()), e);
+            }
+        }
+    }
+
+    /**
+     * Replays the script on a fresh harness several times and reports the average cost of a run.<br/>
+     * Set up of the harness isn't measured.
+     */
+    public static ScenarioReport benchmark(String scriptPath, int warmUpRuns, int runs) throws IOException {
+        EventScript script = EventScript.fromResource(scriptPath);
+        ScenarioReport.Meter meter = new ScenarioReport.Meter();
+        Map<String, Integer> counters = new LinkedHashMap<>();
+
+        for (int i = 0; i < warmUpRuns + runs; i++) {
+            PlaybackHarness harness = new PlaybackHarness();
+            harness.setUp();
+
+            try {
+                boolean measure = i >= warmUpRuns;
+
+                if (measure) {
+                    meter.start();
+                }
+
+                harness.replay(script);
+
+                if (measure) {
+                    meter.stop(harness.getClock().nowMs());
+                    counters = harness.getCounters();
+                }
+            } finally {
+                harness.tearDown();
+            }
+        }
+
+        return meter.report(script.getName(), counters);
+    }
+
+    /**
+     * Requests to the media service and calls to the player made so far.
+     */
+    public Map<String, Integer> getCounters() {
+        Map<String, Integer> counters = new LinkedHashMap<>();
+        counters.put("formatInfo", mService.getCallLog().count("getFormatInfoObserve"));
+        counters.put("metadata", mService.getCallLog().count("getMetadataObserve"));
+        counters.put("sponsorSegments", mService.getCallLog().count("getSponsorSegmentsObserve"));
+        counters.put("opens", mPlayer.getOpenedVideoIds().size());
+        counters.put("seeks", mPlayer.getSeekPositions().size());
+        return counters;
+    }
+
+    private boolean isStarted(String videoId) {
+        return videoId.equals(mPlayer.getStartedVideoId());
+    }
+
+    private void apply(Step step) {
+        switch (step.command) {
+            case "video":
+                addVideo(step);
+                break;
+            case "latency":
+                mService.setLatencyMs(step.longArg(0));
+                break;
+            case "fail":
+                mService.failNextRequests(step.arg(0), (int) step.longArg(1));
+                break;
+            case "open":
+                openVideo(step.arg(0));
+                break;
+            case "wait":
+                mClock.advance(step.longArg(0));
+                break;
+            case "await":
+                awaitFirstFrame(step.arg(0), step.longArg(1));
+                break;
+            case "seek":
+                mPlayer.seekByUser(step.longArg(0));
+                break;
+            case "next":
+                mPresenter.onNextClicked();
+                break;
+            case "previous":
+                mPresenter.onPreviousClicked();
+                break;
+            case "play":
+                mPlayer.getView().setPlayWhenReady(true);
+                mPresenter.onPlay();
+                break;
+            case "pause":
+                mPlayer.getView().setPlayWhenReady(false);
+                mPresenter.onPause();
+                break;
+            case "error":
+                mPresenter.onEngineError(PlayerEventListener.ERROR_TYPE_SOURCE, -1, new IOException("Canned source error"));
+                break;
+            case "release":
+                mPlayer.releaseEngine();
+                break;
+            case "init":
+                mPlayer.initEngine();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown command: " + step.command);
+        }
+
+        mClock.runDueTasks();
+    }
+
+    private void addVideo(Step step) {
+        CannedVideo video = mService.add(step.arg(0), step.longArg(1));
+
+        for (int i = 2; i < step.args.size(); i++) {
+            String[] option = step.arg(i).split("=", 2);
+
+            if (option.length != 2) {
+                throw new IllegalArgumentException("Bad option: " + step.arg(i));
+            }
+
+            switch (option[0]) {
+                case "next":
+                    video.next(option[1]);
+                    break;
+                case "sponsor":
+                    String[] range = option[1].split("-");
+                    video.sponsor(Long.parseLong(range[0]), Long.parseLong(range[1]));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + option[0]);
+            }
+        }
+    }
+}
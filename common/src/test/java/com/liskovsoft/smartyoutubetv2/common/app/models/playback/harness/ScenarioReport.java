@@ -0,0 +1,116 @@
+package com.liskovsoft.smartyoutubetv2.common.app.models.playback.harness;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Cost of a scenario on the test thread: CPU time, allocated bytes and the requests made.
+ */
+public class ScenarioReport {
+    public final String name;
+    public final int runs;
+    public final long cpuTimeNs;
+    public final long allocatedBytes;
+    public final long virtualTimeMs;
+    public final Map<String, Integer> counters;
+
+    private ScenarioReport(String name, int runs, long cpuTimeNs, long allocatedBytes, long virtualTimeMs, Map<String, Integer> counters) {
+        this.name = name;
+        this.runs = runs;
+        this.cpuTimeNs = cpuTimeNs;
+        this.allocatedBytes = allocatedBytes;
+        this.virtualTimeMs = virtualTimeMs;
+        this.counters = counters;
+    }
+
+    /**
+     * Measures the cost of the work done on the current thread.
+     */
+    public static class Meter {
+        private final ThreadMXBean mThreadBean = ManagementFactory.getThreadMXBean();
+        private long mCpuTimeNs;
+        private long mAllocatedBytes;
+        private long mVirtualTimeMs;
+        private int mRuns;
+        private long mStartCpuTimeNs;
+        private long mStartAllocatedBytes;
+
+        public void start() {
+            mStartCpuTimeNs = getCpuTimeNs();
+            mStartAllocatedBytes = getAllocatedBytes();
+        }
+
+        public void stop(long virtualTimeMs) {
+            mCpuTimeNs += getCpuTimeNs() - mStartCpuTimeNs;
+            mAllocatedBytes += getAllocatedBytes() - mStartAllocatedBytes;
+            mVirtualTimeMs += virtualTimeMs;
+            mRuns++;
+        }
+
+        public ScenarioReport report(String name, Map<String, Integer> counters) {
+            int runs = Math.max(1, mRuns);
+            return new ScenarioReport(name, mRuns, mCpuTimeNs / runs, mAllocatedBytes / runs, mVirtualTimeMs / runs, new LinkedHashMap<>(counters));
+        }
+
+        private long getCpuTimeNs() {
+            return mThreadBean.isCurrentThreadCpuTimeSupported() ? mThreadBean.getCurrentThreadCpuTime() : System.nanoTime();
+        }
+
+        private long getAllocatedBytes() {
+            if (mThreadBean instanceof com.sun.management.ThreadMXBean) {
+                return ((com.sun.management.ThreadMXBean) mThreadBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+
+            return 0;
+        }
+    }
+
+    /**
+     * Writes the reports as a JSON array. Keep the file of the previous run to compare the numbers.
+     */
+    public static void writeJson(File file, List<ScenarioReport> reports) throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Can't create the report dir: " + dir);
+        }
+
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write("[\n");
+            for (int i = 0; i < reports.size(); i++) {
+                writer.write("  ");
+                writer.write(reports.get(i).toJson());
+                writer.write(i < reports.size() - 1 ? ",\n" : "\n");
+            }
+            writer.write("]\n");
+        }
+    }
+
+    public String toJson() {
+        StringBuilder countersJson = new StringBuilder();
+        for (Map.Entry<String, Integer> entry : counters.entrySet()) {
+            if (countersJson.length() != 0) {
+                countersJson.append(", ");
+            }
+            countersJson.append('"').append(entry.getKey()).append("\": ").append(entry.getValue());
+        }
+
+        return String.format(Locale.US, "{\"name\": \"%s\", \"runs\": %d, \"cpuTimeNs\": %d, \"allocatedBytes\": %d, \"virtualTimeMs\": %d, \"counters\": {%s}}",
+                name, runs, cpuTimeNs, allocatedBytes, virtualTimeMs, countersJson);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: runs=%s, cpu=%.2f ms, allocated=%s KB, virtual=%s ms, %s",
+                name, runs, cpuTimeNs / 1_000_000f, allocatedBytes / 1024, virtualTimeMs, counters);
+    }
+}
@@ -0,0 +1,80 @@
+package com.liskovsoft.smartyoutubetv2.common.app.models.playback.harness;
+
+import io.reactivex.android.plugins.RxAndroidPlugins;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.schedulers.TestScheduler;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Virtual time for the main looper (Handler, TickleManager) and the Rx schedulers.<br/>
+ * Everything runs on the test thread, so the scenarios are deterministic and don't wait in real time.
+ */
+public class VirtualClock {
+    private static final long STEP_MS = 10;
+    private final TestScheduler mScheduler = new TestScheduler();
+    private final List<Runnable> mTickers = new ArrayList<>();
+    private long mNowMs;
+
+    public void install() {
+        RxJavaPlugins.setComputationSchedulerHandler(scheduler -> mScheduler);
+        RxJavaPlugins.setIoSchedulerHandler(scheduler -> Schedulers.trampoline());
+        RxJavaPlugins.setNewThreadSchedulerHandler(scheduler -> Schedulers.trampoline());
+        RxJavaPlugins.setSingleSchedulerHandler(scheduler -> Schedulers.trampoline());
+        RxAndroidPlugins.setInitMainThreadSchedulerHandler(scheduler -> Schedulers.trampoline());
+        RxAndroidPlugins.setMainThreadSchedulerHandler(scheduler -> Schedulers.trampoline());
+    }
+
+    public void uninstall() {
+        RxJavaPlugins.reset();
+        RxAndroidPlugins.reset();
+    }
+
+    /**
+     * Scheduler of the delayed and periodic Rx work (e.g. the network latency of the fake service).
+     */
+    public TestScheduler getScheduler() {
+        return mScheduler;
+    }
+
+    public long nowMs() {
+        return mNowMs;
+    }
+
+    /**
+     * Called after every step. E.g. the fake player moves the playback position.
+     */
+    public void addTicker(Runnable ticker) {
+        mTickers.add(ticker);
+    }
+
+    /**
+     * Runs everything that is due. Rx and looper tasks are interleaved with a small step.
+     */
+    public void advance(long durationMs) {
+        long endMs = mNowMs + durationMs;
+
+        runDueTasks();
+
+        while (mNowMs < endMs) {
+            long stepMs = Math.min(STEP_MS, endMs - mNowMs);
+            mNowMs += stepMs;
+            mScheduler.advanceTimeBy(stepMs, TimeUnit.MILLISECONDS);
+            ShadowLooper.idleMainLooper(stepMs, TimeUnit.MILLISECONDS);
+            runDueTasks();
+
+            for (Runnable ticker : mTickers) {
+                ticker.run();
+            }
+        }
+    }
+
+    public void runDueTasks() {
+        mScheduler.triggerActions();
+        ShadowLooper.idleMainLooper();
+    }
+}
@@ -0,0 +1,146 @@
+package com.liskovsoft.smartyoutubetv2.common.app.models.playback.service;
+
+import com.liskovsoft.mediaserviceinterfaces.data.MediaItemFormatInfo;
+import com.liskovsoft.mediaserviceinterfaces.data.MediaItemMetadata;
+import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.harness.FakeMediaItemService;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.harness.VirtualClock;
+import io.reactivex.observers.TestObserver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class WatchBundleCacheTest {
+    private static final String FORMAT_INFO = "getFormatInfoObserve";
+    private static final String METADATA = "getMetadataObserve";
+    private VirtualClock mClock;
+    private FakeMediaItemService mService;
+    private WatchBundleCache mCache;
+
+    @Before
+    public void setUp() {
+        mClock = new VirtualClock();
+        mClock.install();
+        mService = new FakeMediaItemService(mClock);
+        WatchBundleCache.init(mService.getService());
+        mCache = WatchBundleCache.instance();
+    }
+
+    @After
+    public void tearDown() {
+        mClock.uninstall();
+    }
+
+    @Test
+    public void testConcurrentRequestsShareNetworkCall() {
+        mService.add("v1", 60_000);
+
+        TestObserver<MediaItemFormatInfo> first = mCache.getFormatInfoObserve("v1").test();
+        TestObserver<MediaItemFormatInfo> second = mCache.getFormatInfoObserve("v1").test();
+        mClock.advance(FakeMediaItemService.DEFAULT_LATENCY_MS);
+
+        first.assertValueCount(1);
+        second.assertValueCount(1);
+        assertEquals(1, mService.getCallLog().count(FORMAT_INFO));
+
+        // Replay
+        mCache.getFormatInfoObserve("v1").test().assertValueCount(1);
+        assertEquals(1, mService.getCallLog().count(FORMAT_INFO));
+    }
+
+    @Test
+    public void testUpcomingStreamIsNotCached() {
+        FakeMediaItemService.CannedVideo video = mService.add("v1", 0).upcoming(true);
+
+        loadFormatInfo("v1");
+        video.upcoming(false);
+        MediaItemFormatInfo formatInfo = loadFormatInfo("v1");
+
+        assertTrue(formatInfo.containsMedia());
+        assertEquals(2, mService.getCallLog().count(FORMAT_INFO));
+    }
+
+    @Test
+    public void testLiveStreamIsNotCached() {
+        mService.add("v1", 0).live(true);
+
+        loadFormatInfo("v1");
+        loadFormatInfo("v1");
+
+        assertEquals(2, mService.getCallLog().count(FORMAT_INFO));
+    }
+
+    @Test
+    public void testErrorIsNotCached() {
+        mService.add("v1", 60_000);
+        mService.failNextRequests("v1", 1);
+
+        TestObserver<MediaItemFormatInfo> failed = mCache.getFormatInfoObserve("v1").test();
+        mClock.advance(FakeMediaItemService.DEFAULT_LATENCY_MS);
+        failed.assertError(Exception.class);
+
+        loadFormatInfo("v1");
+        assertEquals(2, mService.getCallLog().count(FORMAT_INFO));
+    }
+
+    @Test
+    public void testInvalidatedFormatInfoIsReloaded() {
+        mService.add("v1", 60_000);
+
+        loadFormatInfo("v1");
+        mCache.invalidateFormatInfo("v1");
+        loadFormatInfo("v1");
+
+        assertEquals(2, mService.getCallLog().count(FORMAT_INFO));
+    }
+
+    @Test
+    public void testMetadataIsReloadedAfterUserAction() {
+        mService.add("v1", 60_000);
+        mService.add("v2", 60_000);
+
+        loadMetadata("v1");
+        loadMetadata("v2");
+        loadMetadata("v1");
+        assertEquals(2, mService.getCallLog().count(METADATA));
+
+        // Like
+        mCache.invalidateMetadata("v1");
+        loadMetadata("v1");
+        loadMetadata("v2");
+        assertEquals(3, mService.getCallLog().count(METADATA));
+
+        // Subscribe
+        mCache.invalidateMetadata();
+        loadMetadata("v1");
+        loadMetadata("v2");
+        assertEquals(5, mService.getCallLog().count(METADATA));
+
+        // Format info is kept
+        loadFormatInfo("v1");
+        loadFormatInfo("v1");
+        assertEquals(1, mService.getCallLog().count(FORMAT_INFO));
+    }
+
+    private MediaItemFormatInfo loadFormatInfo(String videoId) {
+        TestObserver<MediaItemFormatInfo> observer = mCache.getFormatInfoObserve(videoId).test();
+        mClock.advance(FakeMediaItemService.DEFAULT_LATENCY_MS);
+        observer.assertValueCount(1);
+        return observer.values().get(0);
+    }
+
+    private MediaItemMetadata loadMetadata(String videoId) {
+        Video video = new Video();
+        video.videoId = videoId;
+        TestObserver<MediaItemMetadata> observer = mCache.getMetadataObserve(video).test();
+        mClock.advance(FakeMediaItemService.DEFAULT_LATENCY_MS);
+        observer.assertValueCount(1);
+        return observer.values().get(0);
+    }
+}
@@ -0,0 +1,293 @@
+package com.liskovsoft.smartyoutubetv2.common.exoplayer.controller;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.SeekParameters;
+import com.google.android.exoplayer2.Timeline;
+import com.google.android.exoplayer2.source.SinglePeriodTimeline;
+import com.google.android.exoplayer2.testutil.FakeClock;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Fake live stream: the window grows by segments in real time, the player starts at the window default position.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LiveLatencyControllerTest {
+    private static final long STEP_MS = 100;
+    private static final long SEGMENT_MS = 2_000;
+    private static final long TARGET_LATENCY_MS = 10_000;
+    private static final long INITIAL_WINDOW_MS = 60_000;
+    /**
+     * Like DefaultLoadControl
+     */
+    private static final long BUFFER_FOR_PLAYBACK_MS = 2_500;
+    private static final long SEEK_PROCESS_MS = 30;
+
+    private static class FakeLivePlayer implements LiveLatencyController.LiveTarget {
+        private final FakeClock mClock = new FakeClock(0);
+        /**
+         * Media ms loaded per real ms
+         */
+        private final float mLoadSpeed;
+        private float mSpeed = 1.0f;
+        private float mUserSpeed = 1.0f;
+        private float mMinSpeed = 1.0f;
+        private float mMaxSpeed = 1.0f;
+        private double mPositionMs;
+        private double mBufferedPositionMs;
+        private boolean mPlayWhenReady = true;
+        private boolean mIsBuffering;
+        private int mRebuffers;
+        private int mSeeks;
+        private long mProcessedAtMs = -1;
+        private LiveLatencyController mListener;
+
+        private FakeLivePlayer(long latencyMs, long bufferedAheadMs, float loadSpeed) {
+            mLoadSpeed = loadSpeed;
+            mPositionMs = getWindowDurationMs() - latencyMs;
+            mBufferedPositionMs = Math.min(mPositionMs + bufferedAheadMs, getWindowDurationMs());
+        }
+
+        @Override
+        public Timeline getCurrentTimeline() {
+            long durationUs = C.msToUs(getWindowDurationMs());
+            return new SinglePeriodTimeline(durationUs, durationUs, 0, durationUs - C.msToUs(TARGET_LATENCY_MS), true, true, null);
+        }
+
+        @Override
+        public int getCurrentWindowIndex() {
+            return 0;
+        }
+
+        @Override
+        public long getPositionMs() {
+            return (long) mPositionMs;
+        }
+
+        @Override
+        public long getBufferedPositionMs() {
+            return (long) mBufferedPositionMs;
+        }
+
+        @Override
+        public boolean isPlaying() {
+            return mPlayWhenReady && !mIsBuffering;
+        }
+
+        @Override
+        public float getSpeed() {
+            return mListener != null && mListener.isAdjusting() ? 1.0f : mUserSpeed;
+        }
+
+        @Override
+        public void setLiveSpeed(float speed) {
+            mSpeed = speed;
+            mMinSpeed = Math.min(mMinSpeed, speed);
+            mMaxSpeed = Math.max(mMaxSpeed, speed);
+        }
+
+        @Override
+        public void seekTo(long positionMs, SeekParameters seekParameters) {
+            mSeeks++;
+            mPositionMs = positionMs;
+            // Buffer is discarded
+            mBufferedPositionMs = positionMs;
+            mIsBuffering = true;
+            mProcessedAtMs = mClock.elapsedRealtime() + SEEK_PROCESS_MS;
+        }
+
+        private void userSeekTo(long positionMs) {
+            mSeeks--;
+            seekTo(positionMs, SeekParameters.EXACT);
+        }
+
+        private long getLatencyMs() {
+            return getWindowDurationMs() - getPositionMs();
+        }
+
+        private long getBufferedAheadMs() {
+            return getBufferedPositionMs() - getPositionMs();
+        }
+
+        private long getWindowDurationMs() {
+            return INITIAL_WINDOW_MS + mClock.elapsedRealtime() / SEGMENT_MS * SEGMENT_MS;
+        }
+
+        private void tick() {
+            mBufferedPositionMs = Math.min(mBufferedPositionMs + mLoadSpeed * STEP_MS, getWindowDurationMs());
+
+            if (mIsBuffering) {
+                if (mBufferedPositionMs - mPositionMs >= BUFFER_FOR_PLAYBACK_MS) {
+                    mIsBuffering = false;
+                }
+            } else if (mPlayWhenReady) {
+                mPositionMs = Math.min(mPositionMs + mSpeed * STEP_MS, mBufferedPositionMs);
+
+                if (mPositionMs >= mBufferedPositionMs) {
+                    mRebuffers++;
+                    mIsBuffering = true;
+                }
+            }
+
+            if (mProcessedAtMs != -1 && mProcessedAtMs <= mClock.elapsedRealtime()) {
+                mProcessedAtMs = -1;
+
+                if (mListener != null) {
+                    mListener.onSeekProcessed();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testConvergesToTarget() {
+        // Drifted after the slow start
+        FakeLivePlayer player = createPlayer(TARGET_LATENCY_MS + 12_000, 15_000, 3);
+        FakeLivePlayer noControlPlayer = new FakeLivePlayer(TARGET_LATENCY_MS + 12_000, 15_000, 3);
+
+        advance(player, 14 * 60_000);
+        advance(noControlPlayer, 14 * 60_000);
+        long latencyMs = measureLatency(player, 60_000);
+        long noControlLatencyMs = measureLatency(noControlPlayer, 60_000);
+
+        assertEquals(TARGET_LATENCY_MS, latencyMs, 1_500);
+        assertEquals(TARGET_LATENCY_MS + 12_000, noControlLatencyMs, SEGMENT_MS);
+        assertEquals(0, player.mRebuffers);
+        assertEquals(0, player.mSeeks);
+        assertTrue(player.mMinSpeed >= 0.97f);
+        assertTrue(player.mMaxSpeed <= 1.03f);
+    }
+
+    @Test
+    public void testTooCloseToEdgeSlowsDown() {
+        FakeLivePlayer player = createPlayer(TARGET_LATENCY_MS - 5_000, 3_000, 3);
+
+        advance(player, 10 * 60_000);
+
+        assertEquals(TARGET_LATENCY_MS, measureLatency(player, 60_000), 1_500);
+        assertTrue(player.mMinSpeed < 1.0f);
+        assertEquals(0, player.mRebuffers);
+    }
+
+    @Test
+    public void testSeeksAfterLongPause() {
+        FakeLivePlayer player = createPlayer(TARGET_LATENCY_MS, 5_000, 3);
+        advance(player, 10_000);
+
+        player.mPlayWhenReady = false;
+        advance(player, 60_000);
+        assertEquals(0, player.mSeeks);
+        player.mPlayWhenReady = true;
+        advance(player, 10_000);
+
+        assertEquals(1, player.mSeeks);
+        assertEquals(TARGET_LATENCY_MS, measureLatency(player, 20_000), 3_000);
+
+        advance(player, 5 * 60_000);
+        assertEquals(1, player.mSeeks);
+        assertEquals(0, player.mRebuffers);
+    }
+
+    @Test
+    public void testLowBufferBacksOff() {
+        // The network barely keeps up. The speed up would drain the buffer.
+        FakeLivePlayer player = createPlayer(TARGET_LATENCY_MS + 15_000, 3_000, 1.01f);
+        FakeLivePlayer noBackOffPlayer = new FakeLivePlayer(TARGET_LATENCY_MS + 15_000, 3_000, 1.01f);
+        noBackOffPlayer.setLiveSpeed(1.03f);
+
+        advance(player, 20 * 60_000);
+        advance(noBackOffPlayer, 20 * 60_000);
+
+        assertEquals(0, player.mRebuffers);
+        assertTrue(noBackOffPlayer.mRebuffers > 0);
+        assertTrue(player.getLatencyMs() < TARGET_LATENCY_MS + 15_000);
+        assertTrue(player.getBufferedAheadMs() > 0);
+    }
+
+    @Test
+    public void testUserSeekBackIsRespected() {
+        FakeLivePlayer player = createPlayer(TARGET_LATENCY_MS, 5_000, 3);
+        advance(player, 10_000);
+
+        player.userSeekTo(player.getPositionMs() - 5 * 60_000);
+        advance(player, 2 * 60_000);
+
+        assertEquals(0, player.mSeeks);
+        assertEquals(1.0f, player.mMaxSpeed, 0);
+        assertEquals(TARGET_LATENCY_MS + 5 * 60_000, player.getLatencyMs(), SEGMENT_MS + 1_000);
+
+        // Back to live
+        player.userSeekTo(player.getWindowDurationMs() - TARGET_LATENCY_MS - 3_000);
+        advance(player, 5 * 60_000);
+
+        assertEquals(TARGET_LATENCY_MS, measureLatency(player, 60_000), 1_500);
+        assertTrue(player.mMaxSpeed > 1.0f);
+    }
+
+    @Test
+    public void testUserSpeedIsNotChanged() {
+        FakeLivePlayer player = createPlayer(TARGET_LATENCY_MS + 12_000, 15_000, 3);
+        player.mUserSpeed = 1.5f;
+        player.mSpeed = 1.5f;
+
+        advance(player, 60_000);
+
+        assertEquals(1.5f, player.mSpeed, 0);
+        assertEquals(0, player.mSeeks);
+        assertFalse(player.mListener.isAdjusting());
+    }
+
+    @Test
+    public void testVodIsIgnored() {
+        FakeLivePlayer player = new FakeLivePlayer(TARGET_LATENCY_MS + 30_000, 15_000, 3) {
+            @Override
+            public Timeline getCurrentTimeline() {
+                return new SinglePeriodTimeline(C.msToUs(INITIAL_WINDOW_MS), true, false);
+            }
+        };
+        player.mListener = new LiveLatencyController(player, player.mClock);
+
+        advance(player, 60_000);
+
+        assertEquals(0, player.mSeeks);
+        assertEquals(1.0f, player.mMaxSpeed, 0);
+        assertEquals(C.TIME_UNSET, player.mListener.getLatencyMs());
+    }
+
+    private static FakeLivePlayer createPlayer(long latencyMs, long bufferedAheadMs, float loadSpeed) {
+        FakeLivePlayer player = new FakeLivePlayer(latencyMs, bufferedAheadMs, loadSpeed);
+        player.mListener = new LiveLatencyController(player, player.mClock);
+        return player;
+    }
+
+    /**
+     * Average over the segment saw tooth
+     */
+    private static long measureLatency(FakeLivePlayer player, long durationMs) {
+        long sumMs = 0;
+        int count = 0;
+
+        for (long elapsedMs = 0; elapsedMs < durationMs; elapsedMs += STEP_MS) {
+            advance(player, STEP_MS);
+            sumMs += player.getLatencyMs();
+            count++;
+        }
+
+        return sumMs / count;
+    }
+
+    private static void advance(FakeLivePlayer player, long durationMs) {
+        for (long elapsedMs = 0; elapsedMs < durationMs; elapsedMs += STEP_MS) {
+            player.mClock.advanceTime(STEP_MS);
+            ShadowLooper.idleMainLooper();
+            player.tick();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.liskovsoft.smartyoutubetv2.common.exoplayer.controller;
+
+import com.google.android.exoplayer2.SeekParameters;
+import com.google.android.exoplayer2.testutil.FakeClock;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class SeekSchedulerTest {
+    private static final long STEP_MS = 10;
+    private static final long KEY_REPEAT_MS = 50;
+    private static final long SEEK_STEP_MS = 10_000;
+    private static final int PRESS_COUNT = 40;
+    private static final long SEEK_PROCESS_MS = 30;
+    private static final long KEYFRAME_INTERVAL_MS = 3_000;
+    /**
+     * Media ms loaded per real ms
+     */
+    private static final long LOAD_SPEED = 3;
+    private FakeClock mClock;
+    private FakePlayer mPlayer;
+    private SeekScheduler mScheduler;
+
+    private class FakePlayer implements SeekScheduler.SeekTarget {
+        private final List<SeekParameters> mSeeks = new ArrayList<>();
+        private int mCancelledLoads;
+        private long mPositionMs;
+        private long mBufferedPositionMs;
+        private long mProcessedAtMs = -1;
+        private boolean mIsSeekEventLost;
+        private SeekScheduler mListener;
+
+        @Override
+        public long getPositionMs() {
+            return mPositionMs;
+        }
+
+        @Override
+        public long getBufferedPositionMs() {
+            return mBufferedPositionMs;
+        }
+
+        @Override
+        public void seekTo(long positionMs, SeekParameters seekParameters) {
+            mSeeks.add(seekParameters);
+
+            if (seekParameters == SeekParameters.CLOSEST_SYNC) {
+                positionMs = Math.round(positionMs / (double) KEYFRAME_INTERVAL_MS) * KEYFRAME_INTERVAL_MS;
+            }
+
+            // Like ChunkSampleStream: outside of the sample queue the loads are cancelled and the buffer is discarded
+            if (positionMs < mPositionMs || positionMs > mBufferedPositionMs) {
+                mCancelledLoads++;
+                mBufferedPositionMs = positionMs;
+            }
+
+            mPositionMs = positionMs;
+            mProcessedAtMs = mIsSeekEventLost ? -1 : mClock.elapsedRealtime() + SEEK_PROCESS_MS;
+        }
+
+        private void tick() {
+            mBufferedPositionMs += LOAD_SPEED * STEP_MS;
+
+            if (mProcessedAtMs != -1 && mProcessedAtMs <= mClock.elapsedRealtime()) {
+                mProcessedAtMs = -1;
+
+                if (mListener != null) {
+                    mListener.onSeekProcessed();
+                }
+            }
+        }
+
+        private SeekParameters getLastSeek() {
+            return mSeeks.get(mSeeks.size() - 1);
+        }
+    }
+
+    private interface Seeker {
+        void seekTo(long positionMs);
+    }
+
+    @Before
+    public void setUp() {
+        mClock = new FakeClock(0);
+        mPlayer = new FakePlayer();
+        mScheduler = new SeekScheduler(mPlayer, mClock);
+        mPlayer.mListener = mScheduler;
+    }
+
+    @Test
+    public void testHeldKeyIsCoalesced() {
+        FakePlayer directPlayer = new FakePlayer();
+        hold(positionMs -> directPlayer.seekTo(positionMs, SeekParameters.EXACT), directPlayer, SEEK_STEP_MS, KEY_REPEAT_MS);
+
+        hold(mScheduler::seekTo, mPlayer, SEEK_STEP_MS, KEY_REPEAT_MS);
+        advance(mPlayer, 1_000);
+
+        assertEquals(PRESS_COUNT, directPlayer.mSeeks.size());
+        assertEquals(PRESS_COUNT, directPlayer.mCancelledLoads);
+        assertTrue(mPlayer.mSeeks.size() <= PRESS_COUNT / 3);
+        assertTrue(mPlayer.mCancelledLoads <= PRESS_COUNT / 3);
+        // The user sees the exact position at the end
+        assertEquals(PRESS_COUNT * SEEK_STEP_MS, mPlayer.getPositionMs());
+        assertEquals(SeekParameters.EXACT, mPlayer.getLastSeek());
+    }
+
+    @Test
+    public void testFastScrubUsesSyncPoints() {
+        hold(mScheduler::seekTo, mPlayer, SEEK_STEP_MS, KEY_REPEAT_MS);
+
+        assertTrue(mPlayer.mSeeks.contains(SeekParameters.CLOSEST_SYNC));
+        assertEquals(PRESS_COUNT * SEEK_STEP_MS, mScheduler.getTargetPositionMs());
+
+        advance(mPlayer, 1_000);
+
+        // The last keyframe is loaded already. The exact seek doesn't cancel anything.
+        int cancelledLoads = mPlayer.mCancelledLoads;
+        assertEquals(SeekParameters.EXACT, mPlayer.getLastSeek());
+        assertEquals(cancelledLoads, mPlayer.mCancelledLoads);
+    }
+
+    @Test
+    public void testInBufferSeeksAreServedAtOnce() {
+        mPlayer.mBufferedPositionMs = 60_000;
+
+        // Slow presses inside the buffer
+        hold(mScheduler::seekTo, mPlayer, 1_000, 100);
+
+        assertEquals(PRESS_COUNT, mPlayer.mSeeks.size());
+        assertEquals(0, mPlayer.mCancelledLoads);
+        assertTrue(!mPlayer.mSeeks.contains(SeekParameters.CLOSEST_SYNC));
+    }
+
+    @Test
+    public void testSlowSeeksAreNotDelayed() {
+        for (int i = 1; i <= 5; i++) {
+            mScheduler.seekTo(i * 60_000);
+            assertEquals(i, mPlayer.mSeeks.size());
+            assertEquals(SeekParameters.EXACT, mPlayer.getLastSeek());
+            advance(mPlayer, 1_000);
+        }
+    }
+
+    @Test
+    public void testCancelDropsPendingSeeks() {
+        hold(mScheduler::seekTo, mPlayer, SEEK_STEP_MS, KEY_REPEAT_MS);
+        mScheduler.cancel();
+        int seeks = mPlayer.mSeeks.size();
+
+        advance(mPlayer, 1_000);
+
+        assertEquals(seeks, mPlayer.mSeeks.size());
+    }
+
+    @Test
+    public void testLostSeekEventDoesNotBlock() {
+        mPlayer.mIsSeekEventLost = true;
+
+        mScheduler.seekTo(60_000);
+        mScheduler.seekTo(120_000);
+        assertEquals(1, mPlayer.mSeeks.size());
+
+        advance(mPlayer, 2_000);
+
+        assertEquals(120_000, mPlayer.getPositionMs());
+    }
+
+    private void hold(Seeker seeker, FakePlayer player, long seekStepMs, long repeatMs) {
+        long positionMs = player.getPositionMs();
+
+        for (int i = 0; i < PRESS_COUNT; i++) {
+            positionMs += seekStepMs;
+            seeker.seekTo(positionMs);
+            advance(player, repeatMs);
+        }
+    }
+
+    private void advance(FakePlayer player, long durationMs) {
+        for (long elapsedMs = 0; elapsedMs < durationMs; elapsedMs += STEP_MS) {
+            mClock.advanceTime(STEP_MS);
+            ShadowLooper.idleMainLooper();
+            player.tick();
+        }
+    }
+}
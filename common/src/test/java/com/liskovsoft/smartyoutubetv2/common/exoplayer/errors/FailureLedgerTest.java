@@ -0,0 +1,217 @@
+package com.liskovsoft.smartyoutubetv2.common.exoplayer.errors;
+
+import android.content.Context;
+import android.net.Uri;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.source.MediaSourceEventListener.LoadEventInfo;
+import com.google.android.exoplayer2.source.MediaSourceEventListener.MediaLoadData;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.HttpDataSource.InvalidResponseCodeException;
+import com.google.android.exoplayer2.util.MimeTypes;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.selector.TrackSelectorManager;
+import com.liskovsoft.smartyoutubetv2.common.prefs.PlayerTweaksData;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Every session plays the same video. The vp9 decoder of the device fails on 1080p30.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FailureLedgerTest {
+    private static final long HOUR_MS = 60 * 60 * 1_000;
+    private static final String VIDEO_URL = "https://rr1---sn-abc.googlevideo.com/videoplayback?itag=248&mime=video%2Fwebm";
+    private static final Format VP9_FORMAT = createFormat("248", MimeTypes.VIDEO_VP9, "vp9", 1920, 1080, 30);
+    private static final Format VP9_HDR_FORMAT = createFormat("335", MimeTypes.VIDEO_VP9, "vp9.2", 1920, 1080, 30);
+    private static final Format VP9_60FPS_FORMAT = createFormat("303", MimeTypes.VIDEO_VP9, "vp9", 1920, 1080, 60);
+    private static final Format VP9_4K_FORMAT = createFormat("313", MimeTypes.VIDEO_VP9, "vp9", 3840, 2160, 30);
+    private static final Format AVC_FORMAT = createFormat("137", MimeTypes.VIDEO_H264, "avc1.640028", 1920, 1080, 30);
+    private Context mContext;
+    private long mTimeMs;
+
+    private class TestFailureLedger extends FailureLedger {
+        TestFailureLedger() {
+            super(mContext);
+        }
+
+        @Override
+        long getCurrentTimeMs() {
+            return mTimeMs;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mTimeMs = System.currentTimeMillis();
+    }
+
+    @Test
+    public void testFewerStallsOverSessions() {
+        FailureLedger ledger = new TestFailureLedger();
+
+        int firstStalls = 0;
+        for (int i = 0; i < 3; i++) {
+            firstStalls += playSession(ledger);
+        }
+
+        int nextStalls = 0;
+        for (int i = 0; i < 3; i++) {
+            nextStalls += playSession(ledger);
+        }
+
+        assertEquals(3, firstStalls);
+        assertEquals(0, nextStalls);
+        assertTrue(ledger.isAvoided(VP9_FORMAT));
+        assertFalse(ledger.isAvoided(AVC_FORMAT));
+    }
+
+    @Test
+    public void testFailuresSurviveRestartAndDecay() {
+        FailureLedger ledger = new TestFailureLedger();
+
+        for (int i = 0; i < 3; i++) {
+            playSession(ledger);
+        }
+
+        // Cold start
+        FailureLedger restoredLedger = new TestFailureLedger();
+        assertTrue(restoredLedger.isAvoided(VP9_FORMAT));
+        assertEquals(0, playSession(restoredLedger));
+
+        // The firmware could be updated already
+        mTimeMs += 24 * HOUR_MS;
+        assertFalse(restoredLedger.isAvoided(VP9_FORMAT));
+        assertEquals(1, playSession(restoredLedger));
+    }
+
+    @Test
+    public void testFormatIsKeyedByCodecResolutionAndFps() {
+        FailureLedger ledger = new TestFailureLedger();
+
+        for (int i = 0; i < 3; i++) {
+            playSession(ledger);
+        }
+
+        // Same decoder profile, different itag
+        assertTrue(ledger.isAvoided(VP9_HDR_FORMAT));
+        assertFalse(ledger.isAvoided(VP9_60FPS_FORMAT));
+        assertFalse(ledger.isAvoided(VP9_4K_FORMAT));
+    }
+
+    @Test
+    public void testRetriesAreCountedOnce() {
+        FailureLedger ledger = new TestFailureLedger();
+
+        // The player is restarted after the error
+        for (int i = 0; i < 10; i++) {
+            ledger.onDecoderError(VP9_FORMAT);
+        }
+
+        assertFalse(ledger.isAvoided(VP9_FORMAT));
+    }
+
+    @Test
+    public void testLoadErrorsAreNotCounted() {
+        FailureLedger ledger = new TestFailureLedger();
+
+        for (int i = 0; i < 3; i++) {
+            TrackErrorFixer errorFixer = new TrackErrorFixer(new TrackSelectorManager(mContext), ledger);
+            errorFixer.startSession();
+            onDownstreamFormatChanged(errorFixer, VP9_FORMAT);
+            // Expired url
+            onLoadError(errorFixer, new InvalidResponseCodeException(403, null, Collections.emptyMap(), new DataSpec(Uri.parse(VIDEO_URL))));
+            onLoadError(errorFixer, new InvalidResponseCodeException(503, null, Collections.emptyMap(), new DataSpec(Uri.parse(VIDEO_URL))));
+            mTimeMs += HOUR_MS;
+        }
+
+        assertFalse(ledger.isAvoided(VP9_FORMAT));
+    }
+
+    @Test
+    public void testAudioRendererErrorsAreNotCounted() {
+        FailureLedger ledger = new TestFailureLedger();
+
+        for (int i = 0; i < 3; i++) {
+            TrackErrorFixer errorFixer = new TrackErrorFixer(new TrackSelectorManager(mContext), ledger);
+            errorFixer.startSession();
+            onDownstreamFormatChanged(errorFixer, VP9_FORMAT);
+            errorFixer.onRendererError(C.TRACK_TYPE_AUDIO);
+            mTimeMs += HOUR_MS;
+        }
+
+        assertFalse(ledger.isAvoided(VP9_FORMAT));
+    }
+
+    @Test
+    public void testStalledEnginesGoLast() {
+        FailureLedger ledger = new TestFailureLedger();
+        Integer[] engineList = {
+                PlayerTweaksData.PLAYER_DATA_SOURCE_CRONET, PlayerTweaksData.PLAYER_DATA_SOURCE_DEFAULT, PlayerTweaksData.PLAYER_DATA_SOURCE_OKHTTP
+        };
+
+        assertEquals(PlayerTweaksData.PLAYER_DATA_SOURCE_DEFAULT,
+                ledger.getNextEngine(PlayerTweaksData.PLAYER_DATA_SOURCE_CRONET, engineList));
+
+        ledger.onEngineStall(PlayerTweaksData.PLAYER_DATA_SOURCE_DEFAULT);
+
+        assertEquals(PlayerTweaksData.PLAYER_DATA_SOURCE_OKHTTP,
+                ledger.getNextEngine(PlayerTweaksData.PLAYER_DATA_SOURCE_CRONET, engineList));
+        assertEquals(PlayerTweaksData.PLAYER_DATA_SOURCE_CRONET,
+                ledger.getNextEngine(PlayerTweaksData.PLAYER_DATA_SOURCE_OKHTTP, engineList));
+    }
+
+    /**
+     * Picks the best format that isn't avoided, like the track selector does. Falls back to avc on the decoder error.
+     * @return stall count
+     */
+    private int playSession(FailureLedger ledger) {
+        TrackErrorFixer errorFixer = new TrackErrorFixer(new TrackSelectorManager(mContext), ledger);
+        errorFixer.startSession();
+
+        int stalls = 0;
+
+        if (!ledger.isAvoided(VP9_FORMAT)) {
+            onDownstreamFormatChanged(errorFixer, VP9_FORMAT);
+            errorFixer.onRendererError(C.TRACK_TYPE_VIDEO);
+            stalls++;
+            errorFixer.startSession();
+        }
+
+        onDownstreamFormatChanged(errorFixer, AVC_FORMAT);
+
+        mTimeMs += HOUR_MS;
+
+        return stalls;
+    }
+
+    private static void onDownstreamFormatChanged(TrackErrorFixer errorFixer, Format format) {
+        errorFixer.onDownstreamFormatChanged(0, null,
+                new MediaLoadData(C.DATA_TYPE_MEDIA, C.TRACK_TYPE_VIDEO, format, C.SELECTION_REASON_INITIAL, null, 0, 0));
+    }
+
+    private static void onLoadError(TrackErrorFixer errorFixer, IOException error) {
+        DataSpec dataSpec = new DataSpec(Uri.parse(VIDEO_URL));
+        errorFixer.onLoadError(0, null,
+                new LoadEventInfo(dataSpec, dataSpec.uri, Collections.emptyMap(), 0, 0, 0),
+                new MediaLoadData(C.DATA_TYPE_MEDIA, C.TRACK_TYPE_VIDEO, VP9_FORMAT, C.SELECTION_REASON_INITIAL, null, 0, 0),
+                error, false);
+    }
+
+    private static Format createFormat(String itag, String mimeType, String codecs, int width, int height, float frameRate) {
+        return Format.createVideoSampleFormat(itag, mimeType, codecs, Format.NO_VALUE, Format.NO_VALUE,
+                width, height, frameRate, null, null);
+    }
+}
@@ -0,0 +1,345 @@
+package com.liskovsoft.smartyoutubetv2.common.exoplayer.offline;
+
+import android.content.Context;
+import android.net.Uri;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.offline.StreamKey;
+import com.google.android.exoplayer2.scheduler.Requirements;
+import com.google.android.exoplayer2.source.dash.manifest.DashManifest;
+import com.google.android.exoplayer2.source.dash.manifest.DashManifestParser;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.DefaultHttpDataSourceFactory;
+import com.google.android.exoplayer2.upstream.TransferListener;
+import com.sun.net.httpserver.HttpServer;
+
+import io.reactivex.Observable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Downloads from the local http server. Plays the downloaded video with the network disabled.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class OfflineDownloadManagerTest {
+    private static final String VIDEO_ID = "video1";
+    private static final long TIMEOUT_MS = 10_000;
+    private static final int AVC_1080_SIZE = 200_000;
+    private static final int AUDIO_AAC_SIZE = 50_000;
+    private static final int OTHER_SIZE = 1_000;
+    private static final String EXPIRED_PATH = "/expired";
+    @Rule
+    public TemporaryFolder mTempFolder = new TemporaryFolder();
+    private final Random mRandom = new Random(42);
+    private final Map<String, byte[]> mContent = new HashMap<>();
+    private final AtomicInteger mRefreshCount = new AtomicInteger();
+    private Context mContext;
+    private HttpServer mServer;
+    private File mCacheDir;
+    private OfflineDownloadManager mManager;
+
+    /**
+     * The network is disabled
+     */
+    private static class OfflineDataSource implements DataSource {
+        @Override
+        public void addTransferListener(TransferListener transferListener) {
+        }
+
+        @Override
+        public long open(DataSpec dataSpec) throws IOException {
+            throw new IOException("Network is disabled");
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int readLength) throws IOException {
+            throw new IOException("Network is disabled");
+        }
+
+        @Override
+        public Uri getUri() {
+            return null;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        mContext = RuntimeEnvironment.application;
+        mCacheDir = mTempFolder.newFolder("offline");
+
+        mContent.put("137", createContent(AVC_1080_SIZE));
+        mContent.put("248", createContent(OTHER_SIZE));
+        mContent.put("299", createContent(OTHER_SIZE));
+        mContent.put("140", createContent(AUDIO_AAC_SIZE));
+        mContent.put("251", createContent(OTHER_SIZE));
+
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServer.createContext("/videoplayback", exchange -> {
+            byte[] content = mContent.get(exchange.getRequestURI().getQuery().replaceAll(".*itag=(\\d+).*", "$1"));
+            int position = 0;
+            String range = exchange.getRequestHeaders().getFirst("Range");
+
+            if (range != null && range.matches("bytes=\\d+-.*")) {
+                position = Integer.parseInt(range.replaceAll("bytes=(\\d+)-.*", "$1"));
+            }
+
+            exchange.sendResponseHeaders(position > 0 ? 206 : 200, content.length - position);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(content, position, content.length - position);
+            }
+        });
+        mServer.createContext(EXPIRED_PATH, exchange -> {
+            exchange.sendResponseHeaders(403, -1);
+            exchange.close();
+        });
+        mServer.start();
+
+        mManager = createManager();
+    }
+
+    @After
+    public void tearDown() {
+        mManager.release();
+        mServer.stop(0);
+    }
+
+    @Test
+    public void testPlaybackWithoutNetwork() throws IOException {
+        assertTrue(mManager.download(VIDEO_ID, createManifest(getServerUrl(), AVC_1080_SIZE)));
+        waitUntil(() -> mManager.isDownloaded(VIDEO_ID));
+
+        // Fresh manifest with other urls, the old ones are expired
+        DashManifest manifest = parseManifest(createManifest("https://rr5---sn-abc.googlevideo.com", AVC_1080_SIZE));
+        List<StreamKey> streamKeys = mManager.getStreamKeys(VIDEO_ID, manifest);
+
+        // avc 1080p and aac are downloaded
+        assertEquals(Arrays.asList(new StreamKey(0, 0, 0), new StreamKey(0, 1, 0)), streamKeys);
+
+        DataSource dataSource = mManager.getDataSourceFactory(VIDEO_ID, OfflineDataSource::new).createDataSource();
+        Uri videoUri = getUri(manifest, 0, 0);
+
+        // Init and index segments, then the media
+        assertArrayEquals(Arrays.copyOfRange(mContent.get("137"), 0, 1_000), read(dataSource, videoUri, 0, 1_000));
+        assertArrayEquals(Arrays.copyOfRange(mContent.get("137"), 50_000, 150_000), read(dataSource, videoUri, 50_000, 100_000));
+        assertArrayEquals(mContent.get("140"), read(dataSource, getUri(manifest, 1, 0), 0, C.LENGTH_UNSET));
+    }
+
+    @Test
+    public void testDownloadsSurviveRestart() throws IOException {
+        byte[] dashManifest = createManifest(getServerUrl(), AVC_1080_SIZE);
+        mManager.download(VIDEO_ID, dashManifest);
+        waitUntil(() -> mManager.isDownloaded(VIDEO_ID));
+
+        // Cold start
+        mManager.release();
+        mManager = createManager();
+
+        assertTrue(mManager.isDownloaded(VIDEO_ID));
+        assertArrayEquals(dashManifest, mManager.getManifest(VIDEO_ID));
+
+        DashManifest manifest = parseManifest(mManager.getManifest(VIDEO_ID));
+        DataSource dataSource = mManager.getDataSourceFactory(VIDEO_ID, OfflineDataSource::new).createDataSource();
+        assertArrayEquals(mContent.get("137"), read(dataSource, getUri(manifest, 0, 0), 0, C.LENGTH_UNSET));
+
+        mManager.remove(VIDEO_ID);
+        waitUntil(() -> mManager.getManifest(VIDEO_ID) == null);
+
+        assertFalse(mManager.isDownloaded(VIDEO_ID));
+        assertNull(mManager.getManifest(VIDEO_ID));
+    }
+
+    @Test
+    public void testLargeVideoIsSkipped() {
+        // 2GB 1080p video
+        assertFalse(mManager.download(VIDEO_ID, createManifest(getServerUrl(), 2_000_000_000L)));
+        assertFalse(mManager.isDownloaded(VIDEO_ID));
+    }
+
+    @Test
+    public void testExpiredUrlsAreRefreshed() {
+        byte[] freshManifest = createManifest(getServerUrl(), AVC_1080_SIZE);
+        mManager.release();
+        mManager = createManager(freshManifest);
+
+        assertTrue(mManager.download(VIDEO_ID, createManifest(getServerUrl() + EXPIRED_PATH, AVC_1080_SIZE)));
+        waitUntil(() -> mManager.isDownloaded(VIDEO_ID));
+
+        assertTrue(mRefreshCount.get() > 0);
+        assertArrayEquals(freshManifest, mManager.getManifest(VIDEO_ID));
+    }
+
+    @Test
+    public void testFailedDownloadsAreRemoved() {
+        // The fresh urls don't work either
+        byte[] expiredManifest = createManifest(getServerUrl() + EXPIRED_PATH, AVC_1080_SIZE);
+        mManager.release();
+        mManager = createManager(expiredManifest);
+
+        assertTrue(mManager.download(VIDEO_ID, expiredManifest));
+        waitUntil(() -> mRefreshCount.get() > 0 && mManager.getManifest(VIDEO_ID) == null);
+
+        assertFalse(mManager.isDownloaded(VIDEO_ID));
+    }
+
+    @Test
+    public void testFailedDownloadsAreRemovedOnRestart() {
+        byte[] expiredManifest = createManifest(getServerUrl() + EXPIRED_PATH, AVC_1080_SIZE);
+        mManager.release();
+        // Refresh never completes
+        mManager = createManager(null);
+
+        mManager.download(VIDEO_ID, expiredManifest);
+        // Video and audio have failed
+        waitUntil(() -> mRefreshCount.get() >= 2);
+
+        // Cold start
+        mManager.release();
+        mManager = createManager();
+        waitUntil(() -> mManager.getManifest(VIDEO_ID) == null);
+
+        assertFalse(mManager.isDownloaded(VIDEO_ID));
+    }
+
+    private OfflineDownloadManager createManager() {
+        return new OfflineDownloadManager(mContext, mCacheDir, new DefaultHttpDataSourceFactory("test"), new Requirements(0));
+    }
+
+    /**
+     * @param freshManifest manifest returned on refresh or null if it never arrives
+     */
+    private OfflineDownloadManager createManager(byte[] freshManifest) {
+        return new OfflineDownloadManager(mContext, mCacheDir, new DefaultHttpDataSourceFactory("test"), new Requirements(0)) {
+            @Override
+            Observable<byte[]> getManifestObserve(String videoId) {
+                mRefreshCount.incrementAndGet();
+                return freshManifest != null ? Observable.just(freshManifest) : Observable.never();
+            }
+        };
+    }
+
+    private String getServerUrl() {
+        return "http://127.0.0.1:" + mServer.getAddress().getPort();
+    }
+
+    private byte[] createContent(int size) {
+        byte[] result = new byte[size];
+        mRandom.nextBytes(result);
+        return result;
+    }
+
+    /**
+     * Youtube like manifest. Only avc 1080p and aac fit the download rules.
+     */
+    private static byte[] createManifest(String serverUrl, long avc1080Size) {
+        String manifest = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                "<MPD xmlns=\"urn:mpeg:DASH:schema:MPD:2011\" type=\"static\" mediaPresentationDuration=\"PT60S\">\n" +
+                "<Period>\n" +
+                "<AdaptationSet id=\"0\" mimeType=\"video/mp4\">\n" +
+                createRepresentation(serverUrl, "137", "avc1.640028", "width=\"1920\" height=\"1080\"", 2_000_000, avc1080Size) +
+                createRepresentation(serverUrl, "299", "avc1.64002a", "width=\"2560\" height=\"1440\"", 4_000_000, OTHER_SIZE) +
+                "</AdaptationSet>\n" +
+                "<AdaptationSet id=\"1\" mimeType=\"audio/mp4\">\n" +
+                createRepresentation(serverUrl, "140", "mp4a.40.2", "audioSamplingRate=\"44100\"", 128_000, AUDIO_AAC_SIZE) +
+                "</AdaptationSet>\n" +
+                "<AdaptationSet id=\"2\" mimeType=\"video/webm\">\n" +
+                createRepresentation(serverUrl, "248", "vp9", "width=\"1920\" height=\"1080\"", 2_500_000, OTHER_SIZE) +
+                "</AdaptationSet>\n" +
+                "<AdaptationSet id=\"3\" mimeType=\"audio/webm\">\n" +
+                createRepresentation(serverUrl, "251", "opus", "audioSamplingRate=\"48000\"", 160_000, OTHER_SIZE) +
+                "</AdaptationSet>\n" +
+                "</Period>\n" +
+                "</MPD>\n";
+
+        return manifest.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String createRepresentation(String serverUrl, String itag, String codecs, String attributes, int bitrate, long size) {
+        return String.format("<Representation id=\"%s\" codecs=\"%s\" %s bandwidth=\"%s\">\n" +
+                "<BaseURL>%s/videoplayback?itag=%s&amp;clen=%s</BaseURL>\n" +
+                "<SegmentBase indexRange=\"500-999\"><Initialization range=\"0-499\"/></SegmentBase>\n" +
+                "</Representation>\n", itag, codecs, attributes, bitrate, serverUrl, itag, size);
+    }
+
+    private static DashManifest parseManifest(byte[] dashManifest) throws IOException {
+        return new DashManifestParser().parse(Uri.parse("https://example.com/test.mpd"), new ByteArrayInputStream(dashManifest));
+    }
+
+    private static Uri getUri(DashManifest manifest, int groupIndex, int trackIndex) {
+        return Uri.parse(manifest.getPeriod(0).adaptationSets.get(groupIndex).representations.get(trackIndex).baseUrl);
+    }
+
+    private static byte[] read(DataSource dataSource, Uri uri, long position, long length) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4_096];
+
+        try {
+            dataSource.open(new DataSpec(uri, position, length, null));
+            int readBytes;
+            while ((readBytes = dataSource.read(buffer, 0, buffer.length)) != C.RESULT_END_OF_INPUT) {
+                result.write(buffer, 0, readBytes);
+            }
+        } finally {
+            dataSource.close();
+        }
+
+        return result.toByteArray();
+    }
+
+    private interface Condition {
+        boolean isMet();
+    }
+
+    /**
+     * Downloads run on the background threads. Their state is delivered on the main looper.
+     */
+    private static void waitUntil(Condition condition) {
+        long startMs = System.currentTimeMillis();
+
+        while (!condition.isMet()) {
+            if (System.currentTimeMillis() - startMs > TIMEOUT_MS) {
+                throw new AssertionError("Timeout");
+            }
+
+            ShadowLooper.idleMainLooper();
+
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
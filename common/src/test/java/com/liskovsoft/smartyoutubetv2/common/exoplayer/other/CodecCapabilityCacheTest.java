@@ -0,0 +1,200 @@
+package com.liskovsoft.smartyoutubetv2.common.exoplayer.other;
+
+import android.content.Context;
+
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.util.MimeTypes;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.other.DecoderPerformanceProfile.Stats;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class CodecCapabilityCacheTest {
+    private static final String FINGERPRINT = "vendor/box/box:9/PI/1:user/release-keys";
+    private static final String NEW_FINGERPRINT = "vendor/box/box:9/PI/2:user/release-keys";
+    private Context mContext;
+    private FakeCodecList mCodecList;
+
+    /**
+     * Box with 1080p vp9 decoder and without av1 decoder
+     */
+    private static class FakeCodecList implements CodecCapabilityCache.CodecList {
+        private int mQueryCount;
+
+        @Override
+        public boolean isResolutionSupported(String codec, int height) {
+            mQueryCount++;
+
+            return CodecCapabilityCache.CODEC_VP9.equals(codec) && height <= 1080;
+        }
+    }
+
+    private static class TimedProfile extends DecoderPerformanceProfile {
+        private long mCurrentTimeMs = 1_000_000;
+
+        private TimedProfile(Context context) {
+            super(context, FINGERPRINT);
+        }
+
+        @Override
+        long getCurrentTimeMs() {
+            return mCurrentTimeMs;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mCodecList = new FakeCodecList();
+    }
+
+    @Test
+    public void testCapabilitiesSurviveRestart() {
+        CodecCapabilityCache cache = new CodecCapabilityCache(mContext, mCodecList, FINGERPRINT);
+
+        assertTrue(cache.isVP9ResolutionSupported(1080));
+        assertFalse(cache.isVP9ResolutionSupported(2160));
+        assertFalse(cache.isAV1ResolutionSupported(1080));
+        assertTrue(cache.isVP9ResolutionSupported(1080));
+        assertEquals(3, mCodecList.mQueryCount);
+
+        // Cold start
+        FakeCodecList codecList = new FakeCodecList();
+        CodecCapabilityCache restoredCache = new CodecCapabilityCache(mContext, codecList, FINGERPRINT);
+
+        assertTrue(restoredCache.isVP9ResolutionSupported(1080));
+        assertFalse(restoredCache.isVP9ResolutionSupported(2160));
+        assertFalse(restoredCache.isAV1ResolutionSupported(1080));
+        assertEquals(0, codecList.mQueryCount);
+    }
+
+    @Test
+    public void testFirmwareUpdateDropsCapabilities() {
+        CodecCapabilityCache cache = new CodecCapabilityCache(mContext, mCodecList, FINGERPRINT);
+        cache.isVP9ResolutionSupported(2160);
+
+        FakeCodecList codecList = new FakeCodecList();
+        CodecCapabilityCache updatedCache = new CodecCapabilityCache(mContext, codecList, NEW_FINGERPRINT);
+        updatedCache.isVP9ResolutionSupported(2160);
+
+        assertEquals(1, codecList.mQueryCount);
+    }
+
+    @Test
+    public void testPoorDecodingIsRemembered() {
+        Format vp9Format = createFormat(MimeTypes.VIDEO_VP9, 3840, 2160, 60);
+        Format avcFormat = createFormat(MimeTypes.VIDEO_H264, 1920, 1080, 60);
+
+        DecoderPerformanceProfile profile = new DecoderPerformanceProfile(mContext, FINGERPRINT);
+        profile.onDecoderInitialized(vp9Format, 120);
+        profile.onFramesRendered(vp9Format, 300, 100);
+        // Not enough frames yet
+        assertFalse(profile.isPoor(vp9Format));
+
+        profile.onFramesRendered(vp9Format, 1_200, 300);
+        profile.onDecoderInitialized(avcFormat, 40);
+        profile.onFramesRendered(avcFormat, 3_000, 10);
+
+        assertTrue(profile.isPoor(vp9Format));
+        assertFalse(profile.isPoor(avcFormat));
+        // Other resolution and fps are judged separately
+        assertFalse(profile.isPoor(createFormat(MimeTypes.VIDEO_VP9, 3840, 2160, 30)));
+        assertFalse(profile.isPoor(createFormat(MimeTypes.VIDEO_VP9, 1920, 1080, 60)));
+
+        // Cold start
+        DecoderPerformanceProfile restoredProfile = new DecoderPerformanceProfile(mContext, FINGERPRINT);
+        Stats stats = restoredProfile.getStats(vp9Format);
+
+        assertNotNull(stats);
+        assertTrue(restoredProfile.isPoor(vp9Format));
+        assertEquals(1_500, stats.renderedFrames);
+        assertEquals(400, stats.droppedFrames);
+        assertEquals(2, stats.sessions);
+        assertEquals(120, stats.getAverageInitTimeMs());
+
+        // New firmware could have better decoders
+        DecoderPerformanceProfile updatedProfile = new DecoderPerformanceProfile(mContext, NEW_FINGERPRINT);
+        assertNull(updatedProfile.getStats(vp9Format));
+    }
+
+    @Test
+    public void testRepeatedFallbacksArePoor() {
+        Format av1Format = createFormat(MimeTypes.VIDEO_AV1, 2560, 1440, 30);
+        DecoderPerformanceProfile profile = new DecoderPerformanceProfile(mContext, FINGERPRINT);
+
+        for (int i = 0; i < 3; i++) {
+            profile.onDecoderFallback(av1Format);
+            profile.onDecoderInitialized(av1Format, 500);
+        }
+
+        assertTrue(profile.isPoor(av1Format));
+        assertFalse(profile.isPoor(createFormat(MimeTypes.AUDIO_AAC, -1, -1, -1)));
+    }
+
+    @Test
+    public void testPoorMarkExpires() {
+        Format vp9Format = createFormat(MimeTypes.VIDEO_VP9, 3840, 2160, 60);
+        TimedProfile profile = new TimedProfile(mContext);
+
+        profile.onFramesRendered(vp9Format, 1_500, 500);
+        assertTrue(profile.isPoor(vp9Format));
+
+        // The format is tried again after a week
+        profile.mCurrentTimeMs += 8 * 24 * 60 * 60 * 1_000L;
+        assertFalse(profile.isPoor(vp9Format));
+
+        // Only the new frames are judged
+        profile.onFramesRendered(vp9Format, 1_500, 10);
+        assertFalse(profile.isPoor(vp9Format));
+        assertEquals(1_500, profile.getStats(vp9Format).renderedFrames);
+    }
+
+    @Test
+    public void testRecentFramesWeighMore() {
+        Format avcFormat = createFormat(MimeTypes.VIDEO_H264, 1920, 1080, 60);
+        DecoderPerformanceProfile profile = new DecoderPerformanceProfile(mContext, FINGERPRINT);
+
+        // Long smooth history
+        profile.onFramesRendered(avcFormat, 20_000, 0);
+
+        // Then the device starts to struggle (e.g. after the update of the app)
+        for (int i = 0; i < 4; i++) {
+            profile.onFramesRendered(avcFormat, 1_500, 500);
+        }
+
+        assertTrue(profile.isPoor(avcFormat));
+    }
+
+    @Test
+    public void testResetForgetsFormats() {
+        Format av1Format = createFormat(MimeTypes.VIDEO_AV1, 2560, 1440, 30);
+        DecoderPerformanceProfile profile = new DecoderPerformanceProfile(mContext, FINGERPRINT);
+
+        for (int i = 0; i < 3; i++) {
+            profile.onDecoderFallback(av1Format);
+        }
+
+        assertTrue(profile.isPoor(av1Format));
+
+        profile.reset();
+        assertFalse(profile.isPoor(av1Format));
+
+        // Cold start
+        assertNull(new DecoderPerformanceProfile(mContext, FINGERPRINT).getStats(av1Format));
+    }
+
+    private static Format createFormat(String mimeType, int width, int height, float frameRate) {
+        return Format.createVideoSampleFormat(null, mimeType, null, Format.NO_VALUE, Format.NO_VALUE,
+                width, height, frameRate, null, null);
+    }
+}
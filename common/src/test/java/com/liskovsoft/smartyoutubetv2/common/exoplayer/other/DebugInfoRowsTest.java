@@ -0,0 +1,142 @@
+package com.liskovsoft.smartyoutubetv2.common.exoplayer.other;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class DebugInfoRowsTest {
+    private static final int REFRESH_COUNT = 10_000;
+    private DebugInfoRows mRows;
+    private CountingRenderer mRenderer;
+    private int mFramesRow;
+    private int mBufferRow;
+    private int mConnectionsRow;
+    private int mBitrateRow;
+    private int mMemoryRow;
+    private int mStateRow;
+
+    /**
+     * Reads the values like the text view does
+     */
+    private static class CountingRenderer implements DebugInfoRows.Renderer {
+        private int mRenderedRows;
+        private long mChecksum;
+
+        @Override
+        public void onRowChanged(int index, String name, char[] value, int length, int color, boolean visible) {
+            mRenderedRows++;
+
+            for (int i = 0; i < length; i++) {
+                mChecksum += value[i];
+            }
+        }
+    }
+
+    @Before
+    public void setUp() {
+        mRows = new DebugInfoRows();
+        mRenderer = new CountingRenderer();
+
+        mFramesRow = mRows.add("Dropped/Rendered Frames");
+        mBufferRow = mRows.add("Buffer size (seconds)");
+        mConnectionsRow = mRows.add("Connections New/Reused/TLS");
+        mBitrateRow = mRows.add("Video/Audio Bitrate");
+        mMemoryRow = mRows.add("Allocated Memory (MB)");
+        mStateRow = mRows.add("Playback State");
+
+        for (int i = 0; i < 20; i++) {
+            mRows.set(mRows.add("Static row " + i), "Static value " + i);
+        }
+    }
+
+    @Test
+    public void testOnlyChangedRowsAreRendered() {
+        refresh(0);
+        assertEquals(mRows.size(), mRows.render(mRenderer));
+
+        // Same values
+        refresh(0);
+        assertEquals(0, mRows.render(mRenderer));
+
+        // Rendered frames are changed
+        refresh(6);
+        assertEquals(1, mRows.render(mRenderer));
+
+        mRows.setVisible(mStateRow, false);
+        mRows.setColor(mBitrateRow, 0xFFFF0000);
+        mRows.setColor(mMemoryRow, 0);
+        assertEquals(2, mRows.render(mRenderer));
+
+        mRows.invalidate();
+        assertEquals(mRows.size(), mRows.render(mRenderer));
+    }
+
+    /**
+     * Covers the rows and the formatters of the per second poll.<br/>
+     * The event driven rows (codecs, decoder) and the text views aren't covered.
+     */
+    @Test
+    public void testCounterRefreshAllocatesNothing() {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        // Warm up (jit, buffers)
+        for (int i = 0; i < REFRESH_COUNT; i++) {
+            refresh(i);
+            mRows.render(mRenderer);
+        }
+
+        // Cost of the measurement itself
+        long startBytes = threadBean.getThreadAllocatedBytes(threadId);
+        long measurementBytes = threadBean.getThreadAllocatedBytes(threadId) - startBytes;
+
+        int renderedRows = mRenderer.mRenderedRows;
+        startBytes = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = REFRESH_COUNT; i < REFRESH_COUNT * 2; i++) {
+            refresh(i);
+            mRows.render(mRenderer);
+        }
+        long allocatedBytes = threadBean.getThreadAllocatedBytes(threadId) - startBytes - measurementBytes;
+
+        assertTrue(mRenderer.mChecksum > 0);
+        assertTrue(mRenderer.mRenderedRows - renderedRows >= REFRESH_COUNT);
+        assertEquals(0, allocatedBytes);
+    }
+
+    @Test
+    public void testMbpsFormat() {
+        int[] bitrates = {0, 128_000, 999_000, 2_000_000, 4_567_890, 12_345_678};
+
+        for (int bitrate : bitrates) {
+            assertEquals(String.format(Locale.ENGLISH, "%.2fMbps", bitrate / 1_000_000f),
+                    DebugInfoRows.appendMbps(new StringBuilder(), bitrate).toString());
+        }
+
+        assertEquals(DebugInfoManager.NOT_AVAILABLE, DebugInfoRows.appendMbps(new StringBuilder(), -1).toString());
+    }
+
+    /**
+     * Same counter updates as the overlay does every second
+     */
+    private void refresh(int tick) {
+        mRows.edit().append(tick / 100).append('/').append(tick * 30);
+        mRows.commit(mFramesRow);
+        mRows.set(mBufferRow, 30 + tick % 2);
+        mRows.edit().append(12).append('/').append(240 + tick / 50).append('/').append(12);
+        mRows.commit(mConnectionsRow);
+        StringBuilder bitrate = mRows.edit();
+        DebugInfoRows.appendMbps(bitrate, 4_567_890).append('/');
+        DebugInfoRows.appendMbps(bitrate, 128_000);
+        mRows.commit(mBitrateRow);
+        mRows.set(mMemoryRow, 64 + tick % 3);
+        mRows.set(mStateRow, "ready");
+    }
+}
@@ -0,0 +1,198 @@
+package com.liskovsoft.smartyoutubetv2.common.exoplayer.other;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.audio.AudioProcessor.UnhandledFormatException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Feeds synthetic pcm (sine waves) through the processor in 10ms buffers like the audio sink does.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LoudnessNormalizerTest {
+    private static final int SAMPLE_RATE = 48_000;
+    private static final int CHANNEL_COUNT = 2;
+    private static final int BUFFER_FRAMES = SAMPLE_RATE / 100;
+    private static final float TARGET_LUFS = -16;
+    private ByteBuffer mInput;
+    private short mMaxOutputSample;
+    private long mSamplePosition;
+
+    @Before
+    public void setUp() {
+        mInput = ByteBuffer.allocateDirect(BUFFER_FRAMES * CHANNEL_COUNT * 2).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * ITU-R BS.1770: 0 dBFS 997Hz sine in one channel reads -3.01 LKFS
+     */
+    @Test
+    public void testMeterConformance() throws UnhandledFormatException {
+        LoudnessNormalizer normalizer = createNormalizer(null);
+
+        feed(normalizer, 997, Short.MAX_VALUE, false, 3_000);
+
+        assertEquals(-3.01, normalizer.getLoudness(), 0.1);
+    }
+
+    @Test
+    public void testQuietAndLoudConvergeToTarget() throws UnhandledFormatException {
+        // -26 LUFS and -6 LUFS
+        float[] amplitudes = {0.05f, 0.5f};
+
+        for (float amplitude : amplitudes) {
+            LoudnessNormalizer normalizer = createNormalizer(null);
+            feed(normalizer, 1_000, amplitude * Short.MAX_VALUE, true, 20_000);
+
+            float outputLoudness = normalizer.getLoudness() + normalizer.getGainDb();
+            assertEquals(TARGET_LUFS, outputLoudness, 1);
+        }
+    }
+
+    @Test
+    public void testBoostIsLimited() throws UnhandledFormatException {
+        LoudnessNormalizer normalizer = createNormalizer(null);
+
+        // -60 LUFS
+        feed(normalizer, 1_000, 0.0005f * Short.MAX_VALUE, true, 20_000);
+
+        assertEquals(12, normalizer.getGainDb(), 0.01);
+    }
+
+    @Test
+    public void testLimiterCatchesPeaks() throws UnhandledFormatException {
+        LoudnessNormalizer normalizer = createNormalizer(null);
+
+        // Quiet speech then the sudden full scale explosion
+        feed(normalizer, 300, 0.05f * Short.MAX_VALUE, true, 10_000);
+        assertTrue(normalizer.getGainDb() > 6);
+
+        mMaxOutputSample = 0;
+        feed(normalizer, 300, Short.MAX_VALUE, true, 200);
+
+        // -1 dBFS
+        assertTrue(mMaxOutputSample <= 29_204);
+        assertTrue(mMaxOutputSample > 25_000);
+    }
+
+    @Test
+    public void testSilenceKeepsGain() throws UnhandledFormatException {
+        LoudnessNormalizer normalizer = createNormalizer(null);
+
+        feed(normalizer, 1_000, 0.1f * Short.MAX_VALUE, true, 15_000);
+        float gainDb = normalizer.getGainDb();
+
+        feed(normalizer, 1_000, 0, true, 5_000);
+
+        assertEquals(gainDb, normalizer.getGainDb(), 0.01);
+    }
+
+    @Test
+    public void testReplayStartsAtRememberedGain() throws UnhandledFormatException {
+        LoudnessGainStore store = new LoudnessGainStore(RuntimeEnvironment.application);
+
+        store.setContent("video1", "channel1");
+        LoudnessNormalizer normalizer = createNormalizer(store);
+        feed(normalizer, 1_000, 0.05f * Short.MAX_VALUE, true, 20_000);
+        float gainDb = normalizer.getGainDb();
+        normalizer.reset();
+
+        // Replay. The gain is applied from the first sample.
+        store.setContent("video1", "channel1");
+        normalizer = createNormalizer(store);
+        feed(normalizer, 1_000, 0.05f * Short.MAX_VALUE, true, 10);
+        assertEquals(gainDb, normalizer.getGainDb(), 0.01);
+
+        // New video of the same channel
+        store.setContent("video2", "channel1");
+        feed(normalizer, 1_000, 0.05f * Short.MAX_VALUE, true, 10);
+        assertEquals(gainDb, normalizer.getGainDb(), 0.01);
+
+        // Unknown channel
+        store.setContent("video3", "channel2");
+        feed(normalizer, 1_000, 0.05f * Short.MAX_VALUE, true, 10);
+        assertEquals(0, normalizer.getGainDb(), 0.01);
+    }
+
+    @Test
+    public void testGainIsWrittenOnPersistOnly() throws UnhandledFormatException {
+        LoudnessGainStore store = new LoudnessGainStore(RuntimeEnvironment.application);
+
+        store.setContent("video1", "channel1");
+        LoudnessNormalizer normalizer = createNormalizer(store);
+        feed(normalizer, 1_000, 0.05f * Short.MAX_VALUE, true, 20_000);
+        float gainDb = normalizer.getGainDb();
+        normalizer.reset();
+
+        // Nothing is written from the audio thread
+        assertNull(new LoudnessGainStore(RuntimeEnvironment.application).getGainDb("video1", "channel1"));
+
+        // Pause or release
+        store.persist();
+        Float restoredGainDb = new LoudnessGainStore(RuntimeEnvironment.application).getGainDb("video1", "channel1");
+        assertNotNull(restoredGainDb);
+        assertEquals(gainDb, restoredGainDb, 0.01);
+    }
+
+    @Test
+    public void testThroughput() throws UnhandledFormatException {
+        LoudnessNormalizer normalizer = createNormalizer(null);
+        int durationMs = 600_000;
+
+        // Warm up (jit)
+        feed(normalizer, 1_000, 0.1f * Short.MAX_VALUE, true, 60_000);
+
+        long startNs = System.nanoTime();
+        feed(normalizer, 1_000, 0.1f * Short.MAX_VALUE, true, durationMs);
+        long elapsedNs = System.nanoTime() - startNs;
+
+        // The input generation is included
+        float realtime = durationMs * 1_000_000f / elapsedNs;
+
+        assertTrue("Realtime: " + realtime, realtime > 20);
+    }
+
+    private static LoudnessNormalizer createNormalizer(LoudnessGainStore store) throws UnhandledFormatException {
+        LoudnessNormalizer normalizer = new LoudnessNormalizer(store);
+        normalizer.configure(SAMPLE_RATE, CHANNEL_COUNT, C.ENCODING_PCM_16BIT);
+        normalizer.flush();
+        return normalizer;
+    }
+
+    /**
+     * @param stereo false - the right channel is silent
+     */
+    private void feed(LoudnessNormalizer normalizer, int frequencyHz, float amplitude, boolean stereo, int durationMs) {
+        int buffers = durationMs / 10;
+
+        for (int i = 0; i < buffers; i++) {
+            mInput.clear();
+
+            for (int frame = 0; frame < BUFFER_FRAMES; frame++) {
+                short sample = (short) Math.round(amplitude * Math.sin(2 * Math.PI * frequencyHz * mSamplePosition++ / SAMPLE_RATE));
+                mInput.putShort(sample);
+                mInput.putShort(stereo ? sample : 0);
+            }
+
+            mInput.flip();
+            normalizer.queueInput(mInput);
+
+            ByteBuffer output = normalizer.getOutput();
+            while (output.hasRemaining()) {
+                mMaxOutputSample = (short) Math.max(mMaxOutputSample, Math.abs(output.getShort()));
+            }
+        }
+    }
+}
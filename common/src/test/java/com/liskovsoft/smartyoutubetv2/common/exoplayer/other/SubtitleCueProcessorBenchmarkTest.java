@@ -0,0 +1,240 @@
+package com.liskovsoft.smartyoutubetv2.common.exoplayer.other;
+
+import com.google.android.exoplayer2.text.Cue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Two hours of the auto-generated (rolling) captions, like the renderer reports them: a two-line cue every few seconds,
+ * the last line repeated on the segment boundary and the empty cues on the pauses in the speech.<br/>
+ * The processor is compared with the previous implementation of {@link SubtitleManager}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SubtitleCueProcessorBenchmarkTest {
+    private static final int DURATION_MS = 2 * 60 * 60 * 1_000;
+    private static final int CUE_DURATION_MS = 2_500;
+    private static final int CUE_COUNT = DURATION_MS / CUE_DURATION_MS;
+    private static final String[] WORDS = {"so", "the", "video", "is", "about", "how", "we", "make", "a", "really", "good",
+            "coffee", "at", "home", "and", "you", "don't", "need", "any", "special", "equipment", "for", "that"};
+    private List<List<Cue>> mTrack;
+
+    /**
+     * SubtitleManager.forceCenterAlignment before the processor
+     */
+    private static class LegacyProcessor {
+        private CharSequence mSubsBuffer;
+
+        private List<Cue> process(List<Cue> cues) {
+            List<Cue> result = new ArrayList<>();
+
+            for (Cue cue : cues) {
+                final String textStr = cue.text.toString();
+                if (textStr.endsWith("\n") || textStr.endsWith(" ")) {
+                    mSubsBuffer = textStr;
+                } else if (textStr.contains("\n")) {
+                    CharSequence text = mSubsBuffer != null ? textStr.replace(mSubsBuffer, "").replace("\n", "") : textStr;
+                    result.add(new Cue(text));
+
+                    String[] split = textStr.split("\n");
+                    mSubsBuffer = split.length == 2 ? split[1] : textStr;
+                } else {
+                    CharSequence text = mSubsBuffer != null ? textStr.replace(mSubsBuffer, "") : textStr;
+                    result.add(new Cue(text));
+                    mSubsBuffer = text;
+                }
+            }
+
+            return result;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        mTrack = createTrack();
+    }
+
+    @Test
+    public void testSameTextAsBefore() {
+        LegacyProcessor legacy = new LegacyProcessor();
+        SubtitleCueProcessor processor = new SubtitleCueProcessor();
+
+        for (List<Cue> cues : mTrack) {
+            assertEquals(getText(legacy.process(cues)), getText(processor.process(cues)));
+        }
+    }
+
+    /**
+     * The subtitle view skips the redraw when it gets the same list
+     */
+    @Test
+    public void testUnchangedCuesAreNotRedrawn() {
+        SubtitleCueProcessor processor = new SubtitleCueProcessor();
+        int redraws = 0;
+        List<Cue> lastResult = null;
+
+        for (List<Cue> cues : mTrack) {
+            List<Cue> result = processor.process(cues);
+
+            if (result != lastResult) {
+                redraws++;
+                lastResult = result;
+            }
+        }
+
+        // Every list was new before. Now the second empty list of the pause is the same.
+        assertEquals(mTrack.size() - CUE_COUNT / 10, redraws);
+    }
+
+    @Test
+    public void testUnchangedCueIsReused() {
+        SubtitleCueProcessor processor = new SubtitleCueProcessor();
+        Cue first = processor.process(Arrays.asList(new Cue("good coffee"), new Cue("at home"))).get(0);
+
+        // The second cue is changed
+        List<Cue> result = processor.process(Arrays.asList(new Cue("good coffee"), new Cue("and tea")));
+
+        assertSame(first, result.get(0));
+        assertEquals("good coffee|and tea", getText(result));
+    }
+
+    @Test
+    public void testProcessorAllocatesLess() {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        // Warm up (jit)
+        runLegacy(new LegacyProcessor());
+        runProcessor(new SubtitleCueProcessor());
+
+        LegacyProcessor legacy = new LegacyProcessor();
+        long startBytes = threadBean.getThreadAllocatedBytes(threadId);
+        runLegacy(legacy);
+        long legacyBytes = threadBean.getThreadAllocatedBytes(threadId) - startBytes;
+
+        SubtitleCueProcessor processor = new SubtitleCueProcessor();
+        startBytes = threadBean.getThreadAllocatedBytes(threadId);
+        runProcessor(processor);
+        long processorBytes = threadBean.getThreadAllocatedBytes(threadId) - startBytes;
+
+        assertTrue("Processor: " + processorBytes + ", legacy: " + legacyBytes, processorBytes < legacyBytes);
+    }
+
+    @Test
+    public void testResetDropsPreviousVideo() {
+        SubtitleCueProcessor processor = new SubtitleCueProcessor();
+        processor.process(Collections.singletonList(new Cue("thanks for watching")));
+
+        // Next video starts with the same words
+        processor.reset();
+        List<Cue> result = processor.process(Collections.singletonList(new Cue("thanks for watching")));
+
+        assertEquals("thanks for watching", getText(result));
+    }
+
+    @Test
+    public void testFirstTwoLineCueKeepsLines() {
+        SubtitleCueProcessor processor = new SubtitleCueProcessor();
+        assertEquals("good coffee\nat home", getText(processor.process(Collections.singletonList(new Cue("good coffee\nat home")))));
+
+        // The repeated line is removed
+        assertEquals("and tea", getText(processor.process(Collections.singletonList(new Cue("at home\nand tea")))));
+
+        processor.reset();
+        assertEquals("so the\nvideo is", getText(processor.process(Collections.singletonList(new Cue("so the\nvideo is")))));
+    }
+
+    @Test
+    public void testTransformIsApplied() {
+        SubtitleCueProcessor processor = new SubtitleCueProcessor();
+        processor.addTransform(text -> text.toString().replace("coffee", "tea"));
+
+        List<Cue> result = processor.process(Collections.singletonList(new Cue("good coffee at home")));
+        assertEquals("good tea at home", getText(result));
+
+        // Hidden cue
+        processor.addTransform(text -> null);
+        assertTrue(processor.process(Collections.singletonList(new Cue("good coffee"))).isEmpty());
+    }
+
+    private void runLegacy(LegacyProcessor legacy) {
+        for (List<Cue> cues : mTrack) {
+            legacy.process(cues);
+        }
+    }
+
+    private void runProcessor(SubtitleCueProcessor processor) {
+        for (List<Cue> cues : mTrack) {
+            processor.process(cues);
+        }
+    }
+
+    private static List<List<Cue>> createTrack() {
+        Random random = new Random(42);
+        List<List<Cue>> result = new ArrayList<>();
+        String previousLine = createLine(random);
+
+        for (int i = 0; i < CUE_COUNT; i++) {
+            String line = createLine(random);
+            String text = previousLine + "\n" + line;
+            result.add(Collections.singletonList(new Cue(text)));
+
+            // Single line cue of the segment boundary
+            if (i % 4 == 3) {
+                result.add(Collections.singletonList(new Cue(line)));
+                result.add(Collections.singletonList(new Cue(line)));
+            }
+
+            // Pause in the speech over the segment boundary
+            if (i % 10 == 9) {
+                result.add(Collections.emptyList());
+                result.add(Collections.emptyList());
+            }
+
+            previousLine = line;
+        }
+
+        return result;
+    }
+
+    private static String createLine(Random random) {
+        StringBuilder result = new StringBuilder();
+        int wordCount = 4 + random.nextInt(5);
+
+        for (int i = 0; i < wordCount; i++) {
+            if (i > 0) {
+                result.append(' ');
+            }
+
+            result.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+
+        return result.toString();
+    }
+
+    private static String getText(List<Cue> cues) {
+        StringBuilder result = new StringBuilder();
+
+        for (Cue cue : cues) {
+            result.append(cue.text).append('|');
+        }
+
+        return result.length() > 0 ? result.substring(0, result.length() - 1) : "";
+    }
+}
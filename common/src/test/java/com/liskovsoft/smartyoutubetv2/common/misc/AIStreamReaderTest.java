@@ -0,0 +1,153 @@
+package com.liskovsoft.smartyoutubetv2.common.misc;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+public class AIStreamReaderTest {
+    private static final long EVENT_DELAY_MS = 150;
+    private static final List<String> GEMINI_EVENTS = Arrays.asList(
+            "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"- First \"}]}}]}",
+            "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"point\\n\"},{\"text\":\"- Second\"}]}}]}",
+            "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\" point\"}]}}]," +
+                    "\"usageMetadata\":{\"promptTokenCount\":100,\"candidatesTokenCount\":8,\"totalTokenCount\":108}}"
+    );
+    private static final List<String> OPENAI_EVENTS = Arrays.asList(
+            "{\"choices\":[{\"delta\":{\"role\":\"assistant\",\"content\":\"\"}}]}",
+            "{\"choices\":[{\"delta\":{\"content\":\"Fact \"}}]}",
+            "{\"choices\":[{\"delta\":{\"content\":\"check\"}}]}",
+            "{\"choices\":[{\"delta\":{},\"finish_reason\":\"stop\"}]}",
+            "{\"choices\":[],\"usage\":{\"prompt_tokens\":50,\"completion_tokens\":2,\"total_tokens\":52}}",
+            "[DONE]"
+    );
+    private HttpServer mServer;
+    private String mBaseUrl;
+    private volatile List<String> mEvents;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServer.createContext("/stream", exchange -> {
+            try (InputStream is = exchange.getRequestBody()) {
+                while (is.read() != -1) {
+                    // Drain the request
+                }
+            }
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            // Chunked
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(": keep-alive\n\n".getBytes(StandardCharsets.UTF_8));
+                for (String event : mEvents) {
+                    os.write(("data: " + event + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+                    os.flush();
+                    Thread.sleep(EVENT_DELAY_MS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        mServer.setExecutor(Executors.newCachedThreadPool());
+        mServer.start();
+        mBaseUrl = "http://127.0.0.1:" + mServer.getAddress().getPort();
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop(0);
+    }
+
+    @Test
+    public void testGeminiTokensArriveBeforeTheEnd() throws Exception {
+        mEvents = GEMINI_EVENTS;
+        List<Long> tokenTimesMs = Collections.synchronizedList(new ArrayList<>());
+        List<String> tokens = Collections.synchronizedList(new ArrayList<>());
+
+        long startMs = System.currentTimeMillis();
+        AIStreamReader.Result result = AIStreamReader.read(open(), startMs, "usageMetadata", GeminiClient::parseStreamText, listener(tokens, tokenTimesMs));
+
+        assertEquals("- First point\n- Second point", result.text);
+        assertEquals(Arrays.asList("- First ", "point\n- Second", " point"), tokens);
+        assertNotNull(result.usage);
+        assertEquals(108, result.usage.getInt("totalTokenCount"));
+        // The first token is shown while the rest is generated
+        assertTrue(result.timeToFirstTokenMs >= 0);
+        assertTrue(result.timeToFirstTokenMs + (GEMINI_EVENTS.size() - 1) * EVENT_DELAY_MS <= result.durationMs);
+        assertTrue(tokenTimesMs.get(0) - startMs < result.durationMs - EVENT_DELAY_MS);
+    }
+
+    @Test
+    public void testOpenAIChunksAndDone() throws Exception {
+        mEvents = OPENAI_EVENTS;
+        List<String> tokens = Collections.synchronizedList(new ArrayList<>());
+
+        AIStreamReader.Result result = AIStreamReader.read(open(), System.currentTimeMillis(), "usage", OpenAIClient::parseStreamDelta,
+                listener(tokens, new ArrayList<>()));
+
+        assertEquals("Fact check", result.text);
+        // Empty role chunk and finish chunk have no text
+        assertEquals(Arrays.asList("Fact ", "check"), tokens);
+        assertEquals(52, result.usage.getInt("total_tokens"));
+    }
+
+    @Test
+    public void testErrorEventFailsTheRequest() throws Exception {
+        mEvents = Arrays.asList(GEMINI_EVENTS.get(0), "{\"error\":{\"code\":503,\"message\":\"The model is overloaded\"}}");
+
+        try {
+            AIStreamReader.read(open(), System.currentTimeMillis(), "usageMetadata", GeminiClient::parseStreamText, null);
+            fail("Error event is ignored");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("overloaded"));
+        }
+    }
+
+    private InputStream open() throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(mBaseUrl + "/stream").openConnection();
+        conn.setRequestMethod("POST");
+        conn.setDoOutput(true);
+        try (OutputStream os = conn.getOutputStream()) {
+            os.write("{}".getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(200, conn.getResponseCode());
+        return conn.getInputStream();
+    }
+
+    private static AIClient.TokenListener listener(List<String> tokens, List<Long> tokenTimesMs) {
+        return new AIClient.TokenListener() {
+            @Override
+            public void onToken(String delta) {
+                tokenTimesMs.add(System.currentTimeMillis());
+                tokens.add(delta);
+            }
+
+            @Override
+            public void onRestart() {
+                tokens.clear();
+            }
+        };
+    }
+}
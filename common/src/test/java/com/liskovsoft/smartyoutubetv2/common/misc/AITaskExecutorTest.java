@@ -0,0 +1,317 @@
+package com.liskovsoft.smartyoutubetv2.common.misc;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class AITaskExecutorTest {
+    private static final String RESPONSE = "{\"choices\":[{\"message\":{\"content\":\"Fact Check Results: ok\"}}]," +
+            "\"usage\":{\"prompt_tokens\":100,\"completion_tokens\":20,\"total_tokens\":120}}";
+    private static final long TIMEOUT_MS = 5_000;
+    private HttpServer mServer;
+    private List<Long> mRequestTimesMs;
+    private String mApiUrl;
+    private String mSlowApiUrl;
+    private CountDownLatch mSlowRequestStarted;
+    private CountDownLatch mSlowResponse;
+
+    @Before
+    public void setUp() throws IOException {
+        mRequestTimesMs = Collections.synchronizedList(new ArrayList<>());
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServer.createContext("/v1/chat/completions", exchange -> {
+            mRequestTimesMs.add(System.currentTimeMillis());
+            try (InputStream is = exchange.getRequestBody()) {
+                while (is.read() != -1) {
+                    // Drain the request
+                }
+            }
+            byte[] body = RESPONSE.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        // Never responds in time
+        mSlowRequestStarted = new CountDownLatch(1);
+        mSlowResponse = new CountDownLatch(1);
+        mServer.createContext("/v1/slow", exchange -> {
+            mSlowRequestStarted.countDown();
+            try {
+                mSlowResponse.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                // Stop
+            }
+            exchange.close();
+        });
+        mServer.setExecutor(Executors.newCachedThreadPool());
+        mServer.start();
+        mApiUrl = "http://127.0.0.1:" + mServer.getAddress().getPort() + "/v1/chat/completions";
+        mSlowApiUrl = "http://127.0.0.1:" + mServer.getAddress().getPort() + "/v1/slow";
+    }
+
+    @After
+    public void tearDown() {
+        mSlowResponse.countDown();
+        mServer.stop(0);
+    }
+
+    @Test
+    public void testForegroundTaskGoesFirst() throws InterruptedException {
+        AITaskExecutor executor = new AITaskExecutor(1, Runnable::run);
+        CountDownLatch gate = new CountDownLatch(1);
+        Recorder<String> recorder = new Recorder<>(3);
+
+        executor.submit(this, AITaskExecutor.PRIORITY_FOREGROUND, () -> gate.await(TIMEOUT_MS, TimeUnit.MILLISECONDS), null);
+        executor.submit(this, AITaskExecutor.PRIORITY_BACKGROUND, () -> "comments", recorder);
+        executor.submit(this, AITaskExecutor.PRIORITY_BACKGROUND, () -> "fact check", recorder);
+        executor.submit(this, AITaskExecutor.PRIORITY_FOREGROUND, () -> "summary", recorder);
+        gate.countDown();
+
+        assertTrue(recorder.await());
+        assertEquals(Arrays.asList("summary", "comments", "fact check"), recorder.mResults);
+    }
+
+    @Test
+    public void testChainedTaskGetsParentResult() throws InterruptedException {
+        AITaskExecutor executor = new AITaskExecutor(2, Runnable::run);
+        Recorder<String> recorder = new Recorder<>(1);
+
+        AITaskExecutor.Task<String> summary = executor.submit(this, AITaskExecutor.PRIORITY_FOREGROUND, () -> {
+            Thread.sleep(100);
+            return "summary";
+        }, null);
+        executor.then(summary, AITaskExecutor.PRIORITY_BACKGROUND, input -> input + " checked", recorder);
+
+        assertTrue(recorder.await());
+        assertEquals(Collections.singletonList("summary checked"), recorder.mResults);
+    }
+
+    @Test
+    public void testChainedTaskGetsParentError() throws InterruptedException {
+        AITaskExecutor executor = new AITaskExecutor(2, Runnable::run);
+        Recorder<String> parent = new Recorder<>(1);
+        Recorder<Boolean> chained = new Recorder<>(1);
+        AtomicBoolean chainRun = new AtomicBoolean();
+        IOException error = new IOException("HTTP 500");
+
+        AITaskExecutor.Task<String> summary = executor.submit(this, AITaskExecutor.PRIORITY_FOREGROUND, () -> {
+            Thread.sleep(100);
+            throw error;
+        }, parent);
+        AITaskExecutor.Task<Boolean> factCheck = executor.then(summary, AITaskExecutor.PRIORITY_BACKGROUND, input -> {
+            chainRun.set(true);
+            return true;
+        }, chained);
+
+        assertTrue(parent.await());
+        assertTrue(chained.await());
+        assertTrue(parent.mResults.isEmpty());
+        assertTrue(chained.mResults.isEmpty());
+        assertEquals(Collections.singletonList(error), chained.mErrors);
+        assertTrue(factCheck.isDone());
+        assertFalse(factCheck.isCancelled());
+        assertFalse(chainRun.get());
+    }
+
+    @Test
+    public void testChainedToFailedTaskGetsErrorImmediately() throws InterruptedException {
+        AITaskExecutor executor = new AITaskExecutor(2, Runnable::run);
+        Recorder<String> parent = new Recorder<>(1);
+        Recorder<String> chained = new Recorder<>(1);
+
+        AITaskExecutor.Task<String> summary = executor.submit(this, AITaskExecutor.PRIORITY_FOREGROUND, () -> {
+            throw new IOException("HTTP 500");
+        }, parent);
+        assertTrue(parent.await());
+        executor.then(summary, AITaskExecutor.PRIORITY_BACKGROUND, input -> "fact check", chained);
+
+        assertTrue(chained.await());
+        assertEquals(1, chained.mErrors.size());
+    }
+
+    @Test
+    public void testCancelStopsRunningQueuedAndChainedTasks() throws InterruptedException {
+        AITaskExecutor executor = new AITaskExecutor(1, Runnable::run);
+        Object overlay = new Object();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        Recorder<String> cancelled = new Recorder<>(1);
+        Recorder<String> other = new Recorder<>(1);
+
+        AITaskExecutor.Task<String> summary = executor.submit(overlay, AITaskExecutor.PRIORITY_FOREGROUND, () -> {
+            started.countDown();
+            try {
+                Thread.sleep(TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return "summary";
+        }, cancelled);
+        AITaskExecutor.Task<String> comments = executor.submit(overlay, AITaskExecutor.PRIORITY_BACKGROUND, () -> "comments", cancelled);
+        AITaskExecutor.Task<String> factCheck = executor.then(summary, AITaskExecutor.PRIORITY_BACKGROUND, input -> "fact check", cancelled);
+
+        assertTrue(started.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        executor.cancel(overlay);
+        // Tasks of other owners keep running
+        executor.submit(this, AITaskExecutor.PRIORITY_BACKGROUND, () -> "other", other);
+
+        assertTrue(interrupted.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertTrue(other.await());
+        assertTrue(summary.isCancelled());
+        assertTrue(comments.isCancelled());
+        assertTrue(factCheck.isCancelled());
+        assertFalse(cancelled.mDelivered.get());
+    }
+
+    @Test
+    public void testBudgetLimitsRequestsInWindow() {
+        AIRequestBudget budget = new AIRequestBudget(2, 1_000, 1_000);
+
+        assertTrue(budget.tryAcquire(100, 0));
+        assertTrue(budget.tryAcquire(100, 100));
+        assertFalse(budget.tryAcquire(100, 200));
+        // The first request leaves the window
+        assertEquals(800, budget.getDelayMs(100, 200));
+        assertTrue(budget.tryAcquire(100, 1_000));
+    }
+
+    @Test
+    public void testBudgetLimitsTokensInWindow() {
+        AIRequestBudget budget = new AIRequestBudget(10, 1_000, 1_000);
+
+        assertTrue(budget.tryAcquire(600, 0));
+        assertTrue(budget.tryAcquire(300, 500));
+        // The first request leaves the window
+        assertEquals(400, budget.getDelayMs(200, 600));
+        assertTrue(budget.tryAcquire(100, 600));
+        // The request bigger than the whole budget waits for the empty window
+        assertEquals(1_000, budget.getDelayMs(5_000, 600));
+    }
+
+    @Test
+    public void testBurstIsSpreadByBudget() throws InterruptedException {
+        long windowMs = 1_000;
+        AITaskExecutor executor = new AITaskExecutor(3, Runnable::run);
+        AIRequestBudget budget = new AIRequestBudget(2, 100_000, windowMs);
+        OpenAIClient client = new OpenAIClient(RuntimeEnvironment.application, "test-key", mApiUrl, budget);
+        Recorder<String> recorder = new Recorder<>(3);
+
+        for (int i = 0; i < 3; i++) {
+            String title = "Video " + i;
+            executor.submit(this, AITaskExecutor.PRIORITY_BACKGROUND, () -> client.factCheck("summary", title, "author", "id"), recorder);
+        }
+
+        assertTrue(recorder.await());
+        assertEquals(3, mRequestTimesMs.size());
+        for (String result : recorder.mResults) {
+            assertTrue(result, result.startsWith("Fact Check Results"));
+        }
+        List<Long> times = new ArrayList<>(mRequestTimesMs);
+        Collections.sort(times);
+        // Allow the timer granularity
+        assertTrue(times.get(2) - times.get(0) >= windowMs - 50);
+    }
+
+    @Test
+    public void testCancelStopsWaitingForBudget() throws InterruptedException {
+        AITaskExecutor executor = new AITaskExecutor(2, Runnable::run);
+        AIRequestBudget budget = new AIRequestBudget(1, 100_000, 60_000);
+        OpenAIClient client = new OpenAIClient(RuntimeEnvironment.application, "test-key", mApiUrl, budget);
+        Object overlay = new Object();
+        Recorder<String> first = new Recorder<>(1);
+        Recorder<String> second = new Recorder<>(1);
+
+        executor.submit(this, AITaskExecutor.PRIORITY_FOREGROUND, () -> client.factCheck("summary", "title", "author", "id"), first);
+        assertTrue(first.await());
+
+        AITaskExecutor.Task<String> waiting = executor.submit(overlay, AITaskExecutor.PRIORITY_BACKGROUND,
+                () -> client.factCheck("summary", "title", "author", "id"), second);
+        Thread.sleep(200);
+        executor.cancel(overlay);
+        Thread.sleep(200);
+
+        assertTrue(waiting.isCancelled());
+        assertFalse(second.mDelivered.get());
+        assertEquals(1, mRequestTimesMs.size());
+    }
+
+    @Test
+    public void testCancelDisconnectsRunningRequest() throws InterruptedException {
+        AITaskExecutor executor = new AITaskExecutor(1, Runnable::run);
+        OpenAIClient client = new OpenAIClient(RuntimeEnvironment.application, "test-key", mSlowApiUrl, new AIRequestBudget(10, 100_000, 60_000));
+        Object overlay = new Object();
+        CountDownLatch finished = new CountDownLatch(1);
+        Recorder<String> cancelled = new Recorder<>(1);
+
+        executor.submit(overlay, AITaskExecutor.PRIORITY_FOREGROUND, () -> {
+            try {
+                return client.factCheck("summary", "title", "author", "id");
+            } finally {
+                finished.countDown();
+            }
+        }, cancelled);
+
+        assertTrue(mSlowRequestStarted.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        executor.cancel(overlay);
+
+        // The socket read is stopped without waiting for the server or the read timeout
+        assertTrue(finished.await(1_000, TimeUnit.MILLISECONDS));
+        assertFalse(cancelled.mDelivered.get());
+    }
+
+    private static class Recorder<T> implements AITaskExecutor.Callback<T> {
+        private final CountDownLatch mDone;
+        private final List<T> mResults = Collections.synchronizedList(new ArrayList<>());
+        private final List<Throwable> mErrors = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicBoolean mDelivered = new AtomicBoolean();
+
+        Recorder(int count) {
+            mDone = new CountDownLatch(count);
+        }
+
+        @Override
+        public void onResult(T result) {
+            mResults.add(result);
+            mDelivered.set(true);
+            mDone.countDown();
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            mErrors.add(error);
+            mDelivered.set(true);
+            mDone.countDown();
+        }
+
+        boolean await() throws InterruptedException {
+            return mDone.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+}
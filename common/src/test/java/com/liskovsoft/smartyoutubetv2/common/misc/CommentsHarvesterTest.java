@@ -0,0 +1,217 @@
+package com.liskovsoft.smartyoutubetv2.common.misc;
+
+import com.liskovsoft.mediaserviceinterfaces.CommentsService;
+import com.liskovsoft.mediaserviceinterfaces.data.CommentGroup;
+import com.liskovsoft.mediaserviceinterfaces.data.CommentItem;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.harness.FakeObjects;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.harness.FakeObjects.Answer;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.Observable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class CommentsHarvesterTest {
+    private static final int PAGE_COUNT = 5;
+    private static final int PAGE_SIZE = 20;
+    private static final long LATENCY_MS = 200;
+    // Comment groups parse the response lazily, on the harvesting thread
+    private static final long PARSE_TIME_MS = 100;
+    private static final long PAGE_TIMEOUT_MS = 1_000;
+    private static final long TIMEOUT_MS = 25_000;
+    private static final String VIDEO_ID = "video";
+    private final AtomicInteger mRequests = new AtomicInteger();
+    private final Map<String, List<String>> mPages = new HashMap<>();
+    private final List<String> mSilentPages = new ArrayList<>();
+    private CommentsService mService;
+
+    @Before
+    public void setUp() {
+        for (int page = 0; page < PAGE_COUNT; page++) {
+            List<String> comments = new ArrayList<>();
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                comments.add(String.format("Comment %s of page %s", i, page));
+            }
+            mPages.put(key(page), comments);
+        }
+
+        Map<String, Answer> answers = new HashMap<>();
+        answers.put("getCommentsObserve", args -> {
+            String key = (String) args[0];
+
+            if (mSilentPages.contains(key)) {
+                return Observable.never();
+            }
+
+            return Observable.fromCallable(() -> {
+                mRequests.incrementAndGet();
+                return createGroup(key);
+            }).delay(LATENCY_MS, TimeUnit.MILLISECONDS);
+        });
+        mService = FakeObjects.create(CommentsService.class, answers, null);
+    }
+
+    @Test
+    public void testHarvestOverlapsNetworkAndParsing() throws InterruptedException {
+        CommentsHarvester harvester = new CommentsHarvester(mService, PAGE_TIMEOUT_MS, TIMEOUT_MS);
+
+        long startMs = System.currentTimeMillis();
+        List<String> comments = harvester.harvest(VIDEO_ID, key(0), 0, 0, TIMEOUT_MS, 0, null);
+        long elapsedMs = System.currentTimeMillis() - startMs;
+
+        long sequentialMs = PAGE_COUNT * (LATENCY_MS + PARSE_TIME_MS);
+        long pipelinedMs = PAGE_COUNT * LATENCY_MS + PARSE_TIME_MS;
+
+        assertEquals(PAGE_COUNT * PAGE_SIZE, comments.size());
+        assertEquals(PAGE_COUNT, mRequests.get());
+        assertTrue("Elapsed: " + elapsedMs, elapsedMs < (sequentialMs + pipelinedMs) / 2);
+    }
+
+    @Test
+    public void testCachedHarvestCostsNoRequests() throws InterruptedException {
+        CommentsHarvester harvester = new CommentsHarvester(mService, PAGE_TIMEOUT_MS, TIMEOUT_MS);
+        List<String> first = harvester.harvest(VIDEO_ID, key(0), 0, 0, TIMEOUT_MS, 0, null);
+        mRequests.set(0);
+
+        long startMs = System.currentTimeMillis();
+        List<String> second = harvester.harvest(VIDEO_ID, key(0), 0, 0, TIMEOUT_MS, 0, null);
+        long elapsedMs = System.currentTimeMillis() - startMs;
+
+        assertEquals(first, second);
+        assertEquals(0, mRequests.get());
+        assertTrue("Elapsed: " + elapsedMs, elapsedMs < LATENCY_MS);
+        // Smaller limit is served from the same entry
+        assertEquals(10, harvester.getCached(VIDEO_ID, 10).size());
+    }
+
+    @Test
+    public void testCacheExpires() throws InterruptedException {
+        CommentsHarvester harvester = new CommentsHarvester(mService, PAGE_TIMEOUT_MS, 50);
+        harvester.harvest(VIDEO_ID, key(0), 0, 0, TIMEOUT_MS, 0, null);
+        Thread.sleep(100);
+
+        assertNull(harvester.getCached(VIDEO_ID, 0));
+    }
+
+    @Test
+    public void testStopsAtCommentBudget() throws InterruptedException {
+        CommentsHarvester harvester = new CommentsHarvester(mService, PAGE_TIMEOUT_MS, TIMEOUT_MS);
+
+        List<String> comments = harvester.harvest(VIDEO_ID, key(0), 30, 0, TIMEOUT_MS, 0, null);
+
+        assertEquals(30, comments.size());
+        // Two pages are needed, the third one is in flight when the budget is reached
+        assertTrue(mRequests.get() <= 3);
+        // Bigger limit needs new harvest
+        assertNull(harvester.getCached(VIDEO_ID, 50));
+    }
+
+    @Test
+    public void testStopsAtTokenBudget() throws InterruptedException {
+        CommentsHarvester harvester = new CommentsHarvester(mService, PAGE_TIMEOUT_MS, TIMEOUT_MS);
+        int maxTokens = 0;
+        for (int i = 0; i < 25; i++) {
+            maxTokens += CommentsHarvester.estimateTokens(mPages.get(key(i / PAGE_SIZE)).get(i % PAGE_SIZE));
+        }
+
+        List<String> comments = harvester.harvest(VIDEO_ID, key(0), 0, maxTokens, TIMEOUT_MS, 0, null);
+
+        assertEquals(25, comments.size());
+        assertTrue(mRequests.get() <= 3);
+    }
+
+    @Test
+    public void testNormalizesAndDeduplicates() throws InterruptedException {
+        mPages.put(key(0), Arrays.asList("  Great\n\n video ", "great video", "", "   ", "First!", "FIRST!"));
+        mPages.put(key(1), Collections.singletonList("Great video"));
+        CommentsHarvester harvester = new CommentsHarvester(mService, PAGE_TIMEOUT_MS, TIMEOUT_MS);
+
+        List<String> comments = harvester.harvest(VIDEO_ID, key(0), 0, 0, TIMEOUT_MS, 0, null);
+
+        assertEquals("Great video", comments.get(0));
+        assertEquals("First!", comments.get(1));
+        assertEquals(new HashSet<>(comments).size(), comments.size());
+        assertEquals(2 + (PAGE_COUNT - 2) * PAGE_SIZE, comments.size());
+    }
+
+    @Test
+    public void testPartialBatchComesBeforeTheEnd() throws InterruptedException {
+        CommentsHarvester harvester = new CommentsHarvester(mService, PAGE_TIMEOUT_MS, TIMEOUT_MS);
+        AtomicLong partialTimeMs = new AtomicLong();
+        AtomicInteger partialSize = new AtomicInteger();
+
+        long startMs = System.currentTimeMillis();
+        harvester.harvest(VIDEO_ID, key(0), 0, 0, TIMEOUT_MS, PAGE_SIZE, partial -> {
+            partialTimeMs.set(System.currentTimeMillis() - startMs);
+            partialSize.set(partial.size());
+        });
+        long elapsedMs = System.currentTimeMillis() - startMs;
+
+        assertEquals(PAGE_SIZE, partialSize.get());
+        assertTrue("Partial: " + partialTimeMs.get() + ", total: " + elapsedMs, partialTimeMs.get() < elapsedMs - LATENCY_MS);
+    }
+
+    @Test
+    public void testTimeoutKeepsCollectedAndIsNotCached() throws InterruptedException {
+        mSilentPages.add(key(2));
+        CommentsHarvester harvester = new CommentsHarvester(mService, 300, TIMEOUT_MS);
+
+        List<String> comments = harvester.harvest(VIDEO_ID, key(0), 0, 0, TIMEOUT_MS, 0, null);
+
+        assertEquals(2 * PAGE_SIZE, comments.size());
+        assertNull(harvester.getCached(VIDEO_ID, 0));
+    }
+
+    @Test
+    public void testNormalize() {
+        assertNull(CommentsHarvester.normalize(null));
+        assertNull(CommentsHarvester.normalize(" \n\t "));
+        assertEquals("a b", CommentsHarvester.normalize(" a \n b "));
+        String longComment = CommentsHarvester.normalize(new String(new char[500]).replace('\0', 'x'));
+        assertNotNull(longComment);
+        assertEquals(CommentsHarvester.MAX_COMMENT_LENGTH + 1, longComment.length());
+    }
+
+    private CommentGroup createGroup(String key) {
+        List<CommentItem> items = new ArrayList<>();
+        for (String message : mPages.get(key)) {
+            Map<String, Object> values = new HashMap<>();
+            values.put("getMessage", message);
+            items.add(FakeObjects.data(CommentItem.class, values));
+        }
+
+        int page = Integer.parseInt(key.substring(key.indexOf('-') + 1));
+        String nextKey = page + 1 < PAGE_COUNT ? key(page + 1) : null;
+
+        Map<String, Answer> answers = new HashMap<>();
+        answers.put("getComments", args -> {
+            Thread.sleep(PARSE_TIME_MS);
+            return items;
+        });
+        answers.put("getNextCommentsKey", args -> nextKey);
+        return FakeObjects.create(CommentGroup.class, answers, null);
+    }
+
+    private static String key(int page) {
+        return "page-" + page;
+    }
+}
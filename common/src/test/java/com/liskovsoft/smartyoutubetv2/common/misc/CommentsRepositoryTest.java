@@ -0,0 +1,231 @@
+package com.liskovsoft.smartyoutubetv2.common.misc;
+
+import com.liskovsoft.mediaserviceinterfaces.CommentsService;
+import com.liskovsoft.mediaserviceinterfaces.data.CommentGroup;
+import com.liskovsoft.mediaserviceinterfaces.data.CommentItem;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.harness.FakeObjects;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.harness.FakeObjects.Answer;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Observable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The panel and the summary read the same video. The fake service counts page requests.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CommentsRepositoryTest {
+    private static final int PAGE_COUNT = 3;
+    private static final int PAGE_SIZE = 20;
+    private static final long LATENCY_MS = 300;
+    private static final long TTL_MS = 60_000;
+    private static final long MAX_DISK_BYTES = 1024 * 1024;
+    private static final String VIDEO_ID = "video";
+    @Rule
+    public TemporaryFolder mTempFolder = new TemporaryFolder();
+    private final AtomicInteger mRequests = new AtomicInteger();
+    private CommentsService mService;
+    private File mCacheDir;
+
+    @Before
+    public void setUp() throws IOException {
+        mCacheDir = mTempFolder.newFolder("comments");
+
+        Map<String, Answer> answers = new HashMap<>();
+        answers.put("getCommentsObserve", args -> {
+            String key = (String) args[0];
+
+            return Observable.fromCallable(() -> {
+                mRequests.incrementAndGet();
+                return createGroup(key);
+            }).delay(LATENCY_MS, TimeUnit.MILLISECONDS);
+        });
+        mService = FakeObjects.create(CommentsService.class, answers, null);
+    }
+
+    @Test
+    public void testPrefetchedFirstPageIsInstant() throws InterruptedException {
+        CommentsRepository repository = createRepository(TTL_MS);
+
+        long startMs = System.currentTimeMillis();
+        repository.getFirstPageObserve("other", key(0)).blockingFirst();
+        long coldMs = System.currentTimeMillis() - startMs;
+        assertEquals(1, mRequests.get());
+
+        repository.prefetch(VIDEO_ID, key(0));
+        waitUntilCached(repository);
+        mRequests.set(0);
+
+        // Panel is opened
+        startMs = System.currentTimeMillis();
+        CommentGroup group = repository.getFirstPageObserve(VIDEO_ID, key(0)).blockingFirst();
+        long prefetchedMs = System.currentTimeMillis() - startMs;
+
+        assertEquals(PAGE_SIZE, group.getComments().size());
+        assertEquals(0, mRequests.get());
+        assertTrue("Cold: " + coldMs, coldMs >= LATENCY_MS);
+        assertTrue("Prefetched: " + prefetchedMs, prefetchedMs < LATENCY_MS / 2);
+    }
+
+    @Test
+    public void testPanelJoinsPrefetchInFlight() {
+        CommentsRepository repository = createRepository(TTL_MS);
+
+        repository.prefetch(VIDEO_ID, key(0));
+        CommentGroup group = repository.getFirstPageObserve(VIDEO_ID, key(0)).blockingFirst();
+
+        assertEquals(PAGE_SIZE, group.getComments().size());
+        assertEquals(1, mRequests.get());
+    }
+
+    @Test
+    public void testSummaryReusesPanelPages() throws InterruptedException {
+        CommentsRepository repository = createRepository(TTL_MS);
+
+        // Panel: first page and one more
+        CommentGroup first = repository.getFirstPageObserve(VIDEO_ID, key(0)).blockingFirst();
+        repository.getPageObserve(first.getNextCommentsKey()).blockingFirst();
+        assertEquals(2, mRequests.get());
+
+        // Summary knows nothing but the video id
+        CommentsHarvester harvester = new CommentsHarvester(repository, 1_000, TTL_MS);
+        List<String> comments = harvester.harvest(VIDEO_ID, null, 0, 0, 10_000, 0, null);
+
+        assertEquals(PAGE_COUNT * PAGE_SIZE, comments.size());
+        assertEquals(PAGE_COUNT, mRequests.get());
+    }
+
+    @Test
+    public void testPagesSurviveRestart() throws InterruptedException {
+        CommentsRepository repository = createRepository(TTL_MS);
+        CommentGroup first = repository.getFirstPageObserve(VIDEO_ID, key(0)).blockingFirst();
+        repository.getPageObserve(first.getNextCommentsKey()).blockingFirst();
+        repository.awaitWrites();
+        mRequests.set(0);
+
+        // Cold start. The metadata returns the new comments key.
+        repository = createRepository(TTL_MS);
+        assertTrue(repository.isCached(VIDEO_ID));
+        CommentGroup restored = repository.getFirstPageObserve(VIDEO_ID, "new-key").blockingFirst();
+        CommentGroup restoredNext = repository.getPageObserve(restored.getNextCommentsKey()).blockingFirst();
+
+        assertEquals(0, mRequests.get());
+        assertEquals(key(1), restored.getNextCommentsKey());
+        assertEquals(PAGE_SIZE, restored.getComments().size());
+        CommentItem item = restoredNext.getComments().get(3);
+        assertEquals(message(1, 3), item.getMessage());
+        assertEquals("author 3", item.getAuthorName());
+        assertNull(item.getNestedCommentsKey());
+        // Like state of the other account must not survive
+        assertFalse(item.isLiked());
+        assertFalse(item.isEmpty());
+    }
+
+    @Test
+    public void testAccountChangeDropsPages() throws InterruptedException {
+        CommentsRepository repository = createRepository(TTL_MS);
+        repository.getFirstPageObserve(VIDEO_ID, key(0)).blockingFirst();
+        repository.awaitWrites();
+        assertTrue(repository.isCached(VIDEO_ID));
+
+        repository.onAccountChanged(null);
+        repository.awaitWrites();
+
+        assertFalse(repository.isCached(VIDEO_ID));
+        assertFalse(createRepository(TTL_MS).isCached(VIDEO_ID));
+        repository.getFirstPageObserve(VIDEO_ID, key(0)).blockingFirst();
+        assertEquals(2, mRequests.get());
+    }
+
+    @Test
+    public void testExpiredPagesAreRequestedAgain() throws InterruptedException {
+        CommentsRepository repository = createRepository(100);
+        repository.getFirstPageObserve(VIDEO_ID, key(0)).blockingFirst();
+        repository.awaitWrites();
+
+        Thread.sleep(200);
+
+        assertFalse(createRepository(100).isCached(VIDEO_ID));
+        repository.getFirstPageObserve(VIDEO_ID, key(0)).blockingFirst();
+        assertEquals(2, mRequests.get());
+    }
+
+    @Test
+    public void testDiskSizeIsCapped() throws InterruptedException {
+        CommentsRepository repository = new CommentsRepository(mService, mCacheDir, TTL_MS, 4_000);
+
+        for (int i = 0; i < 10; i++) {
+            repository.getFirstPageObserve(VIDEO_ID + i, key(0)).blockingFirst();
+            repository.awaitWrites();
+        }
+
+        long totalBytes = 0;
+        for (File file : mCacheDir.listFiles()) {
+            totalBytes += file.length();
+        }
+
+        assertTrue("Size: " + totalBytes, totalBytes <= 4_000);
+        assertTrue(mCacheDir.listFiles().length > 0);
+    }
+
+    private CommentsRepository createRepository(long ttlMs) {
+        return new CommentsRepository(mService, mCacheDir, ttlMs, MAX_DISK_BYTES);
+    }
+
+    private static void waitUntilCached(CommentsRepository repository) throws InterruptedException {
+        long startMs = System.currentTimeMillis();
+
+        while (!repository.isCached(VIDEO_ID)) {
+            if (System.currentTimeMillis() - startMs > 10_000) {
+                throw new AssertionError("Timeout");
+            }
+
+            Thread.sleep(10);
+        }
+    }
+
+    private static CommentGroup createGroup(String key) {
+        int page = key.startsWith("page-") ? Integer.parseInt(key.substring(key.indexOf('-') + 1)) : 0;
+        List<CommentItem> items = new ArrayList<>();
+
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            Map<String, Object> values = new HashMap<>();
+            values.put("getMessage", message(page, i));
+            values.put("getAuthorName", "author " + i);
+            values.put("isLiked", i % 3 == 0);
+            items.add(FakeObjects.data(CommentItem.class, values));
+        }
+
+        Map<String, Object> values = new HashMap<>();
+        values.put("getComments", items);
+        values.put("getNextCommentsKey", page + 1 < PAGE_COUNT ? key(page + 1) : null);
+        return FakeObjects.data(CommentGroup.class, values);
+    }
+
+    private static String message(int page, int index) {
+        return String.format("Comment %s of page %s", index, page);
+    }
+
+    private static String key(int page) {
+        return "page-" + page;
+    }
+}
@@ -0,0 +1,209 @@
+package com.liskovsoft.smartyoutubetv2.common.misc;
+
+import com.liskovsoft.smartyoutubetv2.common.misc.StartupTrace.Entry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Fake initializers that sleep. The test thread is the main thread: the main tasks are queued and run by the test.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class StartupTaskGraphTest {
+    private static final long TIMEOUT_MS = 5_000;
+    private static final long PREFS_MS = 30;
+    private static final long PROXY_MS = 20;
+    private static final long STATE_MS = 300;
+    private static final long REMINDER_MS = 10;
+    private static final long BACKGROUND_TASKS_MS = 50;
+    private final BlockingQueue<Runnable> mMainTasks = new LinkedBlockingQueue<>();
+    private ExecutorService mBackgroundExecutor;
+    private StartupTaskGraph mGraph;
+
+    @Before
+    public void setUp() {
+        mBackgroundExecutor = Executors.newFixedThreadPool(2);
+        mGraph = new StartupTaskGraph(mMainTasks::add, mBackgroundExecutor);
+    }
+
+    @After
+    public void tearDown() {
+        mBackgroundExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testFirstFrameWaitsOnlyForBlockingTasks() {
+        AtomicBoolean isStateReady = new AtomicBoolean();
+
+        // Same shape as the SplashPresenter graph
+        mGraph.add("GlobalPrefs", StartupTaskGraph.FLAG_BLOCKING, () -> sleep(PREFS_MS))
+                .add("Proxy", StartupTaskGraph.FLAG_BLOCKING, () -> sleep(PROXY_MS), "GlobalPrefs")
+                .add("VideoState", StartupTaskGraph.FLAG_BACKGROUND, () -> {
+                    sleep(STATE_MS);
+                    isStateReady.set(true);
+                })
+                .add("StreamReminder", 0, () -> sleep(REMINDER_MS), "GlobalPrefs")
+                .add("BackgroundTasks", StartupTaskGraph.FLAG_AFTER_FIRST_CONTENT, () -> sleep(BACKGROUND_TASKS_MS), "Proxy");
+
+        long startMs = System.currentTimeMillis();
+        mGraph.start();
+        long blockedMs = System.currentTimeMillis() - startMs;
+
+        StartupTrace trace = mGraph.getTrace();
+
+        assertNotNull(trace.get("GlobalPrefs"));
+        assertNotNull(trace.get("Proxy"));
+        assertNull(trace.get("StreamReminder"));
+        assertFalse(isStateReady.get());
+        assertTrue("Blocked: " + blockedMs, blockedMs < STATE_MS);
+
+        mGraph.onFirstContent();
+        awaitFinished();
+
+        assertTrue(isStateReady.get());
+        assertEquals(5, trace.getEntries().size());
+    }
+
+    @Test
+    public void testIndependentTasksRunInParallel() {
+        mGraph.add("Task1", StartupTaskGraph.FLAG_BACKGROUND, () -> sleep(STATE_MS))
+                .add("Task2", StartupTaskGraph.FLAG_BACKGROUND, () -> sleep(STATE_MS))
+                .add("Blocking", StartupTaskGraph.FLAG_BLOCKING, () -> sleep(PREFS_MS), "Task1", "Task2");
+
+        long startMs = System.currentTimeMillis();
+        mGraph.start();
+        long blockedMs = System.currentTimeMillis() - startMs;
+
+        StartupTrace trace = mGraph.getTrace();
+        Entry task1 = trace.get("Task1");
+        Entry task2 = trace.get("Task2");
+
+        assertTrue(task1.startUs < task2.getEndUs() && task2.startUs < task1.getEndUs());
+        assertTrue(blockedMs < STATE_MS * 2);
+        // The dependencies of a blocking task block too
+        assertTrue(mGraph.isFinished());
+    }
+
+    @Test
+    public void testDependenciesRunFirst() {
+        mGraph.add("Background1", StartupTaskGraph.FLAG_BACKGROUND, () -> sleep(PROXY_MS))
+                .add("Main", 0, () -> sleep(PROXY_MS), "Background1")
+                .add("Background2", StartupTaskGraph.FLAG_BACKGROUND, () -> sleep(PROXY_MS), "Main")
+                .add("Deferred", StartupTaskGraph.FLAG_AFTER_FIRST_CONTENT, () -> sleep(PROXY_MS), "Background2");
+
+        mGraph.onFirstContent();
+        mGraph.start();
+        awaitFinished();
+
+        StartupTrace trace = mGraph.getTrace();
+
+        assertTrue(trace.get("Main").startUs >= trace.get("Background1").getEndUs());
+        assertTrue(trace.get("Background2").startUs >= trace.get("Main").getEndUs());
+        assertTrue(trace.get("Deferred").startUs >= trace.get("Background2").getEndUs());
+        assertTrue(trace.get("Main").threadName.equals(Thread.currentThread().getName()));
+        assertFalse(trace.get("Background1").threadName.equals(Thread.currentThread().getName()));
+    }
+
+    @Test
+    public void testDeferredTasksWaitForFirstContent() {
+        mGraph.add("Prefs", StartupTaskGraph.FLAG_BLOCKING, () -> sleep(PROXY_MS))
+                .add("Updates", StartupTaskGraph.FLAG_AFTER_FIRST_CONTENT, () -> sleep(PROXY_MS), "Prefs");
+
+        mGraph.start();
+        runMainTasks(BACKGROUND_TASKS_MS);
+
+        assertNull(mGraph.getTrace().get("Updates"));
+        assertFalse(mGraph.isFinished());
+
+        mGraph.onFirstContent();
+        awaitFinished();
+
+        StartupTrace trace = mGraph.getTrace();
+
+        assertTrue(trace.get("Updates").startUs >= trace.get("FirstContent").startUs);
+    }
+
+    @Test
+    public void testFailedTaskDoesNotStopTheGraph() {
+        mGraph.add("Failed", StartupTaskGraph.FLAG_BACKGROUND, () -> {
+            throw new IllegalStateException("Fake init error");
+        }).add("Dependent", StartupTaskGraph.FLAG_BLOCKING, () -> sleep(PROXY_MS), "Failed");
+
+        mGraph.start();
+
+        StartupTrace trace = mGraph.getTrace();
+
+        assertTrue(mGraph.isFinished());
+        assertTrue(trace.get("Failed").isFailed);
+        assertFalse(trace.get("Dependent").isFailed);
+    }
+
+    @Test
+    public void testTraceExport() {
+        mGraph.add("Global \"Prefs\"", StartupTaskGraph.FLAG_BLOCKING, () -> sleep(PREFS_MS))
+                .add("VideoState", StartupTaskGraph.FLAG_BACKGROUND, () -> sleep(PROXY_MS));
+
+        mGraph.start();
+        mGraph.onFirstContent();
+        awaitFinished();
+
+        StartupTrace trace = mGraph.getTrace();
+        String json = trace.toJson();
+
+        assertTrue(json.startsWith("{\"traceEvents\":[") && json.endsWith("]}"));
+        assertTrue(json.contains("\"name\":\"Global \\\"Prefs\\\"\""));
+        assertTrue(json.contains("\"name\":\"VideoState\""));
+        assertTrue(json.contains("\"name\":\"FirstContent\""));
+        assertTrue(json.contains("\"name\":\"thread_name\""));
+        assertTrue(trace.get("Global \"Prefs\"").getDurationMs() >= PREFS_MS);
+        assertTrue(json.contains("\"dur\":" + trace.get("VideoState").durationUs));
+    }
+
+    private void awaitFinished() {
+        long deadlineMs = System.currentTimeMillis() + TIMEOUT_MS;
+
+        while (!mGraph.isFinished()) {
+            if (System.currentTimeMillis() > deadlineMs) {
+                fail("Startup tasks aren't finished");
+            }
+
+            runMainTasks(10);
+        }
+    }
+
+    private void runMainTasks(long waitMs) {
+        try {
+            Runnable task;
+            while ((task = mMainTasks.poll(waitMs, TimeUnit.MILLISECONDS)) != null) {
+                task.run();
+            }
+        } catch (InterruptedException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    private static void sleep(long timeMs) {
+        try {
+            Thread.sleep(timeMs);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.liskovsoft.smartyoutubetv2.common.ui.summary;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SummaryStreamFormatterTest {
+    private static final String SUMMARY = "\n\nTopic: streaming\n- first point\n-  second point\n-dash word\n---\n\n\n\nTakeaways:\n--not a divider\n----\nend -\n---";
+    private static final String FORMATTED = "Topic: streaming\n• first point\n• second point\n-dash word\n\n" + SummaryStreamFormatter.DIVIDER +
+            "\n\nTakeaways:\n--not a divider\n----\nend -\n\n" + SummaryStreamFormatter.DIVIDER;
+
+    @Test
+    public void testWholeText() {
+        assertEquals(FORMATTED, format(SUMMARY, SUMMARY.length()));
+    }
+
+    @Test
+    public void testAnyChunkSize() {
+        for (int chunkSize = 1; chunkSize <= 8; chunkSize++) {
+            assertEquals("Chunk size " + chunkSize, FORMATTED, format(SUMMARY, chunkSize));
+        }
+    }
+
+    @Test
+    public void testOutputIsNotDelayed() {
+        SummaryStreamFormatter formatter = new SummaryStreamFormatter();
+
+        assertEquals("Hel", formatter.append("Hel"));
+        assertEquals("lo", formatter.append("lo\n"));
+        // Bullet or divider?
+        assertEquals("", formatter.append("-"));
+        assertEquals("\n• ", formatter.append(" "));
+        assertEquals("item", formatter.append("item"));
+    }
+
+    @Test
+    public void testReset() {
+        SummaryStreamFormatter formatter = new SummaryStreamFormatter();
+        formatter.append("Partial text of the failed model\n\n");
+        formatter.reset();
+
+        assertEquals("Text", formatter.append("\nText"));
+    }
+
+    private static String format(String text, int chunkSize) {
+        SummaryStreamFormatter formatter = new SummaryStreamFormatter();
+        StringBuilder out = new StringBuilder();
+
+        for (int i = 0; i < text.length(); i += chunkSize) {
+            out.append(formatter.append(text.substring(i, Math.min(text.length(), i + chunkSize))));
+        }
+
+        out.append(formatter.finish());
+        return out.toString();
+    }
+}
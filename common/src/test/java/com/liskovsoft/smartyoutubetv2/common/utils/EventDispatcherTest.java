@@ -0,0 +1,270 @@
+package com.liskovsoft.smartyoutubetv2.common.utils;
+
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.listener.PlayerEvent;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.listener.PlayerEventListener;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EventDispatcherTest {
+    private static final int LISTENER_COUNT = 10;
+    private static final int WARMUP_ITERATIONS = 200_000;
+    private static final int ITERATIONS = 2_000_000;
+    private List<String> mCalls;
+    private EventDispatcher<TestListener, TestEvent> mDispatcher;
+    private long mDispatchedCalls;
+
+    public interface TestListener {
+        void onTickle();
+        void onVideoLoaded(String videoId);
+        boolean onKeyDown(int keyCode);
+    }
+
+    public enum TestEvent implements EventDispatcher.EventType {
+        TICKLE("onTickle"),
+        VIDEO_LOADED("onVideoLoaded"),
+        KEY_DOWN("onKeyDown");
+
+        private final String mMethodName;
+
+        TestEvent(String methodName) {
+            mMethodName = methodName;
+        }
+
+        @Override
+        public String getMethodName() {
+            return mMethodName;
+        }
+    }
+
+    public static class BaseTestListener implements TestListener {
+        @Override
+        public void onTickle() {
+            // NOP
+        }
+
+        @Override
+        public void onVideoLoaded(String videoId) {
+            // NOP
+        }
+
+        @Override
+        public boolean onKeyDown(int keyCode) {
+            return false;
+        }
+    }
+
+    private class TickleListener extends BaseTestListener {
+        private int mTickleCount;
+
+        @Override
+        public void onTickle() {
+            mTickleCount++;
+        }
+    }
+
+    private class VideoListener extends BaseTestListener {
+        private final String mName;
+
+        private VideoListener(String name) {
+            mName = name;
+        }
+
+        @Override
+        public void onVideoLoaded(String videoId) {
+            mCalls.add(mName + ":" + videoId);
+        }
+
+        @Override
+        public boolean onKeyDown(int keyCode) {
+            mCalls.add(mName + ":" + keyCode);
+            return keyCode == 1;
+        }
+    }
+
+    private class SubVideoListener extends VideoListener {
+        private SubVideoListener(String name) {
+            super(name);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        mCalls = new ArrayList<>();
+        mDispatcher = new EventDispatcher<>(TestListener.class, BaseTestListener.class, TestEvent.class);
+    }
+
+    @Test
+    public void testEventIsDeliveredOnlyToOverridingListeners() {
+        TickleListener tickleListener = new TickleListener();
+        mDispatcher.add(new VideoListener("first"));
+        mDispatcher.add(tickleListener);
+        mDispatcher.add(new BaseTestListener());
+        mDispatcher.add(new SubVideoListener("second"));
+
+        mDispatcher.process(TestEvent.VIDEO_LOADED, listener -> listener.onVideoLoaded("abc"));
+        mDispatcher.process(TestEvent.TICKLE, TestListener::onTickle);
+
+        assertEquals(2, mCalls.size());
+        assertEquals("first:abc", mCalls.get(0));
+        assertEquals("second:abc", mCalls.get(1));
+        assertEquals(1, tickleListener.mTickleCount);
+    }
+
+    @Test
+    public void testChainProcessStopsOnFirstHandledEvent() {
+        mDispatcher.add(new VideoListener("first"));
+        mDispatcher.add(new VideoListener("second"));
+
+        assertTrue(mDispatcher.chainProcess(TestEvent.KEY_DOWN, listener -> listener.onKeyDown(1)));
+        assertFalse(mDispatcher.chainProcess(TestEvent.KEY_DOWN, listener -> listener.onKeyDown(2)));
+
+        assertEquals(3, mCalls.size());
+        assertEquals("first:1", mCalls.get(0));
+        assertEquals("first:2", mCalls.get(1));
+        assertEquals("second:2", mCalls.get(2));
+    }
+
+    @Test
+    public void testTypedLookup() {
+        VideoListener videoListener = new SubVideoListener("first");
+        TickleListener tickleListener = new TickleListener();
+        mDispatcher.add(videoListener);
+        mDispatcher.add(tickleListener);
+
+        assertSame(tickleListener, mDispatcher.getListener(TickleListener.class));
+        assertSame(videoListener, mDispatcher.getListener(SubVideoListener.class));
+        assertSame(videoListener, mDispatcher.getListener(VideoListener.class)); // supertype
+        assertSame(videoListener, mDispatcher.getListener(BaseTestListener.class));
+    }
+
+    @Test
+    public void testTypedLookupOfMissingListener() {
+        mDispatcher.add(new TickleListener());
+
+        assertNull(mDispatcher.getListener(VideoListener.class));
+        assertNull(mDispatcher.getListener(VideoListener.class));
+    }
+
+    @Test
+    public void testEventWithoutListeners() {
+        mDispatcher.process(TestEvent.TICKLE, TestListener::onTickle);
+        assertFalse(mDispatcher.chainProcess(TestEvent.KEY_DOWN, listener -> listener.onKeyDown(1)));
+
+        mDispatcher.add(new TickleListener());
+        assertFalse(mDispatcher.chainProcess(TestEvent.KEY_DOWN, listener -> listener.onKeyDown(1)));
+        assertTrue(mCalls.isEmpty());
+    }
+
+    @Test
+    public void testPlayerEventsMatchListenerMethods() {
+        Set<String> methodNames = new HashSet<>();
+        for (Method method : PlayerEventListener.class.getMethods()) {
+            methodNames.add(method.getName());
+        }
+
+        Set<String> eventNames = new HashSet<>();
+        for (PlayerEvent event : PlayerEvent.values()) {
+            eventNames.add(event.getMethodName());
+        }
+
+        assertEquals(methodNames, eventNames);
+    }
+
+    @Test
+    public void testTracingRecordsSlowHandlers() {
+        List<String> slowHandlers = new ArrayList<>();
+        mDispatcher.add(new BaseTestListener() {
+            @Override
+            public void onTickle() {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        mDispatcher.add(new TickleListener());
+        mDispatcher.setTracingEnabled(true, 10, (event, listener, durationMs) -> slowHandlers.add(event));
+
+        mDispatcher.process(TestEvent.TICKLE, TestListener::onTickle);
+
+        assertEquals(1, slowHandlers.size());
+        assertEquals("onTickle", slowHandlers.get(0));
+        List<String> slowest = mDispatcher.getSlowestHandlers(10);
+        assertEquals(1, slowest.size());
+        assertTrue(slowest.get(0).startsWith("onTickle: "));
+
+        mDispatcher.resetTrace();
+        assertTrue(mDispatcher.getSlowestHandlers(10).isEmpty());
+    }
+
+    /**
+     * Dispatch overhead of the tickle event: fan-out to all listeners (old behavior) vs the dispatch table.
+     */
+    @Test
+    public void benchmarkTickleDispatch() {
+        List<TestListener> listeners = new CopyOnWriteArrayList<>();
+        TickleListener tickleListener = new TickleListener();
+
+        for (int i = 0; i < LISTENER_COUNT; i++) {
+            TestListener listener = i == LISTENER_COUNT / 2 ? tickleListener : new VideoListener("listener" + i);
+            listeners.add(listener);
+            mDispatcher.add(listener);
+        }
+
+        runFanOut(listeners, WARMUP_ITERATIONS);
+        long fanOutNanos = runFanOut(listeners, ITERATIONS);
+
+        runDispatcher(WARMUP_ITERATIONS);
+        long dispatcherNanos = runDispatcher(ITERATIONS);
+
+        mDispatcher.setTracingEnabled(true, Long.MAX_VALUE / 1_000_000, null);
+        runDispatcher(WARMUP_ITERATIONS);
+        long tracedNanos = runDispatcher(ITERATIONS);
+
+        String message = String.format("fan-out %s ns, dispatch table %s ns, with tracing %s ns", fanOutNanos, dispatcherNanos, tracedNanos);
+
+        assertEquals(message, 3L * (WARMUP_ITERATIONS + ITERATIONS), tickleListener.mTickleCount);
+        // Fan-out calls every listener, the table only the overriding one
+        assertEquals(message, 2L * (WARMUP_ITERATIONS + ITERATIONS), mDispatchedCalls);
+    }
+
+    private static long runFanOut(List<TestListener> listeners, int iterations) {
+        long start = System.nanoTime();
+
+        for (int i = 0; i < iterations; i++) {
+            for (TestListener listener : listeners) { // same as Utils.process
+                listener.onTickle();
+            }
+        }
+
+        return System.nanoTime() - start;
+    }
+
+    private long runDispatcher(int iterations) {
+        long start = System.nanoTime();
+
+        for (int i = 0; i < iterations; i++) {
+            mDispatcher.process(TestEvent.TICKLE, listener -> {
+                mDispatchedCalls++;
+                listener.onTickle();
+            });
+        }
+
+        return System.nanoTime() - start;
+    }
+}
@@ -580,6 +580,16 @@ public abstract class MediaCodecRenderer extends BaseRenderer {
         && getState() != STATE_DISABLED) {
       updateCodecOperatingRate();
     }
+    onOperatingRateChanged(operatingRate);
+  }
+
+  /**
+   * Called when the operating rate (the playback speed) of the renderer is set.
+   *
+   * @param operatingRate The new operating rate.
+   */
+  protected void onOperatingRateChanged(float operatingRate) {
+    // Do nothing.
   }
 
   @Override
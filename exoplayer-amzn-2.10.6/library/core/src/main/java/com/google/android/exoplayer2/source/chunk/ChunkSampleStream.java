@@ -30,6 +30,7 @@ import com.google.android.exoplayer2.upstream.DefaultLoadErrorHandlingPolicy;
 import com.google.android.exoplayer2.upstream.LoadErrorHandlingPolicy;
 import com.google.android.exoplayer2.upstream.Loader;
 import com.google.android.exoplayer2.upstream.Loader.LoadErrorAction;
+import com.google.android.exoplayer2.upstream.SharedLoaderExecutor;
 import com.google.android.exoplayer2.util.Assertions;
 import com.google.android.exoplayer2.util.Log;
 import com.google.android.exoplayer2.util.Util;
@@ -58,6 +59,12 @@ public class ChunkSampleStream<T extends ChunkSource> implements SampleStream, S
 
   private static final String TAG = "ChunkSampleStream";
 
+  /**
+   * Media chunks starting further than this ahead of the playback position are loaded with {@link
+   * Loader#PRIORITY_SPECULATIVE}.
+   */
+  private static final long SPECULATIVE_LOAD_AHEAD_US = 30_000_000;
+
   public final int primaryTrackType;
 
   private final int[] embeddedTrackTypes;
@@ -148,6 +155,46 @@ public class ChunkSampleStream<T extends ChunkSource> implements SampleStream, S
       long positionUs,
       LoadErrorHandlingPolicy loadErrorHandlingPolicy,
       EventDispatcher eventDispatcher) {
+    this(
+        primaryTrackType,
+        embeddedTrackTypes,
+        embeddedTrackFormats,
+        chunkSource,
+        callback,
+        allocator,
+        positionUs,
+        loadErrorHandlingPolicy,
+        eventDispatcher,
+        /* loaderExecutor= */ null);
+  }
+
+  /**
+   * Constructs an instance.
+   *
+   * @param primaryTrackType The type of the primary track. One of the {@link C} {@code
+   *     TRACK_TYPE_*} constants.
+   * @param embeddedTrackTypes The types of any embedded tracks, or null.
+   * @param embeddedTrackFormats The formats of the embedded tracks, or null.
+   * @param chunkSource A {@link ChunkSource} from which chunks to load are obtained.
+   * @param callback An {@link Callback} for the stream.
+   * @param allocator An {@link Allocator} from which allocations can be obtained.
+   * @param positionUs The position from which to start loading media.
+   * @param loadErrorHandlingPolicy The {@link LoadErrorHandlingPolicy}.
+   * @param eventDispatcher A dispatcher to notify of events.
+   * @param loaderExecutor The {@link SharedLoaderExecutor} the chunks are loaded on, or null to
+   *     load them on a thread of the stream.
+   */
+  public ChunkSampleStream(
+      int primaryTrackType,
+      int[] embeddedTrackTypes,
+      Format[] embeddedTrackFormats,
+      T chunkSource,
+      Callback<ChunkSampleStream<T>> callback,
+      Allocator allocator,
+      long positionUs,
+      LoadErrorHandlingPolicy loadErrorHandlingPolicy,
+      EventDispatcher eventDispatcher,
+      @Nullable SharedLoaderExecutor loaderExecutor) {
     this.primaryTrackType = primaryTrackType;
     this.embeddedTrackTypes = embeddedTrackTypes;
     this.embeddedTrackFormats = embeddedTrackFormats;
@@ -155,7 +202,11 @@ public class ChunkSampleStream<T extends ChunkSource> implements SampleStream, S
     this.callback = callback;
     this.eventDispatcher = eventDispatcher;
     this.loadErrorHandlingPolicy = loadErrorHandlingPolicy;
-    loader = new Loader("Loader:ChunkSampleStream");
+    loader =
+        new Loader(
+            "Loader:ChunkSampleStream",
+            loaderExecutor,
+            primaryTrackType == C.TRACK_TYPE_AUDIO ? Loader.PRIORITY_AUDIO : Loader.PRIORITY_MEDIA);
     nextChunkHolder = new ChunkHolder();
     mediaChunks = new ArrayList<>();
     readOnlyMediaChunks = Collections.unmodifiableList(mediaChunks);
@@ -590,6 +641,7 @@ public class ChunkSampleStream<T extends ChunkSource> implements SampleStream, S
       mediaChunk.init(mediaChunkOutput);
       mediaChunks.add(mediaChunk);
     }
+    loader.setPriority(getLoadPriority(positionUs, loadable));
     long elapsedRealtimeMs =
         loader.startLoading(
             loadable, this, loadErrorHandlingPolicy.getMinimumLoadableRetryCount(loadable.type));
@@ -653,6 +705,15 @@ public class ChunkSampleStream<T extends ChunkSource> implements SampleStream, S
     return chunk instanceof BaseMediaChunk;
   }
 
+  private @Loader.Priority int getLoadPriority(long positionUs, Chunk chunk) {
+    if (isMediaChunk(chunk)
+        && positionUs != C.TIME_UNSET
+        && chunk.startTimeUs - positionUs > SPECULATIVE_LOAD_AHEAD_US) {
+      return Loader.PRIORITY_SPECULATIVE;
+    }
+    return primaryTrackType == C.TRACK_TYPE_AUDIO ? Loader.PRIORITY_AUDIO : Loader.PRIORITY_MEDIA;
+  }
+
   /** Returns whether samples have been read from media chunk at given index. */
   private boolean haveReadFromMediaChunk(int mediaChunkIndex) {
     BaseMediaChunk mediaChunk = mediaChunks.get(mediaChunkIndex);
@@ -136,6 +136,25 @@ public final class Loader implements LoaderErrorThrower {
 
   }
 
+  /**
+   * Priority of the loads when a {@link SharedLoaderExecutor} is used. One of {@link
+   * #PRIORITY_MANIFEST}, {@link #PRIORITY_AUDIO}, {@link #PRIORITY_MEDIA} or {@link
+   * #PRIORITY_SPECULATIVE}. Lower values are started first.
+   */
+  @Documented
+  @Retention(RetentionPolicy.SOURCE)
+  @IntDef({PRIORITY_MANIFEST, PRIORITY_AUDIO, PRIORITY_MEDIA, PRIORITY_SPECULATIVE})
+  public @interface Priority {}
+
+  /** Manifest loads and refreshes. */
+  public static final int PRIORITY_MANIFEST = 0;
+  /** Audio media loads. */
+  public static final int PRIORITY_AUDIO = 1;
+  /** Other media loads. The default. */
+  public static final int PRIORITY_MEDIA = 2;
+  /** Loads of the media that won't be needed soon, e.g. far ahead of the playback position. */
+  public static final int PRIORITY_SPECULATIVE = 3;
+
   /** Types of action that can be taken in response to a load error. */
   @Documented
   @Retention(RetentionPolicy.SOURCE)
@@ -188,16 +207,49 @@ public final class Loader implements LoaderErrorThrower {
     }
   }
 
-  private final ExecutorService downloadExecutorService;
+  @Nullable private final ExecutorService downloadExecutorService;
+  @Nullable private final SharedLoaderExecutor.Lane sharedExecutorLane;
 
   private LoadTask<? extends Loadable> currentTask;
   private IOException fatalError;
+  private @Priority int priority;
 
   /**
    * @param threadName A name for the loader's thread.
    */
   public Loader(String threadName) {
-    this.downloadExecutorService = Util.newSingleThreadExecutor(threadName);
+    this(threadName, /* sharedExecutor= */ null, PRIORITY_MEDIA);
+  }
+
+  /**
+   * @param threadName A name for the loader's thread. Unused if a {@link SharedLoaderExecutor} is
+   *     passed.
+   * @param sharedExecutor The {@link SharedLoaderExecutor} to borrow the threads from, or null to
+   *     create a thread for this loader.
+   * @param priority The {@link Priority} of the loads.
+   */
+  public Loader(
+      String threadName,
+      @Nullable SharedLoaderExecutor sharedExecutor,
+      @Priority int priority) {
+    this.priority = priority;
+    if (sharedExecutor != null) {
+      this.downloadExecutorService = null;
+      this.sharedExecutorLane = sharedExecutor.newLane();
+    } else {
+      this.downloadExecutorService = Util.newSingleThreadExecutor(threadName);
+      this.sharedExecutorLane = null;
+    }
+  }
+
+  /**
+   * Sets the {@link Priority} of the next loads. Only has effect if the {@link Loader} uses a
+   * {@link SharedLoaderExecutor}.
+   *
+   * @param priority The {@link Priority}.
+   */
+  public void setPriority(@Priority int priority) {
+    this.priority = priority;
   }
 
   /**
@@ -283,6 +335,12 @@ public final class Loader implements LoaderErrorThrower {
     if (currentTask != null) {
       currentTask.cancel(true);
     }
+    if (sharedExecutorLane != null) {
+      if (callback != null) {
+        sharedExecutorLane.execute(new ReleaseTask(callback), priority);
+      }
+      return;
+    }
     if (callback != null) {
       downloadExecutorService.execute(new ReleaseTask(callback));
     }
@@ -368,8 +426,11 @@ public final class Loader implements LoaderErrorThrower {
       } else {
         canceled = true;
         loadable.cancelLoad();
-        if (executorThread != null) {
-          executorThread.interrupt();
+        synchronized (this) {
+          // The thread may be shared, so never interrupt it after the load has exited.
+          if (executorThread != null) {
+            executorThread.interrupt();
+          }
         }
       }
       if (released) {
@@ -432,6 +493,10 @@ public final class Loader implements LoaderErrorThrower {
           obtainMessage(MSG_FATAL_ERROR, e).sendToTarget();
         }
         throw e;
+      } finally {
+        synchronized (this) {
+          executorThread = null;
+        }
       }
     }
 
@@ -492,7 +557,11 @@ public final class Loader implements LoaderErrorThrower {
 
     private void execute() {
       currentError = null;
-      downloadExecutorService.execute(currentTask);
+      if (sharedExecutorLane != null) {
+        sharedExecutorLane.execute(currentTask, priority);
+      } else {
+        downloadExecutorService.execute(currentTask);
+      }
     }
 
     private void finish() {
@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.upstream;
+
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.util.Assertions;
+import com.google.android.exoplayer2.util.Clock;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * A bounded, priority-aware thread pool that {@link Loader} instances can borrow threads from
+ * instead of creating a thread of their own.
+ *
+ * <p>Each {@link Loader} gets a {@link Lane} which runs its tasks sequentially, so the threading
+ * guarantees of a {@link Loader} are the same as with a dedicated thread. Queued tasks are started
+ * in {@link Loader.Priority} order. {@link Loader#PRIORITY_SPECULATIVE} tasks never take the last
+ * free thread, so the loads near the playback position are not delayed by speculative ones.
+ *
+ * <p>Threads are created on demand up to the maximum and are kept until {@link #release()}. A
+ * single pool is meant to be shared by all the players of the process (e.g. the main player and
+ * the preview), so the number of loader threads stays bounded however many players are active.
+ */
+public final class SharedLoaderExecutor {
+
+  /** The default maximum number of threads. */
+  public static final int DEFAULT_MAX_THREADS = 4;
+
+  private static final int PRIORITY_COUNT = Loader.PRIORITY_SPECULATIVE + 1;
+
+  /** Runs the tasks of a single {@link Loader} sequentially on the threads of the pool. */
+  public final class Lane {
+
+    private final ArrayDeque<Task> pendingTasks;
+
+    private boolean active;
+
+    private Lane() {
+      pendingTasks = new ArrayDeque<>();
+    }
+
+    /**
+     * Queues a task. It's started after all the previously queued tasks of this lane have finished.
+     *
+     * @param runnable The task.
+     * @param priority The {@link Loader.Priority} of the task.
+     */
+    public void execute(Runnable runnable, @Loader.Priority int priority) {
+      synchronized (SharedLoaderExecutor.this) {
+        pendingTasks.add(new Task(this, runnable, priority));
+        if (!active) {
+          scheduleNext();
+        }
+      }
+    }
+
+    private void scheduleNext() {
+      Task task = pendingTasks.poll();
+      active = task != null;
+      if (task != null) {
+        submit(task);
+      }
+    }
+  }
+
+  private final class Task implements Runnable, Comparable<Task> {
+
+    private final Lane lane;
+    private final Runnable runnable;
+    private final @Loader.Priority int priority;
+
+    private long sequenceNumber;
+    private long queuedTimeMs;
+
+    private Task(Lane lane, Runnable runnable, @Loader.Priority int priority) {
+      this.lane = lane;
+      this.runnable = runnable;
+      this.priority = priority;
+    }
+
+    @Override
+    public void run() {
+      runnable.run();
+    }
+
+    @Override
+    public int compareTo(Task other) {
+      if (priority != other.priority) {
+        return priority < other.priority ? -1 : 1;
+      }
+      return Long.compare(sequenceNumber, other.sequenceNumber);
+    }
+  }
+
+  private final int maxThreads;
+  private final Clock clock;
+  private final PriorityQueue<Task> queue;
+  private final long[] maxQueuedTimeMs;
+
+  private int threadCount;
+  private int idleThreadCount;
+  private int runningTaskCount;
+  private long nextSequenceNumber;
+  private long completedTaskCount;
+  private boolean released;
+
+  /**
+   * @param maxThreads The maximum number of threads.
+   */
+  public SharedLoaderExecutor(int maxThreads) {
+    this(maxThreads, Clock.DEFAULT);
+  }
+
+  /**
+   * @param maxThreads The maximum number of threads.
+   * @param clock The {@link Clock} used to measure how long the tasks are queued.
+   */
+  public SharedLoaderExecutor(int maxThreads, Clock clock) {
+    Assertions.checkArgument(maxThreads > 0);
+    this.maxThreads = maxThreads;
+    this.clock = clock;
+    queue = new PriorityQueue<>();
+    maxQueuedTimeMs = new long[PRIORITY_COUNT];
+    Arrays.fill(maxQueuedTimeMs, C.TIME_UNSET);
+  }
+
+  /** Creates a new {@link Lane}. Lanes don't hold any resources and need no release. */
+  public Lane newLane() {
+    return new Lane();
+  }
+
+  /**
+   * Releases the pool. The queued tasks, e.g. the release callbacks of the loaders, still run, then
+   * the threads exit.
+   */
+  public synchronized void release() {
+    released = true;
+    notifyAll();
+  }
+
+  /** Returns the number of live threads of the pool. */
+  public synchronized int getThreadCount() {
+    return threadCount;
+  }
+
+  /** Returns the number of tasks that have finished. */
+  public synchronized long getCompletedTaskCount() {
+    return completedTaskCount;
+  }
+
+  /**
+   * Returns the longest time in milliseconds a task of the given priority waited for a thread, or
+   * {@link C#TIME_UNSET} if no such task was started.
+   */
+  public synchronized long getMaxQueuedTimeMs(@Loader.Priority int priority) {
+    return maxQueuedTimeMs[priority];
+  }
+
+  private void submit(Task task) {
+    // Called with the lock held.
+    task.sequenceNumber = nextSequenceNumber++;
+    task.queuedTimeMs = clock.elapsedRealtime();
+    queue.add(task);
+    if (idleThreadCount == 0 && threadCount < maxThreads) {
+      threadCount++;
+      Thread thread = new Thread(this::runWorker, "ExoPlayer:SharedLoader:" + threadCount);
+      thread.setDaemon(true);
+      thread.start();
+    } else {
+      notifyAll();
+    }
+  }
+
+  @Nullable
+  private Task pollRunnableTask() {
+    // Called with the lock held.
+    Task task = queue.peek();
+    if (task == null) {
+      return null;
+    }
+    if (task.priority == Loader.PRIORITY_SPECULATIVE
+        && maxThreads > 1
+        && runningTaskCount >= maxThreads - 1) {
+      // Keep the last thread for the loads that can't wait.
+      return null;
+    }
+    return queue.poll();
+  }
+
+  private void runWorker() {
+    while (true) {
+      Task task;
+      synchronized (this) {
+        while ((task = pollRunnableTask()) == null) {
+          if (released && queue.isEmpty()) {
+            threadCount--;
+            return;
+          }
+          idleThreadCount++;
+          try {
+            wait();
+          } catch (InterruptedException e) {
+            // Interrupts of a canceled load may arrive late. Ignore them.
+          } finally {
+            idleThreadCount--;
+          }
+        }
+        runningTaskCount++;
+        long queuedTimeMs = clock.elapsedRealtime() - task.queuedTimeMs;
+        if (maxQueuedTimeMs[task.priority] == C.TIME_UNSET
+            || queuedTimeMs > maxQueuedTimeMs[task.priority]) {
+          maxQueuedTimeMs[task.priority] = queuedTimeMs;
+        }
+      }
+
+      // Don't leak an interrupt of the previous task into this one.
+      Thread.interrupted();
+
+      boolean completed = false;
+      try {
+        task.run();
+        completed = true;
+      } finally {
+        synchronized (this) {
+          runningTaskCount--;
+          completedTaskCount++;
+          if (!completed) {
+            // The error is propagated and the thread dies. The next task gets a new thread.
+            threadCount--;
+          }
+          task.lane.scheduleNext();
+          // A speculative task might be waiting for a free thread.
+          notifyAll();
+        }
+      }
+    }
+  }
+}
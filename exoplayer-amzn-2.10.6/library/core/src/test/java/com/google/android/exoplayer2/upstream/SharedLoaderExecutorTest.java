@@ -0,0 +1,349 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.upstream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+import androidx.annotation.Nullable;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.testutil.FakeClock;
+import com.google.android.exoplayer2.testutil.FakeDataSet;
+import com.google.android.exoplayer2.testutil.FakeDataSource;
+import com.google.android.exoplayer2.util.Util;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link SharedLoaderExecutor}. */
+@RunWith(AndroidJUnit4.class)
+public final class SharedLoaderExecutorTest {
+
+  private static final long TIMEOUT_MS = 10_000;
+  private static final int DATA_LENGTH = 16 * 1024;
+
+  private FakeDataSet fakeDataSet;
+  private FakeClock fakeClock;
+  private HandlerThread loaderThread;
+  private Handler handler;
+  private List<String> loadOrder;
+  private SharedLoaderExecutor executor;
+
+  @Before
+  public void setUp() {
+    fakeDataSet = new FakeDataSet();
+    fakeClock = new FakeClock(/* initialTimeMs= */ 0);
+    loaderThread = new HandlerThread("SharedLoaderExecutorTest");
+    loaderThread.start();
+    handler = new Handler(loaderThread.getLooper());
+    loadOrder = Collections.synchronizedList(new ArrayList<>());
+  }
+
+  @After
+  public void tearDown() {
+    if (executor != null) {
+      executor.release();
+    }
+    loaderThread.quit();
+  }
+
+  @Test
+  public void testThreadCountIsBoundedAcrossPlaybackCycles() throws Exception {
+    executor = new SharedLoaderExecutor(/* maxThreads= */ 3, fakeClock);
+    int[] priorities = {
+      Loader.PRIORITY_AUDIO, // audio ChunkSampleStream
+      Loader.PRIORITY_MEDIA, // video ChunkSampleStream
+      Loader.PRIORITY_MEDIA, // text ChunkSampleStream
+      Loader.PRIORITY_SPECULATIVE // video chunk far ahead
+    };
+    int cycles = 10;
+
+    for (int cycle = 0; cycle < cycles; cycle++) {
+      CountDownLatch loadsCompleted = new CountDownLatch(priorities.length);
+      List<Loader> loaders = new ArrayList<>();
+      for (int i = 0; i < priorities.length; i++) {
+        Loader loader = newLoader(priorities[i]);
+        loaders.add(loader);
+        startLoading(loader, newLoadable("cycle" + cycle + "/load" + i, null), loadsCompleted);
+      }
+      await(loadsCompleted);
+
+      CountDownLatch loadersReleased = new CountDownLatch(loaders.size());
+      runOnLoaderThread(
+          () -> {
+            for (Loader loader : loaders) {
+              loader.release(loadersReleased::countDown);
+            }
+          });
+      await(loadersReleased);
+    }
+
+    // A thread per loader would make it 40 threads.
+    assertThat(executor.getThreadCount()).isAtMost(3);
+    assertThat(loadOrder).hasSize(cycles * priorities.length);
+  }
+
+  @Test
+  public void testQueuedLoadsStartInPriorityOrder() throws Exception {
+    executor = new SharedLoaderExecutor(/* maxThreads= */ 1, fakeClock);
+    CountDownLatch gate = new CountDownLatch(1);
+    CountDownLatch loadsCompleted = new CountDownLatch(4);
+
+    startLoading(newLoader(Loader.PRIORITY_MEDIA), newLoadable("blocking", gate), loadsCompleted);
+    startLoading(
+        newLoader(Loader.PRIORITY_SPECULATIVE), newLoadable("speculative", null), loadsCompleted);
+    startLoading(newLoader(Loader.PRIORITY_MEDIA), newLoadable("video", null), loadsCompleted);
+    startLoading(newLoader(Loader.PRIORITY_AUDIO), newLoadable("audio", null), loadsCompleted);
+    fakeClock.advanceTime(100);
+    gate.countDown();
+    await(loadsCompleted);
+
+    assertThat(loadOrder)
+        .containsExactly("blocking", "exited:blocking", "audio", "video", "speculative")
+        .inOrder();
+    assertThat(executor.getMaxQueuedTimeMs(Loader.PRIORITY_AUDIO)).isEqualTo(100);
+    assertThat(executor.getThreadCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testManifestLoadJumpsAheadOfQueuedChunks() throws Exception {
+    executor = new SharedLoaderExecutor(/* maxThreads= */ 1, fakeClock);
+    CountDownLatch gate = new CountDownLatch(1);
+    CountDownLatch loadsCompleted = new CountDownLatch(5);
+
+    // The main player loads the video chunks.
+    startLoading(newLoader(Loader.PRIORITY_MEDIA), newLoadable("blocking", gate), loadsCompleted);
+    startLoading(newLoader(Loader.PRIORITY_MEDIA), newLoadable("video1", null), loadsCompleted);
+    startLoading(newLoader(Loader.PRIORITY_MEDIA), newLoadable("video2", null), loadsCompleted);
+    startLoading(newLoader(Loader.PRIORITY_MEDIA), newLoadable("video3", null), loadsCompleted);
+    // The live manifest of the other player is refreshed after them.
+    startLoading(
+        newLoader(Loader.PRIORITY_MANIFEST), newLoadable("manifest", null), loadsCompleted);
+    fakeClock.advanceTime(100);
+    gate.countDown();
+    await(loadsCompleted);
+
+    assertThat(loadOrder)
+        .containsExactly("blocking", "exited:blocking", "manifest", "video1", "video2", "video3")
+        .inOrder();
+    assertThat(executor.getMaxQueuedTimeMs(Loader.PRIORITY_MANIFEST)).isEqualTo(100);
+  }
+
+  @Test
+  public void testSpeculativeLoadsDontTakeLastThread() throws Exception {
+    executor = new SharedLoaderExecutor(/* maxThreads= */ 2, fakeClock);
+    CountDownLatch gate = new CountDownLatch(1);
+    CountDownLatch speculativeLoadsCompleted = new CountDownLatch(2);
+    CountDownLatch audioLoadCompleted = new CountDownLatch(1);
+
+    TestLoadable blockingLoadable = newLoadable("speculative1", gate);
+    startLoading(
+        newLoader(Loader.PRIORITY_SPECULATIVE), blockingLoadable, speculativeLoadsCompleted);
+    await(blockingLoadable.started);
+    startLoading(
+        newLoader(Loader.PRIORITY_SPECULATIVE),
+        newLoadable("speculative2", null),
+        speculativeLoadsCompleted);
+    startLoading(newLoader(Loader.PRIORITY_AUDIO), newLoadable("audio", null), audioLoadCompleted);
+
+    // The audio load isn't blocked by the speculative ones.
+    await(audioLoadCompleted);
+    assertThat(loadOrder).containsExactly("speculative1", "audio").inOrder();
+
+    gate.countDown();
+    await(speculativeLoadsCompleted);
+    assertThat(loadOrder)
+        .containsExactly("speculative1", "audio", "exited:speculative1", "speculative2")
+        .inOrder();
+  }
+
+  @Test
+  public void testReleaseCallbackRunsAfterCanceledLoad() throws Exception {
+    executor = new SharedLoaderExecutor(/* maxThreads= */ 2, fakeClock);
+    CountDownLatch gate = new CountDownLatch(1);
+    CountDownLatch loaderReleased = new CountDownLatch(1);
+    Loader loader = newLoader(Loader.PRIORITY_MEDIA);
+
+    TestLoadable blockingLoadable = newLoadable("blocking", gate);
+    startLoading(loader, blockingLoadable, new CountDownLatch(1));
+    await(blockingLoadable.started);
+    // Releasing interrupts the load. The callback must still wait until the load has exited.
+    runOnLoaderThread(
+        () ->
+            loader.release(
+                () -> {
+                  loadOrder.add("released");
+                  loaderReleased.countDown();
+                }));
+    await(loaderReleased);
+
+    assertThat(loadOrder).containsExactly("blocking", "exited:blocking", "released").inOrder();
+  }
+
+  @Test
+  public void testReleaseStopsThreads() throws Exception {
+    executor = new SharedLoaderExecutor(/* maxThreads= */ 2, fakeClock);
+    CountDownLatch gate = new CountDownLatch(1);
+    CountDownLatch loadersReleased = new CountDownLatch(2);
+    Loader audioLoader = newLoader(Loader.PRIORITY_AUDIO);
+    Loader videoLoader = newLoader(Loader.PRIORITY_MEDIA);
+
+    TestLoadable audioLoadable = newLoadable("audio", gate);
+    TestLoadable videoLoadable = newLoadable("video", gate);
+    startLoading(audioLoader, audioLoadable, new CountDownLatch(1));
+    startLoading(videoLoader, videoLoadable, new CountDownLatch(1));
+    await(audioLoadable.started);
+    await(videoLoadable.started);
+    assertThat(executor.getThreadCount()).isEqualTo(2);
+
+    // The player is released while loading. The release callbacks still run.
+    runOnLoaderThread(
+        () -> {
+          audioLoader.release(loadersReleased::countDown);
+          videoLoader.release(loadersReleased::countDown);
+        });
+    executor.release();
+    gate.countDown();
+    await(loadersReleased);
+
+    long deadlineMs = System.currentTimeMillis() + TIMEOUT_MS;
+    while (executor.getThreadCount() > 0 && System.currentTimeMillis() < deadlineMs) {
+      Thread.sleep(10);
+    }
+    assertThat(executor.getThreadCount()).isEqualTo(0);
+  }
+
+  private Loader newLoader(@Loader.Priority int priority) {
+    return new Loader("Loader:Test", executor, priority);
+  }
+
+  private TestLoadable newLoadable(String name, @Nullable CountDownLatch gate) {
+    fakeDataSet.setRandomData(name, DATA_LENGTH);
+    return new TestLoadable(new FakeDataSource(fakeDataSet), name, gate, loadOrder);
+  }
+
+  private void startLoading(Loader loader, TestLoadable loadable, CountDownLatch loadEnded)
+      throws InterruptedException {
+    runOnLoaderThread(
+        () ->
+            loader.startLoading(
+                loadable, new TestCallback(loadEnded), /* defaultMinRetryCount= */ 0));
+  }
+
+  private void runOnLoaderThread(Runnable runnable) throws InterruptedException {
+    CountDownLatch done = new CountDownLatch(1);
+    handler.post(
+        () -> {
+          runnable.run();
+          done.countDown();
+        });
+    await(done);
+  }
+
+  private static void await(CountDownLatch latch) throws InterruptedException {
+    assertThat(latch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS)).isTrue();
+  }
+
+  private static final class TestLoadable implements Loader.Loadable {
+
+    public final CountDownLatch started;
+
+    private final FakeDataSource dataSource;
+    private final String name;
+    @Nullable private final CountDownLatch gate;
+    private final List<String> loadOrder;
+
+    private TestLoadable(
+        FakeDataSource dataSource,
+        String name,
+        @Nullable CountDownLatch gate,
+        List<String> loadOrder) {
+      this.dataSource = dataSource;
+      this.name = name;
+      this.gate = gate;
+      this.loadOrder = loadOrder;
+      started = new CountDownLatch(1);
+    }
+
+    @Override
+    public void cancelLoad() {
+      // Do nothing. The gate is opened by the test.
+    }
+
+    @Override
+    public void load() throws IOException, InterruptedException {
+      loadOrder.add(name);
+      started.countDown();
+      try {
+        if (gate != null) {
+          gate.await();
+        }
+        dataSource.open(new DataSpec(Uri.parse(name)));
+        byte[] buffer = new byte[1024];
+        while (dataSource.read(buffer, 0, buffer.length) != C.RESULT_END_OF_INPUT) {
+          // Read the whole chunk.
+        }
+      } finally {
+        Util.closeQuietly(dataSource);
+        if (gate != null) {
+          loadOrder.add("exited:" + name);
+        }
+      }
+    }
+  }
+
+  private static final class TestCallback implements Loader.Callback<TestLoadable> {
+
+    private final CountDownLatch loadEnded;
+
+    private TestCallback(CountDownLatch loadEnded) {
+      this.loadEnded = loadEnded;
+    }
+
+    @Override
+    public void onLoadCompleted(
+        TestLoadable loadable, long elapsedRealtimeMs, long loadDurationMs) {
+      loadEnded.countDown();
+    }
+
+    @Override
+    public void onLoadCanceled(
+        TestLoadable loadable, long elapsedRealtimeMs, long loadDurationMs, boolean released) {
+      loadEnded.countDown();
+    }
+
+    @Override
+    public Loader.LoadErrorAction onLoadError(
+        TestLoadable loadable,
+        long elapsedRealtimeMs,
+        long loadDurationMs,
+        IOException error,
+        int errorCount) {
+      loadEnded.countDown();
+      return Loader.DONT_RETRY;
+    }
+  }
+}
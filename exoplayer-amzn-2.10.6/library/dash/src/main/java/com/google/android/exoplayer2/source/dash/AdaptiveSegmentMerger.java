@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.source.dash;
+
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.source.chunk.Chunk;
+import com.google.android.exoplayer2.util.Clock;
+
+/**
+ * Decides how many adjacent segments of a representation are requested at once.
+ *
+ * <p>A merged request must finish before the buffer runs dry, so its size is limited by the
+ * measured throughput times a fraction of the buffered duration. The number of merged segments
+ * grows with every successful load and falls back to a single segment after a load error, a track
+ * switch or a seek.
+ */
+public final class AdaptiveSegmentMerger {
+
+  /** The default fraction of the buffered duration a merged load may take. */
+  public static final float DEFAULT_BUFFER_HEADROOM_FRACTION = 0.5f;
+  /** The default maximum size of a merged load in bytes. */
+  public static final long DEFAULT_MAX_BYTES_PER_LOAD = 16 * 1024 * 1024;
+
+  private static final float THROUGHPUT_SMOOTHING_FACTOR = 0.3f;
+
+  private final Clock clock;
+  private final float bufferHeadroomFraction;
+  private final long maxBytesPerLoad;
+
+  private long throughputBytesPerSecond;
+  private int segmentCountLimit;
+  @Nullable private Chunk pendingChunk;
+  private long pendingChunkStartTimeMs;
+
+  public AdaptiveSegmentMerger() {
+    this(Clock.DEFAULT, DEFAULT_BUFFER_HEADROOM_FRACTION, DEFAULT_MAX_BYTES_PER_LOAD);
+  }
+
+  /**
+   * @param clock The {@link Clock} used to measure the load durations.
+   * @param bufferHeadroomFraction The fraction of the buffered duration a merged load may take.
+   * @param maxBytesPerLoad The maximum size of a merged load in bytes.
+   */
+  public AdaptiveSegmentMerger(Clock clock, float bufferHeadroomFraction, long maxBytesPerLoad) {
+    this.clock = clock;
+    this.bufferHeadroomFraction = bufferHeadroomFraction;
+    this.maxBytesPerLoad = maxBytesPerLoad;
+    throughputBytesPerSecond = C.LENGTH_UNSET;
+    segmentCountLimit = 1;
+  }
+
+  /**
+   * Returns the maximum number of segments of the next load. The number may be further reduced by
+   * {@link #getMaxBytesPerLoad(long)}.
+   */
+  public int getSegmentCountLimit() {
+    return segmentCountLimit;
+  }
+
+  /**
+   * Returns the maximum size in bytes of a merged load, or 0 if the segments shouldn't be merged.
+   *
+   * @param bufferedDurationUs The duration of the media buffered ahead of the playback position.
+   */
+  public long getMaxBytesPerLoad(long bufferedDurationUs) {
+    if (throughputBytesPerSecond == C.LENGTH_UNSET || bufferedDurationUs <= 0) {
+      return 0;
+    }
+    double loadDurationSeconds = bufferedDurationUs * bufferHeadroomFraction / C.MICROS_PER_SECOND;
+    long bytes = (long) (throughputBytesPerSecond * loadDurationSeconds);
+    return Math.min(bytes, maxBytesPerLoad);
+  }
+
+  /** Returns the current throughput estimate in bytes per second, or {@link C#LENGTH_UNSET}. */
+  public long getThroughputBytesPerSecond() {
+    return throughputBytesPerSecond;
+  }
+
+  /** Called when a new media chunk is about to be loaded. */
+  public void onChunkStarted(Chunk chunk) {
+    pendingChunk = chunk;
+    pendingChunkStartTimeMs = clock.elapsedRealtime();
+  }
+
+  /** Called when a media chunk has been loaded. */
+  public void onChunkLoadCompleted(Chunk chunk) {
+    if (chunk != pendingChunk) {
+      return;
+    }
+    pendingChunk = null;
+    long bytes =
+        chunk.dataSpec.length != C.LENGTH_UNSET ? chunk.dataSpec.length : chunk.bytesLoaded();
+    long loadDurationMs = Math.max(1, clock.elapsedRealtime() - pendingChunkStartTimeMs);
+    if (bytes <= 0) {
+      return;
+    }
+    long sample = bytes * 1000 / loadDurationMs;
+    throughputBytesPerSecond =
+        throughputBytesPerSecond == C.LENGTH_UNSET
+            ? sample
+            : (long)
+                (THROUGHPUT_SMOOTHING_FACTOR * sample
+                    + (1 - THROUGHPUT_SMOOTHING_FACTOR) * throughputBytesPerSecond);
+    if (segmentCountLimit < Integer.MAX_VALUE / 2) {
+      segmentCountLimit *= 2;
+    }
+  }
+
+  /** Called when a load failed. The next loads request single segments again. */
+  public void onChunkLoadError() {
+    pendingChunk = null;
+    segmentCountLimit = 1;
+  }
+
+  /** Called on a track switch or a seek. The next loads request single segments again. */
+  public void onDiscontinuity() {
+    segmentCountLimit = 1;
+  }
+}
@@ -45,15 +45,20 @@ import com.google.android.exoplayer2.source.dash.manifest.DashManifest;
 import com.google.android.exoplayer2.source.dash.manifest.RangedUri;
 import com.google.android.exoplayer2.source.dash.manifest.Representation;
 import com.google.android.exoplayer2.trackselection.TrackSelection;
+import com.google.android.exoplayer2.upstream.ByteArrayDataSource;
+import com.google.android.exoplayer2.upstream.DataSink;
 import com.google.android.exoplayer2.upstream.DataSource;
 import com.google.android.exoplayer2.upstream.DataSpec;
 import com.google.android.exoplayer2.upstream.HttpDataSource.InvalidResponseCodeException;
 import com.google.android.exoplayer2.upstream.LoaderErrorThrower;
+import com.google.android.exoplayer2.upstream.TeeDataSource;
 import com.google.android.exoplayer2.upstream.TransferListener;
 import com.google.android.exoplayer2.util.MimeTypes;
 import com.google.android.exoplayer2.util.Util;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -65,14 +70,48 @@ public class DefaultDashChunkSource implements DashChunkSource {
 
     private final DataSource.Factory dataSourceFactory;
     private final int maxSegmentsPerLoad;
+    private final boolean adaptiveSegmentMerging;
+
+    @Nullable private SegmentIndexCache segmentIndexCache;
+    @Nullable private String contentId;
 
     public Factory(DataSource.Factory dataSourceFactory) {
       this(dataSourceFactory, 1);
     }
 
     public Factory(DataSource.Factory dataSourceFactory, int maxSegmentsPerLoad) {
+      this(dataSourceFactory, maxSegmentsPerLoad, /* adaptiveSegmentMerging= */ false);
+    }
+
+    /**
+     * @param dataSourceFactory A factory for the {@link DataSource} that loads the media data.
+     * @param maxSegmentsPerLoad The maximum number of segments to combine into a single request.
+     * @param adaptiveSegmentMerging Whether the number of combined segments is chosen by an {@link
+     *     AdaptiveSegmentMerger}. If false, {@code maxSegmentsPerLoad} segments are always combined.
+     */
+    public Factory(
+        DataSource.Factory dataSourceFactory,
+        int maxSegmentsPerLoad,
+        boolean adaptiveSegmentMerging) {
       this.dataSourceFactory = dataSourceFactory;
       this.maxSegmentsPerLoad = maxSegmentsPerLoad;
+      this.adaptiveSegmentMerging = adaptiveSegmentMerging;
+    }
+
+    /**
+     * Sets the cache of the segment indexes and initialization data of single segment
+     * representations. The default value is null.
+     *
+     * @param segmentIndexCache The cache, or null to load the indexes on every playback.
+     * @param contentId The id of the played content, used in the keys of the cache. The indexes
+     *     aren't cached if null.
+     * @return This factory, for convenience.
+     */
+    public Factory setSegmentIndexCache(
+        @Nullable SegmentIndexCache segmentIndexCache, @Nullable String contentId) {
+      this.segmentIndexCache = segmentIndexCache;
+      this.contentId = contentId;
+      return this;
     }
 
     @Override
@@ -104,7 +143,10 @@ public class DefaultDashChunkSource implements DashChunkSource {
           maxSegmentsPerLoad,
           enableEventMessageTrack,
           closedCaptionFormats,
-          playerEmsgHandler);
+          playerEmsgHandler,
+          adaptiveSegmentMerging ? new AdaptiveSegmentMerger() : null,
+          segmentIndexCache,
+          contentId);
     }
 
   }
@@ -116,6 +158,9 @@ public class DefaultDashChunkSource implements DashChunkSource {
   private final long elapsedRealtimeOffsetMs;
   private final int maxSegmentsPerLoad;
   @Nullable private final PlayerTrackEmsgHandler playerTrackEmsgHandler;
+  @Nullable private final AdaptiveSegmentMerger segmentMerger;
+  @Nullable private final SegmentIndexCache segmentIndexCache;
+  @Nullable private final String contentId;
 
   protected final RepresentationHolder[] representationHolders;
 
@@ -125,6 +170,9 @@ public class DefaultDashChunkSource implements DashChunkSource {
   private IOException fatalError;
   private boolean missingLastSegment;
   private long liveEdgeTimeUs;
+  @Nullable private Chunk pendingInitializationChunk;
+  @Nullable private InitializationDataSink pendingInitializationSink;
+  @Nullable private Chunk cachedInitializationChunk;
 
   /**
    * @param manifestLoaderErrorThrower Throws errors affecting loading of manifests.
@@ -158,6 +206,115 @@ public class DefaultDashChunkSource implements DashChunkSource {
       boolean enableEventMessageTrack,
       List<Format> closedCaptionFormats,
       @Nullable PlayerTrackEmsgHandler playerTrackEmsgHandler) {
+    this(
+        manifestLoaderErrorThrower,
+        manifest,
+        periodIndex,
+        adaptationSetIndices,
+        trackSelection,
+        trackType,
+        dataSource,
+        elapsedRealtimeOffsetMs,
+        maxSegmentsPerLoad,
+        enableEventMessageTrack,
+        closedCaptionFormats,
+        playerTrackEmsgHandler,
+        /* segmentMerger= */ null);
+  }
+
+  /**
+   * @param manifestLoaderErrorThrower Throws errors affecting loading of manifests.
+   * @param manifest The initial manifest.
+   * @param periodIndex The index of the period in the manifest.
+   * @param adaptationSetIndices The indices of the adaptation sets in the period.
+   * @param trackSelection The track selection.
+   * @param trackType The type of the tracks in the selection.
+   * @param dataSource A {@link DataSource} suitable for loading the media data.
+   * @param elapsedRealtimeOffsetMs If known, an estimate of the instantaneous difference between
+   *     server-side unix time and {@link SystemClock#elapsedRealtime()} in milliseconds, specified
+   *     as the server's unix time minus the local elapsed time. If unknown, set to 0.
+   * @param maxSegmentsPerLoad The maximum number of segments to combine into a single request. Note
+   *     that segments will only be combined if their {@link Uri}s are the same and if their data
+   *     ranges are adjacent.
+   * @param enableEventMessageTrack Whether to output an event message track.
+   * @param closedCaptionFormats The {@link Format Formats} of closed caption tracks to be output.
+   * @param playerTrackEmsgHandler The {@link PlayerTrackEmsgHandler} instance to handle emsg
+   *     messages targeting the player. Maybe null if this is not necessary.
+   * @param segmentMerger Chooses the number of combined segments up to {@code maxSegmentsPerLoad},
+   *     or null to always combine {@code maxSegmentsPerLoad} segments.
+   */
+  public DefaultDashChunkSource(
+      LoaderErrorThrower manifestLoaderErrorThrower,
+      DashManifest manifest,
+      int periodIndex,
+      int[] adaptationSetIndices,
+      TrackSelection trackSelection,
+      int trackType,
+      DataSource dataSource,
+      long elapsedRealtimeOffsetMs,
+      int maxSegmentsPerLoad,
+      boolean enableEventMessageTrack,
+      List<Format> closedCaptionFormats,
+      @Nullable PlayerTrackEmsgHandler playerTrackEmsgHandler,
+      @Nullable AdaptiveSegmentMerger segmentMerger) {
+    this(
+        manifestLoaderErrorThrower,
+        manifest,
+        periodIndex,
+        adaptationSetIndices,
+        trackSelection,
+        trackType,
+        dataSource,
+        elapsedRealtimeOffsetMs,
+        maxSegmentsPerLoad,
+        enableEventMessageTrack,
+        closedCaptionFormats,
+        playerTrackEmsgHandler,
+        segmentMerger,
+        /* segmentIndexCache= */ null,
+        /* contentId= */ null);
+  }
+
+  /**
+   * @param manifestLoaderErrorThrower Throws errors affecting loading of manifests.
+   * @param manifest The initial manifest.
+   * @param periodIndex The index of the period in the manifest.
+   * @param adaptationSetIndices The indices of the adaptation sets in the period.
+   * @param trackSelection The track selection.
+   * @param trackType The type of the tracks in the selection.
+   * @param dataSource A {@link DataSource} suitable for loading the media data.
+   * @param elapsedRealtimeOffsetMs If known, an estimate of the instantaneous difference between
+   *     server-side unix time and {@link SystemClock#elapsedRealtime()} in milliseconds, specified
+   *     as the server's unix time minus the local elapsed time. If unknown, set to 0.
+   * @param maxSegmentsPerLoad The maximum number of segments to combine into a single request. Note
+   *     that segments will only be combined if their {@link Uri}s are the same and if their data
+   *     ranges are adjacent.
+   * @param enableEventMessageTrack Whether to output an event message track.
+   * @param closedCaptionFormats The {@link Format Formats} of closed caption tracks to be output.
+   * @param playerTrackEmsgHandler The {@link PlayerTrackEmsgHandler} instance to handle emsg
+   *     messages targeting the player. Maybe null if this is not necessary.
+   * @param segmentMerger Chooses the number of combined segments up to {@code maxSegmentsPerLoad},
+   *     or null to always combine {@code maxSegmentsPerLoad} segments.
+   * @param segmentIndexCache Keeps the segment indexes and initialization data of single segment
+   *     representations across playbacks, or null if they are loaded every time.
+   * @param contentId The id of the played content, used in the keys of {@code segmentIndexCache}.
+   */
+  public DefaultDashChunkSource(
+      LoaderErrorThrower manifestLoaderErrorThrower,
+      DashManifest manifest,
+      int periodIndex,
+      int[] adaptationSetIndices,
+      TrackSelection trackSelection,
+      int trackType,
+      DataSource dataSource,
+      long elapsedRealtimeOffsetMs,
+      int maxSegmentsPerLoad,
+      boolean enableEventMessageTrack,
+      List<Format> closedCaptionFormats,
+      @Nullable PlayerTrackEmsgHandler playerTrackEmsgHandler,
+      @Nullable AdaptiveSegmentMerger segmentMerger,
+      @Nullable SegmentIndexCache segmentIndexCache,
+      @Nullable String contentId) {
     this.manifestLoaderErrorThrower = manifestLoaderErrorThrower;
     this.manifest = manifest;
     this.adaptationSetIndices = adaptationSetIndices;
@@ -168,6 +325,9 @@ public class DefaultDashChunkSource implements DashChunkSource {
     this.elapsedRealtimeOffsetMs = elapsedRealtimeOffsetMs;
     this.maxSegmentsPerLoad = maxSegmentsPerLoad;
     this.playerTrackEmsgHandler = playerTrackEmsgHandler;
+    this.segmentMerger = segmentMerger;
+    this.segmentIndexCache = segmentIndexCache;
+    this.contentId = contentId;
 
     long periodDurationUs = manifest.getPeriodDurationUs(periodIndex);
     liveEdgeTimeUs = C.TIME_UNSET;
@@ -185,6 +345,7 @@ public class DefaultDashChunkSource implements DashChunkSource {
               closedCaptionFormats,
               playerTrackEmsgHandler);
     }
+    restoreSegmentIndices();
   }
 
   @Override
@@ -217,6 +378,7 @@ public class DefaultDashChunkSource implements DashChunkSource {
         representationHolders[i] =
             representationHolders[i].copyWithNewRepresentation(periodDurationUs, representation);
       }
+      restoreSegmentIndices();
     } catch (BehindLiveWindowException e) {
       fatalError = e;
     }
@@ -312,11 +474,31 @@ public class DefaultDashChunkSource implements DashChunkSource {
       if (representationHolder.segmentIndex == null) {
         pendingIndexUri = selectedRepresentation.getIndexUri();
       }
+      if (pendingInitializationUri != null && pendingIndexUri == null) {
+        // The index is restored from the cache. The initialization data may be cached as well.
+        Chunk cachedChunk = newCachedInitializationChunk(representationHolder,
+            trackSelection.getSelectedFormat(), trackSelection.getSelectionReason(),
+            trackSelection.getSelectionData(), pendingInitializationUri);
+        if (cachedChunk != null) {
+          cachedInitializationChunk = cachedChunk;
+          out.chunk = cachedChunk;
+          return;
+        }
+      }
       if (pendingInitializationUri != null || pendingIndexUri != null) {
         // We have initialization and/or index requests to make.
-        out.chunk = newInitializationChunk(representationHolder, dataSource,
+        DataSource initializationDataSource = dataSource;
+        InitializationDataSink initializationSink = null;
+        if (pendingIndexUri != null && getCacheKey(selectedRepresentation) != null) {
+          // Keep the loaded bytes for the cache.
+          initializationSink = new InitializationDataSink();
+          initializationDataSource = new TeeDataSource(dataSource, initializationSink);
+        }
+        out.chunk = newInitializationChunk(representationHolder, initializationDataSource,
             trackSelection.getSelectedFormat(), trackSelection.getSelectionReason(),
             trackSelection.getSelectionData(), pendingInitializationUri, pendingIndexUri);
+        pendingInitializationChunk = initializationSink != null ? out.chunk : null;
+        pendingInitializationSink = initializationSink;
         return;
       }
     }
@@ -375,6 +557,14 @@ public class DefaultDashChunkSource implements DashChunkSource {
       }
     }
 
+    if (segmentMerger != null && maxSegmentCount > 1) {
+      boolean discontinuity =
+          previous == null || !previous.trackFormat.equals(trackSelection.getSelectedFormat());
+      maxSegmentCount =
+          getMergedSegmentCount(
+              representationHolder, segmentNum, maxSegmentCount, bufferedDurationUs, discontinuity);
+    }
+
     long seekTimeUs = queue.isEmpty() ? loadPositionUs : C.TIME_UNSET;
     out.chunk =
         newMediaChunk(
@@ -387,6 +577,9 @@ public class DefaultDashChunkSource implements DashChunkSource {
             segmentNum,
             maxSegmentCount,
             seekTimeUs);
+    if (segmentMerger != null) {
+      segmentMerger.onChunkStarted(out.chunk);
+    }
   }
 
   @Override
@@ -406,8 +599,25 @@ public class DefaultDashChunkSource implements DashChunkSource {
                   new DashWrappingSegmentIndex(
                       (ChunkIndex) seekMap,
                       representationHolder.representation.presentationTimeOffsetUs));
+          if (chunk == pendingInitializationChunk) {
+            putCacheEntry(representationHolder.representation, (ChunkIndex) seekMap);
+          }
         }
       }
+      if (chunk == cachedInitializationChunk
+          && representationHolder.extractorWrapper.getSampleFormats() == null) {
+        // The cached data is unusable. Load it from the stream next time.
+        removeCacheEntry(representationHolder.representation);
+      }
+      if (chunk == pendingInitializationChunk) {
+        pendingInitializationChunk = null;
+        pendingInitializationSink = null;
+      } else if (chunk == cachedInitializationChunk) {
+        cachedInitializationChunk = null;
+      }
+    }
+    if (segmentMerger != null && chunk instanceof MediaChunk) {
+      segmentMerger.onChunkLoadCompleted(chunk);
     }
     if (playerTrackEmsgHandler != null) {
       playerTrackEmsgHandler.onChunkLoadCompleted(chunk);
@@ -417,6 +627,14 @@ public class DefaultDashChunkSource implements DashChunkSource {
   @Override
   public boolean onChunkLoadError(
       Chunk chunk, boolean cancelable, Exception e, long blacklistDurationMs) {
+    if (segmentMerger != null) {
+      segmentMerger.onChunkLoadError();
+    }
+    if (chunk == cachedInitializationChunk) {
+      removeCacheEntry(representationHolders[trackSelection.indexOf(chunk.trackFormat)]
+          .representation);
+      cachedInitializationChunk = null;
+    }
     if (!cancelable) {
       return false;
     }
@@ -445,6 +663,83 @@ public class DefaultDashChunkSource implements DashChunkSource {
 
   // Internal methods.
 
+  private void restoreSegmentIndices() {
+    if (segmentIndexCache == null) {
+      return;
+    }
+    for (int i = 0; i < representationHolders.length; i++) {
+      RepresentationHolder representationHolder = representationHolders[i];
+      if (representationHolder.segmentIndex != null
+          || representationHolder.extractorWrapper == null) {
+        continue;
+      }
+      Representation representation = representationHolder.representation;
+      String key = getCacheKey(representation);
+      SegmentIndexCache.Entry entry = key != null ? segmentIndexCache.get(key) : null;
+      if (entry != null) {
+        representationHolders[i] =
+            representationHolder.copyWithNewSegmentIndex(
+                new DashWrappingSegmentIndex(
+                    entry.chunkIndex, representation.presentationTimeOffsetUs));
+      }
+    }
+  }
+
+  @Nullable
+  private String getCacheKey(Representation representation) {
+    return segmentIndexCache != null ? SegmentIndexCache.buildKey(contentId, representation) : null;
+  }
+
+  private void putCacheEntry(Representation representation, ChunkIndex chunkIndex) {
+    String key = getCacheKey(representation);
+    if (key == null || pendingInitializationSink == null) {
+      return;
+    }
+    byte[] initializationData = null;
+    RangedUri initializationUri = representation.getInitializationUri();
+    if (initializationUri != null && initializationUri.length != C.LENGTH_UNSET) {
+      initializationData =
+          pendingInitializationSink.getData(initializationUri.start, initializationUri.length);
+    }
+    segmentIndexCache.put(key, chunkIndex, initializationData);
+  }
+
+  private void removeCacheEntry(Representation representation) {
+    String key = getCacheKey(representation);
+    if (key != null) {
+      segmentIndexCache.remove(key);
+    }
+  }
+
+  private int getMergedSegmentCount(
+      RepresentationHolder representationHolder,
+      long firstSegmentNum,
+      int maxSegmentCount,
+      long bufferedDurationUs,
+      boolean discontinuity) {
+    if (discontinuity) {
+      // Track switch or seek. The adaptive track selection may switch again soon.
+      segmentMerger.onDiscontinuity();
+      return 1;
+    }
+    int segmentCountLimit = Math.min(maxSegmentCount, segmentMerger.getSegmentCountLimit());
+    long maxBytes = segmentMerger.getMaxBytesPerLoad(bufferedDurationUs);
+    long bytes = 0;
+    int segmentCount = 0;
+    for (int i = 0; i < segmentCountLimit; i++) {
+      RangedUri segmentUri = representationHolder.getSegmentUrl(firstSegmentNum + i);
+      if (segmentUri.length == C.LENGTH_UNSET) {
+        break;
+      }
+      bytes += segmentUri.length;
+      if (segmentCount > 0 && bytes > maxBytes) {
+        break;
+      }
+      segmentCount++;
+    }
+    return Math.max(1, segmentCount);
+  }
+
   private long getSegmentNum(
       RepresentationHolder representationHolder,
       @Nullable MediaChunk previousChunk,
@@ -513,6 +808,33 @@ public class DefaultDashChunkSource implements DashChunkSource {
         trackSelectionReason, trackSelectionData, representationHolder.extractorWrapper);
   }
 
+  @Nullable
+  protected Chunk newCachedInitializationChunk(
+      RepresentationHolder representationHolder,
+      Format trackFormat,
+      int trackSelectionReason,
+      Object trackSelectionData,
+      RangedUri initializationUri) {
+    String key = getCacheKey(representationHolder.representation);
+    SegmentIndexCache.Entry entry = key != null ? segmentIndexCache.get(key) : null;
+    if (entry == null
+        || entry.initializationData == null
+        || entry.initializationData.length != initializationUri.length) {
+      return null;
+    }
+    // The extractor sees the stream positions, while the data is read from the start of the array.
+    DataSpec dataSpec = new DataSpec(
+        initializationUri.resolveUri(representationHolder.representation.baseUrl),
+        /* absoluteStreamPosition= */ initializationUri.start,
+        /* position= */ 0,
+        initializationUri.length,
+        representationHolder.representation.getCacheKey(),
+        /* flags= */ 0);
+    return new InitializationChunk(new ByteArrayDataSource(entry.initializationData), dataSpec,
+        trackFormat, trackSelectionReason, trackSelectionData,
+        representationHolder.extractorWrapper);
+  }
+
   protected Chunk newMediaChunk(
       RepresentationHolder representationHolder,
       DataSource dataSource,
@@ -819,4 +1141,41 @@ public class DefaultDashChunkSource implements DashChunkSource {
       return new ChunkExtractorWrapper(extractor, trackType, representation.format);
     }
   }
+
+  /** Keeps the bytes written to it with the stream position of the first one. */
+  private static final class InitializationDataSink implements DataSink {
+
+    private long position;
+    @Nullable private ByteArrayOutputStream stream;
+
+    @Override
+    public void open(DataSpec dataSpec) {
+      // A retried load starts from a later position.
+      position = dataSpec.absoluteStreamPosition;
+      stream = new ByteArrayOutputStream();
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length) {
+      stream.write(buffer, offset, length);
+    }
+
+    @Override
+    public void close() {
+      // Do nothing.
+    }
+
+    /** Returns the bytes of the range, or null if they weren't written. */
+    @Nullable
+    public byte[] getData(long start, long length) {
+      if (stream == null || start < position || start + length > position + stream.size()) {
+        return null;
+      }
+      int offset = (int) (start - position);
+      byte[] data = stream.toByteArray();
+      return offset == 0 && length == data.length
+          ? data
+          : Arrays.copyOfRange(data, offset, offset + (int) length);
+    }
+  }
 }
@@ -0,0 +1,354 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.source.dash;
+
+import android.net.Uri;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.extractor.ChunkIndex;
+import com.google.android.exoplayer2.source.dash.manifest.Representation;
+import com.google.android.exoplayer2.source.dash.manifest.Representation.SingleSegmentRepresentation;
+import com.google.android.exoplayer2.util.Log;
+import com.google.android.exoplayer2.util.Util;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Keeps the segment indexes and the initialization data of single segment representations across
+ * playbacks, so that a resume or a repeated quality switch doesn't need to load them again.
+ *
+ * <p>Entries are held in memory and, if a directory is given, on disk. Both are bounded and evict
+ * the least recently used entries first. The disk is only accessed on a background executor, so
+ * {@link #get(String)} returns the entries on disk only after they were loaded by {@link
+ * #prefetch(String)}.
+ */
+public final class SegmentIndexCache {
+
+  /** A cached segment index and initialization data. */
+  public static final class Entry {
+
+    /** The segment index. */
+    public final ChunkIndex chunkIndex;
+    /** The initialization data, or null if it isn't cached. */
+    @Nullable public final byte[] initializationData;
+
+    public Entry(ChunkIndex chunkIndex, @Nullable byte[] initializationData) {
+      this.chunkIndex = chunkIndex;
+      this.initializationData = initializationData;
+    }
+  }
+
+  /** The default maximum number of entries held in memory. */
+  public static final int DEFAULT_MAX_MEMORY_ENTRIES = 64;
+  /** The default maximum size of the entries on disk in bytes. */
+  public static final long DEFAULT_MAX_DISK_BYTES = 8 * 1024 * 1024;
+
+  private static final String TAG = "SegmentIndexCache";
+  private static final String CONTENT_LENGTH_PARAM = "clen";
+  private static final String FILE_EXTENSION = ".idx";
+  private static final int VERSION = 1;
+
+  @Nullable private final File cacheDir;
+  private final long maxDiskBytes;
+  @Nullable private final Executor diskExecutor;
+  private final LinkedHashMap<String, Entry> entries;
+
+  // Only accessed on the disk executor.
+  private long diskBytes;
+
+  /**
+   * @param cacheDir The directory of the entries on disk, or null to keep them in memory only.
+   * @param maxMemoryEntries The maximum number of entries held in memory.
+   * @param maxDiskBytes The maximum size of the entries on disk in bytes.
+   */
+  public SegmentIndexCache(@Nullable File cacheDir, int maxMemoryEntries, long maxDiskBytes) {
+    this(
+        cacheDir,
+        maxMemoryEntries,
+        maxDiskBytes,
+        cacheDir != null ? Util.newSingleThreadExecutor(TAG) : null);
+  }
+
+  /**
+   * @param cacheDir The directory of the entries on disk, or null to keep them in memory only.
+   * @param maxMemoryEntries The maximum number of entries held in memory.
+   * @param maxDiskBytes The maximum size of the entries on disk in bytes.
+   * @param diskExecutor The executor the disk is accessed on. Must run the tasks one at a time in
+   *     the order they were submitted. Unused if {@code cacheDir} is null.
+   */
+  public SegmentIndexCache(
+      @Nullable File cacheDir,
+      int maxMemoryEntries,
+      long maxDiskBytes,
+      @Nullable Executor diskExecutor) {
+    this.cacheDir = cacheDir;
+    this.maxDiskBytes = maxDiskBytes;
+    this.diskExecutor = cacheDir != null ? diskExecutor : null;
+    entries =
+        new LinkedHashMap<String, Entry>(
+            /* initialCapacity= */ 16, /* loadFactor= */ 0.75f, /* accessOrder= */ true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxMemoryEntries;
+          }
+        };
+    diskBytes = C.LENGTH_UNSET;
+  }
+
+  /**
+   * Returns the key of a representation, or null if the representation can't be cached.
+   *
+   * <p>The key consists of the content id, the format id (the itag of YouTube streams) and the
+   * content length. The content length is taken from the {@code clen} parameter of the url if the
+   * manifest doesn't define it.
+   *
+   * @param contentId The id of the content, or null if unknown.
+   * @param representation The representation.
+   */
+  @Nullable
+  public static String buildKey(@Nullable String contentId, Representation representation) {
+    if (contentId == null || representation.format.id == null) {
+      return null;
+    }
+    long contentLength =
+        representation instanceof SingleSegmentRepresentation
+            ? ((SingleSegmentRepresentation) representation).contentLength
+            : C.LENGTH_UNSET;
+    if (contentLength == C.LENGTH_UNSET) {
+      contentLength = parseContentLength(representation.baseUrl);
+    }
+    if (contentLength == C.LENGTH_UNSET) {
+      return null;
+    }
+    // Also the name of the file, so that the entries on disk are found by the key.
+    return getFileName(contentId + "." + representation.format.id + "." + contentLength);
+  }
+
+  /**
+   * Loads the entries of the content from disk into memory in the background. Should be called
+   * before the playback of the content is prepared.
+   *
+   * @param contentId The id of the content.
+   */
+  public void prefetch(String contentId) {
+    if (diskExecutor == null) {
+      return;
+    }
+    String filePrefix = getFileName(contentId + ".");
+    diskExecutor.execute(() -> readEntries(filePrefix));
+  }
+
+  /** Returns the entry of the key held in memory, or null if it isn't cached or not yet loaded. */
+  @Nullable
+  public synchronized Entry get(String key) {
+    return entries.get(key);
+  }
+
+  /**
+   * Stores the segment index of the key.
+   *
+   * @param key The key returned by {@link #buildKey(String, Representation)}.
+   * @param chunkIndex The segment index.
+   * @param initializationData The initialization data, or null to keep the cached one.
+   */
+  public synchronized void put(
+      String key, ChunkIndex chunkIndex, @Nullable byte[] initializationData) {
+    if (initializationData == null) {
+      Entry previousEntry = entries.get(key);
+      initializationData = previousEntry != null ? previousEntry.initializationData : null;
+    }
+    Entry entry = new Entry(chunkIndex, initializationData);
+    entries.put(key, entry);
+    if (diskExecutor != null) {
+      diskExecutor.execute(() -> writeEntry(key, entry));
+    }
+  }
+
+  /** Removes the entry of the key, e.g. if its data turned out to be unusable. */
+  public synchronized void remove(String key) {
+    entries.remove(key);
+    if (diskExecutor != null) {
+      diskExecutor.execute(() -> deleteFile(getFile(key)));
+    }
+  }
+
+  /** Removes all entries. */
+  public synchronized void clear() {
+    entries.clear();
+    if (diskExecutor != null) {
+      diskExecutor.execute(
+          () -> {
+            for (File file : listFiles()) {
+              deleteFile(file);
+            }
+          });
+    }
+  }
+
+  // Internal methods.
+
+  private static String getFileName(String key) {
+    return key.replaceAll("[^A-Za-z0-9._-]", "_");
+  }
+
+  private File getFile(String key) {
+    return new File(cacheDir, getFileName(key) + FILE_EXTENSION);
+  }
+
+  private void readEntries(String filePrefix) {
+    File[] files = cacheDir.listFiles((dir, name) -> name.startsWith(filePrefix));
+    if (files == null) {
+      return;
+    }
+    for (File file : files) {
+      String name = file.getName();
+      if (!name.endsWith(FILE_EXTENSION)) {
+        continue;
+      }
+      Entry entry = readEntry(file);
+      if (entry == null) {
+        deleteFile(file);
+        continue;
+      }
+      file.setLastModified(System.currentTimeMillis());
+      String key = name.substring(0, name.length() - FILE_EXTENSION.length());
+      synchronized (this) {
+        // An entry put meanwhile is newer than the one on disk.
+        if (!entries.containsKey(key)) {
+          entries.put(key, entry);
+        }
+      }
+    }
+  }
+
+  private File[] listFiles() {
+    File[] files = cacheDir.listFiles((dir, name) -> name.endsWith(FILE_EXTENSION));
+    return files != null ? files : new File[0];
+  }
+
+  private void writeEntry(String key, Entry entry) {
+    if (!cacheDir.exists() && !cacheDir.mkdirs()) {
+      Log.w(TAG, "Failed to create " + cacheDir);
+      return;
+    }
+    File file = getFile(key);
+    long previousLength = file.length();
+    ChunkIndex chunkIndex = entry.chunkIndex;
+    try (DataOutputStream output =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+      output.writeInt(VERSION);
+      output.writeInt(chunkIndex.length);
+      for (int i = 0; i < chunkIndex.length; i++) {
+        output.writeInt(chunkIndex.sizes[i]);
+        output.writeLong(chunkIndex.offsets[i]);
+        output.writeLong(chunkIndex.durationsUs[i]);
+        output.writeLong(chunkIndex.timesUs[i]);
+      }
+      byte[] initializationData = entry.initializationData;
+      output.writeInt(initializationData != null ? initializationData.length : C.LENGTH_UNSET);
+      if (initializationData != null) {
+        output.write(initializationData);
+      }
+    } catch (IOException e) {
+      Log.w(TAG, "Failed to write " + file, e);
+      file.delete();
+      diskBytes = C.LENGTH_UNSET;
+      return;
+    }
+    if (diskBytes != C.LENGTH_UNSET) {
+      diskBytes += file.length() - previousLength;
+    }
+    trimDisk(file);
+  }
+
+  @Nullable
+  private static Entry readEntry(File file) {
+    try (DataInputStream input =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (input.readInt() != VERSION) {
+        return null;
+      }
+      int length = input.readInt();
+      int[] sizes = new int[length];
+      long[] offsets = new long[length];
+      long[] durationsUs = new long[length];
+      long[] timesUs = new long[length];
+      for (int i = 0; i < length; i++) {
+        sizes[i] = input.readInt();
+        offsets[i] = input.readLong();
+        durationsUs[i] = input.readLong();
+        timesUs[i] = input.readLong();
+      }
+      int initializationLength = input.readInt();
+      byte[] initializationData = null;
+      if (initializationLength != C.LENGTH_UNSET) {
+        initializationData = new byte[initializationLength];
+        input.readFully(initializationData);
+      }
+      return new Entry(new ChunkIndex(sizes, offsets, durationsUs, timesUs), initializationData);
+    } catch (IOException | RuntimeException e) {
+      Log.w(TAG, "Failed to read " + file, e);
+      return null;
+    }
+  }
+
+  private void trimDisk(File newFile) {
+    File[] files = listFiles();
+    if (diskBytes == C.LENGTH_UNSET) {
+      diskBytes = 0;
+      for (File file : files) {
+        diskBytes += file.length();
+      }
+    }
+    if (diskBytes <= maxDiskBytes) {
+      return;
+    }
+    // Least recently used first.
+    Arrays.sort(
+        files, (first, second) -> Long.compare(first.lastModified(), second.lastModified()));
+    for (int i = 0; i < files.length && diskBytes > maxDiskBytes; i++) {
+      if (!files[i].equals(newFile)) {
+        deleteFile(files[i]);
+      }
+    }
+  }
+
+  private void deleteFile(File file) {
+    long length = file.length();
+    if (file.delete() && diskBytes != C.LENGTH_UNSET) {
+      diskBytes -= length;
+    }
+  }
+
+  private static long parseContentLength(String url) {
+    try {
+      String contentLength = Uri.parse(url).getQueryParameter(CONTENT_LENGTH_PARAM);
+      return contentLength != null ? Long.parseLong(contentLength) : C.LENGTH_UNSET;
+    } catch (NumberFormatException | UnsupportedOperationException e) {
+      return C.LENGTH_UNSET;
+    }
+  }
+}
@@ -127,6 +127,7 @@ public final class DashMediaPeriodTest {
                 mock(LoaderErrorThrower.class),
                 mock(Allocator.class),
                 mock(CompositeSequenceableLoaderFactory.class),
+                /* loaderExecutor= */ null,
                 mock(PlayerEmsgCallback.class));
 
     // Ignore embedded metadata as we don't want to select primary group just to get embedded track.
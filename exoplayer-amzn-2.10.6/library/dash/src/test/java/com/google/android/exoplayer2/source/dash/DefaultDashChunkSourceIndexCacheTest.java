@@ -0,0 +1,394 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.source.dash;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.net.Uri;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.extractor.ChunkIndex;
+import com.google.android.exoplayer2.source.SampleQueue;
+import com.google.android.exoplayer2.source.TrackGroup;
+import com.google.android.exoplayer2.source.chunk.BaseMediaChunk;
+import com.google.android.exoplayer2.source.chunk.BaseMediaChunkOutput;
+import com.google.android.exoplayer2.source.chunk.Chunk;
+import com.google.android.exoplayer2.source.chunk.ChunkHolder;
+import com.google.android.exoplayer2.source.chunk.InitializationChunk;
+import com.google.android.exoplayer2.source.chunk.MediaChunk;
+import com.google.android.exoplayer2.source.dash.manifest.AdaptationSet;
+import com.google.android.exoplayer2.source.dash.manifest.DashManifest;
+import com.google.android.exoplayer2.source.dash.manifest.Period;
+import com.google.android.exoplayer2.source.dash.manifest.RangedUri;
+import com.google.android.exoplayer2.source.dash.manifest.Representation;
+import com.google.android.exoplayer2.source.dash.manifest.SegmentBase.SingleSegmentBase;
+import com.google.android.exoplayer2.source.dash.manifest.UtcTimingElement;
+import com.google.android.exoplayer2.testutil.FakeDataSet;
+import com.google.android.exoplayer2.testutil.FakeDataSource;
+import com.google.android.exoplayer2.testutil.TestUtil;
+import com.google.android.exoplayer2.trackselection.FixedTrackSelection;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.DefaultAllocator;
+import com.google.android.exoplayer2.upstream.DefaultHttpDataSource;
+import com.google.android.exoplayer2.upstream.LoaderErrorThrower;
+import com.google.android.exoplayer2.util.MimeTypes;
+import com.google.android.exoplayer2.util.Util;
+import fi.iki.elonen.NanoHTTPD;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Tests the {@link SegmentIndexCache} of {@link DefaultDashChunkSource} with a fragmented mp4
+ * SegmentBase stream.
+ */
+@RunWith(AndroidJUnit4.class)
+public final class DefaultDashChunkSourceIndexCacheTest {
+
+  private static final String SAMPLE_MP4 = "mp4/sample_fragmented_seekable.mp4";
+  private static final String VIDEO_ID = "video";
+  private static final String FAKE_URL = "fake://video";
+  // ftyp, free and moov.
+  private static final int INITIALIZATION_LENGTH = 1281;
+  // sidx with a single reference.
+  private static final int INDEX_LENGTH = 44;
+  private static final int REQUEST_LATENCY_MS = 50;
+
+  private byte[] data;
+  private File cacheDir;
+  private SegmentServer server;
+
+  @Before
+  public void setUp() throws IOException {
+    Context context = ApplicationProvider.getApplicationContext();
+    data = TestUtil.getByteArray(context, SAMPLE_MP4);
+    cacheDir = Util.createTempDirectory(context, "ExoPlayerTest");
+    server = new SegmentServer(data);
+    server.start(NanoHTTPD.SOCKET_READ_TIMEOUT, /* daemon= */ true);
+  }
+
+  @After
+  public void tearDown() {
+    server.stop();
+    Util.recursiveDelete(cacheDir);
+  }
+
+  @Test
+  public void warmCache_skipsIndexRequestAndReducesTimeToFirstFrame() throws Exception {
+    String url = "http://localhost:" + server.getListeningPort() + "/video?clen=" + data.length;
+
+    long coldTimeToFirstFrameMs =
+        loadFirstFrame(
+            createChunkSource(createCache(), new DefaultHttpDataSource("ExoPlayerTest"), url));
+    int coldRequestCount = server.requestCount.getAndSet(0);
+
+    // Next session.
+    SegmentIndexCache nextCache = createCache();
+    nextCache.prefetch(VIDEO_ID);
+    long warmTimeToFirstFrameMs =
+        loadFirstFrame(
+            createChunkSource(nextCache, new DefaultHttpDataSource("ExoPlayerTest"), url));
+    int warmRequestCount = server.requestCount.get();
+
+    // Initialization and index are merged into a single request.
+    assertThat(coldRequestCount).isEqualTo(2);
+    assertThat(warmRequestCount).isEqualTo(1);
+    assertThat(warmTimeToFirstFrameMs).isLessThan(coldTimeToFirstFrameMs);
+  }
+
+  @Test
+  public void warmCache_opensMediaRangeOnly() throws Exception {
+    SegmentIndexCache cache = createCache();
+    FakeDataSource dataSource = createFakeDataSource();
+
+    loadFirstFrame(createChunkSource(cache, dataSource, getFakeUrl(data.length)));
+    DataSpec[] coldDataSpecs = dataSource.getAndClearOpenedDataSpecs();
+    loadFirstFrame(createChunkSource(cache, dataSource, getFakeUrl(data.length)));
+    DataSpec[] warmDataSpecs = dataSource.getAndClearOpenedDataSpecs();
+
+    assertThat(coldDataSpecs).hasLength(2);
+    assertThat(coldDataSpecs[0].absoluteStreamPosition).isEqualTo(0);
+    assertThat(coldDataSpecs[0].length).isEqualTo(INITIALIZATION_LENGTH + INDEX_LENGTH);
+    assertThat(warmDataSpecs).hasLength(1);
+    assertThat(warmDataSpecs[0].absoluteStreamPosition)
+        .isEqualTo(INITIALIZATION_LENGTH + INDEX_LENGTH);
+  }
+
+  @Test
+  public void restoredEntry_matchesLoadedData() throws Exception {
+    SegmentIndexCache cache = createCache();
+    loadFirstFrame(createChunkSource(cache, createFakeDataSource(), getFakeUrl(data.length)));
+    SegmentIndexCache.Entry entry = cache.get(getKey(data.length));
+
+    SegmentIndexCache nextCache = createCache();
+    SegmentIndexCache.Entry notLoadedEntry = nextCache.get(getKey(data.length));
+    nextCache.prefetch(VIDEO_ID);
+    SegmentIndexCache.Entry restoredEntry = nextCache.get(getKey(data.length));
+
+    assertThat(notLoadedEntry).isNull();
+    assertThat(entry.initializationData)
+        .isEqualTo(Arrays.copyOf(data, INITIALIZATION_LENGTH));
+    assertThat(restoredEntry.initializationData).isEqualTo(entry.initializationData);
+    assertThat(restoredEntry.chunkIndex.sizes).isEqualTo(entry.chunkIndex.sizes);
+    assertThat(restoredEntry.chunkIndex.offsets).isEqualTo(entry.chunkIndex.offsets);
+    assertThat(restoredEntry.chunkIndex.durationsUs).isEqualTo(entry.chunkIndex.durationsUs);
+    assertThat(restoredEntry.chunkIndex.timesUs).isEqualTo(entry.chunkIndex.timesUs);
+  }
+
+  @Test
+  public void otherContentLength_isLoadedFromStream() throws Exception {
+    SegmentIndexCache cache = createCache();
+    FakeDataSource dataSource = createFakeDataSource();
+    loadFirstFrame(createChunkSource(cache, dataSource, getFakeUrl(data.length)));
+    dataSource.getAndClearOpenedDataSpecs();
+
+    // The stream was re-encoded.
+    loadFirstFrame(createChunkSource(cache, dataSource, getFakeUrl(data.length + 1)));
+
+    assertThat(dataSource.getAndClearOpenedDataSpecs()).hasLength(2);
+  }
+
+  @Test
+  public void buildKey_requiresContentIdAndLength() {
+    Representation representation = createRepresentation(getFakeUrl(data.length));
+    Representation unknownLengthRepresentation = createRepresentation(FAKE_URL);
+
+    assertThat(SegmentIndexCache.buildKey(VIDEO_ID, representation))
+        .isEqualTo(getKey(data.length));
+    assertThat(SegmentIndexCache.buildKey(/* contentId= */ null, representation)).isNull();
+    assertThat(SegmentIndexCache.buildKey(VIDEO_ID, unknownLengthRepresentation)).isNull();
+  }
+
+  @Test
+  public void memoryAndDisk_evictLeastRecentlyUsed() {
+    ChunkIndex chunkIndex = createChunkIndex();
+    SegmentIndexCache memoryCache =
+        new SegmentIndexCache(/* cacheDir= */ null, /* maxMemoryEntries= */ 2, Long.MAX_VALUE);
+    memoryCache.put("1", chunkIndex, new byte[10]);
+    memoryCache.put("2", chunkIndex, new byte[10]);
+    memoryCache.get("1");
+    memoryCache.put("3", chunkIndex, new byte[10]);
+
+    assertThat(memoryCache.get("1")).isNotNull();
+    assertThat(memoryCache.get("2")).isNull();
+    assertThat(memoryCache.get("3")).isNotNull();
+
+    SegmentIndexCache diskCache =
+        new SegmentIndexCache(
+            cacheDir, /* maxMemoryEntries= */ 1, /* maxDiskBytes= */ 3000, Runnable::run);
+    for (int i = 0; i < 10; i++) {
+      diskCache.put(VIDEO_ID + "." + i, chunkIndex, new byte[1000]);
+    }
+    long diskBytes = 0;
+    for (File file : cacheDir.listFiles()) {
+      diskBytes += file.length();
+    }
+
+    assertThat(diskBytes).isAtMost(3000);
+    assertThat(cacheDir.listFiles()).hasLength(2);
+    SegmentIndexCache nextCache = createCache();
+    nextCache.prefetch(VIDEO_ID);
+    assertThat(nextCache.get(VIDEO_ID + ".9")).isNotNull();
+  }
+
+  /** Loads the chunks up to the first media chunk and returns the elapsed time. */
+  private static long loadFirstFrame(DefaultDashChunkSource chunkSource) throws Exception {
+    long startTimeMs = System.currentTimeMillis();
+    Chunk chunk = getNextChunk(chunkSource);
+    while (chunk instanceof InitializationChunk) {
+      chunk.load();
+      chunkSource.onChunkLoadCompleted(chunk);
+      chunk = getNextChunk(chunkSource);
+    }
+    SampleQueue sampleQueue =
+        new SampleQueue(
+            new DefaultAllocator(/* trimOnReset= */ true, C.DEFAULT_BUFFER_SEGMENT_SIZE));
+    ((BaseMediaChunk) chunk)
+        .init(
+            new BaseMediaChunkOutput(
+                new int[] {C.TRACK_TYPE_VIDEO}, new SampleQueue[] {sampleQueue}));
+    chunk.load();
+    chunkSource.onChunkLoadCompleted(chunk);
+    long timeToFirstFrameMs = System.currentTimeMillis() - startTimeMs;
+
+    assertThat(sampleQueue.getWriteIndex()).isGreaterThan(0);
+    return timeToFirstFrameMs;
+  }
+
+  private static Chunk getNextChunk(DefaultDashChunkSource chunkSource) {
+    ChunkHolder holder = new ChunkHolder();
+    chunkSource.getNextChunk(
+        /* playbackPositionUs= */ 0,
+        /* loadPositionUs= */ 0,
+        Collections.<MediaChunk>emptyList(),
+        holder);
+    return holder.chunk;
+  }
+
+  /** Returns a cache that accesses the disk on the calling thread. */
+  private SegmentIndexCache createCache() {
+    return new SegmentIndexCache(
+        cacheDir,
+        SegmentIndexCache.DEFAULT_MAX_MEMORY_ENTRIES,
+        SegmentIndexCache.DEFAULT_MAX_DISK_BYTES,
+        Runnable::run);
+  }
+
+  private FakeDataSource createFakeDataSource() {
+    FakeDataSet fakeDataSet = new FakeDataSet();
+    fakeDataSet.setData(getFakeUrl(data.length), data);
+    fakeDataSet.setData(getFakeUrl(data.length + 1), data);
+    return new FakeDataSource(fakeDataSet);
+  }
+
+  private static String getFakeUrl(long contentLength) {
+    return FAKE_URL + "?clen=" + contentLength;
+  }
+
+  private static String getKey(long contentLength) {
+    return VIDEO_ID + ".137." + contentLength;
+  }
+
+  private static ChunkIndex createChunkIndex() {
+    return new ChunkIndex(
+        new int[] {1000, 1000},
+        new long[] {0, 1000},
+        new long[] {C.MICROS_PER_SECOND, C.MICROS_PER_SECOND},
+        new long[] {0, C.MICROS_PER_SECOND});
+  }
+
+  private static DefaultDashChunkSource createChunkSource(
+      SegmentIndexCache cache, DataSource dataSource, String url) {
+    Representation representation = createRepresentation(url);
+    return new DefaultDashChunkSource(
+        new LoaderErrorThrower.Dummy(),
+        createManifest(representation),
+        /* periodIndex= */ 0,
+        /* adaptationSetIndices= */ new int[] {0},
+        new FixedTrackSelection(new TrackGroup(representation.format), /* track= */ 0),
+        C.TRACK_TYPE_VIDEO,
+        dataSource,
+        /* elapsedRealtimeOffsetMs= */ 0,
+        /* maxSegmentsPerLoad= */ 1,
+        /* enableEventMessageTrack= */ false,
+        /* closedCaptionFormats= */ Collections.emptyList(),
+        /* playerTrackEmsgHandler= */ null,
+        /* segmentMerger= */ null,
+        cache,
+        VIDEO_ID);
+  }
+
+  private static Representation createRepresentation(String url) {
+    Format format =
+        Format.createVideoContainerFormat(
+            /* id= */ "137",
+            MimeTypes.VIDEO_MP4,
+            MimeTypes.VIDEO_H264,
+            /* codecs= */ null,
+            /* bitrate= */ 1000000,
+            /* width= */ 1280,
+            /* height= */ 720,
+            /* frameRate= */ Format.NO_VALUE,
+            /* initializationData= */ null,
+            /* selectionFlags= */ 0);
+    SingleSegmentBase segmentBase =
+        new SingleSegmentBase(
+            new RangedUri(/* referenceUri= */ null, /* start= */ 0, INITIALIZATION_LENGTH),
+            /* timescale= */ 1,
+            /* presentationTimeOffset= */ 0,
+            /* indexStart= */ INITIALIZATION_LENGTH,
+            /* indexLength= */ INDEX_LENGTH);
+    return Representation.newInstance(/* revisionId= */ 0, format, url, segmentBase);
+  }
+
+  private static DashManifest createManifest(Representation representation) {
+    AdaptationSet adaptationSet =
+        new AdaptationSet(
+            /* id= */ 0,
+            C.TRACK_TYPE_VIDEO,
+            Collections.singletonList(representation),
+            /* accessibilityDescriptors= */ Collections.emptyList(),
+            /* supplementalProperties= */ Collections.emptyList());
+    Period period =
+        new Period(/* id= */ null, /* startMs= */ 0, Collections.singletonList(adaptationSet));
+    return new DashManifest(
+        /* availabilityStartTimeMs= */ 0,
+        /* durationMs= */ C.TIME_UNSET,
+        /* minBufferTimeMs= */ 0,
+        /* dynamic= */ false,
+        /* minUpdatePeriodMs= */ C.TIME_UNSET,
+        /* timeShiftBufferDepthMs= */ C.TIME_UNSET,
+        /* suggestedPresentationDelayMs= */ C.TIME_UNSET,
+        /* publishTimeMs= */ C.TIME_UNSET,
+        /* programInformation= */ null,
+        new UtcTimingElement("", ""),
+        /* location= */ Uri.EMPTY,
+        Collections.singletonList(period));
+  }
+
+  /** Serves byte ranges of a single file with a fixed latency per request. */
+  private static final class SegmentServer extends NanoHTTPD {
+
+    private final byte[] data;
+    private final AtomicInteger requestCount;
+
+    private SegmentServer(byte[] data) {
+      super(/* port= */ 0);
+      this.data = data;
+      requestCount = new AtomicInteger();
+    }
+
+    @Override
+    public Response serve(IHTTPSession session) {
+      requestCount.incrementAndGet();
+      try {
+        Thread.sleep(REQUEST_LATENCY_MS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      String range = session.getHeaders().get("range");
+      int start = 0;
+      int end = data.length - 1;
+      if (range != null && range.startsWith("bytes=")) {
+        String[] bounds = range.substring("bytes=".length()).split("-");
+        start = Integer.parseInt(bounds[0]);
+        if (bounds.length > 1 && !bounds[1].isEmpty()) {
+          end = Math.min(end, Integer.parseInt(bounds[1]));
+        }
+      }
+      int length = end - start + 1;
+      Response response =
+          newFixedLengthResponse(
+              Response.Status.PARTIAL_CONTENT,
+              "application/octet-stream",
+              new ByteArrayInputStream(data, start, length),
+              length);
+      response.addHeader("Content-Range", "bytes " + start + "-" + end + "/" + data.length);
+      return response;
+    }
+  }
+}
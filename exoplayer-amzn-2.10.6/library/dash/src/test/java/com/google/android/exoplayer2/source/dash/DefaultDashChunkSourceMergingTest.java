@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.source.dash;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.net.Uri;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.source.TrackGroup;
+import com.google.android.exoplayer2.source.chunk.ChunkHolder;
+import com.google.android.exoplayer2.source.chunk.MediaChunk;
+import com.google.android.exoplayer2.source.dash.manifest.AdaptationSet;
+import com.google.android.exoplayer2.source.dash.manifest.DashManifest;
+import com.google.android.exoplayer2.source.dash.manifest.Period;
+import com.google.android.exoplayer2.source.dash.manifest.RangedUri;
+import com.google.android.exoplayer2.source.dash.manifest.Representation;
+import com.google.android.exoplayer2.source.dash.manifest.SegmentBase.SegmentList;
+import com.google.android.exoplayer2.source.dash.manifest.UtcTimingElement;
+import com.google.android.exoplayer2.trackselection.FixedTrackSelection;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DefaultHttpDataSource;
+import com.google.android.exoplayer2.upstream.LoaderErrorThrower;
+import com.google.android.exoplayer2.util.MimeTypes;
+import fi.iki.elonen.NanoHTTPD;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Tests segment merging of {@link DefaultDashChunkSource} against a local HTTP server serving a
+ * SegmentBase stream.
+ */
+@RunWith(AndroidJUnit4.class)
+public final class DefaultDashChunkSourceMergingTest {
+
+  private static final int SEGMENT_COUNT = 60;
+  private static final int SEGMENT_SIZE = 32 * 1024;
+  private static final long SEGMENT_DURATION_MS = 1000;
+  private static final int MAX_SEGMENTS_PER_LOAD = 8;
+  private static final int REQUEST_LATENCY_MS = 20;
+  private static final long BUFFER_TARGET_US = 30 * C.MICROS_PER_SECOND;
+
+  private SegmentServer server;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new SegmentServer(new byte[SEGMENT_COUNT * SEGMENT_SIZE]);
+    server.start(NanoHTTPD.SOCKET_READ_TIMEOUT, /* daemon= */ true);
+  }
+
+  @After
+  public void tearDown() {
+    server.stop();
+  }
+
+  @Test
+  public void adaptiveMerging_reducesRequestsAndTimeToBuffer() throws IOException {
+    long singleTimeToBufferMs = bufferUntilTarget(createChunkSource(/* adaptive= */ false, 1));
+    int singleRequestCount = server.requestCount.getAndSet(0);
+
+    long mergedTimeToBufferMs =
+        bufferUntilTarget(createChunkSource(/* adaptive= */ true, MAX_SEGMENTS_PER_LOAD));
+    int mergedRequestCount = server.requestCount.get();
+
+    assertThat(singleRequestCount).isEqualTo(30);
+    assertThat(mergedRequestCount).isLessThan(singleRequestCount / 2);
+    assertThat(mergedTimeToBufferMs).isLessThan(singleTimeToBufferMs);
+  }
+
+  @Test
+  public void adaptiveMerging_firstLoadRequestsSingleSegment() throws IOException {
+    DefaultDashChunkSource chunkSource = createChunkSource(/* adaptive= */ true, 8);
+
+    MediaChunk chunk = getNextChunk(chunkSource, Collections.emptyList());
+
+    assertThat(getSegmentCount(chunk)).isEqualTo(1);
+  }
+
+  @Test
+  public void adaptiveMerging_growsAndFallsBackToSingleSegmentAfterError() throws IOException {
+    DefaultDashChunkSource chunkSource = createChunkSource(/* adaptive= */ true, 8);
+    List<MediaChunk> queue = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      MediaChunk chunk = getNextChunk(chunkSource, queue);
+      load(chunk);
+      chunkSource.onChunkLoadCompleted(chunk);
+      queue.add(chunk);
+    }
+    assertThat(getSegmentCount(queue.get(queue.size() - 1))).isGreaterThan(1);
+
+    MediaChunk failedChunk = getNextChunk(chunkSource, queue);
+    chunkSource.onChunkLoadError(
+        failedChunk, /* cancelable= */ true, new IOException(), /* blacklistDurationMs= */ 0);
+    MediaChunk retriedChunk = getNextChunk(chunkSource, queue);
+
+    assertThat(getSegmentCount(failedChunk)).isGreaterThan(1);
+    assertThat(getSegmentCount(retriedChunk)).isEqualTo(1);
+  }
+
+  @Test
+  public void fixedMerging_alwaysRequestsMaxSegments() throws IOException {
+    DefaultDashChunkSource chunkSource = createChunkSource(/* adaptive= */ false, 4);
+
+    MediaChunk chunk = getNextChunk(chunkSource, Collections.emptyList());
+
+    assertThat(getSegmentCount(chunk)).isEqualTo(4);
+  }
+
+  private long bufferUntilTarget(DefaultDashChunkSource chunkSource) throws IOException {
+    List<MediaChunk> queue = new ArrayList<>();
+    long startTimeMs = System.currentTimeMillis();
+    long loadPositionUs = 0;
+    while (loadPositionUs < BUFFER_TARGET_US) {
+      MediaChunk chunk = getNextChunk(chunkSource, queue);
+      load(chunk);
+      chunkSource.onChunkLoadCompleted(chunk);
+      queue.add(chunk);
+      loadPositionUs = chunk.endTimeUs;
+    }
+    return System.currentTimeMillis() - startTimeMs;
+  }
+
+  private static MediaChunk getNextChunk(
+      DefaultDashChunkSource chunkSource, List<MediaChunk> queue) {
+    ChunkHolder holder = new ChunkHolder();
+    long loadPositionUs = queue.isEmpty() ? 0 : queue.get(queue.size() - 1).endTimeUs;
+    chunkSource.getNextChunk(/* playbackPositionUs= */ 0, loadPositionUs, queue, holder);
+    return (MediaChunk) holder.chunk;
+  }
+
+  /** Reads the requested byte range. The chunk isn't parsed, as the served data isn't media. */
+  private static void load(MediaChunk chunk) throws IOException {
+    DataSource dataSource = new DefaultHttpDataSource("ExoPlayerTest");
+    byte[] buffer = new byte[SEGMENT_SIZE];
+    try {
+      dataSource.open(chunk.dataSpec);
+      while (dataSource.read(buffer, 0, buffer.length) != C.RESULT_END_OF_INPUT) {}
+    } finally {
+      dataSource.close();
+    }
+  }
+
+  private static long getSegmentCount(MediaChunk chunk) {
+    return chunk.getNextChunkIndex() - chunk.chunkIndex;
+  }
+
+  private DefaultDashChunkSource createChunkSource(boolean adaptive, int maxSegmentsPerLoad) {
+    Format format =
+        Format.createVideoContainerFormat(
+            /* id= */ null,
+            MimeTypes.VIDEO_MP4,
+            MimeTypes.VIDEO_H264,
+            /* codecs= */ null,
+            /* bitrate= */ 1000000,
+            /* width= */ 1280,
+            /* height= */ 720,
+            /* frameRate= */ Format.NO_VALUE,
+            /* initializationData= */ null,
+            /* selectionFlags= */ 0);
+    DashManifest manifest = createManifest(format);
+    return new DefaultDashChunkSource(
+        new LoaderErrorThrower.Dummy(),
+        manifest,
+        /* periodIndex= */ 0,
+        /* adaptationSetIndices= */ new int[] {0},
+        new FixedTrackSelection(new TrackGroup(format), /* track= */ 0),
+        C.TRACK_TYPE_VIDEO,
+        new DefaultHttpDataSource("ExoPlayerTest"),
+        /* elapsedRealtimeOffsetMs= */ 0,
+        maxSegmentsPerLoad,
+        /* enableEventMessageTrack= */ false,
+        /* closedCaptionFormats= */ Collections.emptyList(),
+        /* playerTrackEmsgHandler= */ null,
+        adaptive ? new AdaptiveSegmentMerger() : null);
+  }
+
+  private DashManifest createManifest(Format format) {
+    List<RangedUri> segments = new ArrayList<>();
+    for (int i = 0; i < SEGMENT_COUNT; i++) {
+      segments.add(new RangedUri(/* referenceUri= */ null, (long) i * SEGMENT_SIZE, SEGMENT_SIZE));
+    }
+    SegmentList segmentList =
+        new SegmentList(
+            /* initialization= */ null,
+            /* timescale= */ 1000,
+            /* presentationTimeOffset= */ 0,
+            /* startNumber= */ 0,
+            SEGMENT_DURATION_MS,
+            /* segmentTimeline= */ null,
+            segments);
+    Representation representation =
+        Representation.newInstance(
+            /* revisionId= */ 0,
+            format,
+            /* baseUrl= */ "http://localhost:" + server.getListeningPort() + "/video",
+            segmentList);
+    AdaptationSet adaptationSet =
+        new AdaptationSet(
+            /* id= */ 0,
+            C.TRACK_TYPE_VIDEO,
+            Collections.singletonList(representation),
+            /* accessibilityDescriptors= */ Collections.emptyList(),
+            /* supplementalProperties= */ Collections.emptyList());
+    Period period =
+        new Period(/* id= */ null, /* startMs= */ 0, Collections.singletonList(adaptationSet));
+    return new DashManifest(
+        /* availabilityStartTimeMs= */ 0,
+        /* durationMs= */ SEGMENT_COUNT * SEGMENT_DURATION_MS,
+        /* minBufferTimeMs= */ 0,
+        /* dynamic= */ false,
+        /* minUpdatePeriodMs= */ C.TIME_UNSET,
+        /* timeShiftBufferDepthMs= */ C.TIME_UNSET,
+        /* suggestedPresentationDelayMs= */ C.TIME_UNSET,
+        /* publishTimeMs= */ C.TIME_UNSET,
+        /* programInformation= */ null,
+        new UtcTimingElement("", ""),
+        /* location= */ Uri.EMPTY,
+        Collections.singletonList(period));
+  }
+
+  /** Serves byte ranges of a single file with a fixed latency per request. */
+  private static final class SegmentServer extends NanoHTTPD {
+
+    private final byte[] data;
+    private final AtomicInteger requestCount;
+
+    private SegmentServer(byte[] data) {
+      super(/* port= */ 0);
+      this.data = data;
+      requestCount = new AtomicInteger();
+    }
+
+    @Override
+    public Response serve(IHTTPSession session) {
+      requestCount.incrementAndGet();
+      try {
+        Thread.sleep(REQUEST_LATENCY_MS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      String range = session.getHeaders().get("range");
+      int start = 0;
+      int end = data.length - 1;
+      if (range != null && range.startsWith("bytes=")) {
+        String[] bounds = range.substring("bytes=".length()).split("-");
+        start = Integer.parseInt(bounds[0]);
+        if (bounds.length > 1 && !bounds[1].isEmpty()) {
+          end = Math.min(end, Integer.parseInt(bounds[1]));
+        }
+      }
+      int length = end - start + 1;
+      Response response =
+          newFixedLengthResponse(
+              Response.Status.PARTIAL_CONTENT,
+              "application/octet-stream",
+              new ByteArrayInputStream(data, start, length),
+              length);
+      response.addHeader("Content-Range", "bytes " + start + "-" + end + "/" + data.length);
+      return response;
+    }
+  }
+}
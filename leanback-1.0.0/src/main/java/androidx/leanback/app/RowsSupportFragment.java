@@ -157,6 +157,8 @@ public class RowsSupportFragment extends BaseRowSupportFragment implements
 
     private RecyclerView.RecycledViewPool mRecycledViewPool;
     private ArrayList<Presenter> mPresenterMapper;
+    private RecyclerView.RecycledViewPool mSharedViewPool;
+    private ItemBridgeAdapter.SharedViewTypes mSharedViewTypes;
 
     ItemBridgeAdapter.AdapterListener mExternalAdapterListener;
 
@@ -407,12 +409,28 @@ public class RowsSupportFragment extends BaseRowSupportFragment implements
         }
     };
 
+    /**
+     * Shares the view pool of the list rows with other fragments. Should be called before the
+     * rows are created.
+     */
+    public void setSharedViewPool(RecyclerView.RecycledViewPool viewPool,
+            ItemBridgeAdapter.SharedViewTypes viewTypes) {
+        mSharedViewPool = viewPool;
+        mSharedViewTypes = viewTypes;
+    }
+
     void setupSharedViewPool(ItemBridgeAdapter.ViewHolder bridgeVh) {
         RowPresenter rowPresenter = (RowPresenter) bridgeVh.getPresenter();
         RowPresenter.ViewHolder rowVh = rowPresenter.getRowViewHolder(bridgeVh.getViewHolder());
 
         if (rowVh instanceof ListRowPresenter.ViewHolder) {
             HorizontalGridView view = ((ListRowPresenter.ViewHolder) rowVh).getGridView();
+            if (mSharedViewPool != null) {
+                view.setRecycledViewPool(mSharedViewPool);
+                ((ListRowPresenter.ViewHolder) rowVh).getBridgeAdapter()
+                        .setSharedViewTypes(mSharedViewTypes);
+                return;
+            }
             // Recycled view pool is shared between all list rows
             if (mRecycledViewPool == null) {
                 mRecycledViewPool = view.getRecycledViewPool();
@@ -213,6 +213,8 @@ public abstract class BaseGridView extends RecyclerView {
      */
     int mInitialPrefetchItemCount = 4;
 
+    private static boolean sItemPrefetchEnabledByDefault;
+
     BaseGridView(Context context, AttributeSet attrs, int defStyle) {
         super(context, attrs, defStyle);
         mLayoutManager = new GridLayoutManager(this);
@@ -1223,4 +1225,37 @@ public abstract class BaseGridView extends RecyclerView {
     public int getInitialPrefetchItemCount() {
         return mInitialPrefetchItemCount;
     }
+
+    /**
+     * Enables the item prefetch of RecyclerView: the views next to the visible ones are created
+     * and bound in the idle time between the frames.
+     *
+     * @see RecyclerView.LayoutManager#setItemPrefetchEnabled(boolean)
+     * @see RecyclerView.LayoutManager#collectAdjacentPrefetchPositions(int, int, RecyclerView.State, RecyclerView.LayoutManager.LayoutPrefetchRegistry)
+     */
+    public void setItemPrefetchEnabled(boolean enabled) {
+        mLayoutManager.setItemPrefetchEnabled(enabled);
+    }
+
+    /**
+     * Returns true if the item prefetch is enabled.
+     */
+    public boolean isItemPrefetchEnabled() {
+        return mLayoutManager.isItemPrefetchEnabled();
+    }
+
+    /**
+     * Enables the item prefetch of the grids created after the call. Disabled by default,
+     * prefetch causes regression on low power chipset.
+     */
+    public static void setItemPrefetchEnabledByDefault(boolean enabled) {
+        sItemPrefetchEnabledByDefault = enabled;
+    }
+
+    /**
+     * Returns true if the item prefetch of the new grids is enabled.
+     */
+    public static boolean isItemPrefetchEnabledByDefault() {
+        return sItemPrefetchEnabledByDefault;
+    }
 }
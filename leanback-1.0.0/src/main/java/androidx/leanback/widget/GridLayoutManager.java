@@ -715,7 +715,7 @@ final class GridLayoutManager extends RecyclerView.LayoutManager {
         mBaseGridView = baseGridView;
         mChildVisibility = -1;
         // disable prefetch by default, prefetch causes regression on low power chipset
-        setItemPrefetchEnabled(false);
+        setItemPrefetchEnabled(BaseGridView.isItemPrefetchEnabledByDefault());
     }
 
     public void setOrientation(@RecyclerView.Orientation int orientation) {
@@ -14,12 +14,14 @@
 package androidx.leanback.widget;
 
 import android.util.Log;
+import android.util.SparseArray;
 import android.view.View;
 import android.view.ViewGroup;
 
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -57,6 +59,35 @@ public class ItemBridgeAdapter extends RecyclerView.Adapter implements FacetProv
         }
     }
 
+    /**
+     * View types shared by the adapters of different RecyclerViews (e.g. the grids of different
+     * fragments) that use the same {@link RecyclerView.RecycledViewPool}.
+     * Presenters of the same class get the same view type, so their views must be interchangeable.
+     * The adapters should use the same {@link FocusHighlightHandler}.
+     * The view is bound by the presenter of the adapter that binds it.
+     */
+    public static class SharedViewTypes {
+        private final ArrayList<List<Class<?>>> mKeys = new ArrayList<>();
+
+        final int getViewType(Presenter presenter, Wrapper wrapper) {
+            List<Class<?>> key = Arrays.<Class<?>>asList(presenter.getClass(),
+                    wrapper != null ? wrapper.getClass() : null);
+            int type = mKeys.indexOf(key);
+            if (type < 0) {
+                mKeys.add(key);
+                type = mKeys.size() - 1;
+                onAddViewType(type);
+            }
+            return type;
+        }
+
+        /**
+         * Called when a new view type is added, e.g. to set the max recycled views of the pool.
+         */
+        protected void onAddViewType(int type) {
+        }
+    }
+
     /**
      * Interface for wrapping a view created by a Presenter into another view.
      * The wrapper must be the immediate parent of the wrapped view.
@@ -73,21 +104,29 @@ public class ItemBridgeAdapter extends RecyclerView.Adapter implements FacetProv
     FocusHighlightHandler mFocusHighlight;
     private AdapterListener mAdapterListener;
     private ArrayList<Presenter> mPresenters = new ArrayList<Presenter>();
+    private SharedViewTypes mSharedViewTypes;
+    private final SparseArray<Presenter> mSharedPresenters = new SparseArray<>();
 
-    final class OnFocusChangeListener implements View.OnFocusChangeListener {
+    /**
+     * Static, so a view in a shared pool doesn't hold the adapter that created it.
+     * Follows the adapter that binds the view.
+     */
+    static final class OnFocusChangeListener implements View.OnFocusChangeListener {
         View.OnFocusChangeListener mChainedListener;
+        ItemBridgeAdapter mAdapter;
 
         @Override
         public void onFocusChange(View view, boolean hasFocus) {
+            ItemBridgeAdapter adapter = mAdapter;
             if (DEBUG) {
                 Log.v(TAG, "onFocusChange " + hasFocus + " " + view
-                        + " mFocusHighlight" + mFocusHighlight);
+                        + " mFocusHighlight" + (adapter != null ? adapter.mFocusHighlight : null));
             }
-            if (mWrapper != null) {
+            if (adapter != null && adapter.mWrapper != null) {
                 view = (View) view.getParent();
             }
-            if (mFocusHighlight != null) {
-                mFocusHighlight.onItemFocused(view, hasFocus);
+            if (adapter != null && adapter.mFocusHighlight != null) {
+                adapter.mFocusHighlight.onItemFocused(view, hasFocus);
             }
             if (mChainedListener != null) {
                 mChainedListener.onFocusChange(view, hasFocus);
@@ -97,9 +136,10 @@ public class ItemBridgeAdapter extends RecyclerView.Adapter implements FacetProv
 
     /**
      * ViewHolder for the ItemBridgeAdapter.
+     * Static, so the holder could be kept in a pool shared with other adapters.
      */
-    public class ViewHolder extends RecyclerView.ViewHolder implements FacetProvider {
-        final Presenter mPresenter;
+    public static class ViewHolder extends RecyclerView.ViewHolder implements FacetProvider {
+        Presenter mPresenter;
         final Presenter.ViewHolder mHolder;
         final OnFocusChangeListener mFocusChangeListener = new OnFocusChangeListener();
         Object mItem;
@@ -273,6 +313,22 @@ public class ItemBridgeAdapter extends RecyclerView.Adapter implements FacetProv
         return mPresenters;
     }
 
+    /**
+     * Sets the view types shared with the adapters of other views. Replaces the presenter mapper.
+     * Must be set before the first item is added.
+     */
+    public void setSharedViewTypes(SharedViewTypes viewTypes) {
+        mSharedViewTypes = viewTypes;
+        mSharedPresenters.clear();
+    }
+
+    /**
+     * Returns the view types shared with the adapters of other views or null.
+     */
+    public SharedViewTypes getSharedViewTypes() {
+        return mSharedViewTypes;
+    }
+
     @Override
     public int getItemCount() {
         return mAdapter != null ? mAdapter.size() : 0;
@@ -280,10 +336,10 @@ public class ItemBridgeAdapter extends RecyclerView.Adapter implements FacetProv
 
     @Override
     public int getItemViewType(int position) {
-        PresenterSelector presenterSelector = mPresenterSelector != null
-                ? mPresenterSelector : mAdapter.getPresenterSelector();
-        Object item = mAdapter.get(position);
-        Presenter presenter = presenterSelector.getPresenter(item);
+        Presenter presenter = getPresenter(mAdapter.get(position));
+        if (mSharedViewTypes != null) {
+            return getSharedViewType(presenter);
+        }
         int type = mPresenters.indexOf(presenter);
         if (type < 0) {
             mPresenters.add(presenter);
@@ -297,6 +353,36 @@ public class ItemBridgeAdapter extends RecyclerView.Adapter implements FacetProv
         return type;
     }
 
+    private int getSharedViewType(Presenter presenter) {
+        int type = mSharedViewTypes.getViewType(presenter, mWrapper);
+        // Presenters of the same class are interchangeable, the latest one is used
+        if (mSharedPresenters.get(type) != presenter) {
+            mSharedPresenters.put(type, presenter);
+            onAddPresenter(presenter, type);
+            if (mAdapterListener != null) {
+                mAdapterListener.onAddPresenter(presenter, type);
+            }
+        }
+        return type;
+    }
+
+    private Presenter getPresenter(Object item) {
+        PresenterSelector presenterSelector = mPresenterSelector != null
+                ? mPresenterSelector : mAdapter.getPresenterSelector();
+        return presenterSelector.getPresenter(item);
+    }
+
+    private Presenter getPresenterForViewType(int type) {
+        return mSharedViewTypes != null ? mSharedPresenters.get(type) : mPresenters.get(type);
+    }
+
+    private void updatePresenter(ViewHolder viewHolder) {
+        if (mSharedViewTypes != null) {
+            // The holder could be created by the adapter of another view
+            viewHolder.mPresenter = getPresenter(viewHolder.mItem);
+        }
+    }
+
     /**
      * Called when presenter is added to Adapter.
      */
@@ -341,7 +427,7 @@ public class ItemBridgeAdapter extends RecyclerView.Adapter implements FacetProv
     @Override
     public final RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
         if (DEBUG) Log.v(TAG, "onCreateViewHolder viewType " + viewType);
-        Presenter presenter = mPresenters.get(viewType);
+        Presenter presenter = getPresenterForViewType(viewType);
         Presenter.ViewHolder presenterVh;
         View view;
         if (mWrapper != null) {
@@ -353,6 +439,7 @@ public class ItemBridgeAdapter extends RecyclerView.Adapter implements FacetProv
             view = presenterVh.view;
         }
         ViewHolder viewHolder = new ViewHolder(presenter, view, presenterVh);
+        viewHolder.mFocusChangeListener.mAdapter = this;
         onCreate(viewHolder);
         if (mAdapterListener != null) {
             mAdapterListener.onCreate(viewHolder);
@@ -381,6 +468,8 @@ public class ItemBridgeAdapter extends RecyclerView.Adapter implements FacetProv
         if (DEBUG) Log.v(TAG, "onBindViewHolder position " + position);
         ViewHolder viewHolder = (ViewHolder) holder;
         viewHolder.mItem = mAdapter.get(position);
+        viewHolder.mFocusChangeListener.mAdapter = this;
+        updatePresenter(viewHolder);
 
         viewHolder.mPresenter.onBindViewHolder(viewHolder.mHolder, viewHolder.mItem);
 
@@ -396,6 +485,8 @@ public class ItemBridgeAdapter extends RecyclerView.Adapter implements FacetProv
         if (DEBUG) Log.v(TAG, "onBindViewHolder position " + position);
         ViewHolder viewHolder = (ViewHolder) holder;
         viewHolder.mItem = mAdapter.get(position);
+        viewHolder.mFocusChangeListener.mAdapter = this;
+        updatePresenter(viewHolder);
 
         viewHolder.mPresenter.onBindViewHolder(viewHolder.mHolder, viewHolder.mItem, payloads);
 
@@ -414,6 +505,8 @@ public class ItemBridgeAdapter extends RecyclerView.Adapter implements FacetProv
             mAdapterListener.onUnbind(viewHolder);
         }
         viewHolder.mItem = null;
+        // The holder could go to the pool shared with other adapters
+        viewHolder.mFocusChangeListener.mAdapter = null;
     }
 
     @Override
@@ -449,6 +542,6 @@ public class ItemBridgeAdapter extends RecyclerView.Adapter implements FacetProv
 
     @Override
     public FacetProvider getFacetProvider(int type) {
-        return mPresenters.get(type);
+        return getPresenterForViewType(type);
     }
 }
@@ -116,6 +116,13 @@ public class VerticalGridPresenter extends Presenter {
         public VerticalGridView getGridView() {
             return mGridView;
         }
+
+        /**
+         * Returns the {@link ItemBridgeAdapter} of the grid.
+         */
+        public ItemBridgeAdapter getBridgeAdapter() {
+            return mItemBridgeAdapter;
+        }
     }
 
     private int mNumColumns = -1;
@@ -2,6 +2,8 @@ package com.liskovsoft.leanbackassistant.channels;
 
 import android.annotation.TargetApi;
 import android.content.ComponentName;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
@@ -22,6 +24,7 @@ import androidx.tvprovider.media.tv.TvContractCompat.Channels;
 import androidx.tvprovider.media.tv.WatchNextProgram;
 import android.text.TextUtils;
 
+import com.liskovsoft.leanbackassistant.channels.ProgramDiff.StoredProgram;
 import com.liskovsoft.leanbackassistant.media.Clip;
 import com.liskovsoft.leanbackassistant.media.Playlist;
 import com.liskovsoft.leanbackassistant.media.scheduler.ClipData;
@@ -29,9 +32,12 @@ import com.liskovsoft.leanbackassistant.utils.AppUtil;
 import com.liskovsoft.sharedutils.helpers.Helpers;
 import com.liskovsoft.sharedutils.mylogger.Log;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -55,6 +61,19 @@ public class ChannelsProvider {
     private static final Uri PREVIEW_PROGRAMS_CONTENT_URI =
             Uri.parse("content://android.media.tv/preview_program");
 
+    /**
+     * Index into "PROGRAM_DIFF_PROJECTION" and if that changes, this should change too.
+     */
+    private static final int COLUMN_PROGRAM_ID_INDEX = 0;
+    private static final int COLUMN_PROGRAM_INTERNAL_PROVIDER_ID_INDEX = 1;
+    private static final int COLUMN_PROGRAM_WEIGHT_INDEX = 2;
+    private static final int COLUMN_PROGRAM_INTERNAL_PROVIDER_DATA_INDEX = 3;
+
+    private static final String[] PROGRAM_DIFF_PROJECTION =
+            {BaseColumns._ID, TvContractCompat.PreviewPrograms.COLUMN_INTERNAL_PROVIDER_ID,
+                    TvContractCompat.PreviewPrograms.COLUMN_WEIGHT,
+                    TvContractCompat.PreviewPrograms.COLUMN_INTERNAL_PROVIDER_DATA};
+
     @TargetApi(21)
     private static final String[] CHANNEL_COLUMNS = {
             TvContractCompat.Channels._ID,
@@ -294,21 +313,165 @@ public class ChannelsProvider {
             return;
         }
 
-        if (clips.size() == 0) {
+        if (clips == null || clips.size() == 0) {
             Log.d(TAG, "Cant add clips: clips.size() == 0");
             return;
         }
 
+        List<StoredProgram> stored = queryPrograms(context, channelId);
+
+        if (stored == null || !syncPrograms(context, channelId, clips, stored)) {
+            republishPrograms(context, channelId, clips);
+        }
+    }
+
+    /**
+     * Applies only the changed programs in a single batch.
+     */
+    private static boolean syncPrograms(Context context, long channelId, List<Clip> clips, List<StoredProgram> stored) {
+        List<String> providerIds = new ArrayList<>();
+        List<String> signatures = new ArrayList<>();
+
+        for (Clip clip : clips) {
+            // Seems like this is an ads
+            providerIds.add(clip.getVideoUrl() != null ? clip.getClipId() : null);
+            signatures.add(createSignature(clip));
+        }
+
+        ProgramDiff diff = ProgramDiff.compute(stored, providerIds, signatures);
+
+        Log.d(TAG, "Syncing channel " + channelId + ": " + diff);
+
+        Map<String, Long> programIds = new HashMap<>();
+        for (StoredProgram program : stored) {
+            programIds.put(program.providerId, program.programId);
+        }
+
+        for (Clip clip : clips) {
+            Long programId = programIds.get(clip.getClipId());
+            clip.setProgramId(programId != null && clip.getVideoUrl() != null ? programId : -1);
+        }
+
+        if (diff.isEmpty()) {
+            return true;
+        }
+
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+
+        for (ProgramDiff.Op op : diff.getOps()) {
+            switch (op.type) {
+                case ProgramDiff.OP_INSERT:
+                    operations.add(ContentProviderOperation.newInsert(PREVIEW_PROGRAMS_CONTENT_URI)
+                            .withValues(createProgramValues(context, clips.get(op.clipIndex), channelId, op.weight, signatures.get(op.clipIndex)))
+                            .build());
+                    break;
+                case ProgramDiff.OP_UPDATE:
+                    operations.add(ContentProviderOperation.newUpdate(TvContractCompat.buildPreviewProgramUri(op.programId))
+                            .withValues(createProgramValues(context, clips.get(op.clipIndex), channelId, op.weight, signatures.get(op.clipIndex)))
+                            .build());
+                    break;
+                case ProgramDiff.OP_UPDATE_WEIGHT:
+                    operations.add(ContentProviderOperation.newUpdate(TvContractCompat.buildPreviewProgramUri(op.programId))
+                            .withValue(TvContractCompat.PreviewPrograms.COLUMN_WEIGHT, op.weight)
+                            .build());
+                    break;
+                case ProgramDiff.OP_DELETE:
+                    operations.add(ContentProviderOperation.newDelete(TvContractCompat.buildPreviewProgramUri(op.programId)).build());
+                    break;
+            }
+        }
+
+        ContentProviderResult[] results;
+
+        try {
+            results = context.getContentResolver().applyBatch(TvContractCompat.AUTHORITY, operations);
+        } catch (Exception e) { // RemoteException, OperationApplicationException, SecurityException
+            Log.e(TAG, "Batch update of the channel failed: " + e.getMessage());
+            return false;
+        }
+
+        List<ProgramDiff.Op> ops = diff.getOps();
+        for (int i = 0; i < ops.size() && i < results.length; i++) {
+            ProgramDiff.Op op = ops.get(i);
+            if (op.type == ProgramDiff.OP_INSERT && results[i].uri != null) {
+                clips.get(op.clipIndex).setProgramId(ContentUris.parseId(results[i].uri));
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Old way: delete everything and insert the programs one by one.
+     */
+    private static void republishPrograms(Context context, long channelId, List<Clip> clips) {
         cleanupChannel(context, channelId);
 
         int weight = clips.size();
         for (int i = 0; i < clips.size(); ++i, --weight) {
             Clip clip = clips.get(i);
 
+            clip.setProgramId(-1);
             publishProgram(context, clip, channelId, weight);
         }
     }
 
+    /**
+     * Returns null if the programs can't be read.
+     */
+    private static List<StoredProgram> queryPrograms(Context context, long channelId) {
+        List<StoredProgram> result = new ArrayList<>();
+
+        try (Cursor cursor = context.getContentResolver().query(
+                TvContractCompat.buildPreviewProgramsUriForChannel(channelId), PROGRAM_DIFF_PROJECTION, null, null, null)) {
+            if (cursor == null) {
+                return null;
+            }
+
+            while (cursor.moveToNext()) {
+                byte[] data = cursor.isNull(COLUMN_PROGRAM_INTERNAL_PROVIDER_DATA_INDEX) ?
+                        null : cursor.getBlob(COLUMN_PROGRAM_INTERNAL_PROVIDER_DATA_INDEX);
+                result.add(new StoredProgram(
+                        cursor.getLong(COLUMN_PROGRAM_ID_INDEX),
+                        cursor.getString(COLUMN_PROGRAM_INTERNAL_PROVIDER_ID_INDEX),
+                        cursor.getInt(COLUMN_PROGRAM_WEIGHT_INDEX),
+                        data != null ? new String(data, StandardCharsets.UTF_8) : null));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Can't read programs of the channel: " + e.getMessage());
+            return null;
+        }
+
+        return result;
+    }
+
+    private static ContentValues createProgramValues(Context context, Clip clip, long channelId, int weight, String signature) {
+        return createProgramBuilder(context, clip)
+                .setWeight(weight)
+                .setChannelId(channelId)
+                .setInternalProviderData(signature.getBytes(StandardCharsets.UTF_8))
+                .build()
+                .toContentValues();
+    }
+
+    /**
+     * Identifies the displayed content of the clip. Stored along with the program to detect changes.
+     */
+    private static String createSignature(Clip clip) {
+        String content = clip.getTitle() + "|" + clip.getDescription() + "|" + clip.getDurationMs() + "|" + clip.isLive() + "|" +
+                clip.getCardImageUrl() + "|" + clip.getPreviewVideoUrl() + "|" + clip.getVideoUrl() + "|" + clip.getContentId() + "|" +
+                clip.getAspectRatio();
+
+        // FNV-1a 64 bit
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < content.length(); i++) {
+            hash ^= content.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+
+        return Long.toHexString(hash);
+    }
+
     private static void cleanupChannel(Context context, long channelId) {
         context.getContentResolver().delete(TvContractCompat.buildPreviewProgramsUriForChannel(channelId), null, null);
     }
@@ -0,0 +1,278 @@
+package com.liskovsoft.leanbackassistant.channels;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Computes the minimal set of changes that turns the programs stored in a channel into the fetched clips.<br/>
+ * Programs are matched by the internal provider id. Unchanged programs keep their weights when possible,
+ * so a new video on top of the list results in a single insert instead of rewriting the whole channel.
+ */
+public class ProgramDiff {
+    /**
+     * Gap between the weights of the newly numbered programs. Leaves room for the inserts between them.
+     */
+    static final int WEIGHT_STEP = 1_000;
+    public static final int OP_INSERT = 0;
+    public static final int OP_UPDATE = 1;
+    public static final int OP_UPDATE_WEIGHT = 2;
+    public static final int OP_DELETE = 3;
+    private final List<Op> mOps = new ArrayList<>();
+    private final int[] mCounts = new int[4];
+
+    /**
+     * Program that is already stored in the provider.
+     */
+    public static class StoredProgram {
+        public final long programId;
+        public final String providerId;
+        public final int weight;
+        /**
+         * Identifies the displayed content of the program. Null if unknown (e.g. written by an older version).
+         */
+        public final String signature;
+
+        public StoredProgram(long programId, String providerId, int weight, String signature) {
+            this.programId = programId;
+            this.providerId = providerId;
+            this.weight = weight;
+            this.signature = signature;
+        }
+    }
+
+    public static class Op {
+        public final int type;
+        /**
+         * Index of the clip or -1 for the delete.
+         */
+        public final int clipIndex;
+        /**
+         * Id of the stored program or -1 for the insert.
+         */
+        public final long programId;
+        public final int weight;
+
+        private Op(int type, int clipIndex, long programId, int weight) {
+            this.type = type;
+            this.clipIndex = clipIndex;
+            this.programId = programId;
+            this.weight = weight;
+        }
+    }
+
+    private ProgramDiff() {
+    }
+
+    /**
+     * @param stored programs of the channel
+     * @param providerIds provider ids of the fetched clips in display order. Null items (e.g. ads) are skipped.
+     * @param signatures signatures of the fetched clips
+     */
+    public static ProgramDiff compute(List<StoredProgram> stored, List<String> providerIds, List<String> signatures) {
+        ProgramDiff diff = new ProgramDiff();
+        Map<String, StoredProgram> storedById = new HashMap<>();
+
+        for (StoredProgram program : stored) {
+            if (program.providerId == null || storedById.containsKey(program.providerId)) {
+                diff.add(new Op(OP_DELETE, -1, program.programId, 0)); // duplicate or foreign row
+            } else {
+                storedById.put(program.providerId, program);
+            }
+        }
+
+        // Clips that will be displayed
+        List<Integer> indexes = new ArrayList<>();
+        Set<String> ids = new HashSet<>();
+
+        for (int i = 0; i < providerIds.size(); i++) {
+            String id = providerIds.get(i);
+
+            if (id != null && ids.add(id)) {
+                indexes.add(i);
+            }
+        }
+
+        int size = indexes.size();
+        StoredProgram[] matched = new StoredProgram[size];
+
+        for (int i = 0; i < size; i++) {
+            matched[i] = storedById.remove(providerIds.get(indexes.get(i)));
+        }
+
+        int[] weights = computeWeights(matched);
+
+        for (int i = 0; i < size; i++) {
+            int clipIndex = indexes.get(i);
+            StoredProgram program = matched[i];
+
+            if (program == null) {
+                diff.add(new Op(OP_INSERT, clipIndex, -1, weights[i]));
+            } else if (program.signature == null || !program.signature.equals(signatures.get(clipIndex))) {
+                diff.add(new Op(OP_UPDATE, clipIndex, program.programId, weights[i]));
+            } else if (program.weight != weights[i]) {
+                diff.add(new Op(OP_UPDATE_WEIGHT, clipIndex, program.programId, weights[i]));
+            }
+        }
+
+        for (StoredProgram program : storedById.values()) {
+            diff.add(new Op(OP_DELETE, -1, program.programId, 0));
+        }
+
+        return diff;
+    }
+
+    public List<Op> getOps() {
+        return mOps;
+    }
+
+    public int getCount(int opType) {
+        return mCounts[opType];
+    }
+
+    public boolean isEmpty() {
+        return mOps.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ProgramDiff{inserts=%s, updates=%s, weights=%s, deletes=%s}",
+                mCounts[OP_INSERT], mCounts[OP_UPDATE], mCounts[OP_UPDATE_WEIGHT], mCounts[OP_DELETE]);
+    }
+
+    private void add(Op op) {
+        mOps.add(op);
+        mCounts[op.type]++;
+    }
+
+    /**
+     * Weights should decrease from the top to the bottom of the channel.<br/>
+     * Keeps the weights of the longest run of stored programs that are already in the right order
+     * and fits the rest between them. Renumbers everything when there's no room left.
+     */
+    private static int[] computeWeights(StoredProgram[] matched) {
+        int size = matched.length;
+        int[] weights = new int[size];
+        boolean[] anchored = findOrderedPrograms(matched);
+
+        int runStart = 0;
+
+        for (int i = 0; i <= size; i++) {
+            if (i < size && !anchored[i]) {
+                continue;
+            }
+
+            // Fill the run [runStart, i) between the anchors
+            Integer upper = runStart > 0 ? weights[runStart - 1] : null;
+            Integer lower = i < size ? matched[i].weight : null;
+
+            if (!fillRun(weights, runStart, i, upper, lower)) {
+                return renumber(size);
+            }
+
+            if (i < size) {
+                weights[i] = matched[i].weight;
+            }
+
+            runStart = i + 1;
+        }
+
+        return weights;
+    }
+
+    private static boolean fillRun(int[] weights, int start, int end, Integer upper, Integer lower) {
+        int count = end - start;
+
+        if (count == 0) {
+            return true;
+        }
+
+        long step;
+        long base;
+
+        if (upper == null && lower == null) {
+            base = (long) (count + 1) * WEIGHT_STEP;
+            step = WEIGHT_STEP;
+        } else if (upper == null) {
+            base = lower + (long) (count + 1) * WEIGHT_STEP;
+            step = WEIGHT_STEP;
+        } else if (lower == null) {
+            base = upper;
+            step = WEIGHT_STEP;
+        } else {
+            base = upper;
+            step = ((long) upper - lower) / (count + 1);
+        }
+
+        if (step <= 0 || base - step * count < Integer.MIN_VALUE || base - step > Integer.MAX_VALUE) {
+            return false;
+        }
+
+        for (int i = 0; i < count; i++) {
+            weights[start + i] = (int) (base - step * (i + 1));
+        }
+
+        return true;
+    }
+
+    private static int[] renumber(int size) {
+        int[] weights = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            weights[i] = (size - i) * WEIGHT_STEP;
+        }
+
+        return weights;
+    }
+
+    /**
+     * Longest subsequence of the stored programs with strictly decreasing weights (O(n log n)).
+     */
+    private static boolean[] findOrderedPrograms(StoredProgram[] matched) {
+        int size = matched.length;
+        boolean[] result = new boolean[size];
+        // tails[k] - index of the last program of the best subsequence of length k + 1
+        int[] tails = new int[size];
+        int[] prev = new int[size];
+        int length = 0;
+
+        Arrays.fill(prev, -1);
+
+        for (int i = 0; i < size; i++) {
+            if (matched[i] == null) {
+                continue;
+            }
+
+            int weight = matched[i].weight;
+            int low = 0;
+            int high = length;
+
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+
+                if (matched[tails[mid]].weight > weight) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+
+            prev[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+
+            if (low == length) {
+                length++;
+            }
+        }
+
+        for (int i = length > 0 ? tails[length - 1] : -1; i != -1; i = prev[i]) {
+            result[i] = true;
+        }
+
+        return result;
+    }
+}
@@ -5,6 +5,7 @@ import android.content.Context;
 import androidx.annotation.RequiresApi;
 
 import com.liskovsoft.leanbackassistant.media.ClipService;
+import com.liskovsoft.leanbackassistant.media.ClipServiceCached;
 import com.liskovsoft.leanbackassistant.media.Playlist;
 import com.liskovsoft.leanbackassistant.recommendations.RecommendationsProvider;
 import com.liskovsoft.sharedutils.helpers.Helpers;
@@ -23,7 +24,7 @@ public class UpdateChannelsTask {
 
         Log.d(TAG, "Creating GlobalPreferences...");
         mPrefs = GlobalPreferences.instance(context);
-        mService = ClipService.instance(context);
+        mService = ClipServiceCached.instance(context);
     }
 
     public void run() {
@@ -19,6 +19,9 @@ import android.os.Parcelable;
 import androidx.annotation.NonNull;
 import androidx.tvprovider.media.tv.BasePreviewProgram.AspectRatio;
 
+import org.json.JSONException;
+import org.json.JSONObject;
+
 import java.net.URI;
 import java.net.URISyntaxException;
 
@@ -167,6 +170,41 @@ public class Clip implements Parcelable {
         return mAspectRatio;
     }
 
+    JSONObject toJson() throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("clipId", mClipId);
+        json.put("contentId", mContentId);
+        json.put("title", mTitle);
+        json.put("description", mDescription);
+        json.put("durationMs", mDurationMs);
+        json.put("bgImageUrl", mBgImageUrl);
+        json.put("cardImageUrl", mCardImageUrl);
+        json.put("videoUrl", mVideoUrl);
+        json.put("previewVideoUrl", mPreviewVideoUrl);
+        json.put("isVideoProtected", mIsVideoProtected);
+        json.put("isLive", mIsLive);
+        json.put("category", mCategory);
+        json.put("aspectRatio", mAspectRatio);
+        return json;
+    }
+
+    static Clip fromJson(JSONObject json) {
+        return new Clip(
+                json.optString("title", null),
+                json.optString("description", null),
+                json.optLong("durationMs"),
+                json.optString("bgImageUrl", null),
+                json.optString("cardImageUrl", null),
+                json.optString("videoUrl", null),
+                json.optString("previewVideoUrl", null),
+                json.optBoolean("isVideoProtected"),
+                json.optBoolean("isLive"),
+                json.optString("category", null),
+                json.optString("clipId", null),
+                json.optString("contentId", null),
+                json.optInt("aspectRatio"));
+    }
+
     @Override
     public int describeContents() {
         return 0;
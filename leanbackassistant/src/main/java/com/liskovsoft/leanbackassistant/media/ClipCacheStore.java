@@ -0,0 +1,80 @@
+package com.liskovsoft.leanbackassistant.media;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.liskovsoft.sharedutils.mylogger.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the fetched clips between the process restarts.
+ */
+class ClipCacheStore {
+    private static final String TAG = ClipCacheStore.class.getSimpleName();
+    private static final String PREFS_NAME = "clip_cache";
+    private static final String TIME_SUFFIX = "_time";
+    private final SharedPreferences mPrefs;
+
+    static class Entry {
+        final List<Clip> clips;
+        final long timeMs;
+
+        private Entry(List<Clip> clips, long timeMs) {
+            this.clips = clips;
+            this.timeMs = timeMs;
+        }
+    }
+
+    ClipCacheStore(Context context) {
+        mPrefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    Entry load(String key) {
+        String data = mPrefs.getString(key, null);
+
+        if (data == null) {
+            return null;
+        }
+
+        try {
+            JSONArray array = new JSONArray(data);
+            List<Clip> clips = new ArrayList<>();
+
+            for (int i = 0; i < array.length(); i++) {
+                clips.add(Clip.fromJson(array.getJSONObject(i)));
+            }
+
+            return new Entry(clips, mPrefs.getLong(key + TIME_SUFFIX, 0));
+        } catch (JSONException e) {
+            Log.e(TAG, "Can't restore clips: " + e.getMessage());
+            return null;
+        }
+    }
+
+    void save(String key, List<Clip> clips, long timeMs) {
+        try {
+            JSONArray array = new JSONArray();
+
+            for (Clip clip : clips) {
+                array.put(clip.toJson());
+            }
+
+            mPrefs.edit()
+                    .putString(key, array.toString())
+                    .putLong(key + TIME_SUFFIX, timeMs)
+                    .apply();
+        } catch (JSONException e) {
+            Log.e(TAG, "Can't persist clips: " + e.getMessage());
+        }
+    }
+
+    void clear() {
+        mPrefs.edit().clear().apply();
+    }
+}
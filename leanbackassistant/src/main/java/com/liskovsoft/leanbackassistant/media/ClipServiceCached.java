@@ -1,9 +1,22 @@
 package com.liskovsoft.leanbackassistant.media;
 
+import android.annotation.SuppressLint;
 import android.content.Context;
 
-public class ClipServiceCached extends ClipService {
+import com.liskovsoft.mediaserviceinterfaces.SignInService.OnAccountChange;
+import com.liskovsoft.mediaserviceinterfaces.oauth.Account;
+import com.liskovsoft.youtubeapi.service.YouTubeServiceManager;
+
+import java.util.List;
+
+/**
+ * Caches the playlists for a while in memory and on disk.<br/>
+ * So the app restarts don't cause the full refetch of the channels.
+ */
+public class ClipServiceCached extends ClipService implements OnAccountChange {
+    @SuppressLint("StaticFieldLeak")
     private static ClipServiceCached mInstance;
+    private final ClipCacheStore mStore;
     private Playlist mSubscriptions;
     private long mSubscriptionsTime;
     private Playlist mHistory;
@@ -11,14 +24,23 @@ public class ClipServiceCached extends ClipService {
     private Playlist mRecommended;
     private long mRecommendedTime;
     private static final long CACHE_UPDATE_TIME = 15 * 60 * 1000;
+    private static final String SUBSCRIPTIONS_KEY = "subscriptions";
+    private static final String HISTORY_KEY = "history";
+    private static final String RECOMMENDED_KEY = "recommended";
+
+    private interface PlaylistSource {
+        Playlist create();
+    }
 
     public ClipServiceCached(Context context) {
         super(context);
+        mStore = new ClipCacheStore(context);
+        YouTubeServiceManager.instance().getSignInService().addOnAccountChange(this);
     }
 
     public static ClipService instance(Context context) {
         if (mInstance == null) {
-            mInstance = new ClipServiceCached(context);
+            mInstance = new ClipServiceCached(context.getApplicationContext());
         }
 
         return mInstance;
@@ -28,7 +50,7 @@ public class ClipServiceCached extends ClipService {
         Playlist cache = getSubscriptionsPlaylistCache();
 
         if (cache == null) {
-            cache = super.getSubscriptionsPlaylist();
+            cache = loadPlaylist(SUBSCRIPTIONS_KEY, super::getSubscriptionsPlaylist);
             setSubscriptionsPlaylistCache(cache);
         }
 
@@ -52,7 +74,7 @@ public class ClipServiceCached extends ClipService {
         Playlist cache = getHistoryPlaylistCache();
 
         if (cache == null) {
-            cache = super.getHistoryPlaylist();
+            cache = loadPlaylist(HISTORY_KEY, super::getHistoryPlaylist);
             setHistoryPlaylistCache(cache);
         }
 
@@ -76,7 +98,7 @@ public class ClipServiceCached extends ClipService {
         Playlist cache = getRecommendedPlaylistCache();
 
         if (cache == null) {
-            cache = super.getRecommendedPlaylist();
+            cache = loadPlaylist(RECOMMENDED_KEY, super::getRecommendedPlaylist);
             setRecommendedPlaylistCache(cache);
         }
 
@@ -95,4 +117,42 @@ public class ClipServiceCached extends ClipService {
         mRecommendedTime = System.currentTimeMillis();
         mRecommended = cache;
     }
+
+    /**
+     * The clips belong to the previous account
+     */
+    @Override
+    public void onAccountChanged(Account account) {
+        mSubscriptionsTime = 0;
+        mHistoryTime = 0;
+        mRecommendedTime = 0;
+        mSubscriptions = null;
+        mHistory = null;
+        mRecommended = null;
+        mStore.clear();
+    }
+
+    /**
+     * Takes the clips from the disk if they're fresh enough. Otherwise fetches and persists them.
+     */
+    private Playlist loadPlaylist(String key, PlaylistSource source) {
+        ClipCacheStore.Entry entry = mStore.load(key);
+        long now = System.currentTimeMillis();
+        Playlist playlist = source.create();
+
+        if (entry != null && !entry.clips.isEmpty() && (now - entry.timeMs) < CACHE_UPDATE_TIME && entry.timeMs <= now) {
+            // The clips are fetched lazily. Set them before the first getClips().
+            playlist.setClips(entry.clips);
+            return playlist;
+        }
+
+        // Fetch
+        List<Clip> clips = playlist.getClips();
+
+        if (clips != null && !clips.isEmpty()) {
+            mStore.save(key, clips, now);
+        }
+
+        return playlist;
+    }
 }
@@ -80,6 +80,10 @@ public final class Playlist {
         return mClips;
     }
 
+    public void setClips(List<Clip> clips) {
+        mClips = clips;
+    }
+
     public String getDescription() {
         return mDescription;
     }
@@ -226,7 +230,8 @@ public final class Playlist {
                         false,
                         v.isLive(),
                         null,
-                        Integer.toString(v.getId()),
+                        // Stable id. Programs of the channels are matched by it.
+                        v.getVideoId() != null ? v.getVideoId() : Integer.toString(v.getId()),
                         null,
                         TvContractCompat.PreviewProgramColumns.ASPECT_RATIO_16_9));
             }
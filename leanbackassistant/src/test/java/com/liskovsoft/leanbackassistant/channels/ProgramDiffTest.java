@@ -0,0 +1,240 @@
+package com.liskovsoft.leanbackassistant.channels;
+
+import com.liskovsoft.leanbackassistant.channels.ProgramDiff.Op;
+import com.liskovsoft.leanbackassistant.channels.ProgramDiff.StoredProgram;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ProgramDiffTest {
+    private static final int CHANNEL_SIZE = 40;
+    private FakeProgramProvider mProvider;
+
+    /**
+     * Stores the programs of a single channel and counts the applied operations.
+     */
+    private static class FakeProgramProvider {
+        private final Map<Long, StoredProgram> mPrograms = new LinkedHashMap<>();
+        private long mNextId = 1;
+        private int mOperationCount;
+
+        private List<StoredProgram> query() {
+            return new ArrayList<>(mPrograms.values());
+        }
+
+        private void apply(ProgramDiff diff, List<String> ids, List<String> signatures) {
+            for (Op op : diff.getOps()) {
+                mOperationCount++;
+
+                switch (op.type) {
+                    case ProgramDiff.OP_INSERT:
+                        long id = mNextId++;
+                        mPrograms.put(id, new StoredProgram(id, ids.get(op.clipIndex), op.weight, signatures.get(op.clipIndex)));
+                        break;
+                    case ProgramDiff.OP_UPDATE:
+                        mPrograms.put(op.programId, new StoredProgram(op.programId, ids.get(op.clipIndex), op.weight, signatures.get(op.clipIndex)));
+                        break;
+                    case ProgramDiff.OP_UPDATE_WEIGHT:
+                        StoredProgram program = mPrograms.get(op.programId);
+                        mPrograms.put(op.programId, new StoredProgram(op.programId, program.providerId, op.weight, program.signature));
+                        break;
+                    case ProgramDiff.OP_DELETE:
+                        mPrograms.remove(op.programId);
+                        break;
+                }
+            }
+        }
+
+        /**
+         * Provider ids sorted by weight, as the launcher displays them.
+         */
+        private List<String> getDisplayedIds() {
+            List<StoredProgram> programs = query();
+            Collections.sort(programs, (a, b) -> Integer.compare(b.weight, a.weight));
+            List<String> result = new ArrayList<>();
+            for (StoredProgram program : programs) {
+                result.add(program.providerId);
+            }
+            return result;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        mProvider = new FakeProgramProvider();
+    }
+
+    @Test
+    public void testInitialPublish() {
+        ProgramDiff diff = sync(videos(0, CHANNEL_SIZE));
+
+        assertEquals(CHANNEL_SIZE, diff.getCount(ProgramDiff.OP_INSERT));
+        assertEquals(CHANNEL_SIZE, diff.getOps().size());
+    }
+
+    @Test
+    public void testNothingChanged() {
+        sync(videos(0, CHANNEL_SIZE));
+
+        ProgramDiff diff = sync(videos(0, CHANNEL_SIZE));
+
+        assertTrue(diff.isEmpty());
+    }
+
+    @Test
+    public void testNewVideoOnTop() {
+        sync(videos(0, CHANNEL_SIZE));
+
+        // The newest upload appears on top, the oldest one falls out
+        ProgramDiff diff = sync(videos(-1, CHANNEL_SIZE));
+
+        assertEquals(1, diff.getCount(ProgramDiff.OP_INSERT));
+        assertEquals(1, diff.getCount(ProgramDiff.OP_DELETE));
+        assertEquals(2, diff.getOps().size());
+    }
+
+    @Test
+    public void testManyNewVideosOnTop() {
+        sync(videos(0, CHANNEL_SIZE));
+
+        ProgramDiff diff = sync(videos(-5, CHANNEL_SIZE));
+
+        assertEquals(5, diff.getCount(ProgramDiff.OP_INSERT));
+        assertEquals(5, diff.getCount(ProgramDiff.OP_DELETE));
+        assertEquals(10, diff.getOps().size());
+    }
+
+    @Test
+    public void testTitleChanged() {
+        sync(videos(0, CHANNEL_SIZE));
+
+        List<String> ids = videos(0, CHANNEL_SIZE);
+        List<String> signatures = signatures(ids);
+        signatures.set(3, "new title");
+        ProgramDiff diff = sync(ids, signatures);
+
+        assertEquals(1, diff.getCount(ProgramDiff.OP_UPDATE));
+        assertEquals(1, diff.getOps().size());
+    }
+
+    @Test
+    public void testWatchedVideoMovedToTop() {
+        sync(videos(0, CHANNEL_SIZE));
+
+        // History: the rewatched video moves to the top
+        List<String> ids = videos(0, CHANNEL_SIZE);
+        ids.add(0, ids.remove(10));
+        ProgramDiff diff = sync(ids);
+
+        assertEquals(1, diff.getCount(ProgramDiff.OP_UPDATE_WEIGHT));
+        assertEquals(1, diff.getOps().size());
+    }
+
+    @Test
+    public void testInsertsWithoutRoomRenumberChannel() {
+        sync(videos(0, 2));
+
+        // Squeeze more programs between two neighbours than the weight gap allows
+        List<String> ids = new ArrayList<>();
+        ids.add("video0");
+        for (int i = 0; i < ProgramDiff.WEIGHT_STEP + 1; i++) {
+            ids.add("extra" + i);
+        }
+        ids.add("video1");
+        sync(ids);
+
+        assertTrue(sync(ids).isEmpty());
+    }
+
+    @Test
+    public void testAdsAndDuplicatesAreSkipped() {
+        List<String> ids = new ArrayList<>(Arrays.asList("video0", null, "video1", "video0"));
+
+        ProgramDiff diff = sync(ids);
+
+        assertEquals(2, diff.getCount(ProgramDiff.OP_INSERT));
+        assertEquals(2, diff.getOps().size());
+    }
+
+    @Test
+    public void testProgramsOfOlderVersionAreUpdatedOnce() {
+        List<String> ids = videos(0, 3);
+        mProvider.mPrograms.put(1L, new StoredProgram(1, "video0", 3, null));
+        mProvider.mPrograms.put(2L, new StoredProgram(2, "video1", 2, null));
+        mProvider.mPrograms.put(3L, new StoredProgram(3, "video1", 1, null));
+        mProvider.mNextId = 4;
+
+        ProgramDiff diff = sync(ids);
+
+        assertEquals(2, diff.getCount(ProgramDiff.OP_UPDATE));
+        assertEquals(1, diff.getCount(ProgramDiff.OP_INSERT));
+        assertEquals(1, diff.getCount(ProgramDiff.OP_DELETE)); // duplicate
+        assertTrue(sync(ids).isEmpty());
+    }
+
+    @Test
+    public void testPeriodicUpdatesKeepOrder() {
+        List<String> ids = videos(0, CHANNEL_SIZE);
+        sync(ids);
+        int operationCount = mProvider.mOperationCount;
+
+        for (int i = 1; i <= 20; i++) {
+            ids = videos(-i, CHANNEL_SIZE);
+            ids.add(0, ids.remove(CHANNEL_SIZE / 2)); // plus one reordered video
+            sync(ids);
+        }
+
+        assertEquals(ids, mProvider.getDisplayedIds());
+        // Insert, delete and up to two moves per update. Full rewrite would be 20 * 41 (clear and insert every program).
+        assertTrue(mProvider.mOperationCount - operationCount <= 20 * 4);
+    }
+
+    private ProgramDiff sync(List<String> ids) {
+        return sync(ids, signatures(ids));
+    }
+
+    private ProgramDiff sync(List<String> ids, List<String> signatures) {
+        ProgramDiff diff = ProgramDiff.compute(mProvider.query(), ids, signatures);
+        mProvider.apply(diff, ids, signatures);
+
+        List<String> expected = new ArrayList<>();
+        for (String id : ids) {
+            if (id != null && !expected.contains(id)) {
+                expected.add(id);
+            }
+        }
+        assertEquals(expected, mProvider.getDisplayedIds());
+
+        return diff;
+    }
+
+    private static List<String> videos(int from, int count) {
+        List<String> result = new ArrayList<>();
+
+        for (int i = from; i < from + count; i++) {
+            result.add("video" + i);
+        }
+
+        return result;
+    }
+
+    private static List<String> signatures(List<String> ids) {
+        List<String> result = new ArrayList<>();
+
+        for (String id : ids) {
+            result.add("title of " + id);
+        }
+
+        return result;
+    }
+}
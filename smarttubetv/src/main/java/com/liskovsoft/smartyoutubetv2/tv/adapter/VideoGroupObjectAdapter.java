@@ -4,6 +4,8 @@ import androidx.annotation.NonNull;
 import androidx.leanback.widget.ObjectAdapter;
 import androidx.leanback.widget.Presenter;
 import androidx.leanback.widget.PresenterSelector;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
 
 import com.liskovsoft.sharedutils.helpers.Helpers;
 import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
@@ -36,6 +38,7 @@ public class VideoGroupObjectAdapter extends ObjectAdapter {
     };
     private final List<VideoGroup> mVideoGroups = new ArrayList<>(); // keep groups from being garbage collected
     private static final int CHECK_MAX_SIZE = 200;
+    private ListUpdateCallback mListUpdateCallback;
 
     public VideoGroupObjectAdapter(VideoGroup videoGroup, Presenter presenter) {
         super(presenter);
@@ -222,10 +225,97 @@ public class VideoGroupObjectAdapter extends ObjectAdapter {
         }
     }
 
+    /**
+     * Replaces the contents with the group. Only changed items are notified (rebound).<br/>
+     * Unchanged items keep their instances, so the cards that show them stay as is.
+     */
+    public void replace(VideoGroup group) {
+        if (group == null || group.getVideos() == null) {
+            return;
+        }
+
+        List<Video> oldItems = new ArrayList<>(mVideoItems);
+        List<Video> newItems = new ArrayList<>(group.getVideos());
+        Helpers.removeDuplicates(newItems);
+
+        DiffUtil.DiffResult diffResult = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldItems.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newItems.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                return oldItems.get(oldItemPosition).equals(newItems.get(newItemPosition));
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                return isSameContent(oldItems.get(oldItemPosition), newItems.get(newItemPosition));
+            }
+        });
+
+        for (int i = 0; i < newItems.size(); i++) {
+            int oldPosition = diffResult.convertNewPositionToOld(i);
+
+            if (oldPosition != DiffUtil.DiffResult.NO_POSITION && isSameContent(oldItems.get(oldPosition), newItems.get(i))) {
+                Video origin = oldItems.get(oldPosition);
+                origin.setGroup(group);
+                newItems.set(i, origin);
+            }
+        }
+
+        mVideoItems.clear();
+        mVideoItems.addAll(newItems);
+        mVideoGroups.clear();
+        mVideoGroups.add(group);
+
+        if (mListUpdateCallback == null) {
+            mListUpdateCallback = new ListUpdateCallback() {
+                @Override
+                public void onInserted(int position, int count) {
+                    notifyItemRangeInserted(position, count);
+                }
+
+                @Override
+                public void onRemoved(int position, int count) {
+                    notifyItemRangeRemoved(position, count);
+                }
+
+                @Override
+                public void onMoved(int fromPosition, int toPosition) {
+                    notifyItemMoved(fromPosition, toPosition);
+                }
+
+                @Override
+                public void onChanged(int position, int count, Object payload) {
+                    notifyItemRangeChanged(position, count, payload);
+                }
+            };
+        }
+
+        diffResult.dispatchUpdatesTo(mListUpdateCallback);
+    }
+
     public boolean isEmpty() {
         return mVideoItems.isEmpty();
     }
 
+    private static boolean isSameContent(Video oldItem, Video newItem) {
+        return Helpers.equals(oldItem.title, newItem.title) &&
+                Helpers.equals(Helpers.toString(oldItem.secondTitle), Helpers.toString(newItem.secondTitle)) &&
+                Helpers.equals(oldItem.cardImageUrl, newItem.cardImageUrl) &&
+                Helpers.equals(oldItem.badge, newItem.badge) &&
+                Helpers.floatEquals(oldItem.percentWatched, newItem.percentWatched) &&
+                oldItem.isLive == newItem.isLive &&
+                oldItem.isUpcoming == newItem.isUpcoming;
+    }
+
     private void removeFromGroup(Video video) {
         if (video != null && video.getGroup() != null) {
             video.getGroup().remove(video);
@@ -33,11 +33,50 @@ public class ChannelCardPresenter extends LongClickPresenter {
     private int mSelectedTextColor;
     private int mWidth;
     private int mHeight;
+    private boolean mIsInitialized;
 
     @Override
     public ViewHolder onCreateViewHolder(ViewGroup parent) {
         Context context = parent.getContext();
 
+        init(context);
+
+        View container = LayoutInflater.from(context).inflate(R.layout.channel_card, null);
+        container.setTag(R.id.card_presenter, this);
+        container.setBackgroundColor(mDefaultBackgroundColor);
+
+        TextView textView = container.findViewById(R.id.channel_title);
+        textView.setBackgroundColor(mDefaultBackgroundColor);
+        textView.setTextColor(mDefaultTextColor);
+
+        // The card could be created by other presenter (shared view pool). Colors are taken from the one that binds it.
+        container.setOnFocusChangeListener((v, hasFocus) -> onFocusChange(container, hasFocus));
+
+        return new ViewHolder(container);
+    }
+
+    private static void onFocusChange(View container, boolean hasFocus) {
+        ChannelCardPresenter presenter = (ChannelCardPresenter) container.getTag(R.id.card_presenter);
+        TextView textView = container.findViewById(R.id.channel_title);
+
+        int backgroundColor = hasFocus ? presenter.mSelectedBackgroundColor :
+                textView.getTag(R.id.channel_new_content) != null ? presenter.mNewContentBackgroundColor : presenter.mDefaultBackgroundColor;
+        int textColor = hasFocus ? presenter.mSelectedTextColor : presenter.mDefaultTextColor;
+
+        textView.setBackgroundColor(backgroundColor);
+        textView.setTextColor(textColor);
+
+        if (hasFocus) {
+            ViewUtil.enableMarquee(textView);
+        } else {
+            ViewUtil.disableMarquee(textView);
+        }
+    }
+
+    /**
+     * Presenter state. Should be ready before the first bind because the cards may come from the shared pool.
+     */
+    private void init(Context context) {
         mDefaultBackgroundColor =
                 ContextCompat.getColor(context, Helpers.getThemeAttr(context, R.attr.cardDefaultBackground));
         mDefaultTextColor =
@@ -51,29 +90,7 @@ public class ChannelCardPresenter extends LongClickPresenter {
 
         updateDimensions(context);
 
-        View container = LayoutInflater.from(context).inflate(R.layout.channel_card, null);
-        container.setBackgroundColor(mDefaultBackgroundColor);
-
-        TextView textView = container.findViewById(R.id.channel_title);
-        textView.setBackgroundColor(mDefaultBackgroundColor);
-        textView.setTextColor(mDefaultTextColor);
-
-        container.setOnFocusChangeListener((v, hasFocus) -> {
-            int backgroundColor = hasFocus ? mSelectedBackgroundColor :
-                    textView.getTag(R.id.channel_new_content) != null ? mNewContentBackgroundColor : mDefaultBackgroundColor;
-            int textColor = hasFocus ? mSelectedTextColor : mDefaultTextColor;
-            
-            textView.setBackgroundColor(backgroundColor);
-            textView.setTextColor(textColor);
-
-            if (hasFocus) {
-                ViewUtil.enableMarquee(textView);
-            } else {
-                ViewUtil.disableMarquee(textView);
-            }
-        });
-
-        return new ViewHolder(container);
+        mIsInitialized = true;
     }
 
     @Override
@@ -83,6 +100,12 @@ public class ChannelCardPresenter extends LongClickPresenter {
         Context context = viewHolder.view.getContext();
         Video video = (Video) item;
 
+        if (!mIsInitialized) {
+            init(context);
+        }
+
+        viewHolder.view.setTag(R.id.card_presenter, this);
+
         ViewUtil.setDimensions(viewHolder.view.findViewById(R.id.channel_card_wrapper), mWidth, -1); // don't do auto height
 
         TextView textView = viewHolder.view.findViewById(R.id.channel_title);
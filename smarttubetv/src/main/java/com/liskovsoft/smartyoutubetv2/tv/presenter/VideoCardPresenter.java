@@ -43,37 +43,39 @@ public class VideoCardPresenter extends LongClickPresenter {
     private int mThumbQuality;
     private int mWidth;
     private int mHeight;
+    private boolean mIsInitialized;
+
+    /**
+     * The card could be created by other presenter (shared view pool). Colors are taken from the one that binds it.
+     */
+    private static class VideoCardView extends ComplexImageCardView {
+        public VideoCardView(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void setSelected(boolean selected) {
+            VideoCardPresenter presenter = (VideoCardPresenter) getTag(R.id.card_presenter);
+            if (presenter != null) {
+                presenter.updateCardBackgroundColor(this, selected);
+            }
+            super.setSelected(selected);
+        }
+    }
 
     @Override
     public ViewHolder onCreateViewHolder(ViewGroup parent) {
         Context context = parent.getContext();
 
-        mDefaultBackgroundColor =
-            ContextCompat.getColor(context, Helpers.getThemeAttr(context, R.attr.cardDefaultBackground));
-        mDefaultTextColor =
-                ContextCompat.getColor(context, R.color.card_default_text);
-        mSelectedBackgroundColor =
-                ContextCompat.getColor(context, Helpers.getThemeAttr(context, R.attr.cardSelectedBackground));
-        mSelectedTextColor =
-                ContextCompat.getColor(context, R.color.card_selected_text_grey);
-
-        mCardPreviewType = getCardPreviewType(context);
-        mThumbQuality = getThumbQuality(context);
+        init(context);
 
         boolean isCardMultilineTitleEnabled = isCardMultilineTitleEnabled(context);
         boolean isCardMultilineSubtitleEnabled = isCardMultilineSubtitleEnabled(context);
         boolean isCardTextAutoScrollEnabled = isCardTextAutoScrollEnabled(context);
         float cardTextScrollSpeed = getCardTextScrollSpeed(context);
 
-        updateDimensions(context);
-
-        ComplexImageCardView cardView = new ComplexImageCardView(context) {
-            @Override
-            public void setSelected(boolean selected) {
-                updateCardBackgroundColor(this, selected);
-                super.setSelected(selected);
-            }
-        };
+        ComplexImageCardView cardView = new VideoCardView(context);
+        cardView.setTag(R.id.card_presenter, this);
 
         cardView.setTitleLinesNum(isCardMultilineTitleEnabled ? 2 : 1);
         cardView.setContentLinesNum(isCardMultilineSubtitleEnabled ? 2 : 1);
@@ -88,6 +90,27 @@ public class VideoCardPresenter extends LongClickPresenter {
         return new ViewHolder(cardView);
     }
 
+    /**
+     * Presenter state. Should be ready before the first bind because the cards may come from the shared pool.
+     */
+    private void init(Context context) {
+        mDefaultBackgroundColor =
+            ContextCompat.getColor(context, Helpers.getThemeAttr(context, R.attr.cardDefaultBackground));
+        mDefaultTextColor =
+                ContextCompat.getColor(context, R.color.card_default_text);
+        mSelectedBackgroundColor =
+                ContextCompat.getColor(context, Helpers.getThemeAttr(context, R.attr.cardSelectedBackground));
+        mSelectedTextColor =
+                ContextCompat.getColor(context, R.color.card_selected_text_grey);
+
+        mCardPreviewType = getCardPreviewType(context);
+        mThumbQuality = getThumbQuality(context);
+
+        updateDimensions(context);
+
+        mIsInitialized = true;
+    }
+
     private void updateCardBackgroundColor(ComplexImageCardView view, boolean selected) {
         int backgroundColor = selected ? mSelectedBackgroundColor : mDefaultBackgroundColor;
         int textColor = selected ? mSelectedTextColor : mDefaultTextColor;
@@ -119,6 +142,16 @@ public class VideoCardPresenter extends LongClickPresenter {
         ComplexImageCardView cardView = (ComplexImageCardView) viewHolder.view;
         Context context = cardView.getContext();
 
+        if (!mIsInitialized) {
+            init(context);
+        }
+
+        if (cardView.getTag(R.id.card_presenter) != this) {
+            // The card from the shared pool
+            cardView.setTag(R.id.card_presenter, this);
+            updateCardBackgroundColor(cardView, cardView.isSelected());
+        }
+
         cardView.setTitleText(video.getTitle());
         cardView.setContentText(video.getSecondTitle());
         // Count progress that very close to zero. E.g. when user closed video immediately.
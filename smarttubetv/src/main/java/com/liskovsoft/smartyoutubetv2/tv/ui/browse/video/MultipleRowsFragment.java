@@ -1,7 +1,9 @@
 package com.liskovsoft.smartyoutubetv2.tv.ui.browse.video;
 
 import android.os.Bundle;
+import android.view.View;
 import android.widget.Toast;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.leanback.app.RowsSupportFragment;
 import androidx.leanback.widget.ArrayObjectAdapter;
@@ -29,7 +31,9 @@ import com.liskovsoft.smartyoutubetv2.tv.presenter.VideoCardPresenter;
 import com.liskovsoft.smartyoutubetv2.tv.presenter.CustomListRowPresenter;
 import com.liskovsoft.smartyoutubetv2.tv.presenter.base.OnItemLongPressedListener;
 import com.liskovsoft.smartyoutubetv2.tv.ui.browse.interfaces.VideoSection;
+import com.liskovsoft.smartyoutubetv2.tv.ui.common.CardViewPool;
 import com.liskovsoft.smartyoutubetv2.tv.ui.common.LeanbackActivity;
+import com.liskovsoft.smartyoutubetv2.tv.ui.common.PrefetchPolicy;
 import com.liskovsoft.smartyoutubetv2.tv.ui.common.UriBackgroundManager;
 import com.liskovsoft.smartyoutubetv2.tv.util.ViewUtil;
 
@@ -63,6 +67,11 @@ public abstract class MultipleRowsFragment extends RowsSupportFragment implement
         mShortsPresenter = new ShortsCardPresenter();
         mBackgroundManager = ((LeanbackActivity) getActivity()).getBackgroundManager();
 
+        CardViewPool pool = CardViewPool.forRows(getActivity());
+        if (pool != null) {
+            pool.attach(this);
+        }
+
         // Gemini auto-summary removed
 
         setupAdapter();
@@ -70,6 +79,13 @@ public abstract class MultipleRowsFragment extends RowsSupportFragment implement
         applyPendingUpdates();
     }
 
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+
+        PrefetchPolicy.instance().attach(getVerticalGridView());
+    }
+
     protected void addHeader(ChannelHeaderCallback callback) {
         mChannelHeaderCallback = callback;
     }
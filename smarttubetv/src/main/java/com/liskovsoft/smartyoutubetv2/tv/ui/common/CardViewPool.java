@@ -0,0 +1,81 @@
+package com.liskovsoft.smartyoutubetv2.tv.ui.common;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import androidx.leanback.app.RowsSupportFragment;
+import androidx.leanback.widget.ItemBridgeAdapter;
+import androidx.leanback.widget.VerticalGridPresenter;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Card views shared by the grids (or the rows) of the activity.<br/>
+ * Switching the section or opening the channel reuses the cards of the previous one instead of inflating new ones.<br/>
+ * The pool lives as long as the activity: the cards hold the activity context.
+ */
+public class CardViewPool extends RecyclerView.RecycledViewPool {
+    /**
+     * Two screens of cards
+     */
+    private static final int MAX_RECYCLED_VIEWS = 40;
+    private final ItemBridgeAdapter.SharedViewTypes mViewTypes = new ItemBridgeAdapter.SharedViewTypes() {
+        @Override
+        protected void onAddViewType(int type) {
+            setMaxRecycledViews(type, MAX_RECYCLED_VIEWS);
+        }
+    };
+
+    /**
+     * Pool of the grid cards of the activity or null if the context isn't {@link LeanbackActivity}.
+     */
+    public static CardViewPool forGrids(Context context) {
+        LeanbackActivity activity = getActivity(context);
+        return activity != null ? activity.getGridCardPool() : null;
+    }
+
+    /**
+     * Pool of the row cards of the activity or null if the context isn't {@link LeanbackActivity}.
+     */
+    public static CardViewPool forRows(Context context) {
+        LeanbackActivity activity = getActivity(context);
+        return activity != null ? activity.getRowCardPool() : null;
+    }
+
+    /**
+     * Should be called before the grid is bound to the adapter.
+     */
+    public void attach(VerticalGridPresenter.ViewHolder gridViewHolder) {
+        gridViewHolder.getGridView().setRecycledViewPool(this);
+        gridViewHolder.getBridgeAdapter().setSharedViewTypes(mViewTypes);
+        PrefetchPolicy.instance().attach(gridViewHolder.getGridView());
+    }
+
+    /**
+     * Should be called before the rows are created.
+     */
+    public void attach(RowsSupportFragment fragment) {
+        fragment.setSharedViewPool(this, mViewTypes);
+    }
+
+    /**
+     * Keep the cards when the adapter of the grid is changed or removed
+     */
+    @Override
+    public void clear() {
+    }
+
+    public void release() {
+        super.clear();
+    }
+
+    private static LeanbackActivity getActivity(Context context) {
+        while (context instanceof ContextWrapper) {
+            if (context instanceof LeanbackActivity) {
+                return (LeanbackActivity) context;
+            }
+
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+
+        return null;
+    }
+}
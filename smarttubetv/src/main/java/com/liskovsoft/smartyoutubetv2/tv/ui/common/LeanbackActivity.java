@@ -26,6 +26,8 @@ public abstract class LeanbackActivity extends MotherActivity {
     private ModeSyncManager mModeSyncManager;
     private DoubleBackManager2 mDoubleBackManager;
     private GlobalKeyTranslator mGlobalKeyTranslator;
+    private CardViewPool mGridCardPool;
+    private CardViewPool mRowCardPool;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -62,6 +64,22 @@ public abstract class LeanbackActivity extends MotherActivity {
         return mBackgroundManager;
     }
 
+    public CardViewPool getGridCardPool() {
+        if (mGridCardPool == null) {
+            mGridCardPool = new CardViewPool();
+        }
+
+        return mGridCardPool;
+    }
+
+    public CardViewPool getRowCardPool() {
+        if (mRowCardPool == null) {
+            mRowCardPool = new CardViewPool();
+        }
+
+        return mRowCardPool;
+    }
+
     @Override
     protected void onStart() {
         super.onStart();
@@ -92,6 +110,14 @@ public abstract class LeanbackActivity extends MotherActivity {
     protected void onDestroy() {
         super.onDestroy();
         mBackgroundManager.onDestroy();
+
+        if (mGridCardPool != null) {
+            mGridCardPool.release();
+        }
+
+        if (mRowCardPool != null) {
+            mRowCardPool.release();
+        }
     }
 
     @Override
@@ -0,0 +1,140 @@
+package com.liskovsoft.smartyoutubetv2.tv.ui.common;
+
+import android.content.Context;
+import android.view.Choreographer;
+import android.view.Display;
+import android.view.WindowManager;
+import androidx.annotation.NonNull;
+import androidx.leanback.widget.BaseGridView;
+import androidx.recyclerview.widget.RecyclerView;
+import com.liskovsoft.sharedutils.mylogger.Log;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Enables the item prefetch of the grids when the device keeps up with the frame rate.<br/>
+ * Prefetch is disabled in leanback by default: it causes regression on low power chipset.
+ * The frame time is measured while the grids scroll. The decision is made by the 90th percentile:
+ * prefetch is enabled when the frames are on time and disabled when they are late twice.
+ */
+public class PrefetchPolicy implements Choreographer.FrameCallback {
+    private static final String TAG = PrefetchPolicy.class.getSimpleName();
+    private static final int FRAME_COUNT = 120;
+    private static final int PERCENTILE = 90;
+    private static final float ENABLE_RATIO = 1.2f;
+    private static final float DISABLE_RATIO = 2.0f;
+    /**
+     * Scroll ended
+     */
+    private static final long IDLE_NANOS = 200_000_000;
+    private static final float DEFAULT_REFRESH_RATE = 60;
+    private static PrefetchPolicy sInstance;
+    private final Set<BaseGridView> mGrids = Collections.newSetFromMap(new WeakHashMap<>());
+    private final long[] mFrameNanos = new long[FRAME_COUNT];
+    private int mFrameCount;
+    private long mFrameIntervalNanos = (long) (1_000_000_000 / DEFAULT_REFRESH_RATE);
+    private long mLastFrameTimeNanos;
+    private long mLastScrollTimeNanos;
+    private boolean mIsMeasuring;
+    private boolean mIsEnabled;
+    private final RecyclerView.OnScrollListener mScrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            onScroll();
+        }
+    };
+
+    public static PrefetchPolicy instance() {
+        if (sInstance == null) {
+            sInstance = new PrefetchPolicy();
+        }
+
+        return sInstance;
+    }
+
+    public void attach(BaseGridView grid) {
+        if (mGrids.add(grid)) {
+            updateRefreshRate(grid.getContext());
+            grid.setItemPrefetchEnabled(mIsEnabled);
+            grid.addOnScrollListener(mScrollListener);
+        }
+    }
+
+    public boolean isEnabled() {
+        return mIsEnabled;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (mLastFrameTimeNanos != 0) {
+            onFrame(frameTimeNanos - mLastFrameTimeNanos);
+        }
+
+        if (frameTimeNanos - mLastScrollTimeNanos > IDLE_NANOS) {
+            // Idle frames aren't drawn
+            mIsMeasuring = false;
+            mLastFrameTimeNanos = 0;
+            return;
+        }
+
+        mLastFrameTimeNanos = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    private void onScroll() {
+        mLastScrollTimeNanos = System.nanoTime();
+
+        if (!mIsMeasuring) {
+            mIsMeasuring = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    void onFrame(long frameNanos) {
+        mFrameNanos[mFrameCount++] = frameNanos;
+
+        if (mFrameCount < FRAME_COUNT) {
+            return;
+        }
+
+        mFrameCount = 0;
+        long[] sorted = mFrameNanos.clone();
+        Arrays.sort(sorted);
+        long percentileNanos = sorted[FRAME_COUNT * PERCENTILE / 100 - 1];
+
+        if (!mIsEnabled && percentileNanos <= mFrameIntervalNanos * ENABLE_RATIO) {
+            setEnabled(true);
+        } else if (mIsEnabled && percentileNanos > mFrameIntervalNanos * DISABLE_RATIO) {
+            setEnabled(false);
+        }
+    }
+
+    void setRefreshRate(float refreshRate) {
+        if (refreshRate > 0) {
+            mFrameIntervalNanos = (long) (1_000_000_000 / refreshRate);
+        }
+    }
+
+    private void setEnabled(boolean enabled) {
+        Log.d(TAG, "Item prefetch enabled: %s", enabled);
+
+        mIsEnabled = enabled;
+        BaseGridView.setItemPrefetchEnabledByDefault(enabled);
+
+        for (BaseGridView grid : mGrids) {
+            grid.setItemPrefetchEnabled(enabled);
+        }
+    }
+
+    private void updateRefreshRate(Context context) {
+        WindowManager windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        Display display = windowManager != null ? windowManager.getDefaultDisplay() : null;
+
+        if (display != null) {
+            setRefreshRate(display.getRefreshRate());
+        }
+    }
+}
@@ -24,6 +24,7 @@ import com.stfalcon.chatkit.commons.models.IMessage;
 import com.stfalcon.chatkit.messages.MessagesList;
 import com.stfalcon.chatkit.messages.MessagesListAdapter;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class CommentsPreferenceDialogFragment extends LeanbackPreferenceDialogFragment {
@@ -109,16 +110,15 @@ public class CommentsPreferenceDialogFragment extends LeanbackPreferenceDialogFr
                     return;
                 }
 
+                List<ChatItemMessage> messages = new ArrayList<>();
                 for (CommentItem commentItem : commentGroup.getComments()) {
                     if (ChatItemMessage.shouldSplit(commentItem)) {
-                        List<ChatItemMessage> split = ChatItemMessage.fromSplit(view.getContext(), commentItem);
-                        for (ChatItemMessage splitItem : split) {
-                            appendMessage(adapter, splitItem);
-                        }
+                        messages.addAll(ChatItemMessage.fromSplit(view.getContext(), commentItem));
                     } else {
-                        appendMessage(adapter, ChatItemMessage.from(view.getContext(), commentItem));
+                        messages.add(ChatItemMessage.from(view.getContext(), commentItem));
                     }
                 }
+                appendMessages(adapter, messages);
                 if (adapter.getMessagesCount() == 0) { // No comments under the video
                     adapter.setLoadingMessage(mCommentsReceiver.getErrorMessage());
                 }
@@ -174,12 +174,20 @@ public class CommentsPreferenceDialogFragment extends LeanbackPreferenceDialogFr
         return view;
     }
 
-    private void appendMessage(MessagesListAdapter<ChatItemMessage> adapter, ChatItemMessage message) {
-        adapter.addToStart(message, false);
+    private void appendMessages(MessagesListAdapter<ChatItemMessage> adapter, List<ChatItemMessage> messages) {
+        // The whole page in one go
+        adapter.addToStart(messages, false);
 
-        if (mFocusedMessage == null && IMessage.checkMessage(message)) {
-            mFocusedMessage = message;
-            adapter.setFocusedMessage(message);
+        if (mFocusedMessage != null) {
+            return;
+        }
+
+        for (ChatItemMessage message : messages) {
+            if (IMessage.checkMessage(message)) {
+                mFocusedMessage = message;
+                adapter.setFocusedMessage(message);
+                break;
+            }
         }
     }
 
@@ -18,6 +18,7 @@ import androidx.leanback.widget.RowPresenter;
 import androidx.leanback.widget.VerticalGridPresenter;
 import androidx.leanback.widget.VerticalGridView;
 import com.liskovsoft.smartyoutubetv2.tv.R;
+import com.liskovsoft.smartyoutubetv2.tv.ui.common.CardViewPool;
 
 /**
  * NOTE: All code was new. It's copied from:<br/>
@@ -172,6 +173,7 @@ public class GridFragment extends Fragment implements BrowseSupportFragment.Main
         super.onViewCreated(view, savedInstanceState);
         ViewGroup gridDock = (ViewGroup) view.findViewById(R.id.browse_grid_dock);
         mGridViewHolder = mGridPresenter.onCreateViewHolder(gridDock);
+        attachCardPool(mGridViewHolder);
         gridDock.addView(mGridViewHolder.view);
         mGridViewHolder.getGridView().setOnChildLaidOutListener(mChildLaidOutListener);
 
@@ -192,9 +194,21 @@ public class GridFragment extends Fragment implements BrowseSupportFragment.Main
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        if (mGridViewHolder != null) {
+            // Move the cards to the shared pool
+            mGridPresenter.onUnbindViewHolder(mGridViewHolder);
+        }
         mGridViewHolder = null;
     }
 
+    private void attachCardPool(VerticalGridPresenter.ViewHolder gridViewHolder) {
+        CardViewPool pool = CardViewPool.forGrids(getActivity());
+
+        if (pool != null) {
+            pool.attach(gridViewHolder);
+        }
+    }
+
     @Override
     public BrowseSupportFragment.MainFragmentAdapter<Fragment> getMainFragmentAdapter() {
         return mMainFragmentAdapter;
@@ -25,6 +25,7 @@ import androidx.leanback.widget.VerticalGridView;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.recyclerview.widget.RecyclerView.Adapter;
 import com.liskovsoft.smartyoutubetv2.tv.R;
+import com.liskovsoft.smartyoutubetv2.tv.ui.common.CardViewPool;
 
 /**
  * Managing multiple grids at a time.<br/>
@@ -322,10 +323,12 @@ public class MultiGridFragment extends Fragment implements BrowseSupportFragment
         });
 
         mGridViewHolder1 = mGridPresenter1.onCreateViewHolder(gridDock);
+        attachCardPool(mGridViewHolder1);
         mGridViewHolder1.getGridView().setOnChildLaidOutListener(mChildLaidOutListener1);
         //gridDock.addView(mGridViewHolder1.view);
 
         mGridViewHolder2 = mGridPresenter2.onCreateViewHolder(gridDock);
+        attachCardPool(mGridViewHolder2);
         mGridViewHolder2.getGridView().setOnChildLaidOutListener(mChildLaidOutListener2);
         //gridDock.addView(mGridViewHolder2.view);
 
@@ -347,10 +350,25 @@ public class MultiGridFragment extends Fragment implements BrowseSupportFragment
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        // Move the cards to the shared pool
+        if (mGridViewHolder1 != null) {
+            mGridPresenter1.onUnbindViewHolder(mGridViewHolder1);
+        }
+        if (mGridViewHolder2 != null) {
+            mGridPresenter2.onUnbindViewHolder(mGridViewHolder2);
+        }
         mGridViewHolder1 = null;
         mGridViewHolder2 = null;
     }
 
+    private void attachCardPool(VerticalGridPresenter.ViewHolder gridViewHolder) {
+        CardViewPool pool = CardViewPool.forGrids(getActivity());
+
+        if (pool != null) {
+            pool.attach(gridViewHolder);
+        }
+    }
+
     @Override
     public BrowseSupportFragment.MainFragmentAdapter<Fragment> getMainFragmentAdapter() {
         return mMainFragmentAdapter;
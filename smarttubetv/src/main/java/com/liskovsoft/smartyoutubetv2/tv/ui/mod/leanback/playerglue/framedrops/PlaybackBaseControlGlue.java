@@ -666,7 +666,7 @@ public abstract class PlaybackBaseControlGlue<T extends PlayerAdapter> extends P
      * Seek media to a new position.
      * @param position New position.
      */
-    public final void seekTo(long position) {
+    public void seekTo(long position) {
         mPlayerAdapter.seekTo(position);
     }
 
@@ -362,7 +362,7 @@ public class PlaybackTransportControlGlue<T extends PlayerAdapter>
         @Override
         public void onSeekPositionChanged(long pos) {
             if (mSeekProvider == null) {
-                mPlayerAdapter.seekTo(pos);
+                seekTo(pos);
             } else {
                 mLastUserPosition = pos;
             }
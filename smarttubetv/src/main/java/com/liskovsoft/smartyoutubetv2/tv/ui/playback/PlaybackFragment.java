@@ -21,7 +21,6 @@ import androidx.leanback.app.RowsSupportFragment;
 import androidx.leanback.media.PlayerAdapter;
 import androidx.leanback.widget.ArrayObjectAdapter;
 import androidx.leanback.widget.ClassPresenterSelector;
-import androidx.leanback.widget.HeaderItem;
 import androidx.leanback.widget.ListRow;
 import androidx.leanback.widget.ListRowPresenter;
 import androidx.leanback.widget.ObjectAdapter;
@@ -66,12 +65,14 @@ import com.liskovsoft.smartyoutubetv2.tv.presenter.CustomListRowPresenter;
 import com.liskovsoft.smartyoutubetv2.tv.presenter.ShortsCardPresenter;
 import com.liskovsoft.smartyoutubetv2.tv.presenter.VideoCardPresenter;
 import com.liskovsoft.smartyoutubetv2.tv.presenter.base.OnItemLongPressedListener;
+import com.liskovsoft.smartyoutubetv2.tv.ui.common.CardViewPool;
 import com.liskovsoft.smartyoutubetv2.tv.ui.common.LeanbackActivity;
 import com.liskovsoft.smartyoutubetv2.tv.ui.common.UriBackgroundManager;
 import com.liskovsoft.smartyoutubetv2.tv.ui.mod.leanback.misc.ProgressBarManager;
 import com.liskovsoft.smartyoutubetv2.tv.ui.playback.mod.SeekModePlaybackFragment;
 import com.liskovsoft.smartyoutubetv2.tv.ui.playback.mod.surface.SurfacePlaybackFragmentGlueHost;
 import com.liskovsoft.smartyoutubetv2.tv.ui.playback.other.BackboneQueueNavigator;
+import com.liskovsoft.smartyoutubetv2.tv.ui.playback.other.SuggestionRowPool;
 import com.liskovsoft.smartyoutubetv2.tv.ui.playback.other.VideoPlayerGlue;
 import com.liskovsoft.smartyoutubetv2.tv.ui.playback.other.VideoPlayerGlue.OnActionClickedListener;
 import com.liskovsoft.smartyoutubetv2.tv.ui.playback.previewtimebar.StoryboardSeekDataProvider;
@@ -98,6 +99,7 @@ public class PlaybackFragment extends SeekModePlaybackFragment implements Playba
     private SimpleExoPlayer mPlayer;
     private PlaybackPresenter mPlaybackPresenter;
     private ArrayObjectAdapter mRowsAdapter;
+    private SuggestionRowPool mRowPool;
     private ListRowPresenter mRowPresenter;
     private VideoCardPresenter mCardPresenter;
     private ShortsCardPresenter mShortsPresenter;
@@ -393,12 +395,19 @@ public class PlaybackFragment extends SeekModePlaybackFragment implements Playba
     private void destroyPlayerObjects() {
         // Fix access calls when player isn't initialized
         mExoPlayerController.release();
+        if (mPlayerGlue != null) {
+            // The scheduler is released with the controller
+            mPlayerGlue.setSeekScheduler(null);
+        }
         if (mMediaSessionConnector != null) {
             mMediaSessionConnector.setPlayer(null);
         }
         if (mMediaSession != null) {
             mMediaSession.release();
         }
+        if (mRowPool != null) {
+            mRowPool.release();
+        }
         if (mRowsAdapter != null) {
             mRowsAdapter.clear();
         }
@@ -406,6 +415,7 @@ public class PlaybackFragment extends SeekModePlaybackFragment implements Playba
         mPlayer = null;
         mPlayerGlue = null;
         mRowsAdapter = null;
+        mRowPool = null;
         mSubtitleManager = null;
         mDebugInfoManager = null;
         mMediaSessionConnector = null;
@@ -454,6 +464,7 @@ public class PlaybackFragment extends SeekModePlaybackFragment implements Playba
         mPlayerGlue = new VideoPlayerGlue(getContext(), playerAdapter, playerActionListener); // NOTE: possible context memory leak
         mPlayerGlue.setHost(new SurfacePlaybackFragmentGlueHost(this));
         mPlayerGlue.setSeekEnabled(true);
+        mPlayerGlue.setSeekScheduler(mExoPlayerController.getSeekScheduler());
         mPlayerGlue.setControlsOverlayAutoHideEnabled(false); // don't show controls on some player events like play/pause/end
         StoryboardSeekDataProvider.setSeekProvider(mPlayerGlue);
         hideControlsOverlay(true); // fix player ui not synced correctly
@@ -470,6 +481,8 @@ public class PlaybackFragment extends SeekModePlaybackFragment implements Playba
         if (mPlayer.getTextComponent() != null) {
             mPlayer.getTextComponent().addTextOutput(mSubtitleManager);
         }
+
+        mPlayer.addListener(mSubtitleManager);
     }
 
     private void createDebugManager() {
@@ -587,6 +600,12 @@ public class PlaybackFragment extends SeekModePlaybackFragment implements Playba
 
         // player controls row
         mRowsAdapter.add(mPlayerGlue.getControlsRow());
+        mRowPool = new SuggestionRowPool(mRowsAdapter, SUGGESTIONS_START_INDEX);
+
+        CardViewPool cardPool = CardViewPool.forRows(getActivity());
+        if (mRowsSupportFragment != null && cardPool != null) {
+            cardPool.attach(mRowsSupportFragment);
+        }
 
         setAdapter(mRowsAdapter);
     }
@@ -1378,30 +1397,20 @@ public class PlaybackFragment extends SeekModePlaybackFragment implements Playba
         } else if (group.getAction() == VideoGroup.ACTION_REPLACE) {
             VideoGroupObjectAdapter adapter = mMediaGroupAdapters.get(group.getId());
             if (adapter != null) {
-                adapter.clear();
-                adapter.add(group);
+                adapter.replace(group);
                 return;
             }
         }
 
-        HeaderItem rowHeader = new HeaderItem(group.getTitle());
         int mediaGroupId = group.getId(); // Create unique int from category.
 
         VideoGroupObjectAdapter existingAdapter = mMediaGroupAdapters.get(mediaGroupId);
 
         if (existingAdapter == null) {
-            VideoGroupObjectAdapter mediaGroupAdapter = new VideoGroupObjectAdapter(group, group.isShorts() ? mShortsPresenter : mCardPresenter);
-
-            mMediaGroupAdapters.put(mediaGroupId, mediaGroupAdapter);
-
-            ListRow row = new ListRow(rowHeader, mediaGroupAdapter);
+            // Row of the previous video is reused when possible. Only the changed cards are rebound.
+            ListRow row = mRowPool.obtain(group, group.isShorts() ? mShortsPresenter : mCardPresenter);
 
-            int newPosition = group.getPosition() + SUGGESTIONS_START_INDEX;
-            if (group.getPosition() == -1 || newPosition > mRowsAdapter.size()) {
-                mRowsAdapter.add(row);
-            } else {
-                mRowsAdapter.add(newPosition, row);
-            }
+            mMediaGroupAdapters.put(mediaGroupId, (VideoGroupObjectAdapter) row.getAdapter());
         } else {
             freeze(true);
 
@@ -1426,7 +1435,7 @@ public class PlaybackFragment extends SeekModePlaybackFragment implements Playba
                 int position = getSuggestionsIndex(group);
                 if (position != -1) {
                     mMediaGroupAdapters.remove(group.getId());
-                    mRowsAdapter.removeItems(position + SUGGESTIONS_START_INDEX, 1);
+                    mRowPool.remove(position + SUGGESTIONS_START_INDEX);
                 }
             }
         }
@@ -1472,8 +1481,9 @@ public class PlaybackFragment extends SeekModePlaybackFragment implements Playba
         }
 
         // NOTE: skip first row. It's PlaybackControlsRow
+        // Rows of the previous video that aren't reused yet are skipped too
         int realIndex = rowIndex + SUGGESTIONS_START_INDEX;
-        Object row = mRowsAdapter != null && mRowsAdapter.size() > realIndex ? mRowsAdapter.get(realIndex) : null;
+        Object row = mRowsAdapter != null && mRowPool.getLiveRowCount() > rowIndex ? mRowsAdapter.get(realIndex) : null;
 
         VideoGroup result = null;
 
@@ -1530,6 +1540,10 @@ public class PlaybackFragment extends SeekModePlaybackFragment implements Playba
         // Skip PlaybackRowPresenter.ViewHolder
         if (rowViewHolder instanceof ListRowPresenter.ViewHolder) {
             int index = existingAdapter.indexOf(mPendingFocus);
+            if (index == -1) {
+                // Reused row keeps the previous instances of the unchanged videos
+                index = existingAdapter.indexOfAlt(mPendingFocus);
+            }
             ((ListRowPresenter.ViewHolder) rowViewHolder).getGridView().setSelectedPosition(index);
             mPendingFocus = null;
         }
@@ -1542,8 +1556,9 @@ public class PlaybackFragment extends SeekModePlaybackFragment implements Playba
 
     @Override
     public void clearSuggestions() {
-        if (mRowsAdapter != null && mRowsAdapter.size() > 1) {
-            mRowsAdapter.removeItems(SUGGESTIONS_START_INDEX, mRowsAdapter.size() - 1);
+        // Rows stay until the suggestions of the next video arrive. Unchanged rows won't be rebound.
+        if (mRowPool != null) {
+            mRowPool.recycle();
         }
 
         mMediaGroupAdapters.clear();
@@ -1553,7 +1568,7 @@ public class PlaybackFragment extends SeekModePlaybackFragment implements Playba
     @Override
     public boolean isSuggestionsEmpty() {
         // Ignore first row. It's player controls row.
-        return mRowsAdapter == null || mRowsAdapter.size() <= SUGGESTIONS_START_INDEX;
+        return mRowsAdapter == null || mRowPool.getLiveRowCount() == 0;
     }
 
     /**
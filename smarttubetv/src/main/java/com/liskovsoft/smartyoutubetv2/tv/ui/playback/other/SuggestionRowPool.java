@@ -0,0 +1,179 @@
+package com.liskovsoft.smartyoutubetv2.tv.ui.playback.other;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.leanback.widget.ArrayObjectAdapter;
+import androidx.leanback.widget.HeaderItem;
+import androidx.leanback.widget.ListRow;
+import androidx.leanback.widget.Presenter;
+
+import com.liskovsoft.sharedutils.helpers.Helpers;
+import com.liskovsoft.smartyoutubetv2.common.app.models.data.VideoGroup;
+import com.liskovsoft.smartyoutubetv2.tv.adapter.VideoGroupObjectAdapter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the suggestion rows of the previous video until the groups of the next video arrive.<br/>
+ * Rows are matched by the group id and the card presenter. The contents of a matched row are diffed,
+ * so only the changed rows and cards are rebound (the queue or the channel uploads usually stay the same).<br/>
+ * Rows that aren't claimed are removed once the next groups are applied (the main loop pass after them),
+ * when the suggestions are cleared again before any group (the data of the next video has arrived) or when the groups don't arrive in time.<br/>
+ * Live rows go first, the stale rows follow them.
+ */
+public class SuggestionRowPool {
+    /**
+     * Suggestions are loaded from the network after the video is opened
+     */
+    static final long SWEEP_TIMEOUT_MS = 5_000;
+    private final ArrayObjectAdapter mRowsAdapter;
+    private final int mStartIndex;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, ListRow> mStaleRows = new HashMap<>();
+    private final Runnable mSweep = this::sweep;
+    private int mLiveRowCount;
+    private boolean mIsSweepPending;
+    private int mCreatedRowCount;
+    private int mReusedRowCount;
+
+    public SuggestionRowPool(ArrayObjectAdapter rowsAdapter, int startIndex) {
+        mRowsAdapter = rowsAdapter;
+        mStartIndex = startIndex;
+    }
+
+    /**
+     * Current rows become reusable. They stay on the screen until claimed by the next groups or swept.
+     */
+    public void recycle() {
+        // Nothing is claimed since the previous call. The suggestions of the next video are here, the groups come in the same pass.
+        boolean isDataArrived = mIsSweepPending && mLiveRowCount == 0;
+
+        for (int i = mStartIndex; i < mRowsAdapter.size(); i++) {
+            Object row = mRowsAdapter.get(i);
+
+            if (row instanceof ListRow && ((ListRow) row).getAdapter() instanceof VideoGroupObjectAdapter) {
+                String key = getKey((ListRow) row);
+
+                if (key != null && !mStaleRows.containsKey(key)) {
+                    mStaleRows.put(key, (ListRow) row);
+                }
+            }
+        }
+
+        mLiveRowCount = 0;
+
+        mIsSweepPending = true;
+        mHandler.removeCallbacks(mSweep);
+
+        if (isDataArrived) {
+            mHandler.post(mSweep);
+        } else {
+            mHandler.postDelayed(mSweep, SWEEP_TIMEOUT_MS);
+        }
+    }
+
+    /**
+     * Row with the group contents placed after the other live rows (or at the group position).
+     */
+    public ListRow obtain(VideoGroup group, Presenter presenter) {
+        int groupPosition = group.getPosition();
+        int position = mStartIndex + (groupPosition == -1 || groupPosition > mLiveRowCount ? mLiveRowCount : groupPosition);
+
+        ListRow row = mStaleRows.remove(getKey(group, presenter));
+        int stalePosition = row != null ? mRowsAdapter.indexOf(row) : -1;
+
+        if (stalePosition >= mStartIndex + mLiveRowCount) {
+            ((VideoGroupObjectAdapter) row.getAdapter()).replace(group);
+
+            if (stalePosition != position) {
+                mRowsAdapter.move(stalePosition, position);
+            }
+
+            HeaderItem header = row.getHeaderItem();
+
+            if (header == null || !Helpers.equals(header.getName(), group.getTitle())) {
+                row.setHeaderItem(new HeaderItem(group.getTitle()));
+                // The header is bound with the row
+                mRowsAdapter.notifyArrayItemRangeChanged(position, 1);
+            }
+
+            mReusedRowCount++;
+        } else {
+            row = new ListRow(new HeaderItem(group.getTitle()), new VideoGroupObjectAdapter(group, presenter));
+            mRowsAdapter.add(position, row);
+            mCreatedRowCount++;
+        }
+
+        mLiveRowCount++;
+
+        // The rest of the groups come in the same pass
+        if (mIsSweepPending) {
+            mHandler.removeCallbacks(mSweep);
+            mHandler.post(mSweep);
+        }
+
+        return row;
+    }
+
+    public void remove(int position) {
+        if (position < mStartIndex || position >= mRowsAdapter.size()) {
+            return;
+        }
+
+        mRowsAdapter.removeItems(position, 1);
+
+        if (position < mStartIndex + mLiveRowCount) {
+            mLiveRowCount--;
+        }
+    }
+
+    /**
+     * Removes the rows that aren't claimed.
+     */
+    public void sweep() {
+        mIsSweepPending = false;
+        mHandler.removeCallbacks(mSweep);
+        mStaleRows.clear();
+
+        int staleStart = mStartIndex + mLiveRowCount;
+
+        if (mRowsAdapter.size() > staleStart) {
+            mRowsAdapter.removeItems(staleStart, mRowsAdapter.size() - staleStart);
+        }
+    }
+
+    public void release() {
+        mIsSweepPending = false;
+        mHandler.removeCallbacks(mSweep);
+        mStaleRows.clear();
+        mLiveRowCount = 0;
+    }
+
+    public int getLiveRowCount() {
+        return mLiveRowCount;
+    }
+
+    public int getCreatedRowCount() {
+        return mCreatedRowCount;
+    }
+
+    public int getReusedRowCount() {
+        return mReusedRowCount;
+    }
+
+    private static String getKey(ListRow row) {
+        VideoGroupObjectAdapter adapter = (VideoGroupObjectAdapter) row.getAdapter();
+
+        if (adapter.getAllGroups().isEmpty()) {
+            return null;
+        }
+
+        return getKey(adapter.getAllGroups().get(0), adapter.getPresenter(null));
+    }
+
+    private static String getKey(VideoGroup group, Presenter presenter) {
+        return group.getId() + "/" + (presenter != null ? presenter.getClass().getSimpleName() : null);
+    }
+}
@@ -20,7 +20,9 @@ import androidx.leanback.widget.PlaybackRowPresenter;
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.request.target.SimpleTarget;
 import com.bumptech.glide.request.transition.Transition;
+import com.google.android.exoplayer2.C;
 import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.controller.SeekScheduler;
 import com.liskovsoft.smartyoutubetv2.common.prefs.GeneralData;
 import com.liskovsoft.smartyoutubetv2.common.prefs.PlayerTweaksData;
 import com.liskovsoft.smartyoutubetv2.tv.R;
@@ -103,6 +105,7 @@ public class VideoPlayerGlue extends MaxControlsVideoPlayerGlue<PlayerAdapter> i
     private final PlayerTweaksData mPlayerTweaksData;
     private final GeneralData mGeneralData;
     private int mPreviousAction = KeyEvent.ACTION_UP;
+    private SeekScheduler mSeekScheduler;
 
     public VideoPlayerGlue(
             Context context,
@@ -312,20 +315,44 @@ public class VideoPlayerGlue extends MaxControlsVideoPlayerGlue<PlayerAdapter> i
 
     /** Skips backwards 10 seconds. */
     public void rewind() {
-        long newPosition = getCurrentPosition() - TEN_SECONDS;
+        long newPosition = getSeekBasePosition() - TEN_SECONDS;
         newPosition = (newPosition < 0) ? 0 : newPosition;
-        getPlayerAdapter().seekTo(newPosition);
+        seekTo(newPosition);
     }
 
     /** Skips forward 10 seconds. */
     public void fastForward() {
         if (getDuration() > -1) {
-            long newPosition = getCurrentPosition() + TEN_SECONDS;
+            long newPosition = getSeekBasePosition() + TEN_SECONDS;
             newPosition = Math.min(newPosition, getDuration());
-            getPlayerAdapter().seekTo(newPosition);
+            seekTo(newPosition);
         }
     }
 
+    /**
+     * User seeks go through the scheduler. Rapid seeks are coalesced there.
+     */
+    public void setSeekScheduler(SeekScheduler seekScheduler) {
+        mSeekScheduler = seekScheduler;
+    }
+
+    @Override
+    public void seekTo(long position) {
+        if (mSeekScheduler != null) {
+            mSeekScheduler.seekTo(position);
+        } else {
+            super.seekTo(position);
+        }
+    }
+
+    /**
+     * Repeated key presses should add up even when the previous seek isn't done yet.
+     */
+    private long getSeekBasePosition() {
+        long targetPosition = mSeekScheduler != null ? mSeekScheduler.getTargetPositionMs() : C.TIME_UNSET;
+        return targetPosition != C.TIME_UNSET ? targetPosition : getCurrentPosition();
+    }
+
     public void setPlaylistAddButtonState(boolean selected) {
         mPlaylistAddAction.setIndex(selected ? TwoStateAction.INDEX_ON : TwoStateAction.INDEX_OFF);
         invalidateUi(mPlaylistAddAction);
@@ -2,14 +2,6 @@ package com.liskovsoft.smartyoutubetv2.tv.ui.playback.previewtimebar;
 
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.graphics.drawable.Drawable;
-import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
-import androidx.collection.ArraySet;
-import com.bumptech.glide.Glide;
-import com.bumptech.glide.request.target.CustomTarget;
-import com.bumptech.glide.request.target.Target;
-import com.bumptech.glide.request.transition.Transition;
 import com.liskovsoft.mediaserviceinterfaces.MediaItemService;
 import com.liskovsoft.mediaserviceinterfaces.ServiceManager;
 import com.liskovsoft.mediaserviceinterfaces.data.MediaItemStoryboard;
@@ -17,13 +9,10 @@ import com.liskovsoft.mediaserviceinterfaces.data.MediaItemStoryboard.Size;
 import com.liskovsoft.sharedutils.mylogger.Log;
 import com.liskovsoft.sharedutils.rx.RxHelper;
 import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
-import com.liskovsoft.smartyoutubetv2.tv.util.ViewUtil;
 import com.liskovsoft.youtubeapi.service.YouTubeServiceManager;
 import io.reactivex.Observable;
 import io.reactivex.disposables.Disposable;
 
-import java.util.Set;
-
 public class StoryboardManager {
     private static final String TAG = StoryboardManager.class.getSimpleName();
     private static final long FRAME_DURATION_MS = 10_000;
@@ -37,7 +26,7 @@ public class StoryboardManager {
     private Disposable mFormatAction;
     private long[] mSeekPositions;
     private int mCurrentImgNum = -1;
-    private final Set<Integer> mCachedImageNums = new ArraySet<>();
+    private final StoryboardSheetCache mSheetCache;
     private int mSeekDirection = DIRECTION_RIGHT;
 
     public interface Callback {
@@ -48,13 +37,16 @@ public class StoryboardManager {
         mContext = context;
         ServiceManager service = YouTubeServiceManager.instance();
         mMediaItemService = service.getMediaItemService();
+        mSheetCache = new StoryboardSheetCache(context);
+        mSheetCache.setUrlProvider(sheetNum -> mStoryboard != null ? mStoryboard.getGroupUrl(sheetNum) : null);
     }
 
     public void init(Video video, long lengthMs) {
         mLengthMs = lengthMs;
         mSeekPositions = null;
         mStoryboard = null;
-        mCachedImageNums.clear();
+        mCurrentImgNum = -1;
+        mSheetCache.clear();
 
         RxHelper.disposeActions(mFormatAction);
 
@@ -137,33 +129,20 @@ public class StoryboardManager {
         int groupNum = (int) currentPosition / mStoryboard.getGroupDurationMS();
         long realPosMS = currentPosition % mStoryboard.getGroupDurationMS();
         Size size = mStoryboard.getGroupSize();
-        GlideThumbnailTransformation transformation =
-                new GlideThumbnailTransformation(realPosMS, size.getWidth(), size.getHeight(), size.getRowCount(), size.getColCount(), size.getDurationEachMS());
+        int tileNum = (int) realPosMS / size.getDurationEachMS();
 
         //Log.d(TAG, "Loading preview. Position: %s, groupNum: %s, groupDurationMS: %s, groupSize", currentPosition, groupNum, mStoryboard.getGroupDurationMS(), size);
 
-        Glide.with(mContext)
-                .asBitmap()
-                .load(mStoryboard.getGroupUrl(groupNum))
-                .apply(ViewUtil.glideOptions())
-                .override(Target.SIZE_ORIGINAL, Target.SIZE_ORIGINAL)
-                .transform(transformation)
-                .into(new CustomTarget<Bitmap>() {
-                    @Override
-                    public void onResourceReady(@NonNull Bitmap resource, @Nullable Transition<? super Bitmap> transition) {
-                        //Log.d(TAG, "onPreviewLoaded: image hashCode: %s", resource.hashCode());
-                        callback.onBitmapLoaded(resource);
-                    }
-
-                    @Override
-                    public void onLoadCleared(@Nullable Drawable placeholder) {
-                        // NOP
-                    }
-                });
+        mSheetCache.getSheet(groupNum, sheet -> {
+            Bitmap tile = StoryboardSheetCache.getTile(sheet, tileNum, size.getWidth(), size.getHeight(), size.getRowCount(), size.getColCount());
+
+            if (tile != null) {
+                callback.onBitmapLoaded(tile);
+            }
+        });
 
         if (mCurrentImgNum != groupNum) {
             mSeekDirection = mCurrentImgNum < groupNum ? DIRECTION_RIGHT : DIRECTION_LEFT;
-            mCachedImageNums.add(groupNum);
             mCurrentImgNum = groupNum;
 
             preloadNextImage();
@@ -182,18 +161,6 @@ public class StoryboardManager {
     }
 
     private void preloadImage(int imgNum) {
-        if (mCachedImageNums.contains(imgNum) || imgNum < 0) {
-            return;
-        }
-
-        Log.d(TAG, "Oops, image #" + imgNum + " didn't cached yet");
-
-        mCachedImageNums.add(imgNum);
-
-        String link = mStoryboard.getGroupUrl(imgNum);
-
-        Glide.with(mContext)
-                .load(link)
-                .preload();
+        mSheetCache.prefetch(imgNum);
     }
 }
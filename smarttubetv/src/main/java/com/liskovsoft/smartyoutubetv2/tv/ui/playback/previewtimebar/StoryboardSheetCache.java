@@ -0,0 +1,180 @@
+package com.liskovsoft.smartyoutubetv2.tv.ui.playback.previewtimebar;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.Drawable;
+import android.util.LruCache;
+import android.util.SparseArray;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.request.target.CustomTarget;
+import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.request.transition.Transition;
+import com.liskovsoft.sharedutils.mylogger.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes every storyboard sheet once and keeps a byte-bounded LRU of the sheets around the scrub position.<br/>
+ * Tiles are sliced from the decoded sheet by index.
+ */
+public class StoryboardSheetCache {
+    private static final String TAG = StoryboardSheetCache.class.getSimpleName();
+    private static final int MAX_CACHE_BYTES = 12 * 1024 * 1024;
+    private final Context mContext;
+    private final LruCache<Integer, Bitmap> mSheets;
+    private final SparseArray<SheetTarget> mPendingSheets = new SparseArray<>();
+    private final RequestOptions mOptions;
+    private UrlProvider mUrlProvider;
+
+    public interface UrlProvider {
+        String getSheetUrl(int sheetNum);
+    }
+
+    public interface SheetCallback {
+        void onSheetLoaded(Bitmap sheet);
+    }
+
+    private class SheetTarget extends CustomTarget<Bitmap> {
+        private final int mSheetNum;
+        private final List<SheetCallback> mCallbacks = new ArrayList<>();
+
+        private SheetTarget(int sheetNum) {
+            super(Target.SIZE_ORIGINAL, Target.SIZE_ORIGINAL);
+            mSheetNum = sheetNum;
+        }
+
+        @Override
+        public void onResourceReady(@NonNull Bitmap resource, @Nullable Transition<? super Bitmap> transition) {
+            if (mPendingSheets.get(mSheetNum) != this) {
+                return; // cache was cleared
+            }
+
+            mPendingSheets.remove(mSheetNum);
+            mSheets.put(mSheetNum, resource);
+
+            for (SheetCallback callback : mCallbacks) {
+                callback.onSheetLoaded(resource);
+            }
+        }
+
+        @Override
+        public void onLoadFailed(@Nullable Drawable errorDrawable) {
+            if (mPendingSheets.get(mSheetNum) == this) {
+                mPendingSheets.remove(mSheetNum);
+            }
+
+            Log.e(TAG, "Can't load storyboard sheet #%s", mSheetNum);
+        }
+
+        @Override
+        public void onLoadCleared(@Nullable Drawable placeholder) {
+            // NOP
+        }
+    }
+
+    public StoryboardSheetCache(Context context) {
+        mContext = context;
+        mSheets = new LruCache<Integer, Bitmap>(Math.min(MAX_CACHE_BYTES, (int) (Runtime.getRuntime().maxMemory() / 16))) {
+            @Override
+            protected int sizeOf(Integer key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+        mOptions = new RequestOptions()
+                .format(DecodeFormat.PREFER_RGB_565) // half of the ARGB_8888 size, previews have no alpha
+                .diskCacheStrategy(DiskCacheStrategy.DATA) // raw sheet only, decoded sheets are kept here
+                .skipMemoryCache(true);
+    }
+
+    public void setUrlProvider(UrlProvider urlProvider) {
+        mUrlProvider = urlProvider;
+    }
+
+    public void getSheet(int sheetNum, SheetCallback callback) {
+        Bitmap sheet = mSheets.get(sheetNum);
+
+        if (sheet != null) {
+            callback.onSheetLoaded(sheet);
+            return;
+        }
+
+        SheetTarget target = load(sheetNum);
+
+        if (target != null) {
+            target.mCallbacks.clear(); // show only the latest seek position
+            target.mCallbacks.add(callback);
+        }
+    }
+
+    public void prefetch(int sheetNum) {
+        if (sheetNum < 0 || mSheets.get(sheetNum) != null) {
+            return;
+        }
+
+        load(sheetNum);
+    }
+
+    /**
+     * Drops all sheets of the previous video.
+     */
+    public void clear() {
+        for (int i = 0; i < mPendingSheets.size(); i++) {
+            Glide.with(mContext).clear(mPendingSheets.valueAt(i));
+        }
+
+        mPendingSheets.clear();
+        mSheets.evictAll();
+    }
+
+    /**
+     * Returns null if the tile is outside of the sheet (e.g. partially filled last sheet).
+     */
+    @Nullable
+    public static Bitmap getTile(Bitmap sheet, int tileNum, int tileWidth, int tileHeight, int rowCount, int colCount) {
+        int width = tileWidth > 0 ? tileWidth : sheet.getWidth() / colCount;
+        int height = tileHeight > 0 ? tileHeight : sheet.getHeight() / rowCount;
+        int x = (tileNum % colCount) * width;
+        int y = (tileNum / colCount) * height;
+
+        if (width <= 0 || height <= 0 || x + width > sheet.getWidth() || y + height > sheet.getHeight()) {
+            return null;
+        }
+
+        return Bitmap.createBitmap(sheet, x, y, width, height);
+    }
+
+    private SheetTarget load(int sheetNum) {
+        if (mUrlProvider == null) {
+            return null;
+        }
+
+        SheetTarget target = mPendingSheets.get(sheetNum);
+
+        if (target != null) {
+            return target;
+        }
+
+        String url = mUrlProvider.getSheetUrl(sheetNum);
+
+        if (url == null) {
+            return null;
+        }
+
+        target = new SheetTarget(sheetNum);
+        mPendingSheets.put(sheetNum, target);
+
+        Glide.with(mContext)
+                .asBitmap()
+                .load(url)
+                .apply(mOptions)
+                .into(target);
+
+        return target;
+    }
+}
@@ -2,10 +2,18 @@ package com.liskovsoft.smartyoutubetv2.tv.util;
 
 import android.content.Context;
 
+import androidx.annotation.NonNull;
+import com.bumptech.glide.Glide;
 import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.Registry;
 import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.integration.okhttp3.OkHttpUrlLoader;
 import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.model.GlideUrl;
 import com.bumptech.glide.module.AppGlideModule;
+import com.liskovsoft.smartyoutubetv2.common.misc.MediaNetworkStack;
+
+import java.io.InputStream;
 
 /**
  * https://bumptech.github.io/glide/doc/configuration.html#disk-cache<br/>
@@ -23,4 +31,12 @@ public class GlideCachingModule extends AppGlideModule {
         // Limit cache size
         builder.setDiskCache(new InternalCacheDiskCacheFactory(context, CACHE_SIZE));
     }
+
+    @Override
+    public void registerComponents(@NonNull Context context, @NonNull Glide glide, @NonNull Registry registry) {
+        // Thumbnails and storyboards use the connections of the player.
+        // The client is taken on each request because it's replaced when the proxy is changed.
+        MediaNetworkStack networkStack = MediaNetworkStack.instance(context);
+        registry.replace(GlideUrl.class, InputStream.class, new OkHttpUrlLoader.Factory(request -> networkStack.getOkHttpClient().newCall(request)));
+    }
 }
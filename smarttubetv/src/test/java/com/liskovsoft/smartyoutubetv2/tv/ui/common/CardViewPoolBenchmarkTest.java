@@ -0,0 +1,332 @@
+package com.liskovsoft.smartyoutubetv2.tv.ui.common;
+
+import android.app.Activity;
+import android.content.Context;
+import android.util.Pair;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import androidx.leanback.widget.ArrayObjectAdapter;
+import androidx.leanback.widget.BaseGridView;
+import androidx.leanback.widget.FocusHighlight;
+import androidx.leanback.widget.Presenter;
+import androidx.leanback.widget.VerticalGridPresenter;
+import androidx.leanback.widget.VerticalGridView;
+
+import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
+import com.liskovsoft.smartyoutubetv2.tv.R;
+import com.liskovsoft.smartyoutubetv2.tv.presenter.VideoCardPresenter;
+import com.liskovsoft.smartyoutubetv2.tv.ui.widgets.complexcardview.ComplexImageCardView;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Opens a sequence of sections (a new grid and a new card presenter each, like the browse fragments do),
+ * scrolls every one of them frame by frame and counts the card inflates and binds per frame.
+ * The same run is done with the own pool of every grid and with {@link CardViewPool}.<br/>
+ * The per frame numbers are written to build/reports/benchmarks/card_view_pool.json of the module.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CardViewPoolBenchmarkTest {
+    private static final int SCREEN_WIDTH = 1920;
+    private static final int SCREEN_HEIGHT = 1080;
+    private static final int CARD_WIDTH = 320;
+    private static final int CARD_HEIGHT = 240;
+    private static final int COLUMNS = 5;
+    private static final int ITEM_COUNT = 200;
+    private static final int SECTION_COUNT = 6;
+    private static final int FRAME_COUNT = 60;
+    private static final int SCROLL_PER_FRAME = 40;
+    private static final long FRAME_NANOS = 16_666_667;
+    // Relative to the module dir
+    private static final File REPORT_FILE = new File("build/reports/benchmarks/card_view_pool.json");
+    private Activity mActivity;
+    private FrameLayout mRoot;
+
+    private static class Counter {
+        private int mInflates;
+        private int mBinds;
+    }
+
+    private static class CardPresenter extends Presenter {
+        private final Counter mCounter;
+
+        private CardPresenter(Counter counter) {
+            mCounter = counter;
+        }
+
+        @Override
+        public ViewHolder onCreateViewHolder(ViewGroup parent) {
+            mCounter.mInflates++;
+            View view = new View(parent.getContext());
+            view.setLayoutParams(new ViewGroup.LayoutParams(CARD_WIDTH, CARD_HEIGHT));
+            view.setFocusable(true);
+            view.setTag(getClass());
+            return new ViewHolder(view);
+        }
+
+        @Override
+        public void onBindViewHolder(ViewHolder viewHolder, Object item) {
+            mCounter.mBinds++;
+            // The card of the other presenter class must never be reused
+            assertSame(getClass(), viewHolder.view.getTag());
+        }
+
+        @Override
+        public void onUnbindViewHolder(ViewHolder viewHolder) {
+        }
+    }
+
+    private static class ShortsPresenter extends CardPresenter {
+        private ShortsPresenter(Counter counter) {
+            super(counter);
+        }
+    }
+
+    /**
+     * Real card presenter with fixed dimensions
+     */
+    private static class FixedVideoCardPresenter extends VideoCardPresenter {
+        private final Counter mCounter;
+
+        private FixedVideoCardPresenter(Counter counter) {
+            mCounter = counter;
+        }
+
+        @Override
+        public ViewHolder onCreateViewHolder(ViewGroup parent) {
+            mCounter.mInflates++;
+            return super.onCreateViewHolder(parent);
+        }
+
+        @Override
+        protected Pair<Integer, Integer> getCardDimensPx(Context context) {
+            return new Pair<>(CARD_WIDTH, CARD_HEIGHT);
+        }
+    }
+
+    private static class Result {
+        private int mInflates;
+        private int mBinds;
+        private int mMaxInflatesPerFrame;
+        private final List<Integer> mFrameInflates = new ArrayList<>();
+        private final List<Integer> mFrameBinds = new ArrayList<>();
+
+        private void onFrame(int inflates, int binds) {
+            mFrameInflates.add(inflates);
+            mFrameBinds.add(binds);
+            mMaxInflatesPerFrame = Math.max(mMaxInflatesPerFrame, inflates);
+        }
+
+        private String toJson() {
+            return String.format(Locale.US, "{\"inflates\": %d, \"binds\": %d, \"maxInflatesPerFrame\": %d, \"frameInflates\": %s, \"frameBinds\": %s}",
+                    mInflates, mBinds, mMaxInflatesPerFrame, mFrameInflates, mFrameBinds);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.buildActivity(Activity.class).setup().get();
+        mActivity.setTheme(R.style.App_Theme_Leanback_Browse);
+        mRoot = new FrameLayout(mActivity);
+        mActivity.setContentView(mRoot);
+    }
+
+    @After
+    public void tearDown() {
+        BaseGridView.setItemPrefetchEnabledByDefault(false);
+    }
+
+    @Test
+    public void testSharedPoolInflatesLess() throws IOException {
+        Result own = run(null, false);
+        Result shared = run(new CardViewPool(), false);
+        writeReport(own, shared);
+        assertTrue(REPORT_FILE.length() > 0);
+
+        // Only the first section fills the pool
+        assertTrue("Shared: " + shared.mInflates + ", own: " + own.mInflates, shared.mInflates * 3 <= own.mInflates);
+        // Scrolling binds the same cards
+        assertEquals(own.mBinds, shared.mBinds, own.mBinds / 10);
+        // No frame inflates more than the first layout of the section
+        assertTrue(shared.mMaxInflatesPerFrame <= own.mMaxInflatesPerFrame);
+    }
+
+    @Test
+    public void testPresenterClassesAreNotMixed() {
+        Result shared = run(new CardViewPool(), true);
+
+        assertTrue(shared.mBinds > 0);
+    }
+
+    @Test
+    public void testPooledCardIsBoundByNewPresenter() {
+        CardViewPool pool = new CardViewPool();
+        VerticalGridPresenter gridPresenter = new VerticalGridPresenter(FocusHighlight.ZOOM_FACTOR_NONE, false);
+        gridPresenter.setNumberOfColumns(COLUMNS);
+        gridPresenter.setShadowEnabled(false);
+
+        // The first section fills the pool and is closed
+        Counter firstCounter = new Counter();
+        VerticalGridPresenter.ViewHolder first = openSection(pool, gridPresenter, new FixedVideoCardPresenter(firstCounter));
+        gridPresenter.onUnbindViewHolder(first);
+        mRoot.removeView(first.view);
+        assertTrue(firstCounter.mInflates > 0);
+
+        // The second section gets all of its cards from the pool
+        Counter secondCounter = new Counter();
+        FixedVideoCardPresenter secondPresenter = new FixedVideoCardPresenter(secondCounter);
+        VerticalGridPresenter.ViewHolder second = openSection(pool, gridPresenter, secondPresenter);
+        VerticalGridView grid = second.getGridView();
+
+        assertEquals(0, secondCounter.mInflates);
+        assertTrue(grid.getChildCount() > 0);
+
+        for (int i = 0; i < grid.getChildCount(); i++) {
+            ComplexImageCardView cardView = (ComplexImageCardView) grid.getChildAt(i);
+            assertSame(secondPresenter, cardView.getTag(R.id.card_presenter));
+            assertEquals(CARD_WIDTH, cardView.getMainImageView().getLayoutParams().width);
+            assertEquals(CARD_HEIGHT, cardView.getMainImageView().getLayoutParams().height);
+        }
+    }
+
+    @Test
+    public void testPrefetchFollowsFrameTime() {
+        PrefetchPolicy policy = new PrefetchPolicy();
+        VerticalGridView grid = new VerticalGridView(mActivity);
+        policy.attach(grid);
+        // Display of the attached grid
+        policy.setRefreshRate(60);
+        assertFalse(grid.isItemPrefetchEnabled());
+
+        // Smooth scroll
+        feedFrames(policy, 0);
+        assertTrue(policy.isEnabled());
+        assertTrue(grid.isItemPrefetchEnabled());
+        assertTrue(BaseGridView.isItemPrefetchEnabledByDefault());
+
+        // Few late frames are tolerated
+        feedFrames(policy, 10);
+        assertTrue(policy.isEnabled());
+
+        // The device doesn't keep up
+        feedFrames(policy, 20);
+        assertFalse(policy.isEnabled());
+        assertFalse(grid.isItemPrefetchEnabled());
+        assertFalse(BaseGridView.isItemPrefetchEnabledByDefault());
+
+        // Slightly late frames don't enable it again
+        for (int i = 0; i < 120; i++) {
+            policy.onFrame(FRAME_NANOS * 3 / 2);
+        }
+        assertFalse(policy.isEnabled());
+    }
+
+    /**
+     * @param latePercent share of the frames three times longer than the refresh interval
+     */
+    private static void feedFrames(PrefetchPolicy policy, int latePercent) {
+        for (int i = 0; i < 120; i++) {
+            policy.onFrame(i % 100 < latePercent ? FRAME_NANOS * 3 : FRAME_NANOS);
+        }
+    }
+
+    private Result run(CardViewPool pool, boolean mixPresenters) {
+        Result result = new Result();
+        Counter counter = new Counter();
+        VerticalGridPresenter gridPresenter = new VerticalGridPresenter(FocusHighlight.ZOOM_FACTOR_NONE, false);
+        gridPresenter.setNumberOfColumns(COLUMNS);
+        gridPresenter.setShadowEnabled(false);
+
+        for (int section = 0; section < SECTION_COUNT; section++) {
+            Presenter cardPresenter = mixPresenters && section % 2 == 1 ? new ShortsPresenter(counter) : new CardPresenter(counter);
+            ArrayObjectAdapter adapter = new ArrayObjectAdapter(cardPresenter);
+            for (int i = 0; i < ITEM_COUNT; i++) {
+                adapter.add(section * ITEM_COUNT + i);
+            }
+
+            VerticalGridPresenter.ViewHolder gridViewHolder = gridPresenter.onCreateViewHolder(mRoot);
+            if (pool != null) {
+                pool.attach(gridViewHolder);
+            }
+            mRoot.addView(gridViewHolder.view, new FrameLayout.LayoutParams(SCREEN_WIDTH, SCREEN_HEIGHT));
+            gridPresenter.onBindViewHolder(gridViewHolder, adapter);
+
+            int inflates = counter.mInflates;
+            int binds = counter.mBinds;
+            layout(gridViewHolder.view);
+            result.onFrame(counter.mInflates - inflates, counter.mBinds - binds);
+
+            for (int frame = 0; frame < FRAME_COUNT; frame++) {
+                inflates = counter.mInflates;
+                binds = counter.mBinds;
+                gridViewHolder.getGridView().scrollBy(0, SCROLL_PER_FRAME);
+                layout(gridViewHolder.view);
+                result.onFrame(counter.mInflates - inflates, counter.mBinds - binds);
+            }
+
+            // Section is closed (GridFragment.onDestroyView)
+            gridPresenter.onUnbindViewHolder(gridViewHolder);
+            mRoot.removeView(gridViewHolder.view);
+        }
+
+        result.mInflates = counter.mInflates;
+        result.mBinds = counter.mBinds;
+        return result;
+    }
+
+    private VerticalGridPresenter.ViewHolder openSection(CardViewPool pool, VerticalGridPresenter gridPresenter, Presenter cardPresenter) {
+        ArrayObjectAdapter adapter = new ArrayObjectAdapter(cardPresenter);
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            Video video = new Video();
+            video.title = "Video " + i;
+            adapter.add(video);
+        }
+
+        VerticalGridPresenter.ViewHolder gridViewHolder = gridPresenter.onCreateViewHolder(mRoot);
+        pool.attach(gridViewHolder);
+        mRoot.addView(gridViewHolder.view, new FrameLayout.LayoutParams(SCREEN_WIDTH, SCREEN_HEIGHT));
+        gridPresenter.onBindViewHolder(gridViewHolder, adapter);
+        layout(gridViewHolder.view);
+
+        return gridViewHolder;
+    }
+
+    private static void writeReport(Result own, Result shared) throws IOException {
+        File dir = REPORT_FILE.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Can't create the report dir: " + dir);
+        }
+
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(REPORT_FILE), StandardCharsets.UTF_8)) {
+            writer.write(String.format("{\n  \"own\": %s,\n  \"shared\": %s\n}\n", own.toJson(), shared.toJson()));
+        }
+    }
+
+    private static void layout(View view) {
+        view.measure(View.MeasureSpec.makeMeasureSpec(SCREEN_WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(SCREEN_HEIGHT, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT);
+    }
+}
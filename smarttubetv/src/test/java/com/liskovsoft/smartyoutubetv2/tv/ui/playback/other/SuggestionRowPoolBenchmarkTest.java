@@ -0,0 +1,337 @@
+package com.liskovsoft.smartyoutubetv2.tv.ui.playback.other;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.leanback.widget.ArrayObjectAdapter;
+import androidx.leanback.widget.ListRow;
+import androidx.leanback.widget.ObjectAdapter;
+import androidx.leanback.widget.Presenter;
+
+import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
+import com.liskovsoft.smartyoutubetv2.common.app.models.data.VideoGroup;
+import com.liskovsoft.smartyoutubetv2.tv.adapter.VideoGroupObjectAdapter;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Switches the suggestions of a sequence of videos (autoplay, next) the old way (remove all rows, create new ones)
+ * and through {@link SuggestionRowPool}. Counts the row and card binds that the rows adapter would cause.<br/>
+ * Like in the app, the suggestions are cleared when the video is opened and the groups arrive after the network latency.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SuggestionRowPoolBenchmarkTest {
+    private static final int SUGGESTIONS_START_INDEX = 1;
+    private static final int VIDEO_COUNT = 20;
+    private static final int ROW_SIZE = 20;
+    private static final int SUGGESTIONS_SHIFT = 5;
+    private static final long NETWORK_LATENCY_MS = 500;
+    private static final Object CONTROLS_ROW = new Object();
+    private final Presenter mCardPresenter = new CardPresenter();
+    private final Presenter mShortsPresenter = new ShortsPresenter();
+
+    private static class CardPresenter extends Presenter {
+        @Override
+        public ViewHolder onCreateViewHolder(ViewGroup parent) {
+            return new ViewHolder(new View(parent.getContext()));
+        }
+
+        @Override
+        public void onBindViewHolder(ViewHolder viewHolder, Object item) {
+        }
+
+        @Override
+        public void onUnbindViewHolder(ViewHolder viewHolder) {
+        }
+    }
+
+    private static class ShortsPresenter extends CardPresenter {
+    }
+
+    /**
+     * Binds that RecyclerView does on the adapter notifications. All cards of a row are counted, not only the visible ones.
+     */
+    private static class BindCounter {
+        private final Set<ObjectAdapter> mObserved = Collections.newSetFromMap(new IdentityHashMap<>());
+        private int mRowBinds;
+        private int mCardBinds;
+
+        private void attach(ArrayObjectAdapter rowsAdapter) {
+            rowsAdapter.registerObserver(new ObjectAdapter.DataObserver() {
+                @Override
+                public void onChanged() {
+                    onItemRangeChanged(0, rowsAdapter.size());
+                }
+
+                @Override
+                public void onItemRangeChanged(int positionStart, int itemCount) {
+                    bindRows(rowsAdapter, positionStart, itemCount);
+                }
+
+                @Override
+                public void onItemRangeInserted(int positionStart, int itemCount) {
+                    bindRows(rowsAdapter, positionStart, itemCount);
+                }
+            });
+        }
+
+        private void bindRows(ArrayObjectAdapter rowsAdapter, int positionStart, int itemCount) {
+            for (int i = positionStart; i < positionStart + itemCount; i++) {
+                Object row = rowsAdapter.get(i);
+
+                if (row instanceof ListRow) {
+                    ObjectAdapter adapter = ((ListRow) row).getAdapter();
+                    mRowBinds++;
+                    mCardBinds += adapter.size();
+                    observe(adapter);
+                }
+            }
+        }
+
+        private void observe(ObjectAdapter adapter) {
+            if (!mObserved.add(adapter)) {
+                return;
+            }
+
+            adapter.registerObserver(new ObjectAdapter.DataObserver() {
+                @Override
+                public void onChanged() {
+                    mCardBinds += adapter.size();
+                }
+
+                @Override
+                public void onItemRangeChanged(int positionStart, int itemCount) {
+                    mCardBinds += itemCount;
+                }
+
+                @Override
+                public void onItemRangeInserted(int positionStart, int itemCount) {
+                    mCardBinds += itemCount;
+                }
+            });
+        }
+    }
+
+    private interface Switcher {
+        void onGroups(List<VideoGroup> groups, List<Presenter> presenters);
+    }
+
+    private ArrayObjectAdapter mRowsAdapter;
+    private BindCounter mCounter;
+
+    @Before
+    public void setUp() {
+        mRowsAdapter = new ArrayObjectAdapter();
+        mRowsAdapter.add(CONTROLS_ROW);
+        mCounter = new BindCounter();
+        mCounter.attach(mRowsAdapter);
+    }
+
+    @Test
+    public void testVideoSwitches() {
+        // Old way: PlaybackFragment.clearSuggestions + new rows
+        run(() -> mRowsAdapter.removeItems(SUGGESTIONS_START_INDEX, mRowsAdapter.size() - SUGGESTIONS_START_INDEX), (groups, presenters) -> {
+            for (int i = 0; i < groups.size(); i++) {
+                mRowsAdapter.add(new ListRow(new VideoGroupObjectAdapter(groups.get(i), presenters.get(i))));
+            }
+        });
+        int oldRowBinds = mCounter.mRowBinds;
+        int oldCardBinds = mCounter.mCardBinds;
+
+        setUp();
+        SuggestionRowPool pool = new SuggestionRowPool(mRowsAdapter, SUGGESTIONS_START_INDEX);
+        run(pool::recycle, (groups, presenters) -> {
+            for (int i = 0; i < groups.size(); i++) {
+                pool.obtain(groups.get(i), presenters.get(i));
+            }
+        });
+
+        assertTrue(mCounter.mRowBinds * 3 < oldRowBinds);
+        assertTrue(mCounter.mCardBinds * 2 < oldCardBinds);
+        assertTrue(pool.getReusedRowCount() > pool.getCreatedRowCount());
+    }
+
+    @Test
+    public void testRowsMatchTheLastVideo() {
+        SuggestionRowPool pool = new SuggestionRowPool(mRowsAdapter, SUGGESTIONS_START_INDEX);
+        List<ListRow> queueRows = new ArrayList<>();
+
+        run(pool::recycle, (groups, presenters) -> {
+            for (int i = 0; i < groups.size(); i++) {
+                ListRow row = pool.obtain(groups.get(i), presenters.get(i));
+
+                if ("Queue".equals(groups.get(i).getTitle())) {
+                    queueRows.add(row);
+                }
+            }
+        });
+
+        List<VideoGroup> lastGroups = createGroups(VIDEO_COUNT - 1);
+
+        // Unclaimed rows are swept
+        assertEquals(SUGGESTIONS_START_INDEX + lastGroups.size(), mRowsAdapter.size());
+        assertSame(CONTROLS_ROW, mRowsAdapter.get(0));
+
+        for (int i = 0; i < lastGroups.size(); i++) {
+            VideoGroupObjectAdapter adapter = (VideoGroupObjectAdapter) ((ListRow) mRowsAdapter.get(SUGGESTIONS_START_INDEX + i)).getAdapter();
+            assertEquals(lastGroups.get(i).getVideos(), adapter.getAll());
+        }
+
+        // Same row while the queue is shown
+        assertSame(queueRows.get(queueRows.size() - 2), queueRows.get(queueRows.size() - 1));
+    }
+
+    @Test
+    public void testClearedSuggestionsAreSwept() {
+        SuggestionRowPool pool = new SuggestionRowPool(mRowsAdapter, SUGGESTIONS_START_INDEX);
+        List<VideoGroup> groups = createGroups(0);
+
+        for (VideoGroup group : groups) {
+            pool.obtain(group, mCardPresenter);
+        }
+
+        pool.recycle();
+        assertEquals(0, pool.getLiveRowCount());
+
+        // Suggestions don't arrive
+        ShadowLooper.idleMainLooper(SuggestionRowPool.SWEEP_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+        assertEquals(SUGGESTIONS_START_INDEX, mRowsAdapter.size());
+    }
+
+    @Test
+    public void testStaleRowsWaitForSuggestions() {
+        SuggestionRowPool pool = new SuggestionRowPool(mRowsAdapter, SUGGESTIONS_START_INDEX);
+        List<VideoGroup> groups = createGroups(0);
+
+        for (VideoGroup group : groups) {
+            pool.obtain(group, mCardPresenter);
+        }
+
+        pool.recycle();
+        ShadowLooper.idleMainLooper(NETWORK_LATENCY_MS, TimeUnit.MILLISECONDS);
+
+        // The screen isn't emptied while the suggestions are loading
+        assertEquals(SUGGESTIONS_START_INDEX + groups.size(), mRowsAdapter.size());
+
+        // Queue is absent
+        List<VideoGroup> nextGroups = createGroups(3);
+
+        for (VideoGroup group : nextGroups) {
+            pool.obtain(group, mCardPresenter);
+        }
+
+        ShadowLooper.idleMainLooper();
+
+        assertEquals(SUGGESTIONS_START_INDEX + nextGroups.size(), mRowsAdapter.size());
+        assertTrue(pool.getReusedRowCount() > 0);
+    }
+
+    @Test
+    public void testSecondClearSweepsAtOnce() {
+        SuggestionRowPool pool = new SuggestionRowPool(mRowsAdapter, SUGGESTIONS_START_INDEX);
+
+        for (VideoGroup group : createGroups(0)) {
+            pool.obtain(group, mCardPresenter);
+        }
+
+        pool.recycle();
+        ShadowLooper.idleMainLooper(NETWORK_LATENCY_MS, TimeUnit.MILLISECONDS);
+
+        // The next video has no suggestions
+        pool.recycle();
+        ShadowLooper.idleMainLooper();
+
+        assertEquals(SUGGESTIONS_START_INDEX, mRowsAdapter.size());
+    }
+
+    @Test
+    public void testReusedRowGetsNewTitle() {
+        SuggestionRowPool pool = new SuggestionRowPool(mRowsAdapter, SUGGESTIONS_START_INDEX);
+        VideoGroup group = createGroup("Suggestions", "suggestion", 0);
+        ListRow row = pool.obtain(group, mCardPresenter);
+        ShadowLooper.idleMainLooper();
+
+        pool.recycle();
+        ShadowLooper.idleMainLooper(NETWORK_LATENCY_MS, TimeUnit.MILLISECONDS);
+
+        VideoGroup nextGroup = createGroup("Up next", "suggestion", 0);
+        nextGroup.setId(group.getId());
+        int rowBinds = mCounter.mRowBinds;
+
+        assertSame(row, pool.obtain(nextGroup, mCardPresenter));
+        assertEquals("Up next", row.getHeaderItem().getName());
+        // Rebound at once, not when the stale rows are swept
+        assertEquals(rowBinds + 1, mCounter.mRowBinds);
+    }
+
+    private void run(Runnable clear, Switcher switcher) {
+        for (int i = 0; i < VIDEO_COUNT; i++) {
+            List<VideoGroup> groups = createGroups(i);
+            List<Presenter> presenters = new ArrayList<>();
+
+            for (VideoGroup group : groups) {
+                presenters.add("Shorts".equals(group.getTitle()) ? mShortsPresenter : mCardPresenter);
+            }
+
+            clear.run();
+            ShadowLooper.idleMainLooper(NETWORK_LATENCY_MS, TimeUnit.MILLISECONDS);
+
+            switcher.onGroups(groups, presenters);
+            // Next main loop pass
+            ShadowLooper.idleMainLooper();
+        }
+    }
+
+    /**
+     * Groups of the video as they come from the network (new instances every time):
+     * the queue (absent for every 4th video), the channel uploads (the channel changes every 5 videos),
+     * the suggestions (a part is replaced on every video) and the shorts (replaced completely).
+     */
+    private static List<VideoGroup> createGroups(int videoIndex) {
+        List<VideoGroup> groups = new ArrayList<>();
+
+        if (videoIndex % 4 != 3) {
+            groups.add(createGroup("Queue", "queue", 0));
+        }
+
+        int channel = videoIndex / 5;
+        groups.add(createGroup("More from channel " + channel, "channel" + channel, 0));
+        groups.add(createGroup("Suggestions", "suggestion", videoIndex * SUGGESTIONS_SHIFT));
+        groups.add(createGroup("Shorts", "short" + videoIndex, 0));
+
+        return groups;
+    }
+
+    private static VideoGroup createGroup(String title, String idPrefix, int firstIndex) {
+        List<Video> videos = new ArrayList<>();
+
+        for (int i = firstIndex; i < firstIndex + ROW_SIZE; i++) {
+            Video video = new Video();
+            video.videoId = idPrefix + i;
+            video.title = "Video " + idPrefix + i;
+            video.cardImageUrl = "https://i.ytimg.com/vi/" + video.videoId + "/hqdefault.jpg";
+            videos.add(video);
+        }
+
+        VideoGroup group = VideoGroup.from(videos);
+        group.setTitle(title);
+
+        return group;
+    }
+}